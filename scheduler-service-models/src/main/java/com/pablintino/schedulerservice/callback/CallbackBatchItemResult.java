@@ -0,0 +1,28 @@
+package com.pablintino.schedulerservice.callback;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/* Per message outcome of a batched HTTP callback. Status codes follow the HTTP semantics */
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class CallbackBatchItemResult {
+
+  private String id;
+
+  private String key;
+
+  private int status;
+
+  public CallbackBatchItemResult() {}
+
+  public CallbackBatchItemResult(String id, String key, int status) {
+    this.id = id;
+    this.key = key;
+    this.status = status;
+  }
+}
@@ -9,4 +9,6 @@ public class CallbackDescriptorDto {
   @NotNull private CallbackMethodTypeDto type;
 
   private String endpoint;
+
+  private boolean batched;
 }
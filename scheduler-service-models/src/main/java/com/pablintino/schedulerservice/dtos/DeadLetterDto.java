@@ -0,0 +1,23 @@
+package com.pablintino.schedulerservice.dtos;
+
+import com.pablintino.schedulerservice.callback.CallbackMessage;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class DeadLetterDto {
+  private long id;
+
+  private String taskIdentifier;
+
+  private String taskKey;
+
+  private CallbackDescriptorDto callbackDescriptor;
+
+  private Instant failureTime;
+
+  private String lastError;
+
+  private CallbackMessage message;
+}
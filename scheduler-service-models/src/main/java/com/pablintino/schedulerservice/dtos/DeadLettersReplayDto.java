@@ -0,0 +1,8 @@
+package com.pablintino.schedulerservice.dtos;
+
+import lombok.Data;
+
+@Data
+public class DeadLettersReplayDto {
+  private long queuedDeadLetters;
+}
@@ -0,0 +1,23 @@
+package com.pablintino.schedulerservice.dtos;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.Locale;
+
+public enum MisfirePolicyDto {
+  FIRE_ONCE,
+  SKIP,
+  FIRE_ALL;
+
+  @JsonCreator
+  public static MisfirePolicyDto create(String value) {
+    if (value != null) {
+      for (MisfirePolicyDto v : values()) {
+        if (value.toUpperCase(Locale.ROOT).equals(v.toString())) {
+          return v;
+        }
+      }
+    }
+    throw new IllegalArgumentException("Invalid misfire policy value");
+  }
+}
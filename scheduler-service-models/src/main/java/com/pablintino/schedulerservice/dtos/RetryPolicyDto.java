@@ -0,0 +1,13 @@
+package com.pablintino.schedulerservice.dtos;
+
+import lombok.Data;
+
+@Data
+public class RetryPolicyDto {
+
+  private Long initialDelay;
+
+  private Long maxDelay;
+
+  private Double multiplier;
+}
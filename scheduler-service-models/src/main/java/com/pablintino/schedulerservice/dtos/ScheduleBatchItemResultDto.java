@@ -0,0 +1,13 @@
+package com.pablintino.schedulerservice.dtos;
+
+import lombok.Data;
+
+@Data
+public class ScheduleBatchItemResultDto {
+  private String taskIdentifier;
+  private String taskKey;
+
+  private boolean scheduled;
+
+  private String error;
+}
@@ -25,4 +25,8 @@ public class ScheduleRequestDto {
   @NotNull private CallbackDescriptorDto callbackDescriptor;
 
   private Object taskData;
+
+  private RetryPolicyDto retryPolicy;
+
+  private MisfirePolicyDto misfirePolicy;
 }
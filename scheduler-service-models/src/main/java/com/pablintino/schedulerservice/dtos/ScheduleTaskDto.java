@@ -12,5 +12,6 @@ public class ScheduleTaskDto {
   private ZonedDateTime triggerTime;
 
   private String cronExpression;
+  private MisfirePolicyDto misfirePolicy;
   private Object taskData;
 }
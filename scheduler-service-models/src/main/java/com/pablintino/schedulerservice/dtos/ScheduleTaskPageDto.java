@@ -0,0 +1,12 @@
+package com.pablintino.schedulerservice.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ScheduleTaskPageDto {
+  private List<ScheduleTaskDto> tasks;
+
+  private String next;
+}
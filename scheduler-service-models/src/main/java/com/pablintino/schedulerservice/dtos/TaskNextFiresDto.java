@@ -0,0 +1,11 @@
+package com.pablintino.schedulerservice.dtos;
+
+import lombok.Data;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+@Data
+public class TaskNextFiresDto {
+  private List<ZonedDateTime> nextFireTimes;
+}
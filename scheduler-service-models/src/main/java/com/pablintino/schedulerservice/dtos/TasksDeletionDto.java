@@ -0,0 +1,8 @@
+package com.pablintino.schedulerservice.dtos;
+
+import lombok.Data;
+
+@Data
+public class TasksDeletionDto {
+  private long deletedTasks;
+}
@@ -1,17 +1,47 @@
 package com.pablintino.schedulerservice.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablintino.schedulerservice.config.scheduler.JobStoreSchedulerFactory;
 import com.pablintino.schedulerservice.config.scheduler.SchedulerJobFactory;
+import com.pablintino.schedulerservice.quartz.EmbeddedJobStore;
+import com.pablintino.schedulerservice.services.EmbeddedDeadLetterRepository;
+import com.pablintino.schedulerservice.services.EmbeddedTaskStatsRepository;
+import com.pablintino.schedulerservice.services.ICallbackOutbox;
+import com.pablintino.schedulerservice.services.IDeadLetterRepository;
+import com.pablintino.schedulerservice.services.IJobParamsEncoder;
+import com.pablintino.schedulerservice.services.ITaskReadRepository;
+import com.pablintino.schedulerservice.services.ITaskStatsRepository;
+import com.pablintino.schedulerservice.services.JdbcCallbackOutbox;
+import com.pablintino.schedulerservice.services.JdbcDeadLetterRepository;
+import com.pablintino.schedulerservice.services.JdbcTaskReadRepository;
+import com.pablintino.schedulerservice.services.JdbcTaskStatsRepository;
+import com.pablintino.schedulerservice.services.SchedulerTaskReadRepository;
+import org.quartz.Scheduler;
+import org.quartz.impl.StdSchedulerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.quartz.QuartzProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.quartz.SchedulerFactoryBean;
 
 import javax.sql.DataSource;
+import java.beans.PropertyDescriptor;
 import java.util.Properties;
 
 @Configuration
 public class QuartzConfiguration {
 
+  private static final String TABLE_PREFIX_PROPERTY = "org.quartz.jobStore.tablePrefix";
+  private static final String DEFAULT_TABLE_PREFIX = "QRTZ_";
+  private static final String JOB_STORE_PROPERTY = "com.pablintino.scheduler.job-store";
+  private static final String OUTBOX_ENABLED_PROPERTY = "com.pablintino.scheduler.outbox.enabled";
+  private static final String JOB_STORE_PROPERTIES_PREFIX = "org.quartz.jobStore.";
+  private static final String JDBC_JOB_STORE = "jdbc";
+  private static final String EMBEDDED_JOB_STORE = "embedded";
+
   @Bean
   SchedulerJobFactory schedulerJobFactory() {
     return new SchedulerJobFactory();
@@ -19,14 +49,131 @@ public class QuartzConfiguration {
 
   @Bean
   public SchedulerFactoryBean schedulerFactoryBean(
-      DataSource dataSource, SchedulerJobFactory jobFactory, QuartzProperties quartzProperties) {
+      ObjectProvider<DataSource> dataSource,
+      SchedulerJobFactory jobFactory,
+      QuartzProperties quartzProperties,
+      @Value("${" + JOB_STORE_PROPERTY + ":" + JDBC_JOB_STORE + "}") String jobStore,
+      @Value("${" + OUTBOX_ENABLED_PROPERTY + ":false}") boolean outboxEnabled) {
+    if (EMBEDDED_JOB_STORE.equals(jobStore) && outboxEnabled) {
+      /* The outbox lives in the database, next to the Quartz tables */
+      throw new IllegalStateException(
+          "The callback outbox needs the "
+              + JDBC_JOB_STORE
+              + " job store, disable "
+              + OUTBOX_ENABLED_PROPERTY
+              + " to use the "
+              + EMBEDDED_JOB_STORE
+              + " one");
+    }
     Properties props = new Properties();
     props.putAll(quartzProperties.getProperties());
     SchedulerFactoryBean factory = new SchedulerFactoryBean();
     factory.setOverwriteExistingJobs(true);
-    factory.setDataSource(dataSource);
+    if (EMBEDDED_JOB_STORE.equals(jobStore)) {
+      /* Without a DataSource, Spring would otherwise force its own JDBC job store */
+      configureEmbeddedJobStore(props);
+    } else {
+      factory.setDataSource(dataSource.getObject());
+      JobStoreSchedulerFactory.configure(factory, props);
+    }
     factory.setQuartzProperties(props);
     factory.setJobFactory(jobFactory);
     return factory;
   }
+
+  @Bean
+  @ConditionalOnProperty(
+      name = JOB_STORE_PROPERTY,
+      havingValue = JDBC_JOB_STORE,
+      matchIfMissing = true)
+  ITaskReadRepository taskReadRepository(
+      Scheduler scheduler,
+      IJobParamsEncoder jobParamsEncoder,
+      DataSource dataSource,
+      QuartzProperties quartzProperties) {
+    return new JdbcTaskReadRepository(
+        scheduler,
+        jobParamsEncoder,
+        dataSource,
+        getTablePrefix(quartzProperties));
+  }
+
+  @Bean
+  @ConditionalOnProperty(
+      name = JOB_STORE_PROPERTY,
+      havingValue = JDBC_JOB_STORE,
+      matchIfMissing = true)
+  ITaskStatsRepository taskStatsRepository(
+      Scheduler scheduler, DataSource dataSource, QuartzProperties quartzProperties) {
+    return new JdbcTaskStatsRepository(scheduler, dataSource, getTablePrefix(quartzProperties));
+  }
+
+  @Bean
+  @ConditionalOnProperty(
+      name = JOB_STORE_PROPERTY,
+      havingValue = JDBC_JOB_STORE,
+      matchIfMissing = true)
+  ICallbackOutbox callbackOutbox(
+      Scheduler scheduler,
+      DataSource dataSource,
+      QuartzProperties quartzProperties,
+      ObjectMapper objectMapper) {
+    return new JdbcCallbackOutbox(
+        scheduler, dataSource, getTablePrefix(quartzProperties), objectMapper);
+  }
+
+  @Bean
+  @ConditionalOnProperty(
+      name = JOB_STORE_PROPERTY,
+      havingValue = JDBC_JOB_STORE,
+      matchIfMissing = true)
+  IDeadLetterRepository deadLetterRepository(
+      Scheduler scheduler,
+      DataSource dataSource,
+      QuartzProperties quartzProperties,
+      ObjectMapper objectMapper) {
+    return new JdbcDeadLetterRepository(
+        scheduler, dataSource, getTablePrefix(quartzProperties), objectMapper);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = JOB_STORE_PROPERTY, havingValue = EMBEDDED_JOB_STORE)
+  ITaskReadRepository embeddedTaskReadRepository(
+      Scheduler scheduler, IJobParamsEncoder jobParamsEncoder) {
+    return new SchedulerTaskReadRepository(scheduler, jobParamsEncoder);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = JOB_STORE_PROPERTY, havingValue = EMBEDDED_JOB_STORE)
+  ITaskStatsRepository embeddedTaskStatsRepository(Scheduler scheduler) {
+    return new EmbeddedTaskStatsRepository(scheduler);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = JOB_STORE_PROPERTY, havingValue = EMBEDDED_JOB_STORE)
+  IDeadLetterRepository embeddedDeadLetterRepository(
+      Scheduler scheduler, ObjectMapper objectMapper) {
+    return new EmbeddedDeadLetterRepository(scheduler, objectMapper);
+  }
+
+  private static void configureEmbeddedJobStore(Properties props) {
+    /* Quartz rejects job store properties without a setter, as the JDBC store ones */
+    for (String name : props.stringPropertyNames()) {
+      if (name.startsWith(JOB_STORE_PROPERTIES_PREFIX)) {
+        PropertyDescriptor descriptor =
+            BeanUtils.getPropertyDescriptor(
+                EmbeddedJobStore.class, name.substring(JOB_STORE_PROPERTIES_PREFIX.length()));
+        if (descriptor == null || descriptor.getWriteMethod() == null) {
+          props.remove(name);
+        }
+      }
+    }
+    props.setProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS, EmbeddedJobStore.class.getName());
+  }
+
+  private static String getTablePrefix(QuartzProperties quartzProperties) {
+    return quartzProperties
+        .getProperties()
+        .getOrDefault(TABLE_PREFIX_PROPERTY, DEFAULT_TABLE_PREFIX);
+  }
 }
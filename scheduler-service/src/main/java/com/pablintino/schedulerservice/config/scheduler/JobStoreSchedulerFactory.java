@@ -0,0 +1,52 @@
+package com.pablintino.schedulerservice.config.scheduler;
+
+import org.quartz.SchedulerException;
+import org.quartz.impl.StdSchedulerFactory;
+import org.springframework.scheduling.quartz.LocalDataSourceJobStore;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+import org.springframework.util.ClassUtils;
+
+import java.util.Properties;
+
+/*
+ * SchedulerFactoryBean replaces org.quartz.jobStore.class by LocalDataSourceJobStore when it is
+ * given a DataSource. This factory restores the configured store if it extends that one.
+ */
+public class JobStoreSchedulerFactory extends StdSchedulerFactory {
+
+  private static final String JOB_STORE_CLASS_PROPERTY =
+      "com.pablintino.scheduler.job-store.class";
+
+  public static void configure(SchedulerFactoryBean factory, Properties props) {
+    String jobStoreClass = props.getProperty(PROP_JOB_STORE_CLASS);
+    if (jobStoreClass != null && isDataSourceJobStore(jobStoreClass)) {
+      props.setProperty(JOB_STORE_CLASS_PROPERTY, jobStoreClass);
+      factory.setSchedulerFactoryClass(JobStoreSchedulerFactory.class);
+    }
+  }
+
+  @Override
+  public void initialize(Properties props) throws SchedulerException {
+    String jobStoreClass = props.getProperty(JOB_STORE_CLASS_PROPERTY);
+    if (jobStoreClass != null) {
+      Properties storeProps = new Properties();
+      storeProps.putAll(props);
+      storeProps.remove(JOB_STORE_CLASS_PROPERTY);
+      storeProps.setProperty(PROP_JOB_STORE_CLASS, jobStoreClass);
+      super.initialize(storeProps);
+    } else {
+      super.initialize(props);
+    }
+  }
+
+  private static boolean isDataSourceJobStore(String className) {
+    try {
+      Class<?> jobStoreClass =
+          ClassUtils.forName(className, JobStoreSchedulerFactory.class.getClassLoader());
+      return jobStoreClass != LocalDataSourceJobStore.class
+          && LocalDataSourceJobStore.class.isAssignableFrom(jobStoreClass);
+    } catch (ClassNotFoundException ex) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package com.pablintino.schedulerservice.exceptions;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/* The callback was not attempted. Its delivery is postponed without counting as a failure */
+public class CallbackDeferredException extends RuntimeException {
+
+  @Getter private final Duration retryAfter;
+
+  public CallbackDeferredException(String message) {
+    this(message, Duration.ZERO);
+  }
+
+  public CallbackDeferredException(String message, Duration retryAfter) {
+    super(message);
+    this.retryAfter = retryAfter;
+  }
+}
@@ -0,0 +1,9 @@
+package com.pablintino.schedulerservice.exceptions;
+
+/* The remote was reached and refused the callback. Another call won't fix it */
+public class CallbackRejectedException extends CallbackHandleException {
+
+  public CallbackRejectedException(String message) {
+    super(message);
+  }
+}
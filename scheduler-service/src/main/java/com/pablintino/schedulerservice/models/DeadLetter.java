@@ -0,0 +1,19 @@
+package com.pablintino.schedulerservice.models;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.quartz.JobKey;
+
+import java.time.Instant;
+
+@Getter
+@RequiredArgsConstructor
+public class DeadLetter {
+
+  private final long id;
+  private final JobKey jobKey;
+  private final Instant failureTime;
+  private final String lastError;
+  private final SchedulerJobData jobData;
+  private final RawJsonData taskData;
+}
@@ -10,10 +10,23 @@ public class Endpoint {
 
   private final CallbackType callbackType;
   private final String callbackUrl;
+  private final RetryPolicy retryPolicy;
+  private final boolean batched;
 
   public Endpoint(CallbackType callbackType, String callbackUrl) {
+    this(callbackType, callbackUrl, null);
+  }
+
+  public Endpoint(CallbackType callbackType, String callbackUrl, RetryPolicy retryPolicy) {
+    this(callbackType, callbackUrl, retryPolicy, false);
+  }
+
+  public Endpoint(
+      CallbackType callbackType, String callbackUrl, RetryPolicy retryPolicy, boolean batched) {
     Assert.notNull(callbackType, "callbackType cannot be null");
     this.callbackType = callbackType;
     this.callbackUrl = callbackUrl;
+    this.retryPolicy = retryPolicy;
+    this.batched = batched;
   }
 }
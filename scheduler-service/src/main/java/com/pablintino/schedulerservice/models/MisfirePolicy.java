@@ -0,0 +1,7 @@
+package com.pablintino.schedulerservice.models;
+
+public enum MisfirePolicy {
+  FIRE_ONCE,
+  SKIP,
+  FIRE_ALL
+}
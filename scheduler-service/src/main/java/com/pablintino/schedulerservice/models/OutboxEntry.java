@@ -0,0 +1,19 @@
+package com.pablintino.schedulerservice.models;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.quartz.JobKey;
+
+import java.time.Instant;
+
+@Getter
+@RequiredArgsConstructor
+public class OutboxEntry {
+
+  private final long id;
+  private final JobKey jobKey;
+  private final Instant fireTime;
+  private final long attempt;
+  private final SchedulerJobData jobData;
+  private final RawJsonData taskData;
+}
@@ -0,0 +1,38 @@
+package com.pablintino.schedulerservice.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/* Task data kept as the UTF-8 JSON bytes stored at creation. Delivered without being parsed */
+public class RawJsonData implements JsonSerializable {
+
+  private final byte[] json;
+
+  public RawJsonData(byte[] json) {
+    Assert.notNull(json, "json cannot be null");
+    this.json = json;
+  }
+
+  /* Shared, not copied. Callers must not modify it */
+  public byte[] getJson() {
+    return json;
+  }
+
+  @Override
+  public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    gen.writeRawValue(new String(json, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public void serializeWithType(
+      JsonGenerator gen, SerializerProvider serializers, TypeSerializer typeSer)
+      throws IOException {
+    serialize(gen, serializers);
+  }
+}
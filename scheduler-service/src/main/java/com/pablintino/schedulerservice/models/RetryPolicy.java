@@ -0,0 +1,24 @@
+package com.pablintino.schedulerservice.models;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.ToString;
+
+/* Per task override of the retry backoff. Missing values fall back to the service defaults */
+@Getter
+@ToString
+public class RetryPolicy {
+
+  private final Long initialDelay;
+  private final Long maxDelay;
+  private final Double multiplier;
+
+  public RetryPolicy(
+      @JsonProperty("initialDelay") Long initialDelay,
+      @JsonProperty("maxDelay") Long maxDelay,
+      @JsonProperty("multiplier") Double multiplier) {
+    this.initialDelay = initialDelay;
+    this.maxDelay = maxDelay;
+    this.multiplier = multiplier;
+  }
+}
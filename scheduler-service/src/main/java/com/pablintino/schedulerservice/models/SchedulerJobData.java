@@ -1,5 +1,6 @@
 package com.pablintino.schedulerservice.models;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Getter;
 import org.springframework.util.Assert;
@@ -12,13 +13,27 @@ public class SchedulerJobData {
   private final String callbackUrl;
   private final CallbackType type;
   private final ScheduleJobMetadata metadata;
+  private final RetryPolicy retryPolicy;
+  private final boolean batched;
 
+  public SchedulerJobData(
+      String taskId,
+      String key,
+      String callbackUrl,
+      CallbackType type,
+      ScheduleJobMetadata metadata) {
+    this(taskId, key, callbackUrl, type, metadata, null, false);
+  }
+
+  @JsonCreator
   public SchedulerJobData(
       @JsonProperty("taskId") String taskId,
       @JsonProperty("key") String key,
       @JsonProperty("callbackUrl") String callbackUrl,
       @JsonProperty("type") CallbackType type,
-      @JsonProperty("metadata") ScheduleJobMetadata metadata) {
+      @JsonProperty("metadata") ScheduleJobMetadata metadata,
+      @JsonProperty("retryPolicy") RetryPolicy retryPolicy,
+      @JsonProperty("batched") boolean batched) {
     Assert.hasLength(taskId, "taskId cannot be null or empty");
     Assert.hasLength(key, "key cannot be null or empty");
     Assert.notNull(type, "type cannot be null");
@@ -27,5 +42,7 @@ public class SchedulerJobData {
     this.callbackUrl = callbackUrl;
     this.type = type;
     this.metadata = metadata;
+    this.retryPolicy = retryPolicy;
+    this.batched = batched;
   }
 }
@@ -6,6 +6,7 @@ import lombok.ToString;
 import org.springframework.util.Assert;
 
 import java.time.ZonedDateTime;
+import java.util.TimeZone;
 
 @Getter
 @ToString
@@ -18,17 +19,43 @@ public class Task {
 
   private final ZonedDateTime triggerTime;
   private final String cronExpression;
+  private final MisfirePolicy misfirePolicy;
+  /* Zone the cron expression fires in. Null for the scheduler default */
+  private final TimeZone timeZone;
 
   @ToString.Exclude private final Object taskData;
 
   public Task(
       String id, String key, ZonedDateTime triggerTime, String cronExpression, Object taskData) {
+    this(id, key, triggerTime, cronExpression, null, taskData);
+  }
+
+  public Task(
+      String id,
+      String key,
+      ZonedDateTime triggerTime,
+      String cronExpression,
+      MisfirePolicy misfirePolicy,
+      Object taskData) {
+    this(id, key, triggerTime, cronExpression, misfirePolicy, null, taskData);
+  }
+
+  public Task(
+      String id,
+      String key,
+      ZonedDateTime triggerTime,
+      String cronExpression,
+      MisfirePolicy misfirePolicy,
+      TimeZone timeZone,
+      Object taskData) {
     Assert.hasLength(id, "id cannot be null or empty");
     Assert.hasLength(key, "key cannot be null or empty");
     this.id = id;
     this.key = key;
     this.triggerTime = triggerTime;
     this.cronExpression = cronExpression;
+    this.misfirePolicy = misfirePolicy;
+    this.timeZone = timeZone;
     this.taskData = taskData;
   }
 }
@@ -0,0 +1,31 @@
+package com.pablintino.schedulerservice.models;
+
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter
+@ToString
+public class TaskSchedulingResult {
+
+  private final String taskId;
+  private final String key;
+  private final String error;
+
+  public TaskSchedulingResult(String taskId, String key, String error) {
+    this.taskId = taskId;
+    this.key = key;
+    this.error = error;
+  }
+
+  public static TaskSchedulingResult scheduled(Task task) {
+    return new TaskSchedulingResult(task.getId(), task.getKey(), null);
+  }
+
+  public static TaskSchedulingResult rejected(Task task, String error) {
+    return new TaskSchedulingResult(task.getId(), task.getKey(), error);
+  }
+
+  public boolean isScheduled() {
+    return error == null;
+  }
+}
@@ -0,0 +1,21 @@
+package com.pablintino.schedulerservice.models;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+@Getter
+@ToString
+public class TasksPage {
+
+  private final List<Task> tasks;
+  private final String nextCursor;
+
+  public TasksPage(List<Task> tasks, String nextCursor) {
+    Assert.notNull(tasks, "tasks cannot be null");
+    this.tasks = tasks;
+    this.nextCursor = nextCursor;
+  }
+}
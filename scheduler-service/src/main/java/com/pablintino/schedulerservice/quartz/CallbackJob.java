@@ -1,52 +1,97 @@
 package com.pablintino.schedulerservice.quartz;
 
+import com.pablintino.schedulerservice.exceptions.CallbackDeferredException;
+import com.pablintino.schedulerservice.exceptions.CallbackHandleException;
 import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
 import com.pablintino.schedulerservice.models.SchedulerJobData;
 import com.pablintino.schedulerservice.quartz.annotations.IReeschedulableAnnotationResolver;
+import com.pablintino.schedulerservice.services.ICallbackOutbox;
 import com.pablintino.schedulerservice.services.ICallbackService;
+import com.pablintino.schedulerservice.services.ICronExpressionCache;
+import com.pablintino.schedulerservice.services.IDeadLetterRepository;
 import com.pablintino.schedulerservice.services.IJobParamsEncoder;
+import com.pablintino.schedulerservice.services.ITaskDataCache;
+import com.pablintino.schedulerservice.services.ITaskStatsRepository;
+import com.pablintino.schedulerservice.services.RetryBackoff;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.text.ParseException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
 
 @Slf4j
 @DisallowConcurrentExecution
-@PersistJobDataAfterExecution
 public class CallbackJob implements Job {
 
+  /* Deferred fires of a schedule that goes on are delivered by their own one-shot triggers */
+  public static final String DEFERRAL_TRIGGER_NAME_PREFIX = "cbdef-";
+
   private ICallbackService callbackService;
   private IJobParamsEncoder jobParamsEncoder;
+  private ITaskDataCache taskDataCache;
+  private ITaskStatsRepository taskStatsRepository;
+  private ICallbackOutbox callbackOutbox;
+  private IDeadLetterRepository deadLetterRepository;
   private IReeschedulableAnnotationResolver reeschedulableAnnotationResolver;
+  private IMisfireCatchUpLimiter misfireCatchUpLimiter;
+  private ICronExpressionCache cronExpressionCache;
+  private RetryBackoff retryBackoff;
   private long retrialAttempts;
-  private Long retrialDelay;
+  private long deferralDelay;
+  private boolean asyncDelivery;
+  private boolean outboxEnabled;
 
   @Override
   public void execute(JobExecutionContext context) throws JobExecutionException {
     log.debug("Job " + context.getJobDetail().getKey() + " starts its execution");
     SchedulerJobData schedulerJobData = null;
     Instant handleStartInstant = Instant.now();
+    JobKey jobKey = context.getJobDetail().getKey();
     JobDataMap jobDataMap = context.getJobDetail().getJobDataMap();
+    Duration catchUpDelay = misfireCatchUpLimiter.tryAcquire(context);
+    if (!catchUpDelay.isZero() && deferCatchUp(context, catchUpDelay)) {
+      return;
+    }
     try {
-      schedulerJobData = jobParamsEncoder.getDecodeSchedulerJobData(jobDataMap);
-
-      preUpdateExecutionMetadata(schedulerJobData.getMetadata(), context);
+      /* Stats are kept in their own table. The job data map is never rewritten after a fire */
+      SchedulerJobData storedJobData = jobParamsEncoder.getDecodeSchedulerJobData(jobDataMap);
+      schedulerJobData =
+          new SchedulerJobData(
+              storedJobData.getTaskId(),
+              storedJobData.getKey(),
+              storedJobData.getCallbackUrl(),
+              storedJobData.getType(),
+              taskStatsRepository.registerExecution(jobKey, context.getFireTime().toInstant()),
+              storedJobData.getRetryPolicy(),
+              storedJobData.isBatched());
 
-      callbackService.executeCallback(
-          schedulerJobData, jobParamsEncoder.getDecodeTaskData(jobDataMap));
-
-      /* Succeed, reset notification attempts */
-      resetNotificationAttempts(schedulerJobData.getMetadata());
+      Object taskData = taskDataCache.getTaskData(jobKey, jobDataMap);
+      if (outboxEnabled) {
+        /* Persisted before returning. The outbox dispatchers deliver it, even after a crash */
+        callbackOutbox.append(
+            jobKey, context.getFireTime().toInstant(), schedulerJobData, taskData);
+      } else if (asyncDelivery) {
+        /* The firing thread doesn't wait for the remote. The outcome is accounted on completion */
+        SchedulerJobData firedJobData = schedulerJobData;
+        callbackService
+            .executeCallbackAsync(schedulerJobData, taskData)
+            .whenComplete((result, ex) -> completeAsyncDelivery(context, firedJobData, ex));
+      } else {
+        callbackService.executeCallback(schedulerJobData, taskData);
+      }
     } catch (Exception ex) {
       manageFailure(ex, context, schedulerJobData);
-    } finally {
-      if (schedulerJobData != null) {
-        jobParamsEncoder.updateEncodeSchedulerJobData(jobDataMap, schedulerJobData);
-      }
+    }
+
+    if (!asyncDelivery || outboxEnabled) {
+      manageSuccess(context, schedulerJobData);
     }
     log.debug(
         "Job {} finished its execution in {} ms",
@@ -59,6 +104,26 @@ public class CallbackJob implements Job {
     this.jobParamsEncoder = jobParamsEncoder;
   }
 
+  @Autowired
+  public void setTaskDataCache(ITaskDataCache taskDataCache) {
+    this.taskDataCache = taskDataCache;
+  }
+
+  @Autowired
+  public void setTaskStatsRepository(ITaskStatsRepository taskStatsRepository) {
+    this.taskStatsRepository = taskStatsRepository;
+  }
+
+  @Autowired
+  public void setDeadLetterRepository(IDeadLetterRepository deadLetterRepository) {
+    this.deadLetterRepository = deadLetterRepository;
+  }
+
+  @Autowired(required = false)
+  public void setCallbackOutbox(ICallbackOutbox callbackOutbox) {
+    this.callbackOutbox = callbackOutbox;
+  }
+
   @Autowired
   public void setCallbackService(ICallbackService callbackService) {
     this.callbackService = callbackService;
@@ -70,29 +135,98 @@ public class CallbackJob implements Job {
     this.reeschedulableAnnotationResolver = reeschedulableAnnotationResolver;
   }
 
+  @Autowired
+  public void setMisfireCatchUpLimiter(IMisfireCatchUpLimiter misfireCatchUpLimiter) {
+    this.misfireCatchUpLimiter = misfireCatchUpLimiter;
+  }
+
+  @Autowired
+  public void setCronExpressionCache(ICronExpressionCache cronExpressionCache) {
+    this.cronExpressionCache = cronExpressionCache;
+  }
+
+  @Autowired
+  public void setRetryBackoff(RetryBackoff retryBackoff) {
+    this.retryBackoff = retryBackoff;
+  }
+
   @Value("${com.pablintino.scheduler.failure-attempts:5}")
   public void setFailureRetrialAttempts(Long retrialAttempts) {
     this.retrialAttempts = retrialAttempts;
   }
 
-  @Value("${com.pablintino.scheduler.failure-attempt-delay:5000}")
-  public void setFailureDelayAttempts(Long retrialDelay) {
-    this.retrialDelay = retrialDelay;
+  @Value("${com.pablintino.scheduler.deferral-delay:1000}")
+  public void setDeferralDelay(long deferralDelay) {
+    this.deferralDelay = deferralDelay;
   }
 
-  private static void preUpdateExecutionMetadata(
-      ScheduleJobMetadata scheduleJobMetadata, JobExecutionContext context) {
-    scheduleJobMetadata.setTriggerTime(context.getFireTime().toInstant());
-    scheduleJobMetadata.setExecutions(scheduleJobMetadata.getExecutions() + 1);
+  @Value("${com.pablintino.scheduler.async-delivery:false}")
+  public void setAsyncDelivery(boolean asyncDelivery) {
+    this.asyncDelivery = asyncDelivery;
   }
 
-  private static void resetNotificationAttempts(ScheduleJobMetadata scheduleJobMetadata) {
-    scheduleJobMetadata.setNotificationAttempt(0);
+  @Value("${com.pablintino.scheduler.outbox.enabled:false}")
+  public void setOutboxEnabled(boolean outboxEnabled) {
+    this.outboxEnabled = outboxEnabled;
+  }
+
+  private void completeAsyncDelivery(
+      JobExecutionContext context, SchedulerJobData schedulerJobData, Throwable throwable) {
+    try {
+      if (throwable == null) {
+        manageSuccess(context, schedulerJobData);
+      } else {
+        Throwable cause =
+            throwable instanceof CompletionException ? throwable.getCause() : throwable;
+        manageFailure(
+            cause instanceof Exception ? (Exception) cause : new CallbackHandleException(cause),
+            context,
+            schedulerJobData);
+      }
+    } catch (JobExecutionException ex) {
+      log.debug("Asynchronous callback of job {} failed", context.getJobDetail().getKey(), ex);
+    } catch (RuntimeException ex) {
+      log.error(
+          "Error completing the asynchronous callback of job {}",
+          context.getJobDetail().getKey(),
+          ex);
+    }
+  }
+
+  private void manageSuccess(JobExecutionContext context, SchedulerJobData schedulerJobData) {
+    JobKey jobKey = context.getJobDetail().getKey();
+    /* Succeed, reset notification attempts. Outbox deliveries track them on their own */
+    if (!outboxEnabled && schedulerJobData.getMetadata().getNotificationAttempt() != 0) {
+      taskStatsRepository.resetNotificationAttempt(jobKey);
+    }
+    if (isLastFire(context)) {
+      /* Last fire of the task, Quartz removes the job right after */
+      taskStatsRepository.deleteStats(Collections.singleton(jobKey));
+    }
+  }
+
+  private static boolean isLastFire(JobExecutionContext context) {
+    if (context.getNextFireTime() != null) {
+      return false;
+    }
+    /* Deferred fires, or the schedule they were deferred from, may still be pending */
+    try {
+      TriggerKey triggerKey = context.getTrigger().getKey();
+      return context.getScheduler().getTriggersOfJob(context.getJobDetail().getKey()).stream()
+          .allMatch(trigger -> trigger.getKey().equals(triggerKey));
+    } catch (SchedulerException ex) {
+      log.error("Error retrieving the triggers of job {}", context.getJobDetail().getKey(), ex);
+      return false;
+    }
   }
 
   private void manageFailure(
       Exception ex, JobExecutionContext jobExecutionContext, SchedulerJobData schedulerJobData)
       throws JobExecutionException {
+    if (ex instanceof CallbackDeferredException) {
+      manageDeferral((CallbackDeferredException) ex, jobExecutionContext, schedulerJobData);
+    }
+
     boolean rescheduled = false;
     if (reeschedulableAnnotationResolver.getAnnotatedTypes().stream()
         .anyMatch(exType -> exType.isAssignableFrom(ex.getClass()))) {
@@ -105,10 +239,9 @@ public class CallbackJob implements Job {
                   + " reschedule attempt "
                   + attemptNumber);
 
-          Trigger trigger = rebuildTrigger(jobExecutionContext);
-          jobExecutionContext
-              .getScheduler()
-              .rescheduleJob(jobExecutionContext.getTrigger().getKey(), trigger);
+          rescheduleJob(
+              jobExecutionContext,
+              retryBackoff.getDelay(schedulerJobData.getRetryPolicy(), attemptNumber));
           rescheduled = true;
         } else {
           log.warn(
@@ -126,27 +259,145 @@ public class CallbackJob implements Job {
               + jobExecutionContext.getJobDetail().getKey());
     }
 
-    /* Increment failure count and set last failure instant */
-    schedulerJobData.getMetadata().setFailures(schedulerJobData.getMetadata().getFailures() + 1);
-    schedulerJobData
-        .getMetadata()
-        .setLastFailureTime(jobExecutionContext.getFireTime().toInstant());
+    JobKey jobKey = jobExecutionContext.getJobDetail().getKey();
+    if (rescheduled) {
+      /* Increment failure count and set last failure instant */
+      taskStatsRepository.registerFailure(
+          jobKey,
+          jobExecutionContext.getFireTime().toInstant(),
+          schedulerJobData.getMetadata().getNotificationAttempt());
+    } else {
+      /* The firing trigger is deleted, and so is the job */
+      taskStatsRepository.deleteStats(Collections.singleton(jobKey));
+    }
+
+    /* Rescheduled or discarded, the next fire (if any) decodes the payload again */
+    taskDataCache.invalidate(jobKey);
 
     throw !rescheduled
-        ? deleteFiringTrigger(jobExecutionContext, ex)
+        ? deleteFiringTrigger(jobExecutionContext, schedulerJobData, ex)
         : new JobExecutionException(ex, false);
   }
 
-  private static JobExecutionException deleteFiringTrigger(
-      JobExecutionContext jobExecutionContext, Exception causeException) {
+  private void manageDeferral(
+      CallbackDeferredException ex,
+      JobExecutionContext jobExecutionContext,
+      SchedulerJobData schedulerJobData)
+      throws JobExecutionException {
+    /* The callback was never attempted. Neither the attempts nor the failures are incremented */
+    log.debug(
+        "Callback job {} deferred. {}",
+        jobExecutionContext.getJobDetail().getKey(),
+        ex.getMessage());
+    try {
+      /* Open circuit breakers and rate limits tell when the next attempt makes sense */
+      deferFire(jobExecutionContext, Math.max(deferralDelay, ex.getRetryAfter().toMillis()));
+    } catch (SchedulerException schEx) {
+      log.error(
+          "Error deferring job. Discarding job " + jobExecutionContext.getJobDetail().getKey(),
+          schEx);
+      taskStatsRepository.deleteStats(
+          Collections.singleton(jobExecutionContext.getJobDetail().getKey()));
+      throw deleteFiringTrigger(jobExecutionContext, schedulerJobData, ex);
+    }
+    throw new JobExecutionException(ex, false);
+  }
+
+  private boolean deferCatchUp(JobExecutionContext jobExecutionContext, Duration delay) {
+    /* Nothing is delivered nor accounted, the fire just moves to its catch up slot */
     try {
-      jobExecutionContext.getScheduler().unscheduleJob(jobExecutionContext.getTrigger().getKey());
+      deferFire(jobExecutionContext, delay.toMillis());
+      log.debug(
+          "Misfired job {} deferred {} ms to catch up",
+          jobExecutionContext.getJobDetail().getKey(),
+          delay.toMillis());
+      return true;
+    } catch (SchedulerException ex) {
+      log.error(
+          "Error deferring misfired job {}. Firing it now",
+          jobExecutionContext.getJobDetail().getKey(),
+          ex);
+      return false;
+    }
+  }
+
+  /*
+   * Moving the firing trigger would fold this fire into its next one, or drop the end of its
+   * schedule, so the schedule is left untouched and the fire gets its own one-shot trigger
+   */
+  private void deferFire(JobExecutionContext jobExecutionContext, long delay)
+      throws SchedulerException {
+    JobKey jobKey = jobExecutionContext.getJobDetail().getKey();
+    Trigger trigger =
+        TriggerBuilder.newTrigger()
+            .withIdentity(
+                DEFERRAL_TRIGGER_NAME_PREFIX + UUID.randomUUID(),
+                jobExecutionContext.getTrigger().getKey().getGroup())
+            .forJob(jobKey)
+            .startAt(Date.from(Instant.now().plusMillis(delay)))
+            .withSchedule(
+                SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow())
+            .build();
+    Scheduler scheduler = jobExecutionContext.getScheduler();
+    try {
+      scheduler.scheduleJob(trigger);
+    } catch (JobPersistenceException ex) {
+      if (scheduler.checkExists(jobKey)) {
+        throw ex;
+      }
+      /* Asynchronous deliveries may complete after Quartz removed the last trigger and its job */
+      scheduler.scheduleJob(jobExecutionContext.getJobDetail(), trigger);
+    }
+  }
+
+  public static boolean isDeferralTrigger(TriggerKey triggerKey) {
+    return triggerKey.getName().startsWith(DEFERRAL_TRIGGER_NAME_PREFIX);
+  }
+
+  private void rescheduleJob(JobExecutionContext jobExecutionContext, long delay)
+      throws SchedulerException {
+    Trigger trigger = rebuildTrigger(jobExecutionContext, delay);
+    Scheduler scheduler = jobExecutionContext.getScheduler();
+    if (scheduler.rescheduleJob(jobExecutionContext.getTrigger().getKey(), trigger) == null) {
+      /* Asynchronous deliveries may complete after Quartz removed the trigger and its job */
+      scheduler.scheduleJob(jobExecutionContext.getJobDetail(), trigger);
+    }
+  }
+
+  private JobExecutionException deleteFiringTrigger(
+      JobExecutionContext jobExecutionContext,
+      SchedulerJobData schedulerJobData,
+      Exception causeException) {
+    storeDeadLetter(jobExecutionContext, schedulerJobData, causeException);
+    try {
+      /* Along with any other trigger of the task, like the ones of its deferred fires */
+      jobExecutionContext.getScheduler().deleteJob(jobExecutionContext.getJobDetail().getKey());
     } catch (SchedulerException ex) {
       log.error("Error deleting failed trigger", ex);
     }
     return new JobExecutionException(causeException, false);
   }
 
+  private void storeDeadLetter(
+      JobExecutionContext jobExecutionContext,
+      SchedulerJobData schedulerJobData,
+      Exception causeException) {
+    if (schedulerJobData == null) {
+      /* Failed before the callback could be built, there is nothing to replay */
+      return;
+    }
+    JobKey jobKey = jobExecutionContext.getJobDetail().getKey();
+    try {
+      deadLetterRepository.save(
+          jobKey,
+          schedulerJobData,
+          taskDataCache.getTaskData(jobKey, jobExecutionContext.getJobDetail().getJobDataMap()),
+          causeException.toString());
+    } catch (RuntimeException ex) {
+      log.error("Error storing the dead letter of job {}", jobKey, ex);
+    }
+  }
+
   private long getIncrementJobAttempt(ScheduleJobMetadata scheduleEventMetadata)
       throws JobExecutionException {
     if (scheduleEventMetadata != null && scheduleEventMetadata.getNotificationAttempt() >= 0) {
@@ -157,20 +408,45 @@ public class CallbackJob implements Job {
     throw new JobExecutionException(false);
   }
 
-  private Trigger rebuildTrigger(JobExecutionContext jobExecutionContext) {
-    TriggerBuilder<Trigger> triggerBuilder =
-        TriggerBuilder.newTrigger()
-            .withIdentity(jobExecutionContext.getTrigger().getKey())
-            .startAt(Date.from(Instant.now().plusMillis(retrialDelay)));
-
-    if (jobExecutionContext.getTrigger() instanceof CronTrigger) {
-      return triggerBuilder
-          .withSchedule(
-              CronScheduleBuilder.cronSchedule(
-                  ((CronTrigger) jobExecutionContext.getTrigger()).getCronExpression()))
-          .build();
-    } else {
-      return triggerBuilder.withSchedule(SimpleScheduleBuilder.simpleSchedule()).build();
+  private Trigger rebuildTrigger(JobExecutionContext jobExecutionContext, long delay)
+      throws SchedulerException {
+    /* Same schedule and misfire policy, only its start moves */
+    return TriggerBuilder.newTrigger()
+        .withIdentity(jobExecutionContext.getTrigger().getKey())
+        .startAt(Date.from(Instant.now().plusMillis(delay)))
+        .withSchedule(getScheduleBuilder(jobExecutionContext.getTrigger()))
+        .build();
+  }
+
+  private ScheduleBuilder<? extends Trigger> getScheduleBuilder(Trigger trigger)
+      throws SchedulerException {
+    if (!(trigger instanceof CronTrigger)) {
+      return trigger.getScheduleBuilder();
+    }
+
+    /*
+     * The cached expression is shared, and the built trigger sets its time zone on the one it is
+     * given. The builder gets a copy of it instead
+     */
+    CronTrigger cronTrigger = (CronTrigger) trigger;
+    CronScheduleBuilder scheduleBuilder;
+    try {
+      scheduleBuilder =
+          CronScheduleBuilder.cronSchedule(
+              new CronExpression(
+                  cronExpressionCache.getCronExpression(
+                      cronTrigger.getCronExpression(), cronTrigger.getTimeZone())));
+    } catch (ParseException ex) {
+      throw new SchedulerException("Cannot parse the cron expression of " + trigger.getKey(), ex);
+    }
+    if (cronTrigger.getMisfireInstruction() == CronTrigger.MISFIRE_INSTRUCTION_FIRE_ONCE_NOW) {
+      return scheduleBuilder.withMisfireHandlingInstructionFireAndProceed();
+    } else if (cronTrigger.getMisfireInstruction() == CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING) {
+      return scheduleBuilder.withMisfireHandlingInstructionDoNothing();
+    } else if (cronTrigger.getMisfireInstruction()
+        == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+      return scheduleBuilder.withMisfireHandlingInstructionIgnoreMisfires();
     }
+    return scheduleBuilder;
   }
 }
@@ -0,0 +1,91 @@
+package com.pablintino.schedulerservice.quartz;
+
+import lombok.Value;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/*
+ * Ring of cluster members, each placed at several virtual positions. A key belongs to the first
+ * member position at or after its hash, so a join or a leave only moves the keys next to the
+ * positions of that member. Hashes are the first four bytes of the MD5 digest as a signed int,
+ * what PostgreSQL computes with ('x' || SUBSTR(MD5(key), 1, 8))::BIT(32)::INT
+ */
+public class ConsistentHashRing {
+
+  @Value
+  public static class Range {
+    /* Both bounds inclusive */
+    int from;
+    int to;
+  }
+
+  private final NavigableMap<Integer, String> positions = new TreeMap<>();
+  private final Set<String> members;
+
+  public ConsistentHashRing(Collection<String> members, int virtualNodes) {
+    this.members = Collections.unmodifiableSet(new TreeSet<>(members));
+    for (String member : this.members) {
+      for (int index = 0; index < virtualNodes; index++) {
+        positions.putIfAbsent(hash(member + "#" + index), member);
+      }
+    }
+  }
+
+  public Set<String> getMembers() {
+    return members;
+  }
+
+  public String getOwner(String key) {
+    if (positions.isEmpty()) {
+      return null;
+    }
+    Map.Entry<Integer, String> entry = positions.ceilingEntry(hash(key));
+    return entry != null ? entry.getValue() : positions.firstEntry().getValue();
+  }
+
+  public List<Range> getRanges(String member) {
+    List<Range> ranges = new ArrayList<>();
+    for (Map.Entry<Integer, String> entry : positions.entrySet()) {
+      if (!entry.getValue().equals(member)) {
+        continue;
+      }
+      int position = entry.getKey();
+      Integer previous = positions.lowerKey(position);
+      if (previous != null) {
+        ranges.add(new Range(previous + 1, position));
+      } else if (positions.size() == 1) {
+        ranges.add(new Range(Integer.MIN_VALUE, Integer.MAX_VALUE));
+      } else {
+        /* The first position also owns the wrap around after the last one */
+        int last = positions.lastKey();
+        if (last != Integer.MAX_VALUE) {
+          ranges.add(new Range(last + 1, Integer.MAX_VALUE));
+        }
+        ranges.add(new Range(Integer.MIN_VALUE, position));
+      }
+    }
+    return ranges;
+  }
+
+  public static int hash(String key) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+      return ByteBuffer.wrap(digest, 0, 4).getInt();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("MD5 is not available", ex);
+    }
+  }
+}
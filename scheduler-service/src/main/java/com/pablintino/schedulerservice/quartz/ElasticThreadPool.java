@@ -0,0 +1,276 @@
+package com.pablintino.schedulerservice.quartz;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.SchedulerConfigException;
+import org.quartz.spi.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Quartz thread pool that grows from minThreadCount up to maxThreadCount while triggers keep
+ * workers busy, and shrinks back once the extra workers stay idle for keepAliveMillis. Selected
+ * with org.quartz.threadPool.class, its settings are the org.quartz.threadPool.* properties.
+ */
+@Slf4j
+public class ElasticThreadPool implements ThreadPool {
+
+  private final Object availabilityLock = new Object();
+  private final AtomicInteger threadIndex = new AtomicInteger();
+  private final List<Meter> meters = new ArrayList<>();
+
+  private int minThreadCount = 1;
+  private int maxThreadCount = 10;
+  private int threadPriority = Thread.NORM_PRIORITY;
+  private long keepAliveMillis = 60000;
+  private boolean virtualThreads = false;
+  private boolean inheritContextClassLoader = false;
+  private String instanceName = "QuartzScheduler";
+  private ExecutorService executor;
+  private int busyCount = 0;
+  private boolean isShutdown = false;
+
+  @Override
+  public boolean runInThread(Runnable runnable) {
+    if (runnable == null) {
+      return false;
+    }
+    synchronized (availabilityLock) {
+      while (busyCount >= maxThreadCount && !isShutdown) {
+        try {
+          availabilityLock.wait(500);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+      if (isShutdown) {
+        return false;
+      }
+      busyCount++;
+    }
+
+    try {
+      executor.execute(
+          () -> {
+            try {
+              runnable.run();
+            } finally {
+              releaseWorker();
+            }
+          });
+      return true;
+    } catch (RuntimeException ex) {
+      log.error("Job run rejected by the elastic thread pool", ex);
+      releaseWorker();
+      return false;
+    }
+  }
+
+  @Override
+  public int blockForAvailableThreads() {
+    synchronized (availabilityLock) {
+      /* Idle workers and the ones that can still be created are both available */
+      while (busyCount >= maxThreadCount && !isShutdown) {
+        try {
+          availabilityLock.wait(500);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+      return Math.max(maxThreadCount - busyCount, 0);
+    }
+  }
+
+  @Override
+  public void initialize() throws SchedulerConfigException {
+    if (minThreadCount < 0 || maxThreadCount <= 0 || minThreadCount > maxThreadCount) {
+      throw new SchedulerConfigException(
+          "Invalid elastic thread pool bounds " + minThreadCount + "-" + maxThreadCount);
+    }
+    executor = virtualThreads ? createVirtualThreadExecutor() : null;
+    if (executor == null) {
+      if (virtualThreads) {
+        log.warn("Virtual threads are not supported by this JVM. Using platform threads");
+      }
+      ThreadPoolExecutor threadPoolExecutor =
+          new ThreadPoolExecutor(
+              minThreadCount,
+              maxThreadCount,
+              keepAliveMillis,
+              TimeUnit.MILLISECONDS,
+              new SynchronousQueue<>(),
+              buildThreadFactory(),
+              this::handOffToReleasingWorker);
+      threadPoolExecutor.prestartAllCoreThreads();
+      executor = threadPoolExecutor;
+    }
+    registerMetrics();
+  }
+
+  @Override
+  public void shutdown(boolean waitForJobsToComplete) {
+    synchronized (availabilityLock) {
+      isShutdown = true;
+      availabilityLock.notifyAll();
+    }
+    if (executor == null) {
+      return;
+    }
+    executor.shutdown();
+    if (waitForJobsToComplete) {
+      try {
+        while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+          log.debug("Waiting for {} running jobs to complete", getBusyCount());
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    meters.forEach(Metrics.globalRegistry::remove);
+    meters.clear();
+  }
+
+  @Override
+  public int getPoolSize() {
+    return maxThreadCount;
+  }
+
+  @Override
+  public void setInstanceId(String schedInstId) {
+    /* Not used */
+  }
+
+  @Override
+  public void setInstanceName(String schedName) {
+    this.instanceName = schedName;
+  }
+
+  public int getBusyCount() {
+    synchronized (availabilityLock) {
+      return busyCount;
+    }
+  }
+
+  public int getThreadCount() {
+    return executor instanceof ThreadPoolExecutor
+        ? ((ThreadPoolExecutor) executor).getPoolSize()
+        : getBusyCount();
+  }
+
+  public void setMinThreadCount(int minThreadCount) {
+    this.minThreadCount = minThreadCount;
+  }
+
+  public void setMaxThreadCount(int maxThreadCount) {
+    this.maxThreadCount = maxThreadCount;
+  }
+
+  /* Same key SimpleThreadPool uses, so existing configurations keep their upper bound */
+  public void setThreadCount(int threadCount) {
+    this.maxThreadCount = threadCount;
+  }
+
+  public void setThreadPriority(int threadPriority) {
+    this.threadPriority = threadPriority;
+  }
+
+  public void setKeepAliveMillis(long keepAliveMillis) {
+    this.keepAliveMillis = keepAliveMillis;
+  }
+
+  public void setVirtualThreads(boolean virtualThreads) {
+    this.virtualThreads = virtualThreads;
+  }
+
+  public void setThreadsInheritContextClassLoaderOfInitializingThread(
+      boolean inheritContextClassLoader) {
+    this.inheritContextClassLoader = inheritContextClassLoader;
+  }
+
+  private void releaseWorker() {
+    synchronized (availabilityLock) {
+      busyCount--;
+      availabilityLock.notifyAll();
+    }
+  }
+
+  /*
+   * A busy slot is released before its worker goes back to poll the hand-off queue, so a run
+   * accepted by runInThread may briefly find every worker still busy. Wait for that worker to
+   * take the run instead of rejecting it, as a rejection makes Quartz set the job triggers in
+   * error.
+   */
+  private void handOffToReleasingWorker(Runnable runnable, ThreadPoolExecutor threadPoolExecutor) {
+    try {
+      while (!threadPoolExecutor.getQueue().offer(runnable, 100, TimeUnit.MILLISECONDS)) {
+        if (threadPoolExecutor.isShutdown()) {
+          throw new RejectedExecutionException("Elastic thread pool is shut down");
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new RejectedExecutionException("Interrupted while handing off a job run", ex);
+    }
+  }
+
+  private ThreadFactory buildThreadFactory() {
+    ClassLoader initializingClassLoader = Thread.currentThread().getContextClassLoader();
+    return runnable -> {
+      Thread thread =
+          new Thread(runnable, instanceName + "_Worker-" + threadIndex.incrementAndGet());
+      thread.setPriority(threadPriority);
+      if (inheritContextClassLoader) {
+        thread.setContextClassLoader(initializingClassLoader);
+      }
+      return thread;
+    };
+  }
+
+  private void registerMetrics() {
+    Tags tags = Tags.of(Tag.of("name", instanceName));
+    meters.add(
+        Gauge.builder("quartz.thread-pool.busy", this, ElasticThreadPool::getBusyCount)
+            .tags(tags)
+            .register(Metrics.globalRegistry));
+    meters.add(
+        Gauge.builder("quartz.thread-pool.threads", this, ElasticThreadPool::getThreadCount)
+            .tags(tags)
+            .register(Metrics.globalRegistry));
+    meters.add(
+        Gauge.builder("quartz.thread-pool.max", this, ElasticThreadPool::getPoolSize)
+            .tags(tags)
+            .register(Metrics.globalRegistry));
+    meters.add(
+        Gauge.builder(
+                "quartz.thread-pool.utilization",
+                this,
+                pool -> (double) pool.getBusyCount() / pool.getPoolSize())
+            .tags(tags)
+            .register(Metrics.globalRegistry));
+  }
+
+  private static ExecutorService createVirtualThreadExecutor() {
+    /* Resolved by reflection as the service still targets JDKs without virtual threads */
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException ex) {
+      return null;
+    }
+  }
+}
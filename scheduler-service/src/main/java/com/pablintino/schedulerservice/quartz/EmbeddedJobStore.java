@@ -0,0 +1,892 @@
+package com.pablintino.schedulerservice.quartz;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.Calendar;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/*
+ * Single node job store for deployments without a database. Jobs and triggers live in a RAM job
+ * store, every change is appended to a memory-mapped log and the log is compacted into a snapshot
+ * when it fills up, periodically and at startup. Recovery loads the snapshot and replays the log
+ * records of the same epoch. Acquired and executing states are not persisted, as with the JDBC
+ * store after a node failure those triggers are simply acquired again. Application entries, as
+ * task stats and dead letters, are logged and snapshotted with the jobs they belong to.
+ */
+@Slf4j
+public class EmbeddedJobStore implements JobStore {
+
+  private static final String SNAPSHOT_FILE = "store.snapshot";
+  private static final String LOG_FILE = "store.log";
+
+  private enum RecordType {
+    PAUSED_GROUPS,
+    PUT_CALENDAR,
+    PUT_JOB,
+    PUT_TRIGGER,
+    DELETE_TRIGGER,
+    DELETE_JOB,
+    DELETE_CALENDAR,
+    PUT_ENTRY,
+    DELETE_ENTRY
+  }
+
+  @Value
+  private static class EntryKey implements Serializable {
+    private static final long serialVersionUID = 1L;
+    String namespace;
+    Serializable key;
+  }
+
+  @Value
+  private static class StoreRecord implements Serializable {
+    private static final long serialVersionUID = 1L;
+    RecordType type;
+    Serializable key;
+    Serializable value;
+    boolean paused;
+  }
+
+  @Value
+  private static class StoreSnapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+    long epoch;
+    List<StoreRecord> records;
+  }
+
+  /* Gives access to the paused job groups, only kept in a protected field */
+  private static class MemoryJobStore extends RAMJobStore {
+
+    private HashSet<String> getPausedJobGroups() {
+      synchronized (lock) {
+        return new HashSet<>(pausedJobGroups);
+      }
+    }
+
+    private void setPausedGroups(Set<String> triggerGroups, Set<String> jobGroups) {
+      synchronized (lock) {
+        pausedTriggerGroups.clear();
+        pausedTriggerGroups.addAll(triggerGroups);
+        pausedJobGroups.clear();
+        pausedJobGroups.addAll(jobGroups);
+      }
+    }
+  }
+
+  /* Stores by scheduler name, the application reaches its entries through them */
+  private static final Map<String, EmbeddedJobStore> STORES = new ConcurrentHashMap<>();
+
+  private final MemoryJobStore memoryStore = new MemoryJobStore();
+  private final Map<String, Map<Serializable, Serializable>> entries = new HashMap<>();
+  private String directory = "scheduler-store";
+  private int logCapacity = 64 * 1024 * 1024;
+  private long snapshotIntervalMillis = 600000L;
+  private boolean forceWrites = false;
+
+  private ClassLoadHelper classLoadHelper;
+  private String instanceName;
+  private Path snapshotPath;
+  private StoreLog storeLog;
+  private long epoch;
+  private long nextSnapshotTime;
+  private boolean snapshotPending;
+
+  public void setDirectory(String directory) {
+    this.directory = directory;
+  }
+
+  public void setLogCapacity(int logCapacity) {
+    this.logCapacity = logCapacity;
+  }
+
+  public void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+    this.snapshotIntervalMillis = snapshotIntervalMillis;
+  }
+
+  public void setForceWrites(boolean forceWrites) {
+    this.forceWrites = forceWrites;
+  }
+
+  public void setMisfireThreshold(long misfireThreshold) {
+    memoryStore.setMisfireThreshold(misfireThreshold);
+  }
+
+  /* Null if no embedded store was initialized for the scheduler */
+  public static EmbeddedJobStore getStore(String schedulerName) {
+    return STORES.get(schedulerName);
+  }
+
+  @Override
+  public synchronized void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler)
+      throws SchedulerConfigException {
+    classLoadHelper = loadHelper;
+    memoryStore.initialize(loadHelper, signaler);
+    try {
+      Path storeDirectory = Files.createDirectories(Paths.get(directory));
+      snapshotPath = storeDirectory.resolve(SNAPSHOT_FILE);
+      epoch = 0;
+      int recovered = 0;
+      if (Files.exists(snapshotPath)) {
+        StoreSnapshot snapshot = (StoreSnapshot) deserialize(Files.readAllBytes(snapshotPath));
+        epoch = snapshot.getEpoch();
+        for (StoreRecord record : snapshot.getRecords()) {
+          apply(record);
+        }
+      }
+      storeLog = new StoreLog(storeDirectory.resolve(LOG_FILE), logCapacity);
+      for (byte[] payload : storeLog.read(epoch)) {
+        apply((StoreRecord) deserialize(payload));
+        recovered++;
+      }
+      compact();
+      log.info(
+          "Embedded job store recovered {} jobs and {} triggers, {} log records replayed",
+          memoryStore.getNumberOfJobs(),
+          memoryStore.getNumberOfTriggers(),
+          recovered);
+      if (instanceName != null) {
+        STORES.put(instanceName, this);
+      }
+    } catch (IOException | ClassNotFoundException | JobPersistenceException ex) {
+      throw new SchedulerConfigException("Cannot recover the embedded job store", ex);
+    }
+  }
+
+  @Override
+  public void schedulerStarted() throws SchedulerException {
+    memoryStore.schedulerStarted();
+  }
+
+  @Override
+  public void schedulerPaused() {
+    memoryStore.schedulerPaused();
+  }
+
+  @Override
+  public void schedulerResumed() {
+    memoryStore.schedulerResumed();
+  }
+
+  @Override
+  public synchronized void shutdown() {
+    if (instanceName != null) {
+      STORES.remove(instanceName, this);
+    }
+    memoryStore.shutdown();
+    try {
+      if (snapshotPending || !storeLog.isEmpty()) {
+        compact();
+      }
+      storeLog.close();
+    } catch (IOException | JobPersistenceException ex) {
+      log.error("Cannot close the embedded job store", ex);
+    }
+  }
+
+  @Override
+  public boolean supportsPersistence() {
+    return true;
+  }
+
+  @Override
+  public long getEstimatedTimeToReleaseAndAcquireTrigger() {
+    return memoryStore.getEstimatedTimeToReleaseAndAcquireTrigger();
+  }
+
+  @Override
+  public boolean isClustered() {
+    return false;
+  }
+
+  @Override
+  public synchronized void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger)
+      throws JobPersistenceException {
+    memoryStore.storeJobAndTrigger(newJob, newTrigger);
+    persist(List.of(newJob.getKey()), List.of(newTrigger.getKey()));
+  }
+
+  @Override
+  public synchronized void storeJob(JobDetail newJob, boolean replaceExisting)
+      throws JobPersistenceException {
+    memoryStore.storeJob(newJob, replaceExisting);
+    persist(List.of(newJob.getKey()), List.of());
+  }
+
+  @Override
+  public synchronized void storeJobsAndTriggers(
+      Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+      throws JobPersistenceException {
+    try {
+      memoryStore.storeJobsAndTriggers(triggersAndJobs, replace);
+    } finally {
+      persist(
+          triggersAndJobs.keySet().stream().map(JobDetail::getKey).collect(Collectors.toList()),
+          triggersAndJobs.values().stream()
+              .flatMap(Set::stream)
+              .map(Trigger::getKey)
+              .collect(Collectors.toList()));
+    }
+  }
+
+  @Override
+  public synchronized boolean removeJob(JobKey jobKey) throws JobPersistenceException {
+    List<TriggerKey> triggerKeys = getTriggerKeysForJob(jobKey);
+    boolean removed = memoryStore.removeJob(jobKey);
+    persist(List.of(jobKey), triggerKeys);
+    return removed;
+  }
+
+  @Override
+  public synchronized boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException {
+    List<TriggerKey> triggerKeys = new ArrayList<>();
+    for (JobKey jobKey : jobKeys) {
+      triggerKeys.addAll(getTriggerKeysForJob(jobKey));
+    }
+    boolean removed = memoryStore.removeJobs(jobKeys);
+    persist(jobKeys, triggerKeys);
+    return removed;
+  }
+
+  @Override
+  public JobDetail retrieveJob(JobKey jobKey) {
+    return memoryStore.retrieveJob(jobKey);
+  }
+
+  @Override
+  public synchronized void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting)
+      throws JobPersistenceException {
+    memoryStore.storeTrigger(newTrigger, replaceExisting);
+    persist(List.of(), List.of(newTrigger.getKey()));
+  }
+
+  @Override
+  public synchronized boolean removeTrigger(TriggerKey triggerKey)
+      throws JobPersistenceException {
+    List<JobKey> jobKeys = getJobKeysForTriggers(List.of(triggerKey));
+    boolean removed = memoryStore.removeTrigger(triggerKey);
+    /* The job goes away with its last trigger if it is not durable */
+    persist(jobKeys, List.of(triggerKey));
+    return removed;
+  }
+
+  @Override
+  public synchronized boolean removeTriggers(List<TriggerKey> triggerKeys)
+      throws JobPersistenceException {
+    List<JobKey> jobKeys = getJobKeysForTriggers(triggerKeys);
+    boolean removed = memoryStore.removeTriggers(triggerKeys);
+    persist(jobKeys, triggerKeys);
+    return removed;
+  }
+
+  @Override
+  public synchronized boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger)
+      throws JobPersistenceException {
+    List<JobKey> jobKeys = getJobKeysForTriggers(List.of(triggerKey));
+    boolean replaced = memoryStore.replaceTrigger(triggerKey, newTrigger);
+    persist(jobKeys, List.of(triggerKey, newTrigger.getKey()));
+    return replaced;
+  }
+
+  @Override
+  public OperableTrigger retrieveTrigger(TriggerKey triggerKey) {
+    return memoryStore.retrieveTrigger(triggerKey);
+  }
+
+  @Override
+  public boolean checkExists(JobKey jobKey) throws JobPersistenceException {
+    return memoryStore.checkExists(jobKey);
+  }
+
+  @Override
+  public boolean checkExists(TriggerKey triggerKey) throws JobPersistenceException {
+    return memoryStore.checkExists(triggerKey);
+  }
+
+  @Override
+  public synchronized void clearAllSchedulingData() throws JobPersistenceException {
+    memoryStore.clearAllSchedulingData();
+    compact();
+  }
+
+  @Override
+  public synchronized void storeCalendar(
+      String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+      throws ObjectAlreadyExistsException, JobPersistenceException {
+    memoryStore.storeCalendar(name, calendar, replaceExisting, updateTriggers);
+    List<TriggerKey> triggerKeys = new ArrayList<>();
+    if (updateTriggers) {
+      for (TriggerKey triggerKey :
+          memoryStore.getTriggerKeys(GroupMatcher.anyTriggerGroup())) {
+        OperableTrigger trigger = memoryStore.retrieveTrigger(triggerKey);
+        if (trigger != null && name.equals(trigger.getCalendarName())) {
+          triggerKeys.add(triggerKey);
+        }
+      }
+    }
+    persist(List.of(), triggerKeys, List.of(name), false);
+  }
+
+  @Override
+  public synchronized boolean removeCalendar(String calName) throws JobPersistenceException {
+    boolean removed = memoryStore.removeCalendar(calName);
+    persist(List.of(), List.of(), List.of(calName), false);
+    return removed;
+  }
+
+  @Override
+  public Calendar retrieveCalendar(String calName) {
+    return memoryStore.retrieveCalendar(calName);
+  }
+
+  @Override
+  public int getNumberOfJobs() {
+    return memoryStore.getNumberOfJobs();
+  }
+
+  @Override
+  public int getNumberOfTriggers() {
+    return memoryStore.getNumberOfTriggers();
+  }
+
+  @Override
+  public int getNumberOfCalendars() {
+    return memoryStore.getNumberOfCalendars();
+  }
+
+  @Override
+  public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) {
+    return memoryStore.getJobKeys(matcher);
+  }
+
+  @Override
+  public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) {
+    return memoryStore.getTriggerKeys(matcher);
+  }
+
+  @Override
+  public List<String> getJobGroupNames() {
+    return memoryStore.getJobGroupNames();
+  }
+
+  @Override
+  public List<String> getTriggerGroupNames() {
+    return memoryStore.getTriggerGroupNames();
+  }
+
+  @Override
+  public List<String> getCalendarNames() {
+    return memoryStore.getCalendarNames();
+  }
+
+  @Override
+  public List<OperableTrigger> getTriggersForJob(JobKey jobKey) {
+    return memoryStore.getTriggersForJob(jobKey);
+  }
+
+  @Override
+  public Trigger.TriggerState getTriggerState(TriggerKey triggerKey)
+      throws JobPersistenceException {
+    return memoryStore.getTriggerState(triggerKey);
+  }
+
+  @Override
+  public synchronized void resetTriggerFromErrorState(TriggerKey triggerKey)
+      throws JobPersistenceException {
+    memoryStore.resetTriggerFromErrorState(triggerKey);
+    persist(List.of(), List.of(triggerKey));
+  }
+
+  @Override
+  public synchronized void pauseTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+    memoryStore.pauseTrigger(triggerKey);
+    persist(List.of(), List.of(triggerKey));
+  }
+
+  @Override
+  public synchronized Collection<String> pauseTriggers(GroupMatcher<TriggerKey> matcher)
+      throws JobPersistenceException {
+    Collection<String> groups = memoryStore.pauseTriggers(matcher);
+    persist(List.of(), memoryStore.getTriggerKeys(matcher), List.of(), true);
+    return groups;
+  }
+
+  @Override
+  public synchronized void pauseJob(JobKey jobKey) throws JobPersistenceException {
+    memoryStore.pauseJob(jobKey);
+    persist(List.of(), getTriggerKeysForJob(jobKey));
+  }
+
+  @Override
+  public synchronized Collection<String> pauseJobs(GroupMatcher<JobKey> groupMatcher)
+      throws JobPersistenceException {
+    Collection<String> groups = memoryStore.pauseJobs(groupMatcher);
+    persist(List.of(), getTriggerKeysForJobs(groupMatcher), List.of(), true);
+    return groups;
+  }
+
+  @Override
+  public synchronized void resumeTrigger(TriggerKey triggerKey) throws JobPersistenceException {
+    memoryStore.resumeTrigger(triggerKey);
+    persist(List.of(), List.of(triggerKey));
+  }
+
+  @Override
+  public synchronized Collection<String> resumeTriggers(GroupMatcher<TriggerKey> matcher)
+      throws JobPersistenceException {
+    Collection<String> groups = memoryStore.resumeTriggers(matcher);
+    persist(List.of(), memoryStore.getTriggerKeys(matcher), List.of(), true);
+    return groups;
+  }
+
+  @Override
+  public Set<String> getPausedTriggerGroups() throws JobPersistenceException {
+    return memoryStore.getPausedTriggerGroups();
+  }
+
+  @Override
+  public synchronized void resumeJob(JobKey jobKey) throws JobPersistenceException {
+    memoryStore.resumeJob(jobKey);
+    persist(List.of(), getTriggerKeysForJob(jobKey));
+  }
+
+  @Override
+  public synchronized Collection<String> resumeJobs(GroupMatcher<JobKey> matcher)
+      throws JobPersistenceException {
+    Collection<String> groups = memoryStore.resumeJobs(matcher);
+    persist(List.of(), getTriggerKeysForJobs(matcher), List.of(), true);
+    return groups;
+  }
+
+  @Override
+  public synchronized void pauseAll() throws JobPersistenceException {
+    memoryStore.pauseAll();
+    persist(
+        List.of(), memoryStore.getTriggerKeys(GroupMatcher.anyTriggerGroup()), List.of(), true);
+  }
+
+  @Override
+  public synchronized void resumeAll() throws JobPersistenceException {
+    memoryStore.resumeAll();
+    persist(
+        List.of(), memoryStore.getTriggerKeys(GroupMatcher.anyTriggerGroup()), List.of(), true);
+  }
+
+  @Override
+  public List<OperableTrigger> acquireNextTriggers(
+      long noLaterThan, int maxCount, long timeWindow) {
+    return memoryStore.acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+  }
+
+  @Override
+  public void releaseAcquiredTrigger(OperableTrigger trigger) {
+    memoryStore.releaseAcquiredTrigger(trigger);
+  }
+
+  @Override
+  public synchronized List<TriggerFiredResult> triggersFired(List<OperableTrigger> triggers)
+      throws JobPersistenceException {
+    List<TriggerFiredResult> results = memoryStore.triggersFired(triggers);
+    List<TriggerKey> triggerKeys =
+        triggers.stream().map(OperableTrigger::getKey).collect(Collectors.toList());
+    /* Job data only changes on completion */
+    persist(List.of(), triggerKeys);
+    return results;
+  }
+
+  @Override
+  public synchronized void triggeredJobComplete(
+      OperableTrigger trigger,
+      JobDetail jobDetail,
+      Trigger.CompletedExecutionInstruction triggerInstCode) {
+    memoryStore.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+    try {
+      /* The job is only logged if its data was rewritten or it went away with its trigger */
+      JobKey jobKey = jobDetail.getKey();
+      boolean jobChanged =
+          jobDetail.isPersistJobDataAfterExecution() || !memoryStore.checkExists(jobKey);
+      persist(jobChanged ? List.of(jobKey) : List.of(), List.of(trigger.getKey()));
+    } catch (JobPersistenceException ex) {
+      log.error("Cannot persist the completion of trigger {}", trigger.getKey(), ex);
+    }
+  }
+
+  @Override
+  public void setInstanceId(String schedInstId) {
+    memoryStore.setInstanceId(schedInstId);
+  }
+
+  @Override
+  public void setInstanceName(String schedName) {
+    instanceName = schedName;
+    memoryStore.setInstanceName(schedName);
+  }
+
+  public synchronized Serializable getEntry(String namespace, Serializable key) {
+    Map<Serializable, Serializable> namespaceEntries = entries.get(namespace);
+    return namespaceEntries != null ? namespaceEntries.get(key) : null;
+  }
+
+  /* In insertion order. Values are shared, entries are replaced, never modified */
+  public synchronized Map<Serializable, Serializable> getEntries(String namespace) {
+    return new LinkedHashMap<>(entries.getOrDefault(namespace, Map.of()));
+  }
+
+  /* Logs the updated value. A null one removes the entry */
+  public synchronized Serializable updateEntry(
+      String namespace, Serializable key, UnaryOperator<Serializable> update)
+      throws JobPersistenceException {
+    Serializable current = getEntry(namespace, key);
+    Serializable value = update.apply(current);
+    if (value == null && current == null) {
+      return null;
+    }
+    EntryKey entryKey = new EntryKey(namespace, key);
+    StoreRecord record =
+        value != null
+            ? new StoreRecord(RecordType.PUT_ENTRY, entryKey, value, false)
+            : new StoreRecord(RecordType.DELETE_ENTRY, entryKey, null, false);
+    apply(record);
+    write(List.of(record));
+    return value;
+  }
+
+  public synchronized void removeEntries(String namespace, Collection<? extends Serializable> keys)
+      throws JobPersistenceException {
+    List<StoreRecord> records = new ArrayList<>();
+    for (Serializable key : keys) {
+      if (getEntry(namespace, key) != null) {
+        StoreRecord record =
+            new StoreRecord(
+                RecordType.DELETE_ENTRY, new EntryKey(namespace, key), null, false);
+        apply(record);
+        records.add(record);
+      }
+    }
+    if (!records.isEmpty()) {
+      write(records);
+    }
+  }
+
+  @Override
+  public void setThreadPoolSize(int poolSize) {
+    memoryStore.setThreadPoolSize(poolSize);
+  }
+
+  @Override
+  public long getAcquireRetryDelay(int failureCount) {
+    return memoryStore.getAcquireRetryDelay(failureCount);
+  }
+
+  private void persist(Collection<JobKey> jobKeys, Collection<TriggerKey> triggerKeys)
+      throws JobPersistenceException {
+    persist(jobKeys, triggerKeys, List.of(), false);
+  }
+
+  /* Logs the current state of the given entities, ordered so replaying never breaks a reference */
+  private void persist(
+      Collection<JobKey> jobKeys,
+      Collection<TriggerKey> triggerKeys,
+      Collection<String> calendarNames,
+      boolean pausedGroups)
+      throws JobPersistenceException {
+    List<StoreRecord> records = new ArrayList<>();
+    if (pausedGroups) {
+      records.add(createPausedGroupsRecord());
+    }
+    for (String calendarName : calendarNames) {
+      Calendar calendar = memoryStore.retrieveCalendar(calendarName);
+      if (calendar != null) {
+        records.add(new StoreRecord(RecordType.PUT_CALENDAR, calendarName, calendar, false));
+      }
+    }
+    Set<JobKey> uniqueJobKeys = new LinkedHashSet<>(jobKeys);
+    for (JobKey jobKey : uniqueJobKeys) {
+      JobDetail jobDetail = memoryStore.retrieveJob(jobKey);
+      if (jobDetail != null) {
+        records.add(new StoreRecord(RecordType.PUT_JOB, jobKey, jobDetail, false));
+      }
+    }
+    for (TriggerKey triggerKey : new LinkedHashSet<>(triggerKeys)) {
+      records.add(createTriggerRecord(triggerKey));
+    }
+    for (JobKey jobKey : uniqueJobKeys) {
+      if (!memoryStore.checkExists(jobKey)) {
+        records.add(new StoreRecord(RecordType.DELETE_JOB, jobKey, null, false));
+      }
+    }
+    for (String calendarName : calendarNames) {
+      if (memoryStore.retrieveCalendar(calendarName) == null) {
+        records.add(new StoreRecord(RecordType.DELETE_CALENDAR, calendarName, null, false));
+      }
+    }
+    write(records);
+  }
+
+  private void write(List<StoreRecord> records) throws JobPersistenceException {
+    try {
+      if (!snapshotPending) {
+        for (StoreRecord record : records) {
+          if (!storeLog.append(serialize(record))) {
+            /* The snapshot already holds the records that did not fit */
+            snapshotPending = true;
+            break;
+          }
+        }
+        if (forceWrites) {
+          storeLog.force();
+        }
+      }
+    } catch (IOException ex) {
+      snapshotPending = true;
+      throw new JobPersistenceException("Cannot append to the job store log", ex);
+    }
+    if (snapshotPending
+        || storeLog.getSize() > storeLog.getCapacity() / 2
+        || System.currentTimeMillis() >= nextSnapshotTime) {
+      compact();
+    }
+  }
+
+  private void compact() throws JobPersistenceException {
+    long newEpoch = epoch + 1;
+    try {
+      Path tempPath = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+      ByteBuffer snapshot =
+          ByteBuffer.wrap(serialize(new StoreSnapshot(newEpoch, createSnapshotRecords())));
+      try (FileChannel channel =
+          FileChannel.open(
+              tempPath,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE)) {
+        while (snapshot.hasRemaining()) {
+          channel.write(snapshot);
+        }
+        /* The data must be durable before the rename can make it the snapshot */
+        channel.force(true);
+      }
+      Files.move(
+          tempPath,
+          snapshotPath,
+          StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      forceDirectory(snapshotPath.getParent());
+    } catch (IOException ex) {
+      snapshotPending = true;
+      throw new JobPersistenceException("Cannot write the job store snapshot", ex);
+    }
+    /* A crash before the reset leaves a log of the previous epoch, ignored on recovery */
+    storeLog.reset(newEpoch);
+    storeLog.force();
+    epoch = newEpoch;
+    snapshotPending = false;
+    nextSnapshotTime = System.currentTimeMillis() + snapshotIntervalMillis;
+  }
+
+  /* Makes the rename durable. Some platforms can't open directories, nothing to do there */
+  private static void forceDirectory(Path directoryPath) throws IOException {
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(directoryPath, StandardOpenOption.READ);
+    } catch (IOException ex) {
+      log.debug("Cannot open the job store directory to sync it", ex);
+      return;
+    }
+    try (channel) {
+      channel.force(true);
+    }
+  }
+
+  private List<StoreRecord> createSnapshotRecords() throws JobPersistenceException {
+    List<StoreRecord> records = new ArrayList<>();
+    records.add(createPausedGroupsRecord());
+    for (String calendarName : memoryStore.getCalendarNames()) {
+      records.add(
+          new StoreRecord(
+              RecordType.PUT_CALENDAR,
+              calendarName,
+              memoryStore.retrieveCalendar(calendarName),
+              false));
+    }
+    for (JobKey jobKey : memoryStore.getJobKeys(GroupMatcher.anyJobGroup())) {
+      records.add(
+          new StoreRecord(RecordType.PUT_JOB, jobKey, memoryStore.retrieveJob(jobKey), false));
+    }
+    for (TriggerKey triggerKey : memoryStore.getTriggerKeys(GroupMatcher.anyTriggerGroup())) {
+      records.add(createTriggerRecord(triggerKey));
+    }
+    for (Map.Entry<String, Map<Serializable, Serializable>> namespaceEntries :
+        entries.entrySet()) {
+      for (Map.Entry<Serializable, Serializable> entry : namespaceEntries.getValue().entrySet()) {
+        records.add(
+            new StoreRecord(
+                RecordType.PUT_ENTRY,
+                new EntryKey(namespaceEntries.getKey(), entry.getKey()),
+                entry.getValue(),
+                false));
+      }
+    }
+    return records;
+  }
+
+  private StoreRecord createPausedGroupsRecord() throws JobPersistenceException {
+    return new StoreRecord(
+        RecordType.PAUSED_GROUPS,
+        new HashSet<>(memoryStore.getPausedTriggerGroups()),
+        memoryStore.getPausedJobGroups(),
+        false);
+  }
+
+  private StoreRecord createTriggerRecord(TriggerKey triggerKey) throws JobPersistenceException {
+    OperableTrigger trigger = memoryStore.retrieveTrigger(triggerKey);
+    if (trigger == null) {
+      return new StoreRecord(RecordType.DELETE_TRIGGER, triggerKey, null, false);
+    }
+    boolean paused = memoryStore.getTriggerState(triggerKey) == Trigger.TriggerState.PAUSED;
+    return new StoreRecord(RecordType.PUT_TRIGGER, triggerKey, trigger, paused);
+  }
+
+  @SuppressWarnings("unchecked")
+  private void apply(StoreRecord record) throws JobPersistenceException {
+    switch (record.getType()) {
+      case PAUSED_GROUPS:
+        memoryStore.setPausedGroups(
+            (Set<String>) record.getKey(), (Set<String>) record.getValue());
+        break;
+      case PUT_CALENDAR:
+        memoryStore.storeCalendar(
+            (String) record.getKey(), (Calendar) record.getValue(), true, false);
+        break;
+      case PUT_JOB:
+        memoryStore.storeJob((JobDetail) record.getValue(), true);
+        break;
+      case PUT_TRIGGER:
+        TriggerKey triggerKey = (TriggerKey) record.getKey();
+        memoryStore.storeTrigger((OperableTrigger) record.getValue(), true);
+        if (record.isPaused()) {
+          memoryStore.pauseTrigger(triggerKey);
+        } else if (memoryStore.getTriggerState(triggerKey) == Trigger.TriggerState.PAUSED) {
+          memoryStore.resumeTrigger(triggerKey);
+        }
+        break;
+      case DELETE_TRIGGER:
+        memoryStore.removeTrigger((TriggerKey) record.getKey());
+        break;
+      case DELETE_JOB:
+        memoryStore.removeJob((JobKey) record.getKey());
+        break;
+      case DELETE_CALENDAR:
+        memoryStore.removeCalendar((String) record.getKey());
+        break;
+      case PUT_ENTRY:
+        EntryKey putKey = (EntryKey) record.getKey();
+        entries
+            .computeIfAbsent(putKey.getNamespace(), namespace -> new LinkedHashMap<>())
+            .put(putKey.getKey(), record.getValue());
+        break;
+      case DELETE_ENTRY:
+        EntryKey deleteKey = (EntryKey) record.getKey();
+        Map<Serializable, Serializable> namespaceEntries = entries.get(deleteKey.getNamespace());
+        if (namespaceEntries != null) {
+          namespaceEntries.remove(deleteKey.getKey());
+        }
+        break;
+    }
+  }
+
+  private List<TriggerKey> getTriggerKeysForJob(JobKey jobKey) {
+    return memoryStore.getTriggersForJob(jobKey).stream()
+        .map(OperableTrigger::getKey)
+        .collect(Collectors.toList());
+  }
+
+  private List<TriggerKey> getTriggerKeysForJobs(GroupMatcher<JobKey> matcher) {
+    return memoryStore.getJobKeys(matcher).stream()
+        .flatMap(jobKey -> getTriggerKeysForJob(jobKey).stream())
+        .collect(Collectors.toList());
+  }
+
+  private List<JobKey> getJobKeysForTriggers(Collection<TriggerKey> triggerKeys) {
+    List<JobKey> jobKeys = new ArrayList<>();
+    for (TriggerKey triggerKey : triggerKeys) {
+      OperableTrigger trigger = memoryStore.retrieveTrigger(triggerKey);
+      if (trigger != null) {
+        jobKeys.add(trigger.getJobKey());
+      }
+    }
+    return jobKeys;
+  }
+
+  private static byte[] serialize(Serializable value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream outputStream = new ObjectOutputStream(bytes)) {
+      outputStream.writeObject(value);
+    }
+    return bytes.toByteArray();
+  }
+
+  private Object deserialize(byte[] payload) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream inputStream = new StoreObjectInputStream(payload)) {
+      return inputStream.readObject();
+    }
+  }
+
+  /* Resolves job classes as Quartz does, through its class load helper */
+  private class StoreObjectInputStream extends ObjectInputStream {
+
+    private StoreObjectInputStream(byte[] payload) throws IOException {
+      super(new ByteArrayInputStream(payload));
+    }
+
+    @Override
+    protected Class<?> resolveClass(ObjectStreamClass desc)
+        throws IOException, ClassNotFoundException {
+      try {
+        return classLoadHelper.loadClass(desc.getName());
+      } catch (ClassNotFoundException ex) {
+        return super.resolveClass(desc);
+      }
+    }
+  }
+}
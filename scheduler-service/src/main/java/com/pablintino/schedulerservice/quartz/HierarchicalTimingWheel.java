@@ -0,0 +1,125 @@
+package com.pablintino.schedulerservice.quartz;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/*
+ * Hierarchical timing wheel. Level 0 slots last one tick, each upper level slot spans a whole
+ * lower wheel. Entries cascade down a level when time reaches their slot, so adding and expiring
+ * are constant time. Not thread safe.
+ */
+public class HierarchicalTimingWheel<T> {
+
+  private static class Entry<T> {
+    private final T item;
+    private final long deadline;
+
+    private Entry(T item, long deadline) {
+      this.item = item;
+      this.deadline = deadline;
+    }
+  }
+
+  private final long tickMillis;
+  private final int wheelSize;
+  private final long[] levelTicks;
+  private final List<List<Deque<Entry<T>>>> levels = new ArrayList<>();
+  private final List<T> expired = new ArrayList<>();
+  private long currentTime;
+  private int size;
+
+  public HierarchicalTimingWheel(long tickMillis, int wheelSize, int levelCount, long startTime) {
+    this.tickMillis = tickMillis;
+    this.wheelSize = wheelSize;
+    this.levelTicks = new long[levelCount];
+    long levelTick = tickMillis;
+    for (int level = 0; level < levelCount; level++) {
+      levelTicks[level] = levelTick;
+      levelTick = Math.multiplyExact(levelTick, wheelSize);
+      List<Deque<Entry<T>>> slots = new ArrayList<>(wheelSize);
+      for (int slot = 0; slot < wheelSize; slot++) {
+        slots.add(new ArrayDeque<>());
+      }
+      levels.add(slots);
+    }
+    this.currentTime = startTime - startTime % tickMillis;
+  }
+
+  /* Deadlines are accepted up to one top level slot short of a whole top level wheel ahead */
+  public long getHorizon() {
+    return currentTime + levelTicks[levelTicks.length - 1] * (wheelSize - 1);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void add(T item, long deadline) {
+    if (deadline > getHorizon()) {
+      throw new IllegalArgumentException("Deadline beyond the wheel horizon");
+    }
+    size++;
+    place(new Entry<>(item, deadline));
+  }
+
+  /* Expires every entry due before the end of the tick holding the given time */
+  public List<T> advance(long time) {
+    if (size == expired.size()) {
+      currentTime = Math.max(currentTime, time - time % tickMillis);
+    }
+    while (currentTime + tickMillis <= time) {
+      currentTime += tickMillis;
+      for (int level = levelTicks.length - 1; level > 0; level--) {
+        if (currentTime % levelTicks[level] == 0) {
+          cascade(levels.get(level).get(slotOf(level, currentTime)));
+        }
+      }
+      cascade(levels.get(0).get(slotOf(0, currentTime)));
+    }
+    List<T> result = new ArrayList<>(expired);
+    size -= expired.size();
+    expired.clear();
+    return result;
+  }
+
+  public List<T> clear() {
+    List<T> items = new ArrayList<>(expired);
+    for (List<Deque<Entry<T>>> slots : levels) {
+      for (Deque<Entry<T>> slot : slots) {
+        slot.forEach(entry -> items.add(entry.item));
+        slot.clear();
+      }
+    }
+    expired.clear();
+    size = 0;
+    return items;
+  }
+
+  private void cascade(Deque<Entry<T>> slot) {
+    Entry<T> entry;
+    while ((entry = slot.poll()) != null) {
+      place(entry);
+    }
+  }
+
+  private void place(Entry<T> entry) {
+    if (entry.deadline < currentTime + tickMillis) {
+      expired.add(entry.item);
+      return;
+    }
+    for (int level = 0; level < levelTicks.length; level++) {
+      long levelStart = currentTime - currentTime % levelTicks[level];
+      if (entry.deadline < levelStart + levelTicks[level] * wheelSize) {
+        levels.get(level).get(slotOf(level, entry.deadline)).add(entry);
+        return;
+      }
+    }
+    throw new IllegalStateException("Timing wheel entry beyond the horizon");
+  }
+
+  private int slotOf(int level, long time) {
+    return (int) ((time / levelTicks[level]) % wheelSize);
+  }
+}
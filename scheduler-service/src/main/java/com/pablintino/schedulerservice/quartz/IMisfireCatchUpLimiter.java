@@ -0,0 +1,10 @@
+package com.pablintino.schedulerservice.quartz;
+
+import org.quartz.JobExecutionContext;
+
+import java.time.Duration;
+
+public interface IMisfireCatchUpLimiter {
+
+  Duration tryAcquire(JobExecutionContext context);
+}
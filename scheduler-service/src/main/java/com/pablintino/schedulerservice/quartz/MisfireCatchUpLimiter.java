@@ -0,0 +1,77 @@
+package com.pablintino.schedulerservice.quartz;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.quartz.CronTrigger;
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+
+/* Spreads the fires that come late after a downtime evenly over a window. On time fires pass */
+@Component
+public class MisfireCatchUpLimiter implements IMisfireCatchUpLimiter {
+
+  private final long misfireThreshold;
+  private final long slotNanos;
+  private final Counter deferred;
+  private long nextSlotNanos;
+
+  public MisfireCatchUpLimiter(
+      MeterRegistry meterRegistry,
+      @Value("${spring.quartz.properties.org.quartz.jobStore.misfireThreshold:60000}")
+          long misfireThreshold,
+      @Value("${com.pablintino.scheduler.misfire.catch-up-window:0}") long catchUpWindow,
+      @Value("${com.pablintino.scheduler.misfire.catch-up-fires:100}") int catchUpFires) {
+    if (catchUpWindow < 0 || catchUpFires <= 0) {
+      throw new IllegalArgumentException("Invalid misfire catch up window or fire count");
+    }
+    this.misfireThreshold = misfireThreshold;
+    this.slotNanos = Duration.ofMillis(catchUpWindow).toNanos() / catchUpFires;
+    this.deferred = meterRegistry.counter("misfire.catch-up.deferred");
+    this.nextSlotNanos = System.nanoTime();
+  }
+
+  @Override
+  public Duration tryAcquire(JobExecutionContext context) {
+    if (slotNanos == 0 || !isCatchUpFire(context)) {
+      return Duration.ZERO;
+    }
+    long delayNanos = reserveSlot();
+    if (delayNanos != 0) {
+      deferred.increment();
+    }
+    return Duration.ofNanos(delayNanos);
+  }
+
+  private synchronized long reserveSlot() {
+    /* Each catch up fire takes the next free slot, so a backlog drains at a constant pace */
+    long now = System.nanoTime();
+    long slot = Math.max(now, nextSlotNanos);
+    nextSlotNanos = slot + slotNanos;
+    return slot - now;
+  }
+
+  private boolean isCatchUpFire(JobExecutionContext context) {
+    Date dueTime = getDueTime(context);
+    return context.getFireTime().getTime() - dueTime.getTime() > misfireThreshold;
+  }
+
+  private static Date getDueTime(JobExecutionContext context) {
+    /* Fire now misfire instructions move the scheduled time, the schedule tells the real one */
+    Trigger trigger = context.getTrigger();
+    Date dueTime;
+    if (context.getPreviousFireTime() != null) {
+      dueTime = trigger.getFireTimeAfter(context.getPreviousFireTime());
+    } else if (trigger instanceof CronTrigger) {
+      dueTime = trigger.getFireTimeAfter(new Date(trigger.getStartTime().getTime() - 1000));
+    } else {
+      dueTime = trigger.getStartTime();
+    }
+    Date scheduledFireTime = context.getScheduledFireTime();
+    return dueTime != null && dueTime.before(scheduledFireTime) ? dueTime : scheduledFireTime;
+  }
+}
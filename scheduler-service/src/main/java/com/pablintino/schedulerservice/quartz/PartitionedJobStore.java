@@ -0,0 +1,78 @@
+package com.pablintino.schedulerservice.quartz;
+
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobPersistenceException;
+import org.quartz.impl.jdbcjobstore.SchedulerStateRecord;
+import org.quartz.spi.OperableTrigger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/*
+ * Clustered job store where each node owns a consistent hash range of task keys (the trigger
+ * groups) and only acquires the triggers of the groups it owns. Members are the instances with a
+ * recent check in, so ownership moves to the remaining nodes once Quartz would consider a node
+ * failed and is shared with a new node as soon as it checks in.
+ */
+@Slf4j
+public class PartitionedJobStore extends SkipLockedJobStore {
+
+  /* Same grace Quartz gives before recovering a node that missed its check in */
+  private static final long CHECKIN_GRACE_MILLIS = 7500L;
+
+  private int virtualNodes = 64;
+  private volatile ConsistentHashRing ring;
+  private volatile long ringRefreshTime;
+
+  public PartitionedJobStore() {
+    /* Set before initialization, the scheduler factory checks it to generate the instance id */
+    setIsClustered(true);
+  }
+
+  public void setVirtualNodes(int virtualNodes) {
+    this.virtualNodes = virtualNodes;
+  }
+
+  @Override
+  protected Class<? extends SkipLockedPostgreSQLDelegate> getDelegateClass() {
+    return PartitionedPostgreSQLDelegate.class;
+  }
+
+  @Override
+  protected List<OperableTrigger> acquireNextTrigger(
+      Connection conn, long noLaterThan, int maxCount, long timeWindow)
+      throws JobPersistenceException {
+    long now = System.currentTimeMillis();
+    if (ring == null || now - ringRefreshTime >= getClusterCheckinInterval()) {
+      refreshRing(conn, now);
+    }
+    return super.acquireNextTrigger(conn, noLaterThan, maxCount, timeWindow);
+  }
+
+  private void refreshRing(Connection conn, long now) throws JobPersistenceException {
+    try {
+      Set<String> members = new HashSet<>();
+      members.add(getInstanceId());
+      for (SchedulerStateRecord record : getDelegate().selectSchedulerStateRecords(conn, null)) {
+        if (record.getCheckinTimestamp() + record.getCheckinInterval() + CHECKIN_GRACE_MILLIS
+            >= now) {
+          members.add(record.getSchedulerInstanceId());
+        }
+      }
+
+      if (ring == null || !ring.getMembers().equals(members)) {
+        ConsistentHashRing newRing = new ConsistentHashRing(members, virtualNodes);
+        ((PartitionedPostgreSQLDelegate) getDelegate())
+            .setOwnedRanges(members.size() > 1 ? newRing.getRanges(getInstanceId()) : null);
+        ring = newRing;
+        log.info("Task key partitions rebalanced across cluster members {}", newRing.getMembers());
+      }
+      ringRefreshTime = now;
+    } catch (SQLException ex) {
+      throw new JobPersistenceException("Cannot read the cluster members", ex);
+    }
+  }
+}
@@ -0,0 +1,32 @@
+package com.pablintino.schedulerservice.quartz;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/* Only acquires the triggers whose group hash falls in the ranges owned by this node */
+public class PartitionedPostgreSQLDelegate extends SkipLockedPostgreSQLDelegate {
+
+  /* Stored generated column, computed once per trigger instead of once per range and row */
+  private static final String GROUP_HASH = "GROUP_HASH";
+
+  /* Null while the node owns every group */
+  private volatile List<ConsistentHashRing.Range> ownedRanges;
+
+  public void setOwnedRanges(List<ConsistentHashRing.Range> ownedRanges) {
+    this.ownedRanges = ownedRanges;
+  }
+
+  @Override
+  protected String getAcquisitionCondition() {
+    List<ConsistentHashRing.Range> ranges = ownedRanges;
+    if (ranges == null) {
+      return "";
+    }
+    if (ranges.isEmpty()) {
+      return " AND 1 = 0";
+    }
+    return ranges.stream()
+        .map(range -> GROUP_HASH + " BETWEEN " + range.getFrom() + " AND " + range.getTo())
+        .collect(Collectors.joining(" OR ", " AND (", ")"));
+  }
+}
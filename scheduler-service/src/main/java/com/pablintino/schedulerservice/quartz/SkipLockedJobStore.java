@@ -0,0 +1,46 @@
+package com.pablintino.schedulerservice.quartz;
+
+import org.quartz.JobPersistenceException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.impl.jdbcjobstore.InvalidConfigurationException;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.springframework.scheduling.quartz.LocalDataSourceJobStore;
+
+import java.util.List;
+
+/*
+ * PostgreSQL job store that acquires due triggers without the global TRIGGER_ACCESS lock. Batches
+ * are claimed with SELECT ... FOR UPDATE SKIP LOCKED, so scheduler threads and cluster nodes
+ * acquire disjoint triggers in parallel. Selected with org.quartz.jobStore.class, it always uses
+ * the delegate given by getDelegateClass.
+ */
+public class SkipLockedJobStore extends LocalDataSourceJobStore {
+
+  @Override
+  public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler)
+      throws SchedulerConfigException {
+    try {
+      setDriverDelegateClass(getDelegateClass().getName());
+    } catch (InvalidConfigurationException ex) {
+      throw new SchedulerConfigException("Cannot set the skip locked delegate", ex);
+    }
+    super.initialize(loadHelper, signaler);
+  }
+
+  protected Class<? extends SkipLockedPostgreSQLDelegate> getDelegateClass() {
+    return SkipLockedPostgreSQLDelegate.class;
+  }
+
+  @Override
+  public List<OperableTrigger> acquireNextTriggers(
+      long noLaterThan, int maxCount, long timeWindow) throws JobPersistenceException {
+    /*
+     * Still transactional. The rows locked by the delegate are held until commit, and a trigger
+     * is only acquired if it is still WAITING, as when Quartz acquires without the lock
+     */
+    return executeInNonManagedTXLock(
+        null, conn -> acquireNextTrigger(conn, noLaterThan, maxCount, timeWindow), null);
+  }
+}
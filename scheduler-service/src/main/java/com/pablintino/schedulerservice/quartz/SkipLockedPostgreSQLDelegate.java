@@ -0,0 +1,55 @@
+package com.pablintino.schedulerservice.quartz;
+
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.PostgreSQLDelegate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Due triggers locked by a concurrent acquisition are skipped instead of waited for */
+public class SkipLockedPostgreSQLDelegate extends PostgreSQLDelegate {
+
+  private static final String SELECT_NEXT_TRIGGERS_TO_ACQUIRE =
+      "SELECT TRIGGER_NAME, TRIGGER_GROUP FROM {0}TRIGGERS WHERE SCHED_NAME = {1}"
+          + " AND TRIGGER_STATE = ? AND NEXT_FIRE_TIME <= ?"
+          + " AND (MISFIRE_INSTR = -1 OR (MISFIRE_INSTR != -1 AND NEXT_FIRE_TIME >= ?))";
+  private static final String ORDER_NEXT_TRIGGERS_TO_ACQUIRE =
+      " ORDER BY NEXT_FIRE_TIME ASC, PRIORITY DESC LIMIT ? FOR UPDATE SKIP LOCKED";
+
+  @Override
+  public List<TriggerKey> selectTriggerToAcquire(
+      Connection conn, long noLaterThan, long noEarlierThan, int maxCount) throws SQLException {
+    PreparedStatement ps = null;
+    ResultSet rs = null;
+    try {
+      ps =
+          conn.prepareStatement(
+              rtp(SELECT_NEXT_TRIGGERS_TO_ACQUIRE)
+                  + getAcquisitionCondition()
+                  + ORDER_NEXT_TRIGGERS_TO_ACQUIRE);
+      ps.setString(1, STATE_WAITING);
+      ps.setLong(2, noLaterThan);
+      ps.setLong(3, noEarlierThan);
+      ps.setInt(4, Math.max(1, maxCount));
+      rs = ps.executeQuery();
+      List<TriggerKey> nextTriggers = new ArrayList<>();
+      while (rs.next()) {
+        nextTriggers.add(
+            TriggerKey.triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)));
+      }
+      return nextTriggers;
+    } finally {
+      closeResultSet(rs);
+      closeStatement(ps);
+    }
+  }
+
+  /* Extra restriction appended to the acquisition query, after the table prefix replacement */
+  protected String getAcquisitionCondition() {
+    return "";
+  }
+}
@@ -0,0 +1,67 @@
+package com.pablintino.schedulerservice.quartz;
+
+import com.pablintino.schedulerservice.services.ITaskStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.listeners.SchedulerListenerSupport;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/* Triggers completed by a skip misfire policy never fire, so nothing else removes their task */
+@Slf4j
+@Component
+public class SkippedTriggersCleaner extends SchedulerListenerSupport
+    implements InitializingBean, DisposableBean {
+
+  private final Scheduler scheduler;
+  private final ITaskStatsRepository taskStatsRepository;
+  private final ExecutorService cleanupExecutor;
+
+  public SkippedTriggersCleaner(Scheduler scheduler, ITaskStatsRepository taskStatsRepository) {
+    this.scheduler = scheduler;
+    this.taskStatsRepository = taskStatsRepository;
+    this.cleanupExecutor =
+        Executors.newSingleThreadExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "skipped-triggers-cleaner");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public void afterPropertiesSet() throws SchedulerException {
+    scheduler.getListenerManager().addSchedulerListener(this);
+  }
+
+  @Override
+  public void destroy() {
+    cleanupExecutor.shutdownNow();
+  }
+
+  @Override
+  public void triggerFinalized(Trigger trigger) {
+    /* Job stores notify it while holding their locks, the removal cannot happen in place */
+    if (trigger.getPreviousFireTime() == null) {
+      cleanupExecutor.execute(() -> removeSkippedTrigger(trigger));
+    }
+  }
+
+  private void removeSkippedTrigger(Trigger trigger) {
+    try {
+      /* Jobs are not durable, Quartz removes the job along with its only trigger */
+      scheduler.unscheduleJob(trigger.getKey());
+      taskStatsRepository.deleteStats(Collections.singleton(trigger.getJobKey()));
+      log.debug("Removed task of job {} skipped after a misfire", trigger.getJobKey());
+    } catch (SchedulerException | RuntimeException ex) {
+      log.error("Error removing the skipped trigger {}", trigger.getKey(), ex);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.pablintino.schedulerservice.quartz;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only log on a memory-mapped file of fixed capacity. Records are written as length, CRC
+ * and payload. The CRC also covers the log epoch, so records left over from an older epoch or
+ * torn by a crash end the log when it is read back.
+ */
+class StoreLog implements Closeable {
+
+  private static final int MAGIC = 0x51534c47;
+  private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+  private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2;
+
+  private final FileChannel channel;
+  private final MappedByteBuffer buffer;
+  private long epoch;
+
+  StoreLog(Path path, int capacity) throws IOException {
+    channel =
+        FileChannel.open(
+            path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+  }
+
+  /* Payloads of the valid records of the given epoch, appends continue after the last one */
+  List<byte[]> read(long expectedEpoch) {
+    List<byte[]> payloads = new ArrayList<>();
+    epoch = expectedEpoch;
+    buffer.position(0);
+    if (buffer.getInt() != MAGIC || buffer.getLong() != expectedEpoch) {
+      reset(expectedEpoch);
+      return payloads;
+    }
+    while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+      int start = buffer.position();
+      int length = buffer.getInt();
+      int crc = buffer.getInt();
+      if (length <= 0 || length > buffer.remaining()) {
+        buffer.position(start);
+        break;
+      }
+      byte[] payload = new byte[length];
+      buffer.get(payload);
+      if (crc != checksum(payload)) {
+        buffer.position(start);
+        break;
+      }
+      payloads.add(payload);
+    }
+    return payloads;
+  }
+
+  void reset(long newEpoch) {
+    epoch = newEpoch;
+    buffer.position(0);
+    buffer.putInt(MAGIC);
+    buffer.putLong(newEpoch);
+    if (buffer.remaining() >= Integer.BYTES) {
+      buffer.putInt(buffer.position(), 0);
+    }
+  }
+
+  /* False if the record does not fit in the remaining capacity */
+  boolean append(byte[] payload) {
+    if (buffer.remaining() < RECORD_HEADER_SIZE + payload.length) {
+      return false;
+    }
+    buffer.putInt(payload.length);
+    buffer.putInt(checksum(payload));
+    buffer.put(payload);
+    return true;
+  }
+
+  boolean isEmpty() {
+    return buffer.position() <= HEADER_SIZE;
+  }
+
+  int getSize() {
+    return buffer.position();
+  }
+
+  int getCapacity() {
+    return buffer.capacity();
+  }
+
+  void force() {
+    buffer.force();
+  }
+
+  @Override
+  public void close() throws IOException {
+    buffer.force();
+    channel.close();
+  }
+
+  private int checksum(byte[] payload) {
+    CRC32 crc = new CRC32();
+    for (int shift = Long.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+      crc.update((int) (epoch >>> shift));
+    }
+    crc.update(payload);
+    return (int) crc.getValue();
+  }
+}
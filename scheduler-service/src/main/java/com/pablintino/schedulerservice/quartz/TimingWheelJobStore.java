@@ -0,0 +1,364 @@
+package com.pablintino.schedulerservice.quartz;
+
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobDetail;
+import org.quartz.JobPersistenceException;
+import org.quartz.SchedulerConfigException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Job store that acquires the triggers due within a look-ahead window in bulk, keeps them in a
+ * hierarchical timing wheel and hands them to the scheduler thread from memory. The database
+ * stays the source of truth: wheel triggers are ACQUIRED there, a node crash is handled by the
+ * usual recovery of acquired triggers, and the window is simply loaded again. Triggers stored by
+ * this node are refreshed one by one, a trigger changed by another node after it was loaded is
+ * detected by its next fire time when it fires and is not run.
+ */
+@Slf4j
+public class TimingWheelJobStore extends PartitionedJobStore {
+
+  private static final Comparator<OperableTrigger> FIRE_ORDER =
+      Comparator.comparing(OperableTrigger::getNextFireTime)
+          .thenComparing(Comparator.comparingInt(OperableTrigger::getPriority).reversed());
+
+  private long lookAheadMillis = 30000L;
+  private long reloadIntervalMillis = 1000L;
+  private long wheelTickMillis = 10L;
+  private int loadBatchSize = 500;
+
+  private HierarchicalTimingWheel<OperableTrigger> wheel;
+  private final PriorityQueue<OperableTrigger> dueTriggers = new PriorityQueue<>(FIRE_ORDER);
+  /*
+   * Acquired copy of every trigger loaded into the wheel, until it fires or is released. Read
+   * without the store monitor while firing, as the TRIGGER_ACCESS lock is held then
+   */
+  private final Map<TriggerKey, OperableTrigger> acquiredTriggers = new ConcurrentHashMap<>();
+  private final Set<OperableTrigger> staleTriggers =
+      Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+  /* Stored by this node since the last acquisition. Read back once their transaction committed */
+  private final Set<TriggerKey> changedTriggers = ConcurrentHashMap.newKeySet();
+  private volatile long nextLoadTime;
+  private volatile long loadedUntil;
+
+  public void setLookAheadMillis(long lookAheadMillis) {
+    this.lookAheadMillis = lookAheadMillis;
+  }
+
+  public void setReloadIntervalMillis(long reloadIntervalMillis) {
+    this.reloadIntervalMillis = reloadIntervalMillis;
+  }
+
+  public void setWheelTickMillis(long wheelTickMillis) {
+    this.wheelTickMillis = wheelTickMillis;
+  }
+
+  public void setLoadBatchSize(int loadBatchSize) {
+    this.loadBatchSize = loadBatchSize;
+  }
+
+  @Override
+  public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler)
+      throws SchedulerConfigException {
+    /* Two levels of 256 slots, enough for look-ahead windows up to 255 x 256 ticks */
+    wheel = new HierarchicalTimingWheel<>(wheelTickMillis, 256, 2, System.currentTimeMillis());
+    if (wheel.getHorizon() - System.currentTimeMillis() < lookAheadMillis) {
+      throw new SchedulerConfigException("Look-ahead window too long for the wheel tick");
+    }
+    super.initialize(loadHelper, signaler);
+  }
+
+  @Override
+  protected Class<? extends SkipLockedPostgreSQLDelegate> getDelegateClass() {
+    return TimingWheelPostgreSQLDelegate.class;
+  }
+
+  @Override
+  public synchronized List<OperableTrigger> acquireNextTriggers(
+      long noLaterThan, int maxCount, long timeWindow) throws JobPersistenceException {
+    long now = System.currentTimeMillis();
+    /* Keeps the wheel horizon ahead of the window to load */
+    dueTriggers.addAll(wheel.advance(now));
+    refreshChangedTriggers();
+    if (now >= nextLoadTime) {
+      loadWindow(now);
+    }
+
+    long batchEnd = noLaterThan + timeWindow;
+    dueTriggers.addAll(wheel.advance(batchEnd));
+    boolean firstTrigger = true;
+    List<OperableTrigger> triggers = new ArrayList<>();
+    List<OperableTrigger> misfiredTriggers = new ArrayList<>();
+    while (!dueTriggers.isEmpty()
+        && triggers.size() < maxCount
+        && dueTriggers.peek().getNextFireTime().getTime() <= batchEnd) {
+      OperableTrigger trigger = dueTriggers.poll();
+      if (!isAcquiredCopy(trigger)) {
+        /* Replaced by a newer load */
+        continue;
+      }
+      if (trigger.getMisfireInstruction() != Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY
+          && trigger.getNextFireTime().getTime() < now - getMisfireThreshold()) {
+        /* As Quartz does, triggers that ignore misfires are fired however late they are */
+        misfiredTriggers.add(trigger);
+      } else {
+        triggers.add(trigger);
+      }
+      if (firstTrigger && !triggers.isEmpty()) {
+        /* As Quartz does, the batch only spans the time window after the first trigger */
+        batchEnd = Math.max(trigger.getNextFireTime().getTime(), now) + timeWindow;
+        firstTrigger = false;
+      }
+    }
+
+    /* Back to WAITING, so the misfire handler applies the trigger misfire instruction */
+    for (OperableTrigger trigger : misfiredTriggers) {
+      releaseAcquiredTrigger(trigger);
+    }
+    return triggers;
+  }
+
+  @Override
+  public synchronized void releaseAcquiredTrigger(OperableTrigger trigger) {
+    forgetAcquiredCopy(trigger);
+    super.releaseAcquiredTrigger(trigger);
+    nextLoadTime = 0;
+  }
+
+  @Override
+  protected void releaseAcquiredTrigger(Connection conn, OperableTrigger trigger)
+      throws JobPersistenceException {
+    if (staleTriggers.remove(trigger)) {
+      /* The trigger state belongs to a newer acquisition, only drop this one */
+      try {
+        getDelegate().deleteFiredTrigger(conn, trigger.getFireInstanceId());
+      } catch (SQLException ex) {
+        throw new JobPersistenceException("Cannot delete a stale fired trigger", ex);
+      }
+    } else {
+      super.releaseAcquiredTrigger(conn, trigger);
+    }
+  }
+
+  @Override
+  protected void storeTrigger(
+      Connection conn,
+      OperableTrigger newTrigger,
+      JobDetail job,
+      boolean replaceExisting,
+      String state,
+      boolean forceState,
+      boolean recovering)
+      throws JobPersistenceException {
+    super.storeTrigger(conn, newTrigger, job, replaceExisting, state, forceState, recovering);
+    /* Stored or fired by this node, replacing a loaded copy or within the loaded window */
+    if (acquiredTriggers.containsKey(newTrigger.getKey())
+        || (newTrigger.getNextFireTime() != null
+            && newTrigger.getNextFireTime().getTime() <= loadedUntil)) {
+      changedTriggers.add(newTrigger.getKey());
+    }
+  }
+
+  @Override
+  protected void triggeredJobComplete(
+      Connection conn,
+      OperableTrigger trigger,
+      JobDetail jobDetail,
+      Trigger.CompletedExecutionInstruction triggerInstCode)
+      throws JobPersistenceException {
+    super.triggeredJobComplete(conn, trigger, jobDetail, triggerInstCode);
+    if (jobDetail.isConcurrentExectionDisallowed()) {
+      /* The triggers of the job were BLOCKED while it ran and are WAITING again */
+      try {
+        changedTriggers.addAll(getDelegate().selectTriggerKeysForJob(conn, jobDetail.getKey()));
+      } catch (SQLException ex) {
+        throw new JobPersistenceException("Cannot read the triggers of a completed job", ex);
+      }
+    }
+  }
+
+  @Override
+  protected TriggerFiredBundle triggerFired(Connection conn, OperableTrigger trigger)
+      throws JobPersistenceException {
+    try {
+      Long nextFireTime =
+          ((TimingWheelPostgreSQLDelegate) getDelegate())
+              .selectTriggerNextFireTime(conn, trigger.getKey());
+      if (!isAcquiredCopy(trigger)
+          || (nextFireTime != null && nextFireTime != trigger.getNextFireTime().getTime())) {
+        /* Rescheduled since it was loaded, the scheduler thread releases it */
+        staleTriggers.add(trigger);
+        return null;
+      }
+      return super.triggerFired(conn, trigger);
+    } catch (SQLException ex) {
+      throw new JobPersistenceException("Cannot read the trigger next fire time", ex);
+    } finally {
+      forgetAcquiredCopy(trigger);
+    }
+  }
+
+  @Override
+  public synchronized void schedulerPaused() {
+    releaseWindow();
+    super.schedulerPaused();
+  }
+
+  @Override
+  public synchronized void schedulerResumed() {
+    nextLoadTime = 0;
+    super.schedulerResumed();
+  }
+
+  @Override
+  public synchronized void shutdown() {
+    releaseWindow();
+    super.shutdown();
+  }
+
+  private void loadWindow(long now) throws JobPersistenceException {
+    /*
+     * Quartz extends a batch up to one time window past its first trigger, which is no later than
+     * the given time. Splitting the window in two halves keeps every batch within its end
+     */
+    long windowEnd = Math.min(now + lookAheadMillis, wheel.getHorizon());
+    long firstTriggerWindow = (windowEnd - now) / 2;
+    List<OperableTrigger> replacedTriggers = new ArrayList<>();
+    int loaded = 0;
+    List<OperableTrigger> triggers;
+    do {
+      triggers =
+          super.acquireNextTriggers(
+              now + firstTriggerWindow, loadBatchSize, windowEnd - now - firstTriggerWindow);
+      for (OperableTrigger trigger : triggers) {
+        OperableTrigger previous = acquiredTriggers.put(trigger.getKey(), trigger);
+        if (previous != null) {
+          replacedTriggers.add(previous);
+        }
+        wheel.add(trigger, trigger.getNextFireTime().getTime());
+      }
+      loaded += triggers.size();
+    } while (triggers.size() == loadBatchSize);
+    nextLoadTime = now + reloadIntervalMillis;
+    loadedUntil = windowEnd;
+
+    for (OperableTrigger trigger : replacedTriggers) {
+      staleTriggers.add(trigger);
+      super.releaseAcquiredTrigger(trigger);
+    }
+    if (loaded > 0) {
+      log.debug("Loaded {} triggers into the timing wheel", loaded);
+    }
+  }
+
+  private void refreshChangedTriggers() throws JobPersistenceException {
+    if (changedTriggers.isEmpty()) {
+      return;
+    }
+    List<TriggerKey> triggerKeys = new ArrayList<>(changedTriggers);
+    changedTriggers.removeAll(triggerKeys);
+    List<OperableTrigger> refreshedTriggers;
+    try {
+      refreshedTriggers =
+          executeInNonManagedTXLock(null, conn -> refreshTriggers(conn, triggerKeys), null);
+    } catch (JobPersistenceException ex) {
+      changedTriggers.addAll(triggerKeys);
+      throw ex;
+    }
+
+    /* Only the wheel entries of the changed triggers are replaced, once committed */
+    for (OperableTrigger trigger : refreshedTriggers) {
+      if (isAcquiredCopy(trigger)) {
+        /* Skipped when it comes due */
+        forgetAcquiredCopy(trigger);
+      } else {
+        acquiredTriggers.put(trigger.getKey(), trigger);
+        wheel.add(trigger, trigger.getNextFireTime().getTime());
+      }
+    }
+  }
+
+  /* The stale loaded copies, followed by their triggers if they are acquired again */
+  private List<OperableTrigger> refreshTriggers(Connection conn, List<TriggerKey> triggerKeys)
+      throws JobPersistenceException {
+    TimingWheelPostgreSQLDelegate delegate = (TimingWheelPostgreSQLDelegate) getDelegate();
+    List<OperableTrigger> refreshedTriggers = new ArrayList<>();
+    try {
+      for (TriggerKey triggerKey : triggerKeys) {
+        OperableTrigger loaded = acquiredTriggers.get(triggerKey);
+        if (loaded != null) {
+          Long nextFireTime = delegate.selectTriggerNextFireTime(conn, triggerKey);
+          if (nextFireTime != null
+              && nextFireTime == loaded.getNextFireTime().getTime()
+              && STATE_ACQUIRED.equals(delegate.selectTriggerState(conn, triggerKey))) {
+            continue;
+          }
+          delegate.updateTriggerStateFromOtherState(
+              conn, triggerKey, STATE_WAITING, STATE_ACQUIRED);
+          delegate.deleteFiredTrigger(conn, loaded.getFireInstanceId());
+          refreshedTriggers.add(loaded);
+        }
+
+        if (delegate.selectTriggerToAcquire(conn, triggerKey, loadedUntil)) {
+          OperableTrigger trigger = retrieveTrigger(conn, triggerKey);
+          if (trigger != null
+              && delegate.updateTriggerStateFromOtherState(
+                      conn, triggerKey, STATE_ACQUIRED, STATE_WAITING)
+                  > 0) {
+            trigger.setFireInstanceId(getFiredTriggerRecordId());
+            delegate.insertFiredTrigger(conn, trigger, STATE_ACQUIRED, null);
+            refreshedTriggers.add(trigger);
+          }
+        }
+      }
+    } catch (SQLException ex) {
+      throw new JobPersistenceException("Cannot refresh the changed triggers", ex);
+    }
+    return refreshedTriggers;
+  }
+
+  private void releaseWindow() {
+    /* Triggers already handed to the scheduler thread are released by it */
+    List<OperableTrigger> triggers = wheel.clear();
+    triggers.addAll(dueTriggers);
+    dueTriggers.clear();
+    for (OperableTrigger trigger : triggers) {
+      if (!isAcquiredCopy(trigger)) {
+        continue;
+      }
+      forgetAcquiredCopy(trigger);
+      try {
+        super.releaseAcquiredTrigger(trigger);
+      } catch (RuntimeException ex) {
+        log.warn("Cannot release trigger {} from the timing wheel", trigger.getKey(), ex);
+      }
+    }
+    nextLoadTime = 0;
+  }
+
+  private boolean isAcquiredCopy(OperableTrigger trigger) {
+    return acquiredTriggers.get(trigger.getKey()) == trigger;
+  }
+
+  private void forgetAcquiredCopy(OperableTrigger trigger) {
+    /* Triggers are equal by key, only the very same copy is removed */
+    acquiredTriggers.computeIfPresent(
+        trigger.getKey(), (key, acquired) -> acquired == trigger ? null : acquired);
+  }
+}
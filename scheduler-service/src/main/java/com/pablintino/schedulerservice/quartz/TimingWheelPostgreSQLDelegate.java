@@ -0,0 +1,59 @@
+package com.pablintino.schedulerservice.quartz;
+
+import org.quartz.TriggerKey;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class TimingWheelPostgreSQLDelegate extends PartitionedPostgreSQLDelegate {
+
+  private static final String SELECT_TRIGGER_NEXT_FIRE_TIME =
+      "SELECT NEXT_FIRE_TIME FROM {0}TRIGGERS WHERE SCHED_NAME = {1}"
+          + " AND TRIGGER_NAME = ? AND TRIGGER_GROUP = ?";
+  private static final String SELECT_TRIGGER_TO_ACQUIRE =
+      "SELECT TRIGGER_NAME FROM {0}TRIGGERS WHERE SCHED_NAME = {1}"
+          + " AND TRIGGER_NAME = ? AND TRIGGER_GROUP = ? AND TRIGGER_STATE = ?"
+          + " AND NEXT_FIRE_TIME <= ?";
+
+  /* Null if the trigger no longer exists */
+  public Long selectTriggerNextFireTime(Connection conn, TriggerKey triggerKey)
+      throws SQLException {
+    PreparedStatement ps = null;
+    ResultSet rs = null;
+    try {
+      ps = conn.prepareStatement(rtp(SELECT_TRIGGER_NEXT_FIRE_TIME));
+      ps.setString(1, triggerKey.getName());
+      ps.setString(2, triggerKey.getGroup());
+      rs = ps.executeQuery();
+      return rs.next() ? rs.getLong(COL_NEXT_FIRE_TIME) : null;
+    } finally {
+      closeResultSet(rs);
+      closeStatement(ps);
+    }
+  }
+
+  /* True if this node can acquire the trigger by the given time. Its row stays locked */
+  public boolean selectTriggerToAcquire(Connection conn, TriggerKey triggerKey, long noLaterThan)
+      throws SQLException {
+    PreparedStatement ps = null;
+    ResultSet rs = null;
+    try {
+      ps =
+          conn.prepareStatement(
+              rtp(SELECT_TRIGGER_TO_ACQUIRE)
+                  + getAcquisitionCondition()
+                  + " FOR UPDATE SKIP LOCKED");
+      ps.setString(1, triggerKey.getName());
+      ps.setString(2, triggerKey.getGroup());
+      ps.setString(3, STATE_WAITING);
+      ps.setLong(4, noLaterThan);
+      rs = ps.executeQuery();
+      return rs.next();
+    } finally {
+      closeResultSet(rs);
+      closeStatement(ps);
+    }
+  }
+}
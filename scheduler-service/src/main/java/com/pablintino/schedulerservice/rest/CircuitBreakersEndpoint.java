@@ -0,0 +1,38 @@
+package com.pablintino.schedulerservice.rest;
+
+import com.pablintino.schedulerservice.services.CircuitBreaker;
+import com.pablintino.schedulerservice.services.ICallbackCircuitBreakers;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Component
+@Endpoint(id = "circuitbreakers")
+@RequiredArgsConstructor
+public class CircuitBreakersEndpoint {
+
+  private final ICallbackCircuitBreakers callbackCircuitBreakers;
+
+  @ReadOperation
+  public Map<String, Map<String, Object>> circuitBreakers() {
+    Map<String, Map<String, Object>> circuitBreakers = new TreeMap<>();
+    callbackCircuitBreakers
+        .getCircuitBreakers()
+        .forEach(cb -> circuitBreakers.put(cb.getName(), describe(cb)));
+    return circuitBreakers;
+  }
+
+  private static Map<String, Object> describe(CircuitBreaker circuitBreaker) {
+    Map<String, Object> description = new HashMap<>();
+    description.put("state", circuitBreaker.getState());
+    description.put("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+    description.put("openedAt", circuitBreaker.getOpenedAt());
+    description.put("retryAfterMillis", circuitBreaker.getRetryAfter().toMillis());
+    return description;
+  }
+}
@@ -0,0 +1,51 @@
+package com.pablintino.schedulerservice.rest;
+
+import com.pablintino.schedulerservice.dtos.DeadLetterDto;
+import com.pablintino.schedulerservice.dtos.DeadLettersReplayDto;
+import com.pablintino.schedulerservice.services.IDeadLetterService;
+import com.pablintino.schedulerservice.services.mappers.ISchedulingDtoMapper;
+import com.pablintino.services.commons.exceptions.ValidationHttpServiceException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/dead-letters")
+public class DeadLettersController {
+
+  private static final int MAX_PAGE_LIMIT = 1000;
+
+  private final IDeadLetterService deadLetterService;
+  private final ISchedulingDtoMapper schedulingDtoMapper;
+
+  @GetMapping("/{key}")
+  public List<DeadLetterDto> getDeadLettersForKey(
+      @PathVariable("key") String key,
+      @RequestParam(value = "limit", defaultValue = "100") int limit,
+      @RequestParam(value = "after", defaultValue = "0") long after) {
+    if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+      throw new ValidationHttpServiceException(
+          "Page limit must be between 1 and " + MAX_PAGE_LIMIT);
+    }
+    /* Keyset pages, the next one starts after the id of the last letter returned */
+    return deadLetterService.getDeadLetters(key, after, limit).stream()
+        .map(schedulingDtoMapper::toDeadLetterDto)
+        .collect(Collectors.toList());
+  }
+
+  @PostMapping("/{key}/replay")
+  @ResponseStatus(value = HttpStatus.ACCEPTED)
+  public DeadLettersReplayDto replayDeadLetters(
+      @PathVariable("key") String key,
+      @RequestParam(value = "ids", required = false) List<Long> ids) {
+    /* Replays are sent in the background at the configured rate */
+    return schedulingDtoMapper.toDeadLettersReplayDto(
+        ids != null
+            ? deadLetterService.replayDeadLetters(key, ids)
+            : deadLetterService.replayDeadLetters(key));
+  }
+}
@@ -1,22 +1,39 @@
 package com.pablintino.schedulerservice.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablintino.schedulerservice.dtos.ScheduleBatchItemResultDto;
 import com.pablintino.schedulerservice.dtos.ScheduleRequestDto;
 import com.pablintino.schedulerservice.dtos.ScheduleTaskDto;
+import com.pablintino.schedulerservice.dtos.ScheduleTaskPageDto;
+import com.pablintino.schedulerservice.dtos.TaskNextFiresDto;
 import com.pablintino.schedulerservice.dtos.TaskStatsDto;
+import com.pablintino.schedulerservice.dtos.TasksDeletionDto;
 import com.pablintino.schedulerservice.exceptions.SchedulerValidationException;
 import com.pablintino.schedulerservice.models.Endpoint;
 import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
 import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.models.TaskSchedulingResult;
 import com.pablintino.schedulerservice.services.ISchedulingService;
 import com.pablintino.schedulerservice.services.mappers.ISchedulingDtoMapper;
 import com.pablintino.services.commons.exceptions.ResourceNotFoundHttpServiceException;
 import com.pablintino.services.commons.exceptions.ValidationHttpServiceException;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.lang3.tuple.Pair;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.ConstraintViolation;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,8 +41,13 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/v1/schedules")
 public class SchedulesController {
 
+  private static final int MAX_PAGE_LIMIT = 1000;
+  private static final int MAX_NEXT_FIRES = 100;
+
   private final ISchedulingService schedulingService;
   private final ISchedulingDtoMapper schedulingDtoMapper;
+  private final Validator validator;
+  private final ObjectMapper objectMapper;
 
   @PostMapping
   public ScheduleRequestDto newScheduleRequest(
@@ -42,6 +64,40 @@ public class SchedulesController {
     return scheduleRequest;
   }
 
+  @PostMapping("/batch")
+  public List<ScheduleBatchItemResultDto> newScheduleBatchRequest(
+      @RequestBody List<ScheduleRequestDto> scheduleRequests) {
+
+    /* Invalid items are reported in place, the valid ones are scheduled together */
+    List<ScheduleBatchItemResultDto> results =
+        new ArrayList<>(Collections.nCopies(scheduleRequests.size(), null));
+    List<Integer> validIndexes = new ArrayList<>();
+    List<Pair<Task, Endpoint>> validTasks = new ArrayList<>();
+    for (int index = 0; index < scheduleRequests.size(); index++) {
+      ScheduleRequestDto scheduleRequest = scheduleRequests.get(index);
+      String error = validateScheduleRequest(scheduleRequest);
+      if (error != null) {
+        results.set(index, buildRejectedItemResult(scheduleRequest, error));
+      } else {
+        validIndexes.add(index);
+        validTasks.add(
+            Pair.of(
+                schedulingDtoMapper.mapTaskFromDto(scheduleRequest),
+                schedulingDtoMapper.mapEndpointFromDto(scheduleRequest)));
+      }
+    }
+
+    if (!validTasks.isEmpty()) {
+      List<TaskSchedulingResult> schedulingResults = schedulingService.scheduleTasks(validTasks);
+      for (int index = 0; index < schedulingResults.size(); index++) {
+        results.set(
+            validIndexes.get(index),
+            schedulingDtoMapper.toBatchItemResultDto(schedulingResults.get(index)));
+      }
+    }
+    return results;
+  }
+
   @GetMapping("/{key}")
   public List<ScheduleTaskDto> getSchedulesForKey(@PathVariable("key") String key) {
     return schedulingService.getTasksForKey(key).stream()
@@ -49,6 +105,39 @@ public class SchedulesController {
         .collect(Collectors.toList());
   }
 
+  @GetMapping(value = "/{key}", params = "limit")
+  public ScheduleTaskPageDto getSchedulesPageForKey(
+      @PathVariable("key") String key,
+      @RequestParam("limit") int limit,
+      @RequestParam(value = "after", required = false) String after) {
+    if (limit > MAX_PAGE_LIMIT) {
+      throw new ValidationHttpServiceException("Page limit cannot exceed " + MAX_PAGE_LIMIT);
+    }
+    try {
+      return schedulingDtoMapper.toTaskPageDto(
+          schedulingService.getTasksPageForKey(key, after, limit));
+    } catch (SchedulerValidationException ex) {
+      throw new ValidationHttpServiceException("Retrieving tasks page failed", ex);
+    }
+  }
+
+  @GetMapping(value = "/{key}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public StreamingResponseBody streamSchedulesForKey(@PathVariable("key") String key) {
+    /* Each task is written as soon as it's read, the group is never held in memory */
+    return outputStream ->
+        schedulingService.streamTasksForKey(
+            key,
+            task -> {
+              try {
+                outputStream.write(
+                    objectMapper.writeValueAsBytes(schedulingDtoMapper.mapTasktoDto(task)));
+                outputStream.write('\n');
+              } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+              }
+            });
+  }
+
   @GetMapping("/{key}/{id}")
   public ScheduleTaskDto getSchedule(
       @PathVariable("key") String key, @PathVariable("id") String id) {
@@ -71,9 +160,63 @@ public class SchedulesController {
     return schedulingDtoMapper.toTaskStatsDto(scheduleJobMetadata);
   }
 
+  @GetMapping("/{key}/{id}/next-fires")
+  public TaskNextFiresDto getScheduleNextFires(
+      @PathVariable("key") String key,
+      @PathVariable("id") String id,
+      @RequestParam(value = "count", defaultValue = "10") int count) {
+    if (count > MAX_NEXT_FIRES) {
+      throw new ValidationHttpServiceException("Next fires count cannot exceed " + MAX_NEXT_FIRES);
+    }
+    List<ZonedDateTime> nextFireTimes;
+    try {
+      nextFireTimes = schedulingService.getTaskNextFireTimes(key, id, count);
+    } catch (SchedulerValidationException ex) {
+      throw new ValidationHttpServiceException("Retrieving next fire times failed", ex);
+    }
+    if (nextFireTimes == null) {
+      throw new ResourceNotFoundHttpServiceException(
+          "Schedule task with key " + key + " and id " + id + " was not found");
+    }
+    return schedulingDtoMapper.toTaskNextFiresDto(nextFireTimes);
+  }
+
   @DeleteMapping("/{key}/{id}")
   @ResponseStatus(value = HttpStatus.NO_CONTENT)
   public void deleteTask(@PathVariable("key") String key, @PathVariable("id") String id) {
     schedulingService.deleteTask(key, id);
   }
+
+  @DeleteMapping("/{key}")
+  public TasksDeletionDto deleteTasks(
+      @PathVariable("key") String key,
+      @RequestParam(value = "ids", required = false) List<String> ids) {
+    return schedulingDtoMapper.toTasksDeletionDto(
+        ids != null ? schedulingService.deleteTasks(key, ids) : schedulingService.deleteTasks(key));
+  }
+
+  private String validateScheduleRequest(ScheduleRequestDto scheduleRequest) {
+    if (scheduleRequest == null) {
+      return "Schedule request cannot be null";
+    }
+    Set<ConstraintViolation<ScheduleRequestDto>> violations = validator.validate(scheduleRequest);
+    return violations.isEmpty()
+        ? null
+        : violations.stream()
+            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+  }
+
+  private static ScheduleBatchItemResultDto buildRejectedItemResult(
+      ScheduleRequestDto scheduleRequest, String error) {
+    ScheduleBatchItemResultDto resultDto = new ScheduleBatchItemResultDto();
+    if (scheduleRequest != null) {
+      resultDto.setTaskIdentifier(scheduleRequest.getTaskIdentifier());
+      resultDto.setTaskKey(scheduleRequest.getTaskKey());
+    }
+    resultDto.setScheduled(false);
+    resultDto.setError(error);
+    return resultDto;
+  }
 }
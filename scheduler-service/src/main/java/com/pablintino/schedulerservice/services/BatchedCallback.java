@@ -0,0 +1,16 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.CompletableFuture;
+
+@Getter
+@RequiredArgsConstructor
+public class BatchedCallback {
+
+  private final SchedulerJobData jobData;
+  private final Object taskData;
+  private final CompletableFuture<Void> result = new CompletableFuture<>();
+}
@@ -0,0 +1,110 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/* Coalesces the callbacks due to the same endpoint within a short window */
+@Slf4j
+@Component
+public class CallbackBatcher implements ICallbackBatcher, DisposableBean {
+
+  private final Map<String, PendingBatch> pendingBatches = new HashMap<>();
+  private final ScheduledExecutorService flushExecutor;
+  private final long batchWindow;
+  private final int batchMaxSize;
+
+  public CallbackBatcher(
+      @Value("${com.pablintino.scheduler.http.batch-window:50}") long batchWindow,
+      @Value("${com.pablintino.scheduler.http.batch-max-size:500}") int batchMaxSize) {
+    this.batchWindow = batchWindow;
+    this.batchMaxSize = batchMaxSize;
+    this.flushExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "callback-batcher");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public CompletableFuture<Void> submit(
+      String endpoint,
+      SchedulerJobData jobData,
+      Object taskData,
+      Consumer<List<BatchedCallback>> sender) {
+    BatchedCallback callback = new BatchedCallback(jobData, taskData);
+    PendingBatch fullBatch = null;
+    synchronized (pendingBatches) {
+      PendingBatch batch = pendingBatches.get(endpoint);
+      if (batch == null) {
+        /* The first callback of a batch opens its window */
+        PendingBatch newBatch = new PendingBatch(sender);
+        pendingBatches.put(endpoint, newBatch);
+        flushExecutor.schedule(
+            () -> flush(endpoint, newBatch), batchWindow, TimeUnit.MILLISECONDS);
+        batch = newBatch;
+      }
+      batch.callbacks.add(callback);
+      if (batch.callbacks.size() >= batchMaxSize) {
+        pendingBatches.remove(endpoint);
+        fullBatch = batch;
+      }
+    }
+
+    if (fullBatch != null) {
+      dispatch(fullBatch);
+    }
+    return callback.getResult();
+  }
+
+  @Override
+  public void destroy() {
+    List<PendingBatch> batches;
+    synchronized (pendingBatches) {
+      batches = new ArrayList<>(pendingBatches.values());
+      pendingBatches.clear();
+    }
+    batches.forEach(CallbackBatcher::dispatch);
+    flushExecutor.shutdownNow();
+  }
+
+  private void flush(String endpoint, PendingBatch batch) {
+    synchronized (pendingBatches) {
+      /* Full batches are sent, and removed, before their window ends */
+      if (!pendingBatches.remove(endpoint, batch)) {
+        return;
+      }
+    }
+    dispatch(batch);
+  }
+
+  private static void dispatch(PendingBatch batch) {
+    try {
+      batch.sender.accept(batch.callbacks);
+    } catch (RuntimeException ex) {
+      log.error("Error sending a batch of {} callbacks", batch.callbacks.size(), ex);
+      batch.callbacks.forEach(callback -> callback.getResult().completeExceptionally(ex));
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class PendingBatch {
+    private final Consumer<List<BatchedCallback>> sender;
+    private final List<BatchedCallback> callbacks = new ArrayList<>();
+  }
+}
@@ -0,0 +1,95 @@
+package com.pablintino.schedulerservice.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class CallbackCircuitBreakers implements ICallbackCircuitBreakers {
+
+  private static final String STATE_GAUGE_NAME = "callback.circuit-breaker.state";
+
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+  private final int failureThreshold;
+  private final long openDuration;
+  private final long idleTimeout;
+
+  public CallbackCircuitBreakers(
+      MeterRegistry meterRegistry, int failureThreshold, long openDuration) {
+    this(meterRegistry, failureThreshold, openDuration, 300000);
+  }
+
+  @Autowired
+  public CallbackCircuitBreakers(
+      MeterRegistry meterRegistry,
+      @Value("${com.pablintino.scheduler.circuit-breaker.failure-threshold:5}")
+          int failureThreshold,
+      @Value("${com.pablintino.scheduler.circuit-breaker.open-duration:30000}")
+          long openDuration,
+      @Value("${com.pablintino.scheduler.circuit-breaker.idle-timeout:300000}")
+          long idleTimeout) {
+    this.meterRegistry = meterRegistry;
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.idleTimeout = idleTimeout;
+  }
+
+  @Override
+  public CircuitBreaker getCircuitBreaker(String endpoint) {
+    CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+    if (circuitBreaker != null) {
+      return circuitBreaker;
+    }
+    /* Only a new endpoint grows the breakers, so that is when the idle ones are dropped */
+    evictIdleCircuitBreakers();
+    return circuitBreakers.computeIfAbsent(endpoint, this::createCircuitBreaker);
+  }
+
+  @Override
+  public Collection<CircuitBreaker> getCircuitBreakers() {
+    return Collections.unmodifiableCollection(circuitBreakers.values());
+  }
+
+  public int getCircuitBreakerCount() {
+    return circuitBreakers.size();
+  }
+
+  private void evictIdleCircuitBreakers() {
+    long idleThreshold = System.currentTimeMillis() - idleTimeout;
+    for (String endpoint : circuitBreakers.keySet()) {
+      /* Under the map lock, so a breaker created again never finds the old gauge */
+      circuitBreakers.computeIfPresent(
+          endpoint,
+          (name, circuitBreaker) -> {
+            if (!circuitBreaker.isIdleSince(idleThreshold)) {
+              return circuitBreaker;
+            }
+            log.debug("Dropping the idle circuit breaker of {}", name);
+            Gauge gauge = meterRegistry.find(STATE_GAUGE_NAME).tag("endpoint", name).gauge();
+            if (gauge != null) {
+              meterRegistry.remove(gauge);
+            }
+            return null;
+          });
+    }
+  }
+
+  private CircuitBreaker createCircuitBreaker(String endpoint) {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(endpoint, failureThreshold, openDuration);
+    /* 0 closed, 1 open, 2 half open */
+    Gauge.builder(STATE_GAUGE_NAME, circuitBreaker, cb -> cb.getState().ordinal())
+        .tag("endpoint", endpoint)
+        .register(meterRegistry);
+    return circuitBreaker;
+  }
+}
@@ -0,0 +1,177 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.exceptions.CallbackDeferredException;
+import com.pablintino.schedulerservice.models.OutboxEntry;
+import com.pablintino.schedulerservice.quartz.annotations.IReeschedulableAnnotationResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/* Drains the callback outbox. Firing threads only append to it */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "com.pablintino.scheduler.outbox.enabled", havingValue = "true")
+public class CallbackOutboxDispatcher implements InitializingBean, DisposableBean {
+
+  private final ICallbackOutbox callbackOutbox;
+  private final ICallbackService callbackService;
+  private final ITaskStatsRepository taskStatsRepository;
+  private final IDeadLetterRepository deadLetterRepository;
+  private final IReeschedulableAnnotationResolver reeschedulableAnnotationResolver;
+  private final RetryBackoff retryBackoff;
+  private final long retrialAttempts;
+  private final long deferralDelay;
+  private final int dispatcherThreads;
+  private final int batchSize;
+  private final long pollInterval;
+  private final Duration lease;
+  private final ScheduledExecutorService dispatchExecutor;
+
+  public CallbackOutboxDispatcher(
+      ICallbackOutbox callbackOutbox,
+      ICallbackService callbackService,
+      ITaskStatsRepository taskStatsRepository,
+      IDeadLetterRepository deadLetterRepository,
+      IReeschedulableAnnotationResolver reeschedulableAnnotationResolver,
+      RetryBackoff retryBackoff,
+      @Value("${com.pablintino.scheduler.failure-attempts:5}") long retrialAttempts,
+      @Value("${com.pablintino.scheduler.deferral-delay:1000}") long deferralDelay,
+      @Value("${com.pablintino.scheduler.outbox.dispatcher-threads:2}") int dispatcherThreads,
+      @Value("${com.pablintino.scheduler.outbox.batch-size:100}") int batchSize,
+      @Value("${com.pablintino.scheduler.outbox.poll-interval:500}") long pollInterval,
+      @Value("${com.pablintino.scheduler.outbox.lease:60000}") long lease) {
+    this.callbackOutbox = callbackOutbox;
+    this.callbackService = callbackService;
+    this.taskStatsRepository = taskStatsRepository;
+    this.deadLetterRepository = deadLetterRepository;
+    this.reeschedulableAnnotationResolver = reeschedulableAnnotationResolver;
+    this.retryBackoff = retryBackoff;
+    this.retrialAttempts = retrialAttempts;
+    this.deferralDelay = deferralDelay;
+    this.dispatcherThreads = dispatcherThreads;
+    this.batchSize = batchSize;
+    this.pollInterval = pollInterval;
+    this.lease = Duration.ofMillis(lease);
+    AtomicInteger threadCount = new AtomicInteger();
+    this.dispatchExecutor =
+        Executors.newScheduledThreadPool(
+            dispatcherThreads,
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "outbox-dispatcher-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    for (int index = 0; index < dispatcherThreads; index++) {
+      dispatchExecutor.scheduleWithFixedDelay(
+          this::drain, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    /* Claimed entries not completed yet are delivered again once their lease expires */
+    dispatchExecutor.shutdownNow();
+  }
+
+  public int dispatchBatch() {
+    List<OutboxEntry> entries = callbackOutbox.claim(batchSize, lease);
+    /* The batch is completed before claiming another, bounding the deliveries in flight */
+    CompletableFuture.allOf(entries.stream().map(this::deliver).toArray(CompletableFuture[]::new))
+        .join();
+    return entries.size();
+  }
+
+  private void drain() {
+    try {
+      while (dispatchBatch() == batchSize && !Thread.currentThread().isInterrupted()) {
+        log.debug("Outbox batch of {} entries dispatched", batchSize);
+      }
+    } catch (RuntimeException ex) {
+      log.error("Error dispatching the callback outbox", ex);
+    }
+  }
+
+  private CompletableFuture<Void> deliver(OutboxEntry entry) {
+    CompletableFuture<Void> delivery;
+    try {
+      delivery = callbackService.executeCallbackAsync(entry.getJobData(), entry.getTaskData());
+    } catch (RuntimeException ex) {
+      delivery = CompletableFuture.failedFuture(ex);
+    }
+    return delivery.handle(
+        (result, ex) -> {
+          try {
+            completeDelivery(entry, ex);
+          } catch (RuntimeException completionEx) {
+            log.error("Error completing outbox entry {}", entry.getId(), completionEx);
+          }
+          return null;
+        });
+  }
+
+  private void completeDelivery(OutboxEntry entry, Throwable throwable) {
+    if (throwable == null) {
+      callbackOutbox.complete(entry.getId());
+      if (entry.getAttempt() != 0) {
+        taskStatsRepository.resetNotificationAttempt(entry.getJobKey());
+      }
+      return;
+    }
+
+    Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+    if (cause instanceof CallbackDeferredException) {
+      /* Never attempted. Neither the attempts nor the failures are incremented */
+      long delay =
+          Math.max(deferralDelay, ((CallbackDeferredException) cause).getRetryAfter().toMillis());
+      callbackOutbox.retry(entry.getId(), entry.getAttempt(), Instant.now().plusMillis(delay));
+    } else if (reeschedulableAnnotationResolver.getAnnotatedTypes().stream()
+        .anyMatch(exType -> exType.isAssignableFrom(cause.getClass()))) {
+      long attemptNumber = entry.getAttempt() + 1;
+      if (attemptNumber <= retrialAttempts) {
+        log.debug("Outbox entry {} retry attempt {}", entry.getId(), attemptNumber);
+        long delay = retryBackoff.getDelay(entry.getJobData().getRetryPolicy(), attemptNumber);
+        callbackOutbox.retry(entry.getId(), attemptNumber, Instant.now().plusMillis(delay));
+        taskStatsRepository.registerFailure(entry.getJobKey(), Instant.now(), attemptNumber);
+      } else {
+        log.warn(
+            "Exception in callback with already consumed reattempts. Discarding outbox entry {}"
+                + " of job {}",
+            entry.getId(),
+            entry.getJobKey());
+        discard(entry, cause);
+      }
+    } else {
+      log.error(
+          "Non recoverable exception during callback delivery. Discarding outbox entry {}"
+              + " of job {}",
+          entry.getId(),
+          entry.getJobKey(),
+          cause);
+      discard(entry, cause);
+    }
+  }
+
+  private void discard(OutboxEntry entry, Throwable cause) {
+    deadLetterRepository.save(
+        entry.getJobKey(), entry.getJobData(), entry.getTaskData(), cause.toString());
+    callbackOutbox.complete(entry.getId());
+  }
+}
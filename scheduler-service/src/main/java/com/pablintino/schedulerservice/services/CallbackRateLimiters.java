@@ -0,0 +1,135 @@
+package com.pablintino.schedulerservice.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/* Per task key delivery rates. Keys without a configured rate are never throttled */
+@Component
+public class CallbackRateLimiters implements ICallbackRateLimiters {
+
+  private static final long SLOT_TOLERANCE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  private static final long SLOT_EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(5);
+  private static final int MIN_PRUNE_THRESHOLD = 64;
+
+  private final Map<String, KeyRateLimiter> rateLimiters = new ConcurrentHashMap<>();
+  private final Map<String, double[]> keyLimits;
+  private final MeterRegistry meterRegistry;
+  private final double defaultRate;
+  private final double defaultBurst;
+
+  public CallbackRateLimiters(
+      MeterRegistry meterRegistry,
+      @Value("${com.pablintino.scheduler.rate-limit.default-rate:0}") double defaultRate,
+      @Value("${com.pablintino.scheduler.rate-limit.default-burst:0}") double defaultBurst,
+      @Value("${com.pablintino.scheduler.rate-limit.key-rates:}") String keyRates) {
+    this.meterRegistry = meterRegistry;
+    this.defaultRate = defaultRate;
+    this.defaultBurst = defaultBurst;
+    this.keyLimits = parseKeyRates(keyRates);
+  }
+
+  @Override
+  public Duration tryAcquire(String key, String taskId) {
+    KeyRateLimiter rateLimiter = rateLimiters.get(key);
+    if (rateLimiter == null) {
+      double[] limit = keyLimits.getOrDefault(key, new double[] {defaultRate, defaultBurst});
+      if (limit[0] <= 0) {
+        return Duration.ZERO;
+      }
+      rateLimiter =
+          rateLimiters.computeIfAbsent(
+              key, rateLimitedKey -> createRateLimiter(rateLimitedKey, limit[0], limit[1]));
+    }
+
+    long waitNanos = rateLimiter.tryAcquire(taskId);
+    if (waitNanos != 0) {
+      rateLimiter.throttled.increment();
+    }
+    return Duration.ofNanos(waitNanos);
+  }
+
+  @Override
+  public void release(String key) {
+    KeyRateLimiter rateLimiter = rateLimiters.get(key);
+    if (rateLimiter != null) {
+      rateLimiter.tokenBucket.release();
+    }
+  }
+
+  private KeyRateLimiter createRateLimiter(String key, double rate, double burst) {
+    /* Without an explicit burst a key can send one second worth of callbacks at once */
+    return new KeyRateLimiter(
+        new TokenBucket(rate, burst > 0 ? burst : Math.max(1, rate)),
+        Counter.builder("callback.rate-limit.throttled").tag("key", key).register(meterRegistry));
+  }
+
+  /* Comma separated key=rate or key=rate:burst entries */
+  private static Map<String, double[]> parseKeyRates(String keyRates) {
+    Map<String, double[]> limits = new HashMap<>();
+    for (String entry : StringUtils.commaDelimitedListToStringArray(keyRates)) {
+      String[] keyRate = entry.trim().split("=");
+      if (keyRate.length != 2 || keyRate[0].isBlank()) {
+        throw new IllegalArgumentException("Invalid callback rate limit entry " + entry);
+      }
+      String[] rateBurst = keyRate[1].split(":");
+      limits.put(
+          keyRate[0].trim(),
+          new double[] {
+            Double.parseDouble(rateBurst[0].trim()),
+            rateBurst.length > 1 ? Double.parseDouble(rateBurst[1].trim()) : 0
+          });
+    }
+    return limits;
+  }
+
+  private static class KeyRateLimiter {
+
+    private final TokenBucket tokenBucket;
+    private final Counter throttled;
+    private final Map<String, Long> reservedSlots = new HashMap<>();
+    private int pruneThreshold = MIN_PRUNE_THRESHOLD;
+
+    private KeyRateLimiter(TokenBucket tokenBucket, Counter throttled) {
+      this.tokenBucket = tokenBucket;
+      this.throttled = throttled;
+    }
+
+    /* A throttled task keeps its slot. Coming back once it is due doesn't take another token */
+    private synchronized long tryAcquire(String taskId) {
+      long now = System.nanoTime();
+      Long reservedSlot = reservedSlots.get(taskId);
+      if (reservedSlot != null) {
+        if (reservedSlot - now <= SLOT_TOLERANCE_NANOS) {
+          reservedSlots.remove(taskId);
+          return 0;
+        }
+        return reservedSlot - now;
+      }
+
+      long waitNanos = tokenBucket.reserve();
+      if (waitNanos != 0) {
+        reservedSlots.put(taskId, now + waitNanos);
+        pruneReservedSlots(now);
+      }
+      return waitNanos;
+    }
+
+    private void pruneReservedSlots(long now) {
+      /* Slots never claimed, like the ones of deleted tasks, are dropped once long expired */
+      if (reservedSlots.size() < pruneThreshold) {
+        return;
+      }
+      reservedSlots.values().removeIf(slot -> now - slot > SLOT_EXPIRY_NANOS);
+      pruneThreshold = Math.max(MIN_PRUNE_THRESHOLD, reservedSlots.size() * 2);
+    }
+  }
+}
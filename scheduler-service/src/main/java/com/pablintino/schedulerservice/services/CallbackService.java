@@ -1,122 +1,623 @@
 package com.pablintino.schedulerservice.services;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablintino.schedulerservice.callback.CallbackBatchItemResult;
 import com.pablintino.schedulerservice.callback.CallbackMessage;
+import com.pablintino.schedulerservice.exceptions.CallbackDeferredException;
 import com.pablintino.schedulerservice.exceptions.CallbackHandleException;
+import com.pablintino.schedulerservice.exceptions.CallbackRejectedException;
 import com.pablintino.schedulerservice.exceptions.RemoteUnreachableException;
 import com.pablintino.schedulerservice.models.CallbackType;
+import com.pablintino.schedulerservice.models.RawJsonData;
 import com.pablintino.schedulerservice.models.SchedulerJobData;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJackson2MessageConverter;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Slf4j
 @Service
 public class CallbackService implements ICallbackService {
 
+  private static final byte[] MESSAGE_END = {'}'};
+  private static final byte[] BATCH_START = {'['};
+  private static final byte[] BATCH_SEPARATOR = {','};
+  private static final byte[] BATCH_END = {']'};
+
   private final RabbitTemplate rabbitTemplate;
   private final String exchangeName;
-  private final HttpClient httpClient;
+  private final IHttpDestinationPools httpDestinationPools;
+  private final ICallbackCircuitBreakers circuitBreakers;
+  private final ICallbackBatcher callbackBatcher;
+  private final ICallbackRateLimiters rateLimiters;
   private final ObjectMapper objectMapper;
   private final long httpCallbackTimeout;
+  private final Semaphore httpInFlightPermits;
+  private final boolean amqpPublisherConfirms;
+  private final long amqpConfirmTimeout;
 
+  @Autowired
   public CallbackService(
       RabbitTemplate rabbitTemplate,
       ObjectMapper objectMapper,
+      IHttpDestinationPools httpDestinationPools,
+      ICallbackCircuitBreakers circuitBreakers,
+      ICallbackBatcher callbackBatcher,
+      ICallbackRateLimiters rateLimiters,
       @Value("${com.pablintino.scheduler.amqp.exchange-name}") String exchangeName,
-      @Value("${com.pablintino.scheduler.http.callback-timeout:1000}") long httpCallbackTimeout) {
+      @Value("${com.pablintino.scheduler.http.callback-timeout:1000}") long httpCallbackTimeout,
+      @Value("${com.pablintino.scheduler.http.max-in-flight:256}") int httpMaxInFlight,
+      @Value("${com.pablintino.scheduler.amqp.publisher-confirms:false}")
+          boolean amqpPublisherConfirms,
+      @Value("${com.pablintino.scheduler.amqp.confirm-timeout:5000}") long amqpConfirmTimeout) {
+    if (amqpPublisherConfirms && !rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+      throw new IllegalStateException(
+          "AMQP publisher confirms require spring.rabbitmq.publisher-confirm-type=correlated");
+    }
     this.rabbitTemplate = rabbitTemplate;
+    this.amqpPublisherConfirms = amqpPublisherConfirms;
+    this.amqpConfirmTimeout = amqpConfirmTimeout;
     this.objectMapper = objectMapper;
     this.exchangeName = exchangeName;
     this.httpCallbackTimeout = httpCallbackTimeout;
-    this.httpClient =
-        HttpClient.newBuilder()
-            .connectTimeout(Duration.of(httpCallbackTimeout, ChronoUnit.MILLIS))
-            .build();
+    this.httpInFlightPermits = new Semaphore(httpMaxInFlight);
+    this.httpDestinationPools = httpDestinationPools;
+    this.circuitBreakers = circuitBreakers;
+    this.callbackBatcher = callbackBatcher;
+    this.rateLimiters = rateLimiters;
   }
 
   @Override
   public void executeCallback(SchedulerJobData jobData, Object taskData) {
+    CircuitBreaker circuitBreaker = acquireCircuitBreaker(jobData);
+    acquireRateLimit(jobData, circuitBreaker);
+    try {
+      if (jobData.getType() == CallbackType.AMQP) {
+        executeAmqpCallback(jobData, taskData);
+      } else if (jobData.isBatched()) {
+        /* The firing thread waits for the batch window and the batch request */
+        joinCallback(executeBatchedHttpCallback(jobData, taskData));
+      } else {
+        executeHttpCallback(jobData, taskData);
+      }
+      circuitBreaker.onSuccess();
+    } catch (RuntimeException ex) {
+      registerCircuitBreakerFailure(circuitBreaker, ex);
+      releaseRateLimit(jobData, ex);
+      throw ex;
+    }
+  }
+
+  @Override
+  public CompletableFuture<Void> executeCallbackAsync(SchedulerJobData jobData, Object taskData) {
+    CircuitBreaker circuitBreaker;
+    try {
+      circuitBreaker = acquireCircuitBreaker(jobData);
+      acquireRateLimit(jobData, circuitBreaker);
+    } catch (CallbackDeferredException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+
+    CompletableFuture<Void> callbackFuture;
     if (jobData.getType() == CallbackType.AMQP) {
-      executeAmqpCallback(jobData, taskData);
+      callbackFuture =
+          amqpPublisherConfirms
+              ? executeConfirmedAmqpCallback(jobData, taskData)
+              : executeUnconfirmedAmqpCallbackAsync(jobData, taskData);
+    } else {
+      callbackFuture =
+          jobData.isBatched()
+              ? executeBatchedHttpCallback(jobData, taskData)
+              : executeHttpCallbackAsync(jobData, taskData);
+    }
+    return callbackFuture.whenComplete(
+        (result, ex) -> {
+          if (ex == null) {
+            circuitBreaker.onSuccess();
+          } else {
+            Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+            registerCircuitBreakerFailure(circuitBreaker, cause);
+            releaseRateLimit(jobData, cause);
+          }
+        });
+  }
+
+  /* After the breaker, so callbacks to an open endpoint don't use up the key rate */
+  private void acquireRateLimit(SchedulerJobData jobData, CircuitBreaker circuitBreaker) {
+    Duration retryAfter = rateLimiters.tryAcquire(jobData.getKey(), jobData.getTaskId());
+    if (!retryAfter.isZero()) {
+      /* A half open probe that wasn't sent is left to the next callback */
+      circuitBreaker.onIgnored();
+      /* Over the key rate. Delayed to the slot reserved for the task, never dropped */
+      throw new CallbackDeferredException(
+          "Delivery rate of key " + jobData.getKey() + " exceeded", retryAfter);
+    }
+  }
+
+  private void releaseRateLimit(SchedulerJobData jobData, Throwable throwable) {
+    /* Deferred by the host or in-flight limits. Nothing was sent, so the slot is given back */
+    if (throwable instanceof CallbackDeferredException) {
+      rateLimiters.release(jobData.getKey());
+    }
+  }
+
+  private CircuitBreaker acquireCircuitBreaker(SchedulerJobData jobData) {
+    /* Every routing key is published through the same broker, so they share its breaker */
+    String endpoint =
+        jobData.getType() == CallbackType.AMQP
+            ? "amqp://" + exchangeName
+            : "http://"
+                + HttpDestinationPools.getDestinationName(URI.create(jobData.getCallbackUrl()));
+    CircuitBreaker circuitBreaker = circuitBreakers.getCircuitBreaker(endpoint);
+    if (!circuitBreaker.tryAcquire()) {
+      /* Fail fast. Retries are deferred until the breaker lets a probe through */
+      throw new CallbackDeferredException(
+          "Circuit breaker of " + endpoint + " is open", circuitBreaker.getRetryAfter());
+    }
+    return circuitBreaker;
+  }
+
+  private static void registerCircuitBreakerFailure(
+      CircuitBreaker circuitBreaker, Throwable throwable) {
+    if (throwable instanceof RemoteUnreachableException) {
+      /* Transport errors, timeouts and 5XX responses of the remote */
+      circuitBreaker.onFailure();
+    } else if (throwable instanceof CallbackRejectedException) {
+      /* The remote was reached, a retry won't fix a rejected callback */
+      circuitBreaker.onSuccess();
     } else {
-      executeHttpCallback(jobData, taskData);
+      /* Deferrals, like saturated permits or host queues, and local errors never reach it */
+      circuitBreaker.onIgnored();
+    }
+  }
+
+  private CompletableFuture<Void> executeUnconfirmedAmqpCallbackAsync(
+      SchedulerJobData schedulerJobData, Object taskData) {
+    try {
+      executeAmqpCallback(schedulerJobData, taskData);
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
     }
   }
 
   private void executeAmqpCallback(SchedulerJobData schedulerJobData, Object taskData) {
-    CallbackMessage message = buildCallbackMessage(schedulerJobData, taskData);
+    if (amqpPublisherConfirms) {
+      joinCallback(executeConfirmedAmqpCallback(schedulerJobData, taskData));
+      return;
+    }
 
     try {
-      rabbitTemplate.convertAndSend(exchangeName, schedulerJobData.getKey(), message);
+      sendAmqpMessage(schedulerJobData, taskData, null);
     } catch (AmqpException ex) {
-      Throwable rootCause = ExceptionUtils.getRootCause(ex);
-      if (rootCause != null
-          && !rootCause.equals(ex)
-          && (IOException.class.isAssignableFrom(rootCause.getClass()))) {
-        throw new RemoteUnreachableException(ex);
-      }
-      throw ex;
+      throw mapAmqpException(ex);
     }
   }
 
-  private void executeHttpCallback(SchedulerJobData schedulerJobData, Object taskData) {
+  private void sendAmqpMessage(
+      SchedulerJobData schedulerJobData, Object taskData, CorrelationData correlationData) {
+    String routingKey = schedulerJobData.getKey();
+    if (taskData instanceof RawJsonData
+        && rabbitTemplate.getMessageConverter() instanceof AbstractJackson2MessageConverter) {
+      rabbitTemplate.send(
+          exchangeName,
+          routingKey,
+          buildAmqpMessage(schedulerJobData, (RawJsonData) taskData),
+          correlationData);
+      return;
+    }
+
     CallbackMessage message = buildCallbackMessage(schedulerJobData, taskData);
+    if (correlationData != null) {
+      rabbitTemplate.convertAndSend(exchangeName, routingKey, message, correlationData);
+    } else {
+      rabbitTemplate.convertAndSend(exchangeName, routingKey, message);
+    }
+  }
 
+  private Message buildAmqpMessage(SchedulerJobData schedulerJobData, RawJsonData taskData) {
     try {
-      HttpRequest httpRequest =
-          HttpRequest.newBuilder(URI.create(schedulerJobData.getCallbackUrl()))
-              .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-              .timeout(Duration.of(httpCallbackTimeout, ChronoUnit.MILLIS))
-              .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(message)))
-              .build();
-
-      HttpResponse<String> httpResponse =
-          httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofString());
-
-      int statusCode = httpResponse.statusCode();
-      if (statusCode / 100 == 5) {
-        /* 5XX: Maybe something gone wrong... Another call may succeed */
-        throw new RemoteUnreachableException("Remote cannot handle request. Code " + statusCode);
-      }
-      if (statusCode / 100 != 2) {
-        /* Another call won't fix a 400/401/403/404... Don't reschedule... */
-        throw new CallbackHandleException("HTTP request failed with response code " + statusCode);
-      }
-    } catch (JsonProcessingException ex) {
-      /* Should never occur as the payload has been previously serialized... */
-      log.error("Error serializing HTTP callback request");
+      /* Same message the JSON converter would produce, without a CallbackMessage round trip */
+      return MessageBuilder.withBody(
+              concatBytes(renderCallbackMessage(schedulerJobData, taskData)))
+          .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+          .setContentEncoding(StandardCharsets.UTF_8.name())
+          .setHeader(
+              AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, CallbackMessage.class.getName())
+          .build();
+    } catch (IOException ex) {
+      log.error("Error serializing AMQP callback message");
       throw new CallbackHandleException(ex);
+    }
+  }
+
+  private CompletableFuture<Void> executeConfirmedAmqpCallback(
+      SchedulerJobData schedulerJobData, Object taskData) {
+    CorrelationData correlationData = new CorrelationData();
+    try {
+      /* Doesn't wait for the broker. Confirms of the cached channels arrive asynchronously */
+      sendAmqpMessage(schedulerJobData, taskData, correlationData);
+    } catch (AmqpException ex) {
+      return CompletableFuture.failedFuture(mapAmqpException(ex));
+    }
+
+    return correlationData
+        .getFuture()
+        .completable()
+        .orTimeout(amqpConfirmTimeout, TimeUnit.MILLISECONDS)
+        .handle(
+            (confirm, ex) -> {
+              if (ex != null) {
+                Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                throw cause instanceof TimeoutException
+                    ? new RemoteUnreachableException("AMQP publisher confirm timed out")
+                    : new RemoteUnreachableException(cause);
+              }
+              if (!confirm.isAck()) {
+                /* Nacks are retried. The broker may accept the message later */
+                throw new RemoteUnreachableException(
+                    "AMQP message not confirmed by the broker. " + confirm.getReason());
+              }
+              return null;
+            });
+  }
+
+  private static RuntimeException mapAmqpException(AmqpException ex) {
+    Throwable rootCause = ExceptionUtils.getRootCause(ex);
+    if (rootCause != null
+        && !rootCause.equals(ex)
+        && (IOException.class.isAssignableFrom(rootCause.getClass()))) {
+      return new RemoteUnreachableException(ex);
+    }
+    return ex;
+  }
+
+  private void executeHttpCallback(SchedulerJobData schedulerJobData, Object taskData) {
+    HttpRequest httpRequest = buildHttpRequest(schedulerJobData, taskData);
+    HttpDestination destination =
+        httpDestinationPools.getDestination(URI.create(schedulerJobData.getCallbackUrl()));
+    /* Firing threads never wait for a slot, so a slow host can't take all of them */
+    if (!destination.tryAcquire()) {
+      throw new CallbackDeferredException(
+          "HTTP callbacks to " + destination.getName() + " exceed the host limits");
+    }
+
+    Instant requestStart = Instant.now();
+    try {
+      /* The response body is never used, so it is discarded instead of buffered */
+      HttpResponse<Void> httpResponse =
+          destination
+              .getHttpClient()
+              .send(httpRequest, HttpResponse.BodyHandlers.discarding());
+
+      checkHttpResponseStatus(httpResponse.statusCode());
     } catch (IOException ex) {
       /* Connection issues, timeout, peer reset connections, etc. */
       throw new RemoteUnreachableException(ex);
     } catch (InterruptedException ex) {
       Thread.currentThread().interrupt();
       throw new CallbackHandleException(ex);
+    } finally {
+      destination.recordRequest(Duration.between(requestStart, Instant.now()));
+      destination.release();
     }
   }
 
-  private static CallbackMessage buildCallbackMessage(
+  private CompletableFuture<Void> executeHttpCallbackAsync(
       SchedulerJobData schedulerJobData, Object taskData) {
+    HttpRequest httpRequest;
+    try {
+      httpRequest = buildHttpRequest(schedulerJobData, taskData);
+    } catch (CallbackHandleException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+    /* Bounds the in-flight requests. A saturated service defers, firing threads never wait */
+    if (!httpInFlightPermits.tryAcquire()) {
+      return CompletableFuture.failedFuture(
+          new CallbackDeferredException("Too many HTTP callbacks in flight"));
+    }
+
+    HttpDestination destination =
+        httpDestinationPools.getDestination(URI.create(schedulerJobData.getCallbackUrl()));
+    CompletableFuture<HttpResponse<Void>> responseFuture = new CompletableFuture<>();
+    /* Queued requests are sent by the completion of the request that frees their host slot */
+    Runnable dispatch =
+        () ->
+            sendHttpRequestAsync(
+                destination, httpRequest, HttpResponse.BodyHandlers.discarding(), responseFuture);
+    if (!destination.acquire(dispatch)) {
+      httpInFlightPermits.release();
+      return CompletableFuture.failedFuture(
+          new CallbackDeferredException(
+              "HTTP callbacks to " + destination.getName() + " exceed the host limits"));
+    }
+
+    return responseFuture
+        .whenComplete((response, ex) -> httpInFlightPermits.release())
+        .handle(
+            (response, ex) -> {
+              if (ex != null) {
+                Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                /* Connection issues, timeout, peer reset connections, etc. */
+                throw cause instanceof IOException
+                    ? new RemoteUnreachableException(cause)
+                    : new CallbackHandleException(cause);
+              }
+              checkHttpResponseStatus(response.statusCode());
+              return null;
+            });
+  }
+
+  private CompletableFuture<Void> executeBatchedHttpCallback(
+      SchedulerJobData schedulerJobData, Object taskData) {
+    return callbackBatcher.submit(
+        schedulerJobData.getCallbackUrl(), schedulerJobData, taskData, this::sendHttpBatch);
+  }
+
+  private void sendHttpBatch(List<BatchedCallback> callbacks) {
+    String callbackUrl = callbacks.get(0).getJobData().getCallbackUrl();
+    HttpDestination destination = httpDestinationPools.getDestination(URI.create(callbackUrl));
+    HttpRequest httpRequest;
+    try {
+      httpRequest = buildBatchHttpRequest(callbackUrl, callbacks);
+    } catch (CallbackHandleException ex) {
+      callbacks.forEach(callback -> callback.getResult().completeExceptionally(ex));
+      return;
+    }
+
+    /* The whole batch takes a single slot of its host */
+    CompletableFuture<HttpResponse<byte[]>> responseFuture = new CompletableFuture<>();
+    Runnable dispatch =
+        () ->
+            sendHttpRequestAsync(
+                destination, httpRequest, HttpResponse.BodyHandlers.ofByteArray(), responseFuture);
+    if (!destination.acquire(dispatch)) {
+      CallbackDeferredException ex =
+          new CallbackDeferredException(
+              "HTTP callbacks to " + destination.getName() + " exceed the host limits");
+      callbacks.forEach(callback -> callback.getResult().completeExceptionally(ex));
+      return;
+    }
+    responseFuture.whenComplete((response, ex) -> completeHttpBatch(callbacks, response, ex));
+  }
+
+  private void completeHttpBatch(
+      List<BatchedCallback> callbacks, HttpResponse<byte[]> response, Throwable throwable) {
+    RuntimeException batchException = null;
+    if (throwable != null) {
+      Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+      batchException =
+          cause instanceof IOException
+              ? new RemoteUnreachableException(cause)
+              : new CallbackHandleException(cause);
+    } else {
+      try {
+        checkHttpResponseStatus(response.statusCode());
+      } catch (RuntimeException ex) {
+        batchException = ex;
+      }
+    }
+    if (batchException != null) {
+      for (BatchedCallback callback : callbacks) {
+        callback.getResult().completeExceptionally(batchException);
+      }
+      return;
+    }
+
+    Map<String, Integer> itemStatuses = readBatchItemStatuses(response.body());
+    for (BatchedCallback callback : callbacks) {
+      if (itemStatuses == null) {
+        /* No per item results. The batch status applies to all of them */
+        callback.getResult().complete(null);
+        continue;
+      }
+      Integer itemStatus =
+          itemStatuses.get(
+              getBatchItemId(callback.getJobData().getTaskId(), callback.getJobData().getKey()));
+      try {
+        if (itemStatus == null) {
+          throw new RemoteUnreachableException("The batch response has no result for the callback");
+        }
+        checkHttpResponseStatus(itemStatus);
+        callback.getResult().complete(null);
+      } catch (RuntimeException ex) {
+        callback.getResult().completeExceptionally(ex);
+      }
+    }
+  }
+
+  private Map<String, Integer> readBatchItemStatuses(byte[] body) {
+    if (body == null || body.length == 0) {
+      return null;
+    }
+    try {
+      Map<String, Integer> itemStatuses = new HashMap<>();
+      for (CallbackBatchItemResult itemResult :
+          objectMapper.readValue(body, CallbackBatchItemResult[].class)) {
+        itemStatuses.put(
+            getBatchItemId(itemResult.getId(), itemResult.getKey()), itemResult.getStatus());
+      }
+      return itemStatuses;
+    } catch (IOException ex) {
+      log.warn("Ignoring unexpected batch callback response body", ex);
+      return null;
+    }
+  }
+
+  private static String getBatchItemId(String taskId, String key) {
+    return key + "/" + taskId;
+  }
+
+  private HttpRequest buildBatchHttpRequest(String callbackUrl, List<BatchedCallback> callbacks) {
+    List<byte[]> chunks = new ArrayList<>(callbacks.size() * 4 + 1);
+    try {
+      for (BatchedCallback callback : callbacks) {
+        chunks.add(chunks.isEmpty() ? BATCH_START : BATCH_SEPARATOR);
+        if (callback.getTaskData() instanceof RawJsonData) {
+          chunks.addAll(
+              renderCallbackMessage(callback.getJobData(), (RawJsonData) callback.getTaskData()));
+        } else {
+          chunks.add(
+              objectMapper.writeValueAsBytes(
+                  buildCallbackMessage(callback.getJobData(), callback.getTaskData())));
+        }
+      }
+    } catch (IOException ex) {
+      log.error("Error serializing HTTP callback batch request");
+      throw new CallbackHandleException(ex);
+    }
+    chunks.add(BATCH_END);
+    return HttpRequest.newBuilder(URI.create(callbackUrl))
+        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+        .timeout(Duration.of(httpCallbackTimeout, ChronoUnit.MILLIS))
+        .POST(HttpRequest.BodyPublishers.ofByteArrays(chunks))
+        .build();
+  }
+
+  private static <T> void sendHttpRequestAsync(
+      HttpDestination destination,
+      HttpRequest httpRequest,
+      HttpResponse.BodyHandler<T> bodyHandler,
+      CompletableFuture<HttpResponse<T>> responseFuture) {
+    Instant requestStart = Instant.now();
+    try {
+      destination
+          .getHttpClient()
+          .sendAsync(httpRequest, bodyHandler)
+          .whenComplete(
+              (response, ex) -> {
+                destination.recordRequest(Duration.between(requestStart, Instant.now()));
+                destination.release();
+                if (ex != null) {
+                  responseFuture.completeExceptionally(ex);
+                } else {
+                  responseFuture.complete(response);
+                }
+              });
+    } catch (RuntimeException ex) {
+      destination.release();
+      responseFuture.completeExceptionally(ex);
+    }
+  }
+
+  private HttpRequest buildHttpRequest(SchedulerJobData schedulerJobData, Object taskData) {
+    try {
+      /* Raw task data is sent as is, between the envelope chunks */
+      HttpRequest.BodyPublisher bodyPublisher =
+          taskData instanceof RawJsonData
+              ? HttpRequest.BodyPublishers.ofByteArrays(
+                  renderCallbackMessage(schedulerJobData, (RawJsonData) taskData))
+              : HttpRequest.BodyPublishers.ofString(
+                  objectMapper.writeValueAsString(
+                      buildCallbackMessage(schedulerJobData, taskData)));
+      return HttpRequest.newBuilder(URI.create(schedulerJobData.getCallbackUrl()))
+          .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+          .timeout(Duration.of(httpCallbackTimeout, ChronoUnit.MILLIS))
+          .POST(bodyPublisher)
+          .build();
+    } catch (IOException ex) {
+      /* Should never occur as the payload has been previously serialized... */
+      log.error("Error serializing HTTP callback request");
+      throw new CallbackHandleException(ex);
+    }
+  }
+
+  private static void checkHttpResponseStatus(int statusCode) {
+    if (statusCode / 100 == 5) {
+      /* 5XX: Maybe something gone wrong... Another call may succeed */
+      throw new RemoteUnreachableException("Remote cannot handle request. Code " + statusCode);
+    }
+    if (statusCode / 100 != 2) {
+      /* Another call won't fix a 400/401/403/404... Don't reschedule... */
+      throw new CallbackRejectedException(
+          "HTTP request failed with response code " + statusCode);
+    }
+  }
+
+  /* The CallbackMessage JSON as three chunks: the envelope start, the task data and the end */
+  private List<byte[]> renderCallbackMessage(
+      SchedulerJobData schedulerJobData, RawJsonData taskData) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream(128);
+    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+      /* The object is closed with the last chunk, not by the generator */
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+      generator.writeStartObject();
+      generator.writeStringField("id", schedulerJobData.getTaskId());
+      generator.writeStringField("key", schedulerJobData.getKey());
+      if (schedulerJobData.getMetadata().getTriggerTime() != null) {
+        generator.writeObjectField("triggerTime", schedulerJobData.getMetadata().getTriggerTime());
+      }
+      generator.writeNumberField(
+          "notificationAttempt", schedulerJobData.getMetadata().getNotificationAttempt());
+      generator.writeRaw(",\"data\":");
+    }
+    return Arrays.asList(outputStream.toByteArray(), taskData.getJson(), MESSAGE_END);
+  }
+
+  private CallbackMessage buildCallbackMessage(SchedulerJobData schedulerJobData, Object taskData) {
+    Object messageData = taskData;
+    if (taskData instanceof RawJsonData) {
+      try {
+        /* Other AMQP converters need the message as an object */
+        messageData = objectMapper.readValue(((RawJsonData) taskData).getJson(), Object.class);
+      } catch (IOException ex) {
+        throw new CallbackHandleException(ex);
+      }
+    }
     return new CallbackMessage(
         schedulerJobData.getTaskId(),
         schedulerJobData.getKey(),
-        taskData,
+        messageData,
         schedulerJobData.getMetadata().getTriggerTime(),
         schedulerJobData.getMetadata().getNotificationAttempt());
   }
+
+  private static void joinCallback(CompletableFuture<Void> callbackFuture) {
+    try {
+      callbackFuture.join();
+    } catch (CompletionException ex) {
+      throw ex.getCause() instanceof RuntimeException
+          ? (RuntimeException) ex.getCause()
+          : new CallbackHandleException(ex.getCause());
+    }
+  }
+
+  private static byte[] concatBytes(List<byte[]> chunks) {
+    ByteArrayOutputStream outputStream =
+        new ByteArrayOutputStream(chunks.stream().mapToInt(chunk -> chunk.length).sum());
+    chunks.forEach(outputStream::writeBytes);
+    return outputStream.toByteArray();
+  }
 }
@@ -0,0 +1,89 @@
+package com.pablintino.schedulerservice.services;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/* Consecutive failures open the breaker. Once open, a single probe decides if it closes again */
+public class CircuitBreaker {
+
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  @Getter private final String name;
+  private final int failureThreshold;
+  private final long openDuration;
+  private State state = State.CLOSED;
+  private int consecutiveFailures = 0;
+  private long openedAt = 0;
+  private boolean probeInFlight = false;
+  private long lastUsed = System.currentTimeMillis();
+
+  public CircuitBreaker(String name, int failureThreshold, long openDuration) {
+    this.name = name;
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+  }
+
+  public synchronized boolean tryAcquire() {
+    lastUsed = System.currentTimeMillis();
+    if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDuration) {
+      state = State.HALF_OPEN;
+    }
+    if (state == State.HALF_OPEN) {
+      if (probeInFlight) {
+        return false;
+      }
+      probeInFlight = true;
+      return true;
+    }
+    return state == State.CLOSED;
+  }
+
+  public synchronized void onSuccess() {
+    probeInFlight = false;
+    consecutiveFailures = 0;
+    state = State.CLOSED;
+  }
+
+  public synchronized void onFailure() {
+    probeInFlight = false;
+    consecutiveFailures++;
+    if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+      state = State.OPEN;
+      openedAt = System.currentTimeMillis();
+    }
+  }
+
+  /* The call was not attempted, so it tells nothing about the remote */
+  public synchronized void onIgnored() {
+    probeInFlight = false;
+  }
+
+  /* Closed and unused since the given time. Dropping it loses nothing */
+  public synchronized boolean isIdleSince(long time) {
+    return state == State.CLOSED && !probeInFlight && lastUsed < time;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  public synchronized int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  public synchronized Instant getOpenedAt() {
+    return state != State.CLOSED ? Instant.ofEpochMilli(openedAt) : null;
+  }
+
+  public synchronized Duration getRetryAfter() {
+    return state == State.OPEN
+        ? Duration.ofMillis(Math.max(0, openedAt + openDuration - System.currentTimeMillis()))
+        : Duration.ZERO;
+  }
+}
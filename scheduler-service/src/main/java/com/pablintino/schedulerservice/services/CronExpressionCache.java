@@ -0,0 +1,164 @@
+package com.pablintino.schedulerservice.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.quartz.CronExpression;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/* Compiled cron expressions are shared by all the triggers built from them, never mutated */
+@Component
+public class CronExpressionCache implements ICronExpressionCache {
+
+  private static final String CACHE_NAME = "cron-expression";
+
+  private final int maxEntries;
+  private final int precomputedFires;
+  private final Map<CronKey, CompiledCron> entries;
+  private final Counter hitsCounter;
+  private final Counter missesCounter;
+  private final Counter evictionsCounter;
+
+  public CronExpressionCache(
+      MeterRegistry meterRegistry,
+      @Value("${com.pablintino.scheduler.cron-cache.max-entries:1000}") int maxEntries,
+      @Value("${com.pablintino.scheduler.cron-cache.precomputed-fires:10}")
+          int precomputedFires) {
+    this.maxEntries = maxEntries;
+    this.precomputedFires = precomputedFires;
+    this.hitsCounter = buildGetsCounter(meterRegistry, "hit");
+    this.missesCounter = buildGetsCounter(meterRegistry, "miss");
+    this.evictionsCounter =
+        Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+    /* Access ordered map, so the least recently used expression is the one evicted */
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<CronKey, CompiledCron> eldest) {
+            boolean evict = size() > CronExpressionCache.this.maxEntries;
+            if (evict) {
+              evictionsCounter.increment();
+            }
+            return evict;
+          }
+        };
+    Gauge.builder("cache.size", this, CronExpressionCache::size)
+        .tag("cache", CACHE_NAME)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public CronExpression getCronExpression(String expression, TimeZone timeZone)
+      throws ParseException {
+    return getCompiledCron(expression, timeZone).cronExpression;
+  }
+
+  @Override
+  public List<Date> getNextFireTimes(String expression, TimeZone timeZone, Date after, int count)
+      throws ParseException {
+    CompiledCron compiledCron = getCompiledCron(expression, timeZone);
+    NextFireTimes nextFireTimes = compiledCron.nextFireTimes;
+    if (nextFireTimes != null && !after.before(nextFireTimes.after)) {
+      /* Precomputed times already past are dropped. Enough of them left is a hit */
+      List<Date> fireTimes = nextFireTimes.fireTimes;
+      int first = 0;
+      while (first < fireTimes.size() && !fireTimes.get(first).after(after)) {
+        first++;
+      }
+      if (fireTimes.size() - first >= count || nextFireTimes.exhausted) {
+        return fireTimes.subList(first, Math.min(fireTimes.size(), first + count));
+      }
+    }
+
+    nextFireTimes =
+        computeNextFireTimes(compiledCron.cronExpression, after, Math.max(count, precomputedFires));
+    compiledCron.nextFireTimes = nextFireTimes;
+    return nextFireTimes.fireTimes.subList(0, Math.min(nextFireTimes.fireTimes.size(), count));
+  }
+
+  private CompiledCron getCompiledCron(String expression, TimeZone timeZone)
+      throws ParseException {
+    CronKey cronKey = new CronKey(expression, timeZone.getID());
+    CompiledCron compiledCron;
+    synchronized (entries) {
+      compiledCron = entries.get(cronKey);
+    }
+    if (compiledCron != null) {
+      hitsCounter.increment();
+      return compiledCron;
+    }
+
+    /* Parsed out of the lock. Concurrent misses of the same expression just compile it twice */
+    missesCounter.increment();
+    CronExpression cronExpression = new CronExpression(expression);
+    cronExpression.setTimeZone(timeZone);
+    compiledCron = new CompiledCron(cronExpression);
+    compiledCron.nextFireTimes = computeNextFireTimes(cronExpression, new Date(), precomputedFires);
+    if (maxEntries > 0) {
+      synchronized (entries) {
+        CompiledCron existing = entries.putIfAbsent(cronKey, compiledCron);
+        if (existing != null) {
+          return existing;
+        }
+      }
+    }
+    return compiledCron;
+  }
+
+  private static NextFireTimes computeNextFireTimes(
+      CronExpression cronExpression, Date after, int count) {
+    List<Date> fireTimes = new ArrayList<>(count);
+    Date fireTime = cronExpression.getTimeAfter(after);
+    while (fireTime != null && fireTimes.size() < count) {
+      fireTimes.add(fireTime);
+      fireTime = cronExpression.getTimeAfter(fireTime);
+    }
+    return new NextFireTimes(
+        after, Collections.unmodifiableList(fireTimes), fireTimes.size() < count);
+  }
+
+  private int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private static Counter buildGetsCounter(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("cache.gets")
+        .tag("cache", CACHE_NAME)
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  @EqualsAndHashCode
+  @RequiredArgsConstructor
+  private static class CronKey {
+    private final String expression;
+    private final String timeZoneId;
+  }
+
+  @RequiredArgsConstructor
+  private static class CompiledCron {
+    private final CronExpression cronExpression;
+    private volatile NextFireTimes nextFireTimes;
+  }
+
+  @RequiredArgsConstructor
+  private static class NextFireTimes {
+    private final Date after;
+    private final List<Date> fireTimes;
+    private final boolean exhausted;
+  }
+}
@@ -0,0 +1,146 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.DeadLetter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+public class DeadLetterService implements IDeadLetterService, DisposableBean {
+
+  /* Dead letters loaded per query while queueing replays */
+  private static final int REPLAY_BATCH_SIZE = 100;
+
+  private final IDeadLetterRepository deadLetterRepository;
+  private final ICallbackService callbackService;
+  private final long replayIntervalNanos;
+  private final ScheduledExecutorService replayExecutor;
+  private final Set<Long> pendingReplays = ConcurrentHashMap.newKeySet();
+  private long nextReplaySlot;
+
+  public DeadLetterService(
+      IDeadLetterRepository deadLetterRepository,
+      ICallbackService callbackService,
+      @Value("${com.pablintino.scheduler.dead-letters.replay-rate:10}") double replayRate) {
+    Assert.isTrue(replayRate > 0, "replayRate must be positive");
+    this.deadLetterRepository = deadLetterRepository;
+    this.callbackService = callbackService;
+    this.replayIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / replayRate);
+    this.replayExecutor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "dead-letters-replay");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.nextReplaySlot = System.nanoTime();
+  }
+
+  @Override
+  public List<DeadLetter> getDeadLetters(String key, long afterId, int limit) {
+    return deadLetterRepository.findDeadLetters(key, afterId, limit);
+  }
+
+  @Override
+  public long replayDeadLetters(String key) {
+    long queued = 0;
+    long afterId = 0;
+    List<DeadLetter> deadLetters;
+    do {
+      /* Keyset pages, replays deleting letters meanwhile do not shift them */
+      deadLetters = deadLetterRepository.findDeadLetters(key, afterId, REPLAY_BATCH_SIZE);
+      queued += queueReplays(deadLetters);
+      if (!deadLetters.isEmpty()) {
+        afterId = deadLetters.get(deadLetters.size() - 1).getId();
+      }
+    } while (deadLetters.size() == REPLAY_BATCH_SIZE);
+    log.info("{} dead letters of key {} queued for replay", queued, key);
+    return queued;
+  }
+
+  @Override
+  public long replayDeadLetters(String key, Collection<Long> ids) {
+    List<Long> pendingIds = ids.stream().distinct().collect(Collectors.toList());
+    long queued = 0;
+    for (int index = 0; index < pendingIds.size(); index += REPLAY_BATCH_SIZE) {
+      queued +=
+          queueReplays(
+              deadLetterRepository.findDeadLetters(
+                  key,
+                  pendingIds.subList(
+                      index, Math.min(index + REPLAY_BATCH_SIZE, pendingIds.size()))));
+    }
+    log.info("{} dead letters of key {} queued for replay", queued, key);
+    return queued;
+  }
+
+  @Override
+  public void destroy() {
+    /* Replays not sent yet stay in the dead letters store */
+    replayExecutor.shutdownNow();
+  }
+
+  private long queueReplays(List<DeadLetter> deadLetters) {
+    long queued = 0;
+    for (DeadLetter deadLetter : deadLetters) {
+      /* Letters already waiting for their replay slot are not queued twice */
+      if (pendingReplays.add(deadLetter.getId())) {
+        replayExecutor.schedule(
+            () -> replay(deadLetter), reserveReplaySlot(), TimeUnit.NANOSECONDS);
+        queued++;
+      }
+    }
+    return queued;
+  }
+
+  /* Slots are shared by all the replay requests, so the global rate holds under concurrency */
+  private synchronized long reserveReplaySlot() {
+    long now = System.nanoTime();
+    long delay = Math.max(0, nextReplaySlot - now);
+    nextReplaySlot = now + delay + replayIntervalNanos;
+    return delay;
+  }
+
+  private void replay(DeadLetter deadLetter) {
+    CompletableFuture<Void> delivery;
+    try {
+      delivery =
+          callbackService.executeCallbackAsync(deadLetter.getJobData(), deadLetter.getTaskData());
+    } catch (RuntimeException ex) {
+      delivery = CompletableFuture.failedFuture(ex);
+    }
+    delivery.whenComplete(
+        (result, ex) -> {
+          try {
+            if (ex == null) {
+              deadLetterRepository.delete(deadLetter.getId());
+            } else {
+              Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+              log.warn("Replay of dead letter {} failed", deadLetter.getId(), cause);
+              deadLetterRepository.updateFailure(
+                  deadLetter.getId(), Instant.now(), cause.toString());
+            }
+          } catch (RuntimeException updateEx) {
+            log.error(
+                "Error completing the replay of dead letter {}", deadLetter.getId(), updateEx);
+          } finally {
+            pendingReplays.remove(deadLetter.getId());
+          }
+        });
+  }
+}
@@ -0,0 +1,151 @@
+package com.pablintino.schedulerservice.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablintino.schedulerservice.exceptions.SchedulingException;
+import com.pablintino.schedulerservice.models.DeadLetter;
+import com.pablintino.schedulerservice.models.RawJsonData;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import com.pablintino.schedulerservice.quartz.EmbeddedJobStore;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.Scheduler;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/* Dead letters storage for the embedded job store, logged and snapshotted with the jobs */
+@Slf4j
+public class EmbeddedDeadLetterRepository implements IDeadLetterRepository {
+
+  private static final String DEAD_LETTERS_NAMESPACE = "dead-letters";
+  private static final int MAX_ERROR_LENGTH = 1000;
+
+  private final EmbeddedJobStore jobStore;
+  private final ObjectMapper objectMapper;
+  private final AtomicLong sequence;
+
+  /* Stored as the JDBC rows are, data as JSON */
+  @Value
+  private static class StoredDeadLetter implements Serializable {
+    private static final long serialVersionUID = 1L;
+    JobKey jobKey;
+    Instant failureTime;
+    String lastError;
+    byte[] jobData;
+    byte[] taskData;
+  }
+
+  public EmbeddedDeadLetterRepository(Scheduler scheduler, ObjectMapper objectMapper) {
+    this.jobStore = EmbeddedTaskStatsRepository.getJobStore(scheduler);
+    this.objectMapper = objectMapper;
+    this.sequence =
+        new AtomicLong(
+            jobStore.getEntries(DEAD_LETTERS_NAMESPACE).keySet().stream()
+                .mapToLong(id -> (Long) id)
+                .max()
+                .orElse(0));
+  }
+
+  @Override
+  public void save(JobKey jobKey, SchedulerJobData jobData, Object taskData, String lastError) {
+    long id = sequence.incrementAndGet();
+    try {
+      StoredDeadLetter deadLetter =
+          new StoredDeadLetter(
+              jobKey,
+              Instant.now(),
+              StringUtils.left(lastError, MAX_ERROR_LENGTH),
+              objectMapper.writeValueAsBytes(jobData),
+              taskData instanceof RawJsonData
+                  ? ((RawJsonData) taskData).getJson()
+                  : objectMapper.writeValueAsBytes(taskData));
+      jobStore.updateEntry(DEAD_LETTERS_NAMESPACE, id, current -> deadLetter);
+    } catch (JsonProcessingException | JobPersistenceException ex) {
+      log.error("Error storing the dead letter of job {}", jobKey, ex);
+      throw new SchedulingException("Cannot store the dead letter of " + jobKey, ex);
+    }
+  }
+
+  @Override
+  public List<DeadLetter> findDeadLetters(String key, long afterId, int limit) {
+    /* Entries keep their insertion order, the one of the ids */
+    return jobStore.getEntries(DEAD_LETTERS_NAMESPACE).entrySet().stream()
+        .filter(
+            entry ->
+                (Long) entry.getKey() > afterId
+                    && ((StoredDeadLetter) entry.getValue()).getJobKey().getGroup().equals(key))
+        .limit(limit)
+        .map(entry -> toDeadLetter((Long) entry.getKey(), (StoredDeadLetter) entry.getValue()))
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public List<DeadLetter> findDeadLetters(String key, Collection<Long> ids) {
+    List<DeadLetter> deadLetters = new ArrayList<>(ids.size());
+    for (long id : new TreeSet<>(ids)) {
+      StoredDeadLetter deadLetter =
+          (StoredDeadLetter) jobStore.getEntry(DEAD_LETTERS_NAMESPACE, id);
+      if (deadLetter != null && deadLetter.getJobKey().getGroup().equals(key)) {
+        deadLetters.add(toDeadLetter(id, deadLetter));
+      }
+    }
+    return deadLetters;
+  }
+
+  @Override
+  public void updateFailure(long id, Instant failureTime, String lastError) {
+    update(
+        id,
+        current -> {
+          StoredDeadLetter deadLetter = (StoredDeadLetter) current;
+          return deadLetter != null
+              ? new StoredDeadLetter(
+                  deadLetter.getJobKey(),
+                  failureTime,
+                  StringUtils.left(lastError, MAX_ERROR_LENGTH),
+                  deadLetter.getJobData(),
+                  deadLetter.getTaskData())
+              : null;
+        });
+  }
+
+  @Override
+  public void delete(long id) {
+    update(id, current -> null);
+  }
+
+  private void update(long id, UnaryOperator<Serializable> update) {
+    try {
+      jobStore.updateEntry(DEAD_LETTERS_NAMESPACE, id, update);
+    } catch (JobPersistenceException ex) {
+      log.error("Error updating dead letter {}", id, ex);
+      throw new SchedulingException("Cannot update dead letter " + id, ex);
+    }
+  }
+
+  private DeadLetter toDeadLetter(long id, StoredDeadLetter deadLetter) {
+    try {
+      return new DeadLetter(
+          id,
+          deadLetter.getJobKey(),
+          deadLetter.getFailureTime(),
+          deadLetter.getLastError(),
+          objectMapper.readValue(deadLetter.getJobData(), SchedulerJobData.class),
+          new RawJsonData(deadLetter.getTaskData()));
+    } catch (IOException ex) {
+      throw new SchedulingException("Cannot decode dead letter " + id, ex);
+    }
+  }
+}
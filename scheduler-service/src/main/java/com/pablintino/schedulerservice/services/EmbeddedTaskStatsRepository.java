@@ -0,0 +1,126 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.exceptions.SchedulingException;
+import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import com.pablintino.schedulerservice.quartz.EmbeddedJobStore;
+import lombok.Value;
+import lombok.With;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.function.UnaryOperator;
+
+/* Stats storage for the embedded job store, logged and snapshotted with the jobs */
+public class EmbeddedTaskStatsRepository implements ITaskStatsRepository {
+
+  private static final String STATS_NAMESPACE = "task-stats";
+
+  private final Scheduler scheduler;
+  private final EmbeddedJobStore jobStore;
+
+  @Value
+  @With
+  private static class TaskStats implements Serializable {
+    private static final long serialVersionUID = 1L;
+    long executions;
+    long failures;
+    long notificationAttempt;
+    Instant triggerTime;
+    Instant lastFailureTime;
+  }
+
+  public EmbeddedTaskStatsRepository(Scheduler scheduler) {
+    this.scheduler = scheduler;
+    this.jobStore = getJobStore(scheduler);
+  }
+
+  @Override
+  public ScheduleJobMetadata registerExecution(JobKey jobKey, Instant triggerTime) {
+    return toMetadata(
+        update(
+            jobKey,
+            current -> {
+              TaskStats stats = current != null ? current : new TaskStats(0, 0, 0, null, null);
+              return stats.withExecutions(stats.getExecutions() + 1).withTriggerTime(triggerTime);
+            }));
+  }
+
+  @Override
+  public void registerFailure(JobKey jobKey, Instant failureTime, long notificationAttempt) {
+    update(
+        jobKey,
+        current ->
+            current != null
+                ? current
+                    .withFailures(current.getFailures() + 1)
+                    .withLastFailureTime(failureTime)
+                    .withNotificationAttempt(notificationAttempt)
+                : null);
+  }
+
+  @Override
+  public void resetNotificationAttempt(JobKey jobKey) {
+    update(jobKey, current -> current != null ? current.withNotificationAttempt(0) : null);
+  }
+
+  @Override
+  public ScheduleJobMetadata findStats(JobKey jobKey) {
+    try {
+      if (!scheduler.checkExists(jobKey)) {
+        return null;
+      }
+    } catch (SchedulerException ex) {
+      throw new SchedulingException(
+          "An exception occurred while retrieving task stats details.", ex);
+    }
+    TaskStats stats = (TaskStats) jobStore.getEntry(STATS_NAMESPACE, jobKey);
+    return stats != null ? toMetadata(stats) : new ScheduleJobMetadata();
+  }
+
+  @Override
+  public void deleteStats(Collection<JobKey> jobKeys) {
+    try {
+      jobStore.removeEntries(STATS_NAMESPACE, jobKeys);
+    } catch (JobPersistenceException ex) {
+      throw new SchedulingException("Cannot delete the stats of " + jobKeys, ex);
+    }
+  }
+
+  private TaskStats update(JobKey jobKey, UnaryOperator<TaskStats> update) {
+    try {
+      return (TaskStats)
+          jobStore.updateEntry(
+              STATS_NAMESPACE, jobKey, current -> update.apply((TaskStats) current));
+    } catch (JobPersistenceException ex) {
+      throw new SchedulingException("Cannot update the stats of " + jobKey, ex);
+    }
+  }
+
+  private static ScheduleJobMetadata toMetadata(TaskStats stats) {
+    ScheduleJobMetadata metadata = new ScheduleJobMetadata();
+    metadata.setTriggerTime(stats.getTriggerTime());
+    metadata.setLastFailureTime(stats.getLastFailureTime());
+    metadata.setNotificationAttempt(stats.getNotificationAttempt());
+    metadata.setFailures(stats.getFailures());
+    metadata.setExecutions(stats.getExecutions());
+    return metadata;
+  }
+
+  static EmbeddedJobStore getJobStore(Scheduler scheduler) {
+    try {
+      EmbeddedJobStore jobStore = EmbeddedJobStore.getStore(scheduler.getSchedulerName());
+      if (jobStore == null) {
+        throw new IllegalStateException(
+            "Scheduler " + scheduler.getSchedulerName() + " does not use the embedded job store");
+      }
+      return jobStore;
+    } catch (SchedulerException ex) {
+      throw new SchedulingException("Cannot retrieve the scheduler name", ex);
+    }
+  }
+}
@@ -0,0 +1,140 @@
+package com.pablintino.schedulerservice.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/* A callback host with its own client, and so its own connections, and a concurrency bulkhead */
+public class HttpDestination {
+
+  @Getter private final String name;
+  @Getter private final HttpClient httpClient;
+  private final int maxConcurrency;
+  private final int maxQueued;
+  private final Object lock = new Object();
+  private final Deque<Runnable> pendingDispatches = new ArrayDeque<>();
+  private final Counter deferredCounter;
+  private final Timer requestsTimer;
+  private final List<Meter> meters = new ArrayList<>();
+  private final MeterRegistry meterRegistry;
+  private int active = 0;
+  private long lastUsed = System.currentTimeMillis();
+
+  public HttpDestination(
+      String name,
+      HttpClient httpClient,
+      int maxConcurrency,
+      int maxQueued,
+      MeterRegistry meterRegistry) {
+    this.name = name;
+    this.httpClient = httpClient;
+    this.maxConcurrency = maxConcurrency;
+    this.maxQueued = maxQueued;
+    this.meterRegistry = meterRegistry;
+    meters.add(
+        Gauge.builder("http.callbacks.active", this, HttpDestination::getActive)
+            .tag("host", name)
+            .register(meterRegistry));
+    meters.add(
+        Gauge.builder("http.callbacks.queued", this, HttpDestination::getQueued)
+            .tag("host", name)
+            .register(meterRegistry));
+    this.deferredCounter =
+        Counter.builder("http.callbacks.deferred").tag("host", name).register(meterRegistry);
+    this.requestsTimer =
+        Timer.builder("http.callbacks.requests").tag("host", name).register(meterRegistry);
+    meters.add(deferredCounter);
+    meters.add(requestsTimer);
+  }
+
+  /* Acquisition without queueing. The caller defers the callback if the host is saturated */
+  public boolean tryAcquire() {
+    synchronized (lock) {
+      lastUsed = System.currentTimeMillis();
+      if (active < maxConcurrency && pendingDispatches.isEmpty()) {
+        active++;
+        return true;
+      }
+      deferredCounter.increment();
+      return false;
+    }
+  }
+
+  /* Non blocking acquisition. The dispatch runs now, later once a slot is released, or never */
+  public boolean acquire(Runnable dispatch) {
+    synchronized (lock) {
+      lastUsed = System.currentTimeMillis();
+      if (active >= maxConcurrency) {
+        if (getQueued() >= maxQueued) {
+          deferredCounter.increment();
+          return false;
+        }
+        pendingDispatches.add(dispatch);
+        return true;
+      }
+      active++;
+    }
+    dispatch.run();
+    return true;
+  }
+
+  public void release() {
+    Runnable nextDispatch;
+    synchronized (lock) {
+      lastUsed = System.currentTimeMillis();
+      /* The slot is handed over to the oldest queued dispatch, if any */
+      nextDispatch = pendingDispatches.poll();
+      if (nextDispatch == null) {
+        active--;
+      }
+    }
+    if (nextDispatch != null) {
+      nextDispatch.run();
+    }
+  }
+
+  public void recordRequest(Duration duration) {
+    requestsTimer.record(duration);
+  }
+
+  /* Idle since the given time, without active or queued requests */
+  public boolean isIdleSince(long timestamp) {
+    synchronized (lock) {
+      return active == 0 && pendingDispatches.isEmpty() && lastUsed <= timestamp;
+    }
+  }
+
+  public long getLastUsed() {
+    synchronized (lock) {
+      return lastUsed;
+    }
+  }
+
+  /* The client has no close method. Once unreferenced, its selector thread stops on its own */
+  public void close() {
+    meters.forEach(meterRegistry::remove);
+    meters.clear();
+  }
+
+  private int getActive() {
+    synchronized (lock) {
+      return active;
+    }
+  }
+
+  private int getQueued() {
+    synchronized (lock) {
+      return pendingDispatches.size();
+    }
+  }
+}
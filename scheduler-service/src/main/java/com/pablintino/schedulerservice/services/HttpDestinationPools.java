@@ -0,0 +1,126 @@
+package com.pablintino.schedulerservice.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class HttpDestinationPools implements IHttpDestinationPools {
+
+  private final Map<String, HttpDestination> destinations = new ConcurrentHashMap<>();
+  private final MeterRegistry meterRegistry;
+  private final long connectTimeout;
+  private final int hostMaxConcurrency;
+  private final int hostMaxQueued;
+  private final boolean http2;
+  private final long hostIdleTimeout;
+  private final int maxHosts;
+
+  public HttpDestinationPools(
+      MeterRegistry meterRegistry,
+      long connectTimeout,
+      int hostMaxConcurrency,
+      int hostMaxQueued,
+      boolean http2) {
+    this(meterRegistry, connectTimeout, hostMaxConcurrency, hostMaxQueued, http2, 300000, 1024);
+  }
+
+  @Autowired
+  public HttpDestinationPools(
+      MeterRegistry meterRegistry,
+      @Value("${com.pablintino.scheduler.http.callback-timeout:1000}") long connectTimeout,
+      @Value("${com.pablintino.scheduler.http.host-max-concurrency:8}") int hostMaxConcurrency,
+      @Value("${com.pablintino.scheduler.http.host-max-queued:64}") int hostMaxQueued,
+      @Value("${com.pablintino.scheduler.http.http2:false}") boolean http2,
+      @Value("${com.pablintino.scheduler.http.host-idle-timeout:300000}") long hostIdleTimeout,
+      @Value("${com.pablintino.scheduler.http.max-hosts:1024}") int maxHosts) {
+    if (hostMaxConcurrency <= 0 || hostMaxQueued < 0 || maxHosts <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid HTTP host limits. Concurrency and hosts must be positive, queue non negative");
+    }
+    this.meterRegistry = meterRegistry;
+    this.connectTimeout = connectTimeout;
+    this.hostMaxConcurrency = hostMaxConcurrency;
+    this.hostMaxQueued = hostMaxQueued;
+    this.http2 = http2;
+    this.hostIdleTimeout = hostIdleTimeout;
+    this.maxHosts = maxHosts;
+  }
+
+  @Override
+  public HttpDestination getDestination(URI uri) {
+    String name = getDestinationName(uri);
+    HttpDestination destination = destinations.get(name);
+    if (destination != null) {
+      return destination;
+    }
+    /* Only a new host grows the pools, so that is when the idle ones are dropped */
+    evictIdleDestinations();
+    return destinations.computeIfAbsent(name, this::createDestination);
+  }
+
+  public int getDestinationCount() {
+    return destinations.size();
+  }
+
+  private void evictIdleDestinations() {
+    long idleThreshold = System.currentTimeMillis() - hostIdleTimeout;
+    destinations.forEach(
+        (name, destination) -> {
+          if (destination.isIdleSince(idleThreshold)) {
+            evictDestination(name, destination);
+          }
+        });
+
+    /* Too many recently used hosts. The least recently used idle ones are dropped first */
+    int excess = destinations.size() - maxHosts + 1;
+    if (excess > 0) {
+      long now = System.currentTimeMillis();
+      destinations.entrySet().stream()
+          .filter(entry -> entry.getValue().isIdleSince(now))
+          .sorted(Comparator.comparingLong(entry -> entry.getValue().getLastUsed()))
+          .limit(excess)
+          .forEach(entry -> evictDestination(entry.getKey(), entry.getValue()));
+    }
+  }
+
+  private void evictDestination(String name, HttpDestination destination) {
+    if (destinations.remove(name, destination)) {
+      log.debug("Dropping the idle HTTP callback destination {}", name);
+      destination.close();
+    }
+  }
+
+  private HttpDestination createDestination(String name) {
+    /*
+     * One client per host. HTTP/1.1 connections are never shared by concurrent requests, so the
+     * bulkhead also bounds the connections each host can hold
+     */
+    HttpClient httpClient =
+        HttpClient.newBuilder()
+            .connectTimeout(Duration.of(connectTimeout, ChronoUnit.MILLIS))
+            .version(http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+            .build();
+    return new HttpDestination(
+        name, httpClient, hostMaxConcurrency, hostMaxQueued, meterRegistry);
+  }
+
+  public static String getDestinationName(URI uri) {
+    int port = uri.getPort();
+    if (port == -1) {
+      port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+    }
+    return uri.getHost() + ":" + port;
+  }
+}
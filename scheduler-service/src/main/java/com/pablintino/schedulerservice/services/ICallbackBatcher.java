@@ -0,0 +1,16 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+public interface ICallbackBatcher {
+
+  CompletableFuture<Void> submit(
+      String endpoint,
+      SchedulerJobData jobData,
+      Object taskData,
+      Consumer<List<BatchedCallback>> sender);
+}
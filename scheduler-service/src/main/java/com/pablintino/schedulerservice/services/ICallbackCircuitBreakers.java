@@ -0,0 +1,10 @@
+package com.pablintino.schedulerservice.services;
+
+import java.util.Collection;
+
+public interface ICallbackCircuitBreakers {
+
+  CircuitBreaker getCircuitBreaker(String endpoint);
+
+  Collection<CircuitBreaker> getCircuitBreakers();
+}
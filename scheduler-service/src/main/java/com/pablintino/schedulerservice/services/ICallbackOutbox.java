@@ -0,0 +1,20 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.OutboxEntry;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import org.quartz.JobKey;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+public interface ICallbackOutbox {
+
+  void append(JobKey jobKey, Instant fireTime, SchedulerJobData jobData, Object taskData);
+
+  List<OutboxEntry> claim(int maxEntries, Duration lease);
+
+  void complete(long id);
+
+  void retry(long id, long attempt, Instant nextAttemptTime);
+}
@@ -0,0 +1,11 @@
+package com.pablintino.schedulerservice.services;
+
+import java.time.Duration;
+
+public interface ICallbackRateLimiters {
+
+  Duration tryAcquire(String key, String taskId);
+
+  /* Returns a slot granted by tryAcquire whose callback was never sent */
+  void release(String key);
+}
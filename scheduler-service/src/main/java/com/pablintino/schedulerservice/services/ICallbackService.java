@@ -2,7 +2,18 @@ package com.pablintino.schedulerservice.services;
 
 import com.pablintino.schedulerservice.models.SchedulerJobData;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface ICallbackService {
 
   void executeCallback(SchedulerJobData jobData, Object taskData);
+
+  default CompletableFuture<Void> executeCallbackAsync(SchedulerJobData jobData, Object taskData) {
+    try {
+      executeCallback(jobData, taskData);
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+  }
 }
@@ -0,0 +1,16 @@
+package com.pablintino.schedulerservice.services;
+
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+public interface ICronExpressionCache {
+
+  CronExpression getCronExpression(String expression, TimeZone timeZone) throws ParseException;
+
+  List<Date> getNextFireTimes(String expression, TimeZone timeZone, Date after, int count)
+      throws ParseException;
+}
@@ -0,0 +1,23 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.DeadLetter;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import org.quartz.JobKey;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface IDeadLetterRepository {
+
+  void save(JobKey jobKey, SchedulerJobData jobData, Object taskData, String lastError);
+
+  /* Ordered by id, the ones after the given one */
+  List<DeadLetter> findDeadLetters(String key, long afterId, int limit);
+
+  List<DeadLetter> findDeadLetters(String key, Collection<Long> ids);
+
+  void updateFailure(long id, Instant failureTime, String lastError);
+
+  void delete(long id);
+}
@@ -0,0 +1,15 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.DeadLetter;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface IDeadLetterService {
+
+  List<DeadLetter> getDeadLetters(String key, long afterId, int limit);
+
+  long replayDeadLetters(String key);
+
+  long replayDeadLetters(String key, Collection<Long> ids);
+}
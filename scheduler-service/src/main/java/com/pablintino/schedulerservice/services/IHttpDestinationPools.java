@@ -0,0 +1,8 @@
+package com.pablintino.schedulerservice.services;
+
+import java.net.URI;
+
+public interface IHttpDestinationPools {
+
+  HttpDestination getDestination(URI uri);
+}
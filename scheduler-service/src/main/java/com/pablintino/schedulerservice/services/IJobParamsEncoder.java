@@ -2,6 +2,7 @@ package com.pablintino.schedulerservice.services;
 
 import com.pablintino.schedulerservice.exceptions.SchedulerValidationException;
 import com.pablintino.schedulerservice.models.Endpoint;
+import com.pablintino.schedulerservice.models.RawJsonData;
 import com.pablintino.schedulerservice.models.SchedulerJobData;
 import com.pablintino.schedulerservice.models.Task;
 import org.quartz.JobDataMap;
@@ -10,7 +11,7 @@ import java.util.Map;
 
 public interface IJobParamsEncoder {
 
-  Map<String, String> createEncodeJobParameters(Task task, Endpoint endpoint)
+  Map<String, Object> createEncodeJobParameters(Task task, Endpoint endpoint)
       throws SchedulerValidationException;
 
   void updateEncodeSchedulerJobData(JobDataMap jobDataMap, SchedulerJobData schedulerJobData);
@@ -18,4 +19,9 @@ public interface IJobParamsEncoder {
   SchedulerJobData getDecodeSchedulerJobData(JobDataMap jobDataMap);
 
   Object getDecodeTaskData(JobDataMap jobDataMap);
+
+  RawJsonData getRawTaskData(JobDataMap jobDataMap);
+
+  /* Stored payload of legacy encoded task data. Null for raw JSON task data */
+  Object getEncodedTaskData(JobDataMap jobDataMap);
 }
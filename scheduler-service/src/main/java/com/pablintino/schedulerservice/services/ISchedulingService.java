@@ -4,18 +4,38 @@ import com.pablintino.schedulerservice.exceptions.SchedulerValidationException;
 import com.pablintino.schedulerservice.models.Endpoint;
 import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
 import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.models.TaskSchedulingResult;
+import com.pablintino.schedulerservice.models.TasksPage;
+import org.apache.commons.lang3.tuple.Pair;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ISchedulingService {
 
   void scheduleTask(Task task, Endpoint endpoint) throws SchedulerValidationException;
 
+  List<TaskSchedulingResult> scheduleTasks(List<Pair<Task, Endpoint>> tasks);
+
   void deleteTask(String taskKey, String taskId);
 
+  long deleteTasks(String taskKey);
+
+  long deleteTasks(String taskKey, Collection<String> taskIds);
+
   List<Task> getTasksForKey(String key);
 
+  TasksPage getTasksPageForKey(String key, String after, int limit)
+      throws SchedulerValidationException;
+
+  void streamTasksForKey(String key, Consumer<Task> taskConsumer);
+
   Task getTask(String key, String taskId);
 
   ScheduleJobMetadata getSchedulerJobMetadata(String key, String taskId);
+
+  List<ZonedDateTime> getTaskNextFireTimes(String key, String taskId, int count)
+      throws SchedulerValidationException;
 }
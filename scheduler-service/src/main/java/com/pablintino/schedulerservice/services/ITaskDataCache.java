@@ -0,0 +1,11 @@
+package com.pablintino.schedulerservice.services;
+
+import org.quartz.JobDataMap;
+import org.quartz.JobKey;
+
+public interface ITaskDataCache {
+
+  Object getTaskData(JobKey jobKey, JobDataMap jobDataMap);
+
+  void invalidate(JobKey jobKey);
+}
@@ -0,0 +1,21 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.Task;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface ITaskReadRepository {
+
+  List<Task> findTasksByKey(String key);
+
+  List<Task> findTasksPageByKey(String key, String afterTaskId, int limit);
+
+  void streamTasksByKey(String key, Consumer<Task> taskConsumer);
+
+  Task findTask(String key, String taskId);
+
+  /* Unknown ids are left out */
+  List<Task> findTasks(String key, Collection<String> taskIds);
+}
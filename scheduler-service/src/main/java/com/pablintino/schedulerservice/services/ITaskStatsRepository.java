@@ -0,0 +1,20 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import org.quartz.JobKey;
+
+import java.time.Instant;
+import java.util.Collection;
+
+public interface ITaskStatsRepository {
+
+  ScheduleJobMetadata registerExecution(JobKey jobKey, Instant triggerTime);
+
+  void registerFailure(JobKey jobKey, Instant failureTime, long notificationAttempt);
+
+  void resetNotificationAttempt(JobKey jobKey);
+
+  ScheduleJobMetadata findStats(JobKey jobKey);
+
+  void deleteStats(Collection<JobKey> jobKeys);
+}
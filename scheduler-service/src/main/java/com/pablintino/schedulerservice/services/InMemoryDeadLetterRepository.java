@@ -0,0 +1,82 @@
+package com.pablintino.schedulerservice.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablintino.schedulerservice.exceptions.SchedulingException;
+import com.pablintino.schedulerservice.models.DeadLetter;
+import com.pablintino.schedulerservice.models.RawJsonData;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import lombok.RequiredArgsConstructor;
+import org.quartz.JobKey;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/* Dead letters storage for non persistent job stores */
+@RequiredArgsConstructor
+public class InMemoryDeadLetterRepository implements IDeadLetterRepository {
+
+  private final ObjectMapper objectMapper;
+  private final AtomicLong sequence = new AtomicLong();
+  private final NavigableMap<Long, DeadLetter> deadLetters = new ConcurrentSkipListMap<>();
+
+  @Override
+  public void save(JobKey jobKey, SchedulerJobData jobData, Object taskData, String lastError) {
+    long id = sequence.incrementAndGet();
+    deadLetters.put(
+        id, new DeadLetter(id, jobKey, Instant.now(), lastError, jobData, toRawJson(taskData)));
+  }
+
+  @Override
+  public List<DeadLetter> findDeadLetters(String key, long afterId, int limit) {
+    return deadLetters.tailMap(afterId, false).values().stream()
+        .filter(deadLetter -> deadLetter.getJobKey().getGroup().equals(key))
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public List<DeadLetter> findDeadLetters(String key, Collection<Long> ids) {
+    return ids.stream()
+        .distinct()
+        .sorted()
+        .map(deadLetters::get)
+        .filter(deadLetter -> deadLetter != null && deadLetter.getJobKey().getGroup().equals(key))
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public void updateFailure(long id, Instant failureTime, String lastError) {
+    deadLetters.computeIfPresent(
+        id,
+        (key, deadLetter) ->
+            new DeadLetter(
+                id,
+                deadLetter.getJobKey(),
+                failureTime,
+                lastError,
+                deadLetter.getJobData(),
+                deadLetter.getTaskData()));
+  }
+
+  @Override
+  public void delete(long id) {
+    deadLetters.remove(id);
+  }
+
+  private RawJsonData toRawJson(Object taskData) {
+    if (taskData instanceof RawJsonData) {
+      return (RawJsonData) taskData;
+    }
+    try {
+      return new RawJsonData(objectMapper.writeValueAsBytes(taskData));
+    } catch (JsonProcessingException ex) {
+      throw new SchedulingException("Cannot encode dead letter task data", ex);
+    }
+  }
+}
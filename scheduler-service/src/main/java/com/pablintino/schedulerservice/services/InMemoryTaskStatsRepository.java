@@ -0,0 +1,85 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.exceptions.SchedulingException;
+import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import lombok.RequiredArgsConstructor;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Stats storage for non persistent job stores */
+@RequiredArgsConstructor
+public class InMemoryTaskStatsRepository implements ITaskStatsRepository {
+
+  private final Scheduler scheduler;
+  private final Map<JobKey, ScheduleJobMetadata> stats = new ConcurrentHashMap<>();
+
+  @Override
+  public ScheduleJobMetadata registerExecution(JobKey jobKey, Instant triggerTime) {
+    return copy(
+        stats.compute(
+            jobKey,
+            (key, current) -> {
+              ScheduleJobMetadata metadata = current != null ? current : new ScheduleJobMetadata();
+              metadata.setExecutions(metadata.getExecutions() + 1);
+              metadata.setTriggerTime(triggerTime);
+              return metadata;
+            }));
+  }
+
+  @Override
+  public void registerFailure(JobKey jobKey, Instant failureTime, long notificationAttempt) {
+    stats.computeIfPresent(
+        jobKey,
+        (key, metadata) -> {
+          metadata.setFailures(metadata.getFailures() + 1);
+          metadata.setLastFailureTime(failureTime);
+          metadata.setNotificationAttempt(notificationAttempt);
+          return metadata;
+        });
+  }
+
+  @Override
+  public void resetNotificationAttempt(JobKey jobKey) {
+    stats.computeIfPresent(
+        jobKey,
+        (key, metadata) -> {
+          metadata.setNotificationAttempt(0);
+          return metadata;
+        });
+  }
+
+  @Override
+  public ScheduleJobMetadata findStats(JobKey jobKey) {
+    try {
+      if (!scheduler.checkExists(jobKey)) {
+        return null;
+      }
+    } catch (SchedulerException ex) {
+      throw new SchedulingException(
+          "An exception occurred while retrieving task stats details.", ex);
+    }
+    ScheduleJobMetadata metadata = stats.get(jobKey);
+    return metadata != null ? copy(metadata) : new ScheduleJobMetadata();
+  }
+
+  @Override
+  public void deleteStats(Collection<JobKey> jobKeys) {
+    jobKeys.forEach(stats::remove);
+  }
+
+  private static ScheduleJobMetadata copy(ScheduleJobMetadata metadata) {
+    ScheduleJobMetadata copy = new ScheduleJobMetadata();
+    copy.setTriggerTime(metadata.getTriggerTime());
+    copy.setLastFailureTime(metadata.getLastFailureTime());
+    copy.setNotificationAttempt(metadata.getNotificationAttempt());
+    copy.setFailures(metadata.getFailures());
+    copy.setExecutions(metadata.getExecutions());
+    return copy;
+  }
+}
@@ -0,0 +1,156 @@
+package com.pablintino.schedulerservice.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablintino.schedulerservice.exceptions.SchedulingException;
+import com.pablintino.schedulerservice.models.OutboxEntry;
+import com.pablintino.schedulerservice.models.RawJsonData;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/*
+ * Fired callbacks pending delivery. Rows are written by the firing job and removed once
+ * delivered, so a crash between both only delays the callback. Delivery is at least once: a
+ * callback sent but not completed, by a crash or a lease expiring first, is claimed and sent
+ * again. Receivers tell duplicates apart by the task id, key and trigger time of the message
+ */
+@Slf4j
+public class JdbcCallbackOutbox implements ICallbackOutbox {
+
+  private static final String OUTBOX_INSERT =
+      "INSERT INTO {0}CALLBACK_OUTBOX (SCHED_NAME, JOB_NAME, JOB_GROUP, FIRE_TIME, ATTEMPT,"
+          + " NEXT_ATTEMPT_TIME, JOB_DATA, TASK_DATA) VALUES (?, ?, ?, ?, 0, ?, ?, ?)";
+  /* Concurrent dispatchers, local or from other nodes, skip the rows already being claimed */
+  private static final String OUTBOX_CLAIM =
+      "UPDATE {0}CALLBACK_OUTBOX SET LEASE_EXPIRY = ? WHERE ID IN (SELECT ID FROM"
+          + " {0}CALLBACK_OUTBOX WHERE SCHED_NAME = ? AND NEXT_ATTEMPT_TIME <= ?"
+          + " AND (LEASE_EXPIRY IS NULL OR LEASE_EXPIRY < ?) ORDER BY NEXT_ATTEMPT_TIME"
+          + " LIMIT ? FOR UPDATE SKIP LOCKED)"
+          + " RETURNING ID, JOB_NAME, JOB_GROUP, FIRE_TIME, ATTEMPT, JOB_DATA, TASK_DATA";
+  private static final String OUTBOX_DELETE = "DELETE FROM {0}CALLBACK_OUTBOX WHERE ID = ?";
+  private static final String OUTBOX_RETRY_UPDATE =
+      "UPDATE {0}CALLBACK_OUTBOX SET ATTEMPT = ?, NEXT_ATTEMPT_TIME = ?, LEASE_EXPIRY = NULL"
+          + " WHERE ID = ?";
+
+  private final Scheduler scheduler;
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+  private final String outboxInsert;
+  private final String outboxClaim;
+  private final String outboxDelete;
+  private final String outboxRetryUpdate;
+
+  public JdbcCallbackOutbox(
+      Scheduler scheduler, DataSource dataSource, String tablePrefix, ObjectMapper objectMapper) {
+    this.scheduler = scheduler;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.objectMapper = objectMapper;
+    this.outboxInsert = OUTBOX_INSERT.replace("{0}", tablePrefix);
+    this.outboxClaim = OUTBOX_CLAIM.replace("{0}", tablePrefix);
+    this.outboxDelete = OUTBOX_DELETE.replace("{0}", tablePrefix);
+    this.outboxRetryUpdate = OUTBOX_RETRY_UPDATE.replace("{0}", tablePrefix);
+  }
+
+  /*
+   * Committed on its own, not in a job store transaction. Quartz commits the fire before running
+   * the job and its completion after it, so a crash before this insert loses that fire as with any
+   * other job, and one after it still gets the callback delivered
+   */
+  @Override
+  public void append(JobKey jobKey, Instant fireTime, SchedulerJobData jobData, Object taskData) {
+    try {
+      jdbcTemplate.update(
+          outboxInsert,
+          getSchedulerName(),
+          jobKey.getName(),
+          jobKey.getGroup(),
+          fireTime.toEpochMilli(),
+          Instant.now().toEpochMilli(),
+          objectMapper.writeValueAsBytes(jobData),
+          taskData instanceof RawJsonData
+              ? ((RawJsonData) taskData).getJson()
+              : objectMapper.writeValueAsBytes(taskData));
+    } catch (JsonProcessingException | DataAccessException ex) {
+      log.error("Error appending the callback of job {} to the outbox", jobKey, ex);
+      throw new SchedulingException("Cannot append the callback of " + jobKey, ex);
+    }
+  }
+
+  @Override
+  public List<OutboxEntry> claim(int maxEntries, Duration lease) {
+    long now = Instant.now().toEpochMilli();
+    try {
+      return jdbcTemplate.query(
+          outboxClaim,
+          (rs, rowNum) -> mapEntry(rs),
+          now + lease.toMillis(),
+          getSchedulerName(),
+          now,
+          now,
+          maxEntries);
+    } catch (DataAccessException ex) {
+      throw new SchedulingException("Cannot claim outbox entries", ex);
+    }
+  }
+
+  @Override
+  public void complete(long id) {
+    update(outboxDelete, id, id);
+  }
+
+  @Override
+  public void retry(long id, long attempt, Instant nextAttemptTime) {
+    update(outboxRetryUpdate, id, attempt, nextAttemptTime.toEpochMilli(), id);
+  }
+
+  private void update(String sql, long id, Object... args) {
+    try {
+      jdbcTemplate.update(sql, args);
+    } catch (DataAccessException ex) {
+      log.error("Error updating outbox entry {}", id, ex);
+      throw new SchedulingException("Cannot update outbox entry " + id, ex);
+    }
+  }
+
+  private OutboxEntry mapEntry(ResultSet rs) throws SQLException {
+    long attempt = rs.getLong("ATTEMPT");
+    SchedulerJobData jobData;
+    try {
+      jobData = objectMapper.readValue(rs.getBytes("JOB_DATA"), SchedulerJobData.class);
+    } catch (IOException ex) {
+      throw new SchedulingException("Cannot decode outbox entry " + rs.getLong("ID"), ex);
+    }
+    /* Delivery retries are tracked by the outbox row, not by the fire that created it */
+    if (jobData.getMetadata() != null) {
+      jobData.getMetadata().setNotificationAttempt(attempt);
+    }
+    return new OutboxEntry(
+        rs.getLong("ID"),
+        JobKey.jobKey(rs.getString("JOB_NAME"), rs.getString("JOB_GROUP")),
+        Instant.ofEpochMilli(rs.getLong("FIRE_TIME")),
+        attempt,
+        jobData,
+        new RawJsonData(rs.getBytes("TASK_DATA")));
+  }
+
+  private String getSchedulerName() {
+    try {
+      return scheduler.getSchedulerName();
+    } catch (SchedulerException ex) {
+      throw new SchedulingException("Cannot retrieve the scheduler name", ex);
+    }
+  }
+}
@@ -0,0 +1,170 @@
+package com.pablintino.schedulerservice.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablintino.schedulerservice.exceptions.SchedulingException;
+import com.pablintino.schedulerservice.models.DeadLetter;
+import com.pablintino.schedulerservice.models.RawJsonData;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/* Callbacks discarded after exhausting their attempts, kept until replayed */
+@Slf4j
+public class JdbcDeadLetterRepository implements IDeadLetterRepository {
+
+  private static final int MAX_ERROR_LENGTH = 1000;
+
+  private static final String DEAD_LETTER_INSERT =
+      "INSERT INTO {0}CALLBACK_DEAD_LETTERS (SCHED_NAME, JOB_NAME, JOB_GROUP, FAILURE_TIME,"
+          + " LAST_ERROR, JOB_DATA, TASK_DATA) VALUES (?, ?, ?, ?, ?, ?, ?)";
+  private static final String DEAD_LETTERS_QUERY =
+      "SELECT ID, JOB_NAME, JOB_GROUP, FAILURE_TIME, LAST_ERROR, JOB_DATA, TASK_DATA FROM"
+          + " {0}CALLBACK_DEAD_LETTERS WHERE SCHED_NAME = ? AND JOB_GROUP = ?";
+  private static final String DEAD_LETTER_FAILURE_UPDATE =
+      "UPDATE {0}CALLBACK_DEAD_LETTERS SET FAILURE_TIME = ?, LAST_ERROR = ? WHERE ID = ?";
+  private static final String DEAD_LETTER_DELETE =
+      "DELETE FROM {0}CALLBACK_DEAD_LETTERS WHERE ID = ?";
+
+  private final Scheduler scheduler;
+  private final JdbcTemplate jdbcTemplate;
+  private final ObjectMapper objectMapper;
+  private final String deadLetterInsert;
+  private final String deadLettersPageQuery;
+  private final String deadLettersQuery;
+  private final String deadLetterFailureUpdate;
+  private final String deadLetterDelete;
+
+  public JdbcDeadLetterRepository(
+      Scheduler scheduler, DataSource dataSource, String tablePrefix, ObjectMapper objectMapper) {
+    this.scheduler = scheduler;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.objectMapper = objectMapper;
+    this.deadLetterInsert = DEAD_LETTER_INSERT.replace("{0}", tablePrefix);
+    this.deadLettersQuery = DEAD_LETTERS_QUERY.replace("{0}", tablePrefix);
+    this.deadLettersPageQuery = deadLettersQuery + " AND ID > ? ORDER BY ID LIMIT ?";
+    this.deadLetterFailureUpdate = DEAD_LETTER_FAILURE_UPDATE.replace("{0}", tablePrefix);
+    this.deadLetterDelete = DEAD_LETTER_DELETE.replace("{0}", tablePrefix);
+  }
+
+  @Override
+  public void save(JobKey jobKey, SchedulerJobData jobData, Object taskData, String lastError) {
+    try {
+      jdbcTemplate.update(
+          deadLetterInsert,
+          getSchedulerName(),
+          jobKey.getName(),
+          jobKey.getGroup(),
+          Instant.now().toEpochMilli(),
+          StringUtils.left(lastError, MAX_ERROR_LENGTH),
+          objectMapper.writeValueAsBytes(jobData),
+          taskData instanceof RawJsonData
+              ? ((RawJsonData) taskData).getJson()
+              : objectMapper.writeValueAsBytes(taskData));
+    } catch (JsonProcessingException | DataAccessException ex) {
+      log.error("Error storing the dead letter of job {}", jobKey, ex);
+      throw new SchedulingException("Cannot store the dead letter of " + jobKey, ex);
+    }
+  }
+
+  @Override
+  public List<DeadLetter> findDeadLetters(String key, long afterId, int limit) {
+    try {
+      return jdbcTemplate.query(
+          deadLettersPageQuery,
+          (rs, rowNum) -> mapDeadLetter(rs),
+          getSchedulerName(),
+          key,
+          afterId,
+          limit);
+    } catch (DataAccessException ex) {
+      throw new SchedulingException("An exception occurred while retrieving dead letters.", ex);
+    }
+  }
+
+  @Override
+  public List<DeadLetter> findDeadLetters(String key, Collection<Long> ids) {
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    /* Callers bound the ids, so are the bind parameters */
+    List<Object> args = new ArrayList<>(ids.size() + 2);
+    args.add(getSchedulerName());
+    args.add(key);
+    args.addAll(ids);
+    try {
+      return jdbcTemplate.query(
+          deadLettersQuery
+              + " AND ID IN ("
+              + String.join(", ", Collections.nCopies(ids.size(), "?"))
+              + ") ORDER BY ID",
+          (rs, rowNum) -> mapDeadLetter(rs),
+          args.toArray());
+    } catch (DataAccessException ex) {
+      throw new SchedulingException("An exception occurred while retrieving dead letters.", ex);
+    }
+  }
+
+  @Override
+  public void updateFailure(long id, Instant failureTime, String lastError) {
+    update(
+        deadLetterFailureUpdate,
+        id,
+        failureTime.toEpochMilli(),
+        StringUtils.left(lastError, MAX_ERROR_LENGTH),
+        id);
+  }
+
+  @Override
+  public void delete(long id) {
+    update(deadLetterDelete, id, id);
+  }
+
+  private void update(String sql, long id, Object... args) {
+    try {
+      jdbcTemplate.update(sql, args);
+    } catch (DataAccessException ex) {
+      log.error("Error updating dead letter {}", id, ex);
+      throw new SchedulingException("Cannot update dead letter " + id, ex);
+    }
+  }
+
+  private DeadLetter mapDeadLetter(ResultSet rs) throws SQLException {
+    SchedulerJobData jobData;
+    try {
+      jobData = objectMapper.readValue(rs.getBytes("JOB_DATA"), SchedulerJobData.class);
+    } catch (IOException ex) {
+      throw new SchedulingException("Cannot decode dead letter " + rs.getLong("ID"), ex);
+    }
+    return new DeadLetter(
+        rs.getLong("ID"),
+        JobKey.jobKey(rs.getString("JOB_NAME"), rs.getString("JOB_GROUP")),
+        Instant.ofEpochMilli(rs.getLong("FAILURE_TIME")),
+        rs.getString("LAST_ERROR"),
+        jobData,
+        new RawJsonData(rs.getBytes("TASK_DATA")));
+  }
+
+  private String getSchedulerName() {
+    try {
+      return scheduler.getSchedulerName();
+    } catch (SchedulerException ex) {
+      throw new SchedulingException("Cannot retrieve the scheduler name", ex);
+    }
+  }
+}
@@ -0,0 +1,221 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.exceptions.SchedulerServiceException;
+import com.pablintino.schedulerservice.exceptions.SchedulingException;
+import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.quartz.CallbackJob;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobDataMap;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/* Reads tasks straight from the Quartz JDBC tables. Each read is a single joined query */
+@Slf4j
+public class JdbcTaskReadRepository implements ITaskReadRepository {
+
+  private static final int STREAM_FETCH_SIZE = 500;
+  /* Bounds the bind parameters of each set read */
+  private static final int MAX_IN_CLAUSE_SIZE = 500;
+
+  private static final String TASKS_QUERY =
+      "SELECT J.JOB_NAME, J.JOB_GROUP, J.JOB_DATA, T.START_TIME, T.MISFIRE_INSTR,"
+          + " C.CRON_EXPRESSION, C.TIME_ZONE_ID"
+          + " FROM {0}JOB_DETAILS J"
+          + " JOIN {0}TRIGGERS T ON T.SCHED_NAME = J.SCHED_NAME"
+          + " AND T.JOB_NAME = J.JOB_NAME AND T.JOB_GROUP = J.JOB_GROUP"
+          + " AND T.TRIGGER_NAME NOT LIKE '"
+          + CallbackJob.DEFERRAL_TRIGGER_NAME_PREFIX
+          + "%'"
+          + " LEFT JOIN {0}CRON_TRIGGERS C ON C.SCHED_NAME = T.SCHED_NAME"
+          + " AND C.TRIGGER_NAME = T.TRIGGER_NAME AND C.TRIGGER_GROUP = T.TRIGGER_GROUP"
+          + " WHERE J.SCHED_NAME = ? AND J.JOB_GROUP = ?";
+
+  private final Scheduler scheduler;
+  private final IJobParamsEncoder jobParamsEncoder;
+  private final JdbcTemplate jdbcTemplate;
+  private final JdbcTemplate streamingJdbcTemplate;
+  private final TransactionTemplate readOnlyTransactionTemplate;
+  private final String tasksQuery;
+  private final RowMapper<Task> taskRowMapper = this::mapTask;
+
+  public JdbcTaskReadRepository(
+      Scheduler scheduler,
+      IJobParamsEncoder jobParamsEncoder,
+      DataSource dataSource,
+      String tablePrefix) {
+    this.scheduler = scheduler;
+    this.jobParamsEncoder = jobParamsEncoder;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+    this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    /* PostgreSQL only honors the fetch size, and uses a cursor, outside auto-commit mode */
+    this.readOnlyTransactionTemplate =
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    this.readOnlyTransactionTemplate.setReadOnly(true);
+    this.tasksQuery = TASKS_QUERY.replace("{0}", tablePrefix);
+  }
+
+  @Override
+  public List<Task> findTasksByKey(String key) {
+    try {
+      return jdbcTemplate.query(
+          tasksQuery + " ORDER BY J.JOB_NAME", taskRowMapper, getSchedulerName(), key);
+    } catch (DataAccessException ex) {
+      log.error("Error retrieving tasks for {} key", key, ex);
+      throw new SchedulingException("An exception occurred while retrieving task details.", ex);
+    }
+  }
+
+  @Override
+  public List<Task> findTasksPageByKey(String key, String afterTaskId, int limit) {
+    try {
+      return afterTaskId != null
+          ? jdbcTemplate.query(
+              tasksQuery + " AND J.JOB_NAME > ? ORDER BY J.JOB_NAME LIMIT ?",
+              taskRowMapper,
+              getSchedulerName(),
+              key,
+              SchedulingService.JOB_NAME_PREFIX + afterTaskId,
+              limit)
+          : jdbcTemplate.query(
+              tasksQuery + " ORDER BY J.JOB_NAME LIMIT ?",
+              taskRowMapper,
+              getSchedulerName(),
+              key,
+              limit);
+    } catch (DataAccessException ex) {
+      log.error("Error retrieving tasks page for {} key", key, ex);
+      throw new SchedulingException("An exception occurred while retrieving task details.", ex);
+    }
+  }
+
+  @Override
+  public void streamTasksByKey(String key, Consumer<Task> taskConsumer) {
+    String schedulerName = getSchedulerName();
+    try {
+      readOnlyTransactionTemplate.executeWithoutResult(
+          status ->
+              streamingJdbcTemplate.query(
+                  tasksQuery + " ORDER BY J.JOB_NAME",
+                  (RowCallbackHandler) rs -> taskConsumer.accept(mapTask(rs, rs.getRow())),
+                  schedulerName,
+                  key));
+    } catch (DataAccessException ex) {
+      log.error("Error streaming tasks for {} key", key, ex);
+      throw new SchedulingException("An exception occurred while retrieving task details.", ex);
+    }
+  }
+
+  @Override
+  public Task findTask(String key, String taskId) {
+    try {
+      List<Task> tasks =
+          jdbcTemplate.query(
+              tasksQuery + " AND J.JOB_NAME = ?",
+              taskRowMapper,
+              getSchedulerName(),
+              key,
+              SchedulingService.JOB_NAME_PREFIX + taskId);
+      if (tasks.size() > 1) {
+        throw new SchedulingException("Unexpected trigger count found for task " + taskId);
+      }
+      return tasks.isEmpty() ? null : tasks.get(0);
+    } catch (DataAccessException ex) {
+      log.error("Error retrieving task {} for {} key", taskId, key, ex);
+      throw new SchedulingException("Cannot retrieve task " + taskId, ex);
+    }
+  }
+
+  @Override
+  public List<Task> findTasks(String key, Collection<String> taskIds) {
+    List<String> jobNames =
+        taskIds.stream()
+            .distinct()
+            .sorted()
+            .map(taskId -> SchedulingService.JOB_NAME_PREFIX + taskId)
+            .collect(Collectors.toList());
+    String schedulerName = getSchedulerName();
+    List<Task> tasks = new ArrayList<>(jobNames.size());
+    try {
+      for (int index = 0; index < jobNames.size(); index += MAX_IN_CLAUSE_SIZE) {
+        List<String> chunk =
+            jobNames.subList(index, Math.min(index + MAX_IN_CLAUSE_SIZE, jobNames.size()));
+        List<Object> args = new ArrayList<>(chunk.size() + 2);
+        args.add(schedulerName);
+        args.add(key);
+        args.addAll(chunk);
+        tasks.addAll(
+            jdbcTemplate.query(
+                tasksQuery
+                    + " AND J.JOB_NAME IN ("
+                    + String.join(", ", Collections.nCopies(chunk.size(), "?"))
+                    + ") ORDER BY J.JOB_NAME",
+                taskRowMapper,
+                args.toArray()));
+      }
+      return tasks;
+    } catch (DataAccessException ex) {
+      log.error("Error retrieving {} tasks for {} key", jobNames.size(), key, ex);
+      throw new SchedulingException("An exception occurred while retrieving task details.", ex);
+    }
+  }
+
+  private Task mapTask(ResultSet rs, int rowNum) throws SQLException {
+    String cronExpression = rs.getString("CRON_EXPRESSION");
+    String timeZoneId = rs.getString("TIME_ZONE_ID");
+    return new Task(
+        rs.getString("JOB_NAME").replaceFirst(SchedulingService.JOB_NAME_PREFIX, ""),
+        rs.getString("JOB_GROUP"),
+        ZonedDateTime.ofInstant(Instant.ofEpochMilli(rs.getLong("START_TIME")), ZoneOffset.UTC),
+        cronExpression,
+        SchedulingService.getMisfirePolicy(cronExpression != null, rs.getInt("MISFIRE_INSTR")),
+        timeZoneId != null ? TimeZone.getTimeZone(timeZoneId) : null,
+        jobParamsEncoder.getDecodeTaskData(readJobDataMap(rs)));
+  }
+
+  private static JobDataMap readJobDataMap(ResultSet rs) throws SQLException {
+    /* Same java serialized map Quartz stores when jobStore.useProperties is false */
+    byte[] jobData = rs.getBytes("JOB_DATA");
+    if (jobData == null || jobData.length == 0) {
+      return new JobDataMap();
+    }
+    try (ObjectInputStream inputStream =
+        new ObjectInputStream(new ByteArrayInputStream(jobData))) {
+      return new JobDataMap((Map<?, ?>) inputStream.readObject());
+    } catch (IOException | ClassNotFoundException ex) {
+      throw new SchedulerServiceException("Cannot deserialize job data map", ex);
+    }
+  }
+
+  private String getSchedulerName() {
+    try {
+      return scheduler.getSchedulerName();
+    } catch (SchedulerException ex) {
+      throw new SchedulingException("Cannot retrieve the scheduler name", ex);
+    }
+  }
+}
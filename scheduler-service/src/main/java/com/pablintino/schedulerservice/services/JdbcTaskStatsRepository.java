@@ -0,0 +1,166 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.exceptions.SchedulingException;
+import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/* Execution statistics live in their own narrow table. Each fire only touches a few columns */
+@Slf4j
+public class JdbcTaskStatsRepository implements ITaskStatsRepository {
+
+  private static final String STATS_COLUMNS =
+      "S.TRIGGER_TIME, S.LAST_FAILURE_TIME, S.NOTIFICATION_ATTEMPT, S.FAILURES, S.EXECUTIONS";
+  private static final String KEY_CONDITION =
+      " WHERE SCHED_NAME = ? AND JOB_NAME = ? AND JOB_GROUP = ?";
+
+  /* A single statement, concurrent first fires cannot both try to create the row */
+  private static final String REGISTER_EXECUTION_UPSERT =
+      "INSERT INTO {0}TASK_STATS AS S (SCHED_NAME, JOB_NAME, JOB_GROUP, TRIGGER_TIME,"
+          + " NOTIFICATION_ATTEMPT, FAILURES, EXECUTIONS) VALUES (?, ?, ?, ?, 0, 0, 1)"
+          + " ON CONFLICT (SCHED_NAME, JOB_NAME, JOB_GROUP) DO UPDATE SET"
+          + " EXECUTIONS = S.EXECUTIONS + 1, TRIGGER_TIME = EXCLUDED.TRIGGER_TIME RETURNING "
+          + STATS_COLUMNS;
+  private static final String REGISTER_FAILURE_UPDATE =
+      "UPDATE {0}TASK_STATS SET FAILURES = FAILURES + 1, LAST_FAILURE_TIME = ?,"
+          + " NOTIFICATION_ATTEMPT = ?"
+          + KEY_CONDITION;
+  private static final String RESET_ATTEMPT_UPDATE =
+      "UPDATE {0}TASK_STATS SET NOTIFICATION_ATTEMPT = 0" + KEY_CONDITION;
+  /* Tasks that exist but never fired have no stats row yet */
+  private static final String TASK_STATS_QUERY =
+      "SELECT "
+          + STATS_COLUMNS
+          + " FROM {0}JOB_DETAILS J LEFT JOIN {0}TASK_STATS S ON S.SCHED_NAME = J.SCHED_NAME"
+          + " AND S.JOB_NAME = J.JOB_NAME AND S.JOB_GROUP = J.JOB_GROUP"
+          + " WHERE J.SCHED_NAME = ? AND J.JOB_NAME = ? AND J.JOB_GROUP = ?";
+  private static final String STATS_DELETE = "DELETE FROM {0}TASK_STATS" + KEY_CONDITION;
+
+  private final Scheduler scheduler;
+  private final JdbcTemplate jdbcTemplate;
+  private final String registerExecutionUpsert;
+  private final String registerFailureUpdate;
+  private final String resetAttemptUpdate;
+  private final String taskStatsQuery;
+  private final String statsDelete;
+
+  public JdbcTaskStatsRepository(Scheduler scheduler, DataSource dataSource, String tablePrefix) {
+    this.scheduler = scheduler;
+    this.jdbcTemplate = new JdbcTemplate(dataSource);
+    this.registerExecutionUpsert = REGISTER_EXECUTION_UPSERT.replace("{0}", tablePrefix);
+    this.registerFailureUpdate = REGISTER_FAILURE_UPDATE.replace("{0}", tablePrefix);
+    this.resetAttemptUpdate = RESET_ATTEMPT_UPDATE.replace("{0}", tablePrefix);
+    this.taskStatsQuery = TASK_STATS_QUERY.replace("{0}", tablePrefix);
+    this.statsDelete = STATS_DELETE.replace("{0}", tablePrefix);
+  }
+
+  @Override
+  public ScheduleJobMetadata registerExecution(JobKey jobKey, Instant triggerTime) {
+    try {
+      return jdbcTemplate.queryForObject(
+          registerExecutionUpsert,
+          (rs, rowNum) -> mapStats(rs),
+          getSchedulerName(),
+          jobKey.getName(),
+          jobKey.getGroup(),
+          triggerTime.toEpochMilli());
+    } catch (DataAccessException ex) {
+      log.error("Error registering execution of job {}", jobKey, ex);
+      throw new SchedulingException("Cannot register the execution of " + jobKey, ex);
+    }
+  }
+
+  @Override
+  public void registerFailure(JobKey jobKey, Instant failureTime, long notificationAttempt) {
+    update(
+        registerFailureUpdate,
+        jobKey,
+        failureTime.toEpochMilli(),
+        notificationAttempt,
+        getSchedulerName(),
+        jobKey.getName(),
+        jobKey.getGroup());
+  }
+
+  @Override
+  public void resetNotificationAttempt(JobKey jobKey) {
+    update(resetAttemptUpdate, jobKey, getSchedulerName(), jobKey.getName(), jobKey.getGroup());
+  }
+
+  @Override
+  public ScheduleJobMetadata findStats(JobKey jobKey) {
+    try {
+      List<ScheduleJobMetadata> stats =
+          jdbcTemplate.query(
+              taskStatsQuery,
+              (rs, rowNum) -> mapStats(rs),
+              getSchedulerName(),
+              jobKey.getName(),
+              jobKey.getGroup());
+      return stats.isEmpty() ? null : stats.get(0);
+    } catch (DataAccessException ex) {
+      throw new SchedulingException(
+          "An exception occurred while retrieving task stats details.", ex);
+    }
+  }
+
+  @Override
+  public void deleteStats(Collection<JobKey> jobKeys) {
+    String schedulerName = getSchedulerName();
+    try {
+      jdbcTemplate.batchUpdate(
+          statsDelete,
+          jobKeys.stream()
+              .map(jobKey -> new Object[] {schedulerName, jobKey.getName(), jobKey.getGroup()})
+              .collect(Collectors.toList()));
+    } catch (DataAccessException ex) {
+      log.error("Error deleting stats of {} jobs", jobKeys.size(), ex);
+      throw new SchedulingException("Cannot delete task stats", ex);
+    }
+  }
+
+  private void update(String sql, JobKey jobKey, Object... args) {
+    try {
+      jdbcTemplate.update(sql, args);
+    } catch (DataAccessException ex) {
+      log.error("Error updating stats of job {}", jobKey, ex);
+      throw new SchedulingException("Cannot update the stats of " + jobKey, ex);
+    }
+  }
+
+  private static ScheduleJobMetadata mapStats(ResultSet rs) throws SQLException {
+    ScheduleJobMetadata metadata = new ScheduleJobMetadata();
+    metadata.setTriggerTime(getInstant(rs, "TRIGGER_TIME"));
+    metadata.setLastFailureTime(getInstant(rs, "LAST_FAILURE_TIME"));
+    /* Null columns, from the join of a task without stats, are read as zero */
+    metadata.setNotificationAttempt(rs.getLong("NOTIFICATION_ATTEMPT"));
+    metadata.setFailures(rs.getLong("FAILURES"));
+    metadata.setExecutions(rs.getLong("EXECUTIONS"));
+    return metadata;
+  }
+
+  private static Instant getInstant(ResultSet rs, String column) throws SQLException {
+    long epochMillis = rs.getLong(column);
+    return rs.wasNull() ? null : Instant.ofEpochMilli(epochMillis);
+  }
+
+  private String getSchedulerName() {
+    try {
+      return scheduler.getSchedulerName();
+    } catch (SchedulerException ex) {
+      throw new SchedulingException("Cannot retrieve the scheduler name", ex);
+    }
+  }
+}
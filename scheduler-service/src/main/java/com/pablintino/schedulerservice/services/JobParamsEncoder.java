@@ -1,19 +1,26 @@
 package com.pablintino.schedulerservice.services;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.pablintino.schedulerservice.exceptions.SchedulerServiceException;
 import com.pablintino.schedulerservice.exceptions.SchedulerValidationException;
 import com.pablintino.schedulerservice.models.Endpoint;
+import com.pablintino.schedulerservice.models.RawJsonData;
 import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
 import com.pablintino.schedulerservice.models.SchedulerJobData;
 import com.pablintino.schedulerservice.models.Task;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.JobDataMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Collections;
@@ -22,21 +29,45 @@ import java.util.Map;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JobParamsEncoder implements IJobParamsEncoder {
 
   private static final String SCHEDULER_JOB_DATA_PROPERTY_NAME = "__sch-data";
   private static final String SCHEDULER_TASK_DATA_NAME = "__sch-task-data";
+  private static final String SCHEDULER_TASK_JSON_NAME = "__sch-task-json";
+
+  /* Binary values are prefixed by a format version. Legacy values are JSON/Base64 strings */
+  private static final byte SMILE_FORMAT_VERSION = 1;
+
   private final ObjectMapper objectMapper;
+  private final SmileFactory smileFactory;
+  private final boolean binaryEncoding;
+
+  public JobParamsEncoder(ObjectMapper objectMapper) {
+    this(objectMapper, true);
+  }
+
+  @Autowired
+  public JobParamsEncoder(
+      ObjectMapper objectMapper,
+      @Value("${com.pablintino.scheduler.job-data.binary-encoding:true}") boolean binaryEncoding) {
+    this.objectMapper = objectMapper;
+    this.binaryEncoding = binaryEncoding;
+    this.smileFactory = new SmileFactory();
+  }
 
   @Override
-  public Map<String, String> createEncodeJobParameters(Task task, Endpoint endpoint)
+  public Map<String, Object> createEncodeJobParameters(Task task, Endpoint endpoint)
       throws SchedulerValidationException {
-    HashMap<String, String> parametersMap = new HashMap<>();
+    HashMap<String, Object> parametersMap = new HashMap<>();
 
     parametersMap.put(
         SCHEDULER_JOB_DATA_PROPERTY_NAME, createEncodeSchedulerParameters(task, endpoint));
-    parametersMap.put(SCHEDULER_TASK_DATA_NAME, createEncodeTaskParameters(task));
+    if (binaryEncoding) {
+      /* Plain JSON bytes, so callbacks can embed them as they are */
+      parametersMap.put(SCHEDULER_TASK_JSON_NAME, createEncodeTaskJson(task));
+    } else {
+      parametersMap.put(SCHEDULER_TASK_DATA_NAME, createEncodeTaskParameters(task));
+    }
 
     return parametersMap;
   }
@@ -51,9 +82,8 @@ public class JobParamsEncoder implements IJobParamsEncoder {
     }
 
     try {
-      jobDataMap.put(
-          SCHEDULER_JOB_DATA_PROPERTY_NAME, objectMapper.writeValueAsString(schedulerJobData));
-    } catch (JsonProcessingException ex) {
+      jobDataMap.put(SCHEDULER_JOB_DATA_PROPERTY_NAME, encodeValue(schedulerJobData));
+    } catch (IOException ex) {
       log.error(
           "Cannot serialize SchedulerJobData for task key {} and id {}",
           schedulerJobData.getKey(),
@@ -65,11 +95,29 @@ public class JobParamsEncoder implements IJobParamsEncoder {
 
   @Override
   public Object getDecodeTaskData(JobDataMap jobDataMap) {
-    if (jobDataMap.containsKey(SCHEDULER_TASK_DATA_NAME)) {
+    RawJsonData rawTaskData = getRawTaskData(jobDataMap);
+    if (rawTaskData != null) {
+      try {
+        return objectMapper.readValue(rawTaskData.getJson(), Object.class);
+      } catch (IOException ex) {
+        /* Shouldn't happen as all tasks payload are validated by the serializer on creation */
+        log.error("Error while deserializing task data object", ex);
+        throw new SchedulerServiceException("Cannot task data payload", ex);
+      }
+    }
+
+    Object taskData = jobDataMap.get(SCHEDULER_TASK_DATA_NAME);
+    if (taskData instanceof byte[]) {
+      try {
+        return decodeBinaryValue((byte[]) taskData, Object.class);
+      } catch (IOException ex) {
+        /* Shouldn't happen as all tasks payload are validated by the serializer on creation */
+        log.error("Error while deserializing task data object", ex);
+        throw new SchedulerServiceException("Cannot task data payload", ex);
+      }
+    } else if (taskData != null) {
       String serializedTaskData =
-          new String(
-              Base64.getDecoder().decode(jobDataMap.getString(SCHEDULER_TASK_DATA_NAME)),
-              StandardCharsets.UTF_8);
+          new String(Base64.getDecoder().decode((String) taskData), StandardCharsets.UTF_8);
       try {
         return objectMapper.readValue(serializedTaskData, Object.class);
       } catch (JsonProcessingException ex) {
@@ -81,32 +129,49 @@ public class JobParamsEncoder implements IJobParamsEncoder {
     return null;
   }
 
+  @Override
+  public RawJsonData getRawTaskData(JobDataMap jobDataMap) {
+    Object taskJson = jobDataMap.get(SCHEDULER_TASK_JSON_NAME);
+    return taskJson instanceof byte[] ? new RawJsonData((byte[]) taskJson) : null;
+  }
+
+  @Override
+  public Object getEncodedTaskData(JobDataMap jobDataMap) {
+    return jobDataMap.containsKey(SCHEDULER_TASK_JSON_NAME)
+        ? null
+        : jobDataMap.get(SCHEDULER_TASK_DATA_NAME);
+  }
+
   @Override
   public SchedulerJobData getDecodeSchedulerJobData(JobDataMap jobDataMap) {
     if (!jobDataMap.containsKey(SCHEDULER_JOB_DATA_PROPERTY_NAME)) {
       throw new SchedulerServiceException(
           "JobDataMap doesn't contain the internal scheduler property");
     }
+    Object jobData = jobDataMap.get(SCHEDULER_JOB_DATA_PROPERTY_NAME);
     try {
-      return objectMapper.readValue(
-          jobDataMap.getString(SCHEDULER_JOB_DATA_PROPERTY_NAME), SchedulerJobData.class);
-    } catch (JsonProcessingException ex) {
+      return jobData instanceof byte[]
+          ? decodeBinaryValue((byte[]) jobData, SchedulerJobData.class)
+          : objectMapper.readValue((String) jobData, SchedulerJobData.class);
+    } catch (IOException ex) {
       throw new SchedulerServiceException("Cannot deserialize internal json datamap", ex);
     }
   }
 
-  private String createEncodeSchedulerParameters(Task task, Endpoint endpoint) {
+  private Object createEncodeSchedulerParameters(Task task, Endpoint endpoint) {
     SchedulerJobData jobData =
         new SchedulerJobData(
             task.getId(),
             task.getKey(),
             endpoint.getCallbackUrl(),
             endpoint.getCallbackType(),
-            new ScheduleJobMetadata());
+            new ScheduleJobMetadata(),
+            endpoint.getRetryPolicy(),
+            endpoint.isBatched());
 
     try {
-      return objectMapper.writeValueAsString(jobData);
-    } catch (JsonProcessingException ex) {
+      return encodeValue(jobData);
+    } catch (IOException ex) {
       log.error(
           "Cannot serialize SchedulerJobData for task key {} and id {}",
           task.getKey(),
@@ -116,17 +181,27 @@ public class JobParamsEncoder implements IJobParamsEncoder {
     }
   }
 
+  /* Legacy JSON/Base64 task data, only written with the binary encoding disabled */
   private String createEncodeTaskParameters(Task task) throws SchedulerValidationException {
-
+    Object taskData = task.getTaskData() != null ? task.getTaskData() : Collections.emptyMap();
     try {
-
       return Base64.getEncoder()
           .encodeToString(
-              objectMapper
-                  .writeValueAsString(
-                      task.getTaskData() != null ? task.getTaskData() : Collections.emptyMap())
-                  .getBytes(StandardCharsets.UTF_8));
+              objectMapper.writeValueAsString(taskData).getBytes(StandardCharsets.UTF_8));
+    } catch (JsonProcessingException ex) {
+      log.warn(
+          "Cannot serialize Task data payload for task key {} and id {}",
+          task.getKey(),
+          task.getId(),
+          ex);
+      throw new SchedulerValidationException("Task data payload must be JSON serializable", ex);
+    }
+  }
 
+  private byte[] createEncodeTaskJson(Task task) throws SchedulerValidationException {
+    Object taskData = task.getTaskData() != null ? task.getTaskData() : Collections.emptyMap();
+    try {
+      return objectMapper.writeValueAsBytes(taskData);
     } catch (JsonProcessingException ex) {
       log.warn(
           "Cannot serialize Task data payload for task key {} and id {}",
@@ -136,4 +211,27 @@ public class JobParamsEncoder implements IJobParamsEncoder {
       throw new SchedulerValidationException("Task data payload must be JSON serializable", ex);
     }
   }
+
+  private Object encodeValue(Object value) throws IOException {
+    return binaryEncoding ? encodeBinaryValue(value) : objectMapper.writeValueAsString(value);
+  }
+
+  private byte[] encodeBinaryValue(Object value) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    outputStream.write(SMILE_FORMAT_VERSION);
+    /* The application mapper drives the generator, so its modules and settings still apply */
+    try (JsonGenerator generator = smileFactory.createGenerator(outputStream)) {
+      objectMapper.writeValue(generator, value);
+    }
+    return outputStream.toByteArray();
+  }
+
+  private <T> T decodeBinaryValue(byte[] value, Class<T> type) throws IOException {
+    if (value.length == 0 || value[0] != SMILE_FORMAT_VERSION) {
+      throw new IOException("Unsupported job data format version");
+    }
+    try (JsonParser parser = smileFactory.createParser(value, 1, value.length - 1)) {
+      return objectMapper.readValue(parser, type);
+    }
+  }
 }
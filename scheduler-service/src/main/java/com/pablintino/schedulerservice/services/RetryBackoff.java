@@ -0,0 +1,69 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.RetryPolicy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class RetryBackoff {
+
+  private final long initialDelay;
+  private final long maxDelay;
+  private final double multiplier;
+  private final boolean jitter;
+  /* Null draws the jitter from the random of the calling thread */
+  private final Random random;
+
+  @Autowired
+  public RetryBackoff(
+      @Value("${com.pablintino.scheduler.failure-attempt-delay:5000}") long initialDelay,
+      @Value("${com.pablintino.scheduler.failure-attempt-max-delay:300000}") long maxDelay,
+      @Value("${com.pablintino.scheduler.failure-attempt-multiplier:2}") double multiplier,
+      @Value("${com.pablintino.scheduler.failure-attempt-jitter:true}") boolean jitter) {
+    this(initialDelay, maxDelay, multiplier, jitter, null);
+  }
+
+  public RetryBackoff(
+      long initialDelay, long maxDelay, double multiplier, boolean jitter, Random random) {
+    this.initialDelay = initialDelay;
+    this.maxDelay = maxDelay;
+    this.multiplier = multiplier;
+    this.jitter = jitter;
+    this.random = random;
+  }
+
+  public long getDelay(RetryPolicy retryPolicy, long attemptNumber) {
+    long policyInitialDelay = initialDelay;
+    long policyMaxDelay = maxDelay;
+    double policyMultiplier = multiplier;
+    if (retryPolicy != null) {
+      if (retryPolicy.getInitialDelay() != null) {
+        policyInitialDelay = retryPolicy.getInitialDelay();
+      }
+      if (retryPolicy.getMaxDelay() != null) {
+        policyMaxDelay = retryPolicy.getMaxDelay();
+      }
+      if (retryPolicy.getMultiplier() != null) {
+        policyMultiplier = retryPolicy.getMultiplier();
+      }
+    }
+    /*
+     * Exponential backoff with full jitter. Retries of a failed receiver are spread over the
+     * whole window instead of coming back all together
+     */
+    double exponentialDelay = policyInitialDelay * Math.pow(policyMultiplier, attemptNumber - 1.0);
+    /* Overflowed powers are infinite and end up at the cap too */
+    long cappedDelay = (long) Math.min(policyMaxDelay, exponentialDelay);
+    if (!jitter || cappedDelay <= 0) {
+      return cappedDelay;
+    }
+    long bound = cappedDelay == Long.MAX_VALUE ? cappedDelay : cappedDelay + 1;
+    return random != null
+        ? (long) (random.nextDouble() * bound)
+        : ThreadLocalRandom.current().nextLong(bound);
+  }
+}
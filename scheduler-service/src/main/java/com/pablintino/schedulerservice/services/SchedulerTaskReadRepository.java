@@ -0,0 +1,130 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.exceptions.SchedulingException;
+import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.quartz.CallbackJob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.*;
+import org.quartz.impl.matchers.GroupMatcher;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/* Job store agnostic reads. Every task costs a job detail and a triggers lookup */
+@Slf4j
+@RequiredArgsConstructor
+public class SchedulerTaskReadRepository implements ITaskReadRepository {
+
+  private final Scheduler scheduler;
+  private final IJobParamsEncoder jobParamsEncoder;
+
+  @Override
+  public List<Task> findTasksByKey(String key) {
+    List<Task> tasks = new ArrayList<>();
+    streamTasksByKey(key, tasks::add);
+    return tasks;
+  }
+
+  @Override
+  public List<Task> findTasksPageByKey(String key, String afterTaskId, int limit) {
+    String afterJobName =
+        afterTaskId != null ? SchedulingService.JOB_NAME_PREFIX + afterTaskId : null;
+    List<Task> tasks = new ArrayList<>();
+    for (JobKey jobKey : getSortedJobKeys(key)) {
+      if (tasks.size() >= limit) {
+        break;
+      }
+      if (afterJobName == null || jobKey.getName().compareTo(afterJobName) > 0) {
+        addTaskFromJobKey(jobKey, tasks::add);
+      }
+    }
+    return tasks;
+  }
+
+  @Override
+  public void streamTasksByKey(String key, Consumer<Task> taskConsumer) {
+    for (JobKey jobKey : getSortedJobKeys(key)) {
+      addTaskFromJobKey(jobKey, taskConsumer);
+    }
+  }
+
+  @Override
+  public Task findTask(String key, String taskId) {
+    List<Task> tasks = new ArrayList<>(1);
+    addTaskFromJobKey(JobKey.jobKey(SchedulingService.JOB_NAME_PREFIX + taskId, key), tasks::add);
+    return tasks.isEmpty() ? null : tasks.get(0);
+  }
+
+  @Override
+  public List<Task> findTasks(String key, Collection<String> taskIds) {
+    List<Task> tasks = new ArrayList<>(taskIds.size());
+    taskIds.stream()
+        .distinct()
+        .sorted()
+        .forEach(
+            taskId ->
+                addTaskFromJobKey(
+                    JobKey.jobKey(SchedulingService.JOB_NAME_PREFIX + taskId, key), tasks::add));
+    return tasks;
+  }
+
+  private List<JobKey> getSortedJobKeys(String key) {
+    try {
+      return scheduler.getJobKeys(GroupMatcher.groupEquals(key)).stream()
+          .sorted(Comparator.comparing(JobKey::getName))
+          .collect(Collectors.toList());
+    } catch (SchedulerException ex) {
+      log.error("Error retrieving tasks for {} key", key, ex);
+      throw new SchedulingException("An exception occurred while retrieving task details.", ex);
+    }
+  }
+
+  private void addTaskFromJobKey(JobKey jobKey, Consumer<Task> taskConsumer) {
+    try {
+      /* Tasks deleted while iterating are just skipped */
+      JobDetail jobDetail = scheduler.getJobDetail(jobKey);
+      if (jobDetail != null) {
+        /*
+         * Deferred fires get their own one-shot triggers, the task is the one of its schedule.
+         * Once the schedule ends, only its last deferred fires are left and nothing is listed
+         */
+        List<? extends Trigger> triggers =
+            scheduler.getTriggersOfJob(jobKey).stream()
+                .filter(trigger -> !CallbackJob.isDeferralTrigger(trigger.getKey()))
+                .collect(Collectors.toList());
+        if (triggers.isEmpty()) {
+          return;
+        }
+        if (triggers.size() == 1) {
+          Trigger trigger = triggers.get(0);
+          CronTrigger cronTrigger = trigger instanceof CronTrigger ? (CronTrigger) trigger : null;
+          String cronExpression = cronTrigger != null ? cronTrigger.getCronExpression() : null;
+
+          taskConsumer.accept(
+              new Task(
+                  jobKey.getName().replaceFirst(SchedulingService.JOB_NAME_PREFIX, ""),
+                  jobKey.getGroup(),
+                  ZonedDateTime.ofInstant(trigger.getStartTime().toInstant(), ZoneOffset.UTC),
+                  cronExpression,
+                  SchedulingService.getMisfirePolicy(
+                      cronExpression != null, trigger.getMisfireInstruction()),
+                  cronTrigger != null ? cronTrigger.getTimeZone() : null,
+                  jobParamsEncoder.getDecodeTaskData(jobDetail.getJobDataMap())));
+          return;
+        }
+        throw new SchedulingException("Unexpected trigger count found for " + jobKey + " job");
+      }
+    } catch (SchedulerException ex) {
+      /* Internal error that can be changed to a runtime one as is not a common condition */
+      log.error("Error retrieving jobdetails/triggers for key {}", jobKey, ex);
+      throw new SchedulingException("Cannot retrieve tasks for key " + jobKey, ex);
+    }
+  }
+}
@@ -4,162 +4,265 @@ import com.pablintino.schedulerservice.exceptions.SchedulerValidationException;
 import com.pablintino.schedulerservice.exceptions.SchedulingException;
 import com.pablintino.schedulerservice.models.CallbackType;
 import com.pablintino.schedulerservice.models.Endpoint;
+import com.pablintino.schedulerservice.models.MisfirePolicy;
+import com.pablintino.schedulerservice.models.RetryPolicy;
 import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
 import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.models.TaskSchedulingResult;
+import com.pablintino.schedulerservice.models.TasksPage;
 import com.pablintino.schedulerservice.quartz.CallbackJob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.quartz.*;
 import org.quartz.impl.matchers.GroupMatcher;
 import org.springframework.stereotype.Service;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Date;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SchedulingService implements ISchedulingService {
 
-  private static final String TRIGGER_NAME_PREFIX = "cbtrg-";
-  private static final String JOB_NAME_PREFIX = "cbjob-";
+  static final String TRIGGER_NAME_PREFIX = "cbtrg-";
+  static final String JOB_NAME_PREFIX = "cbjob-";
+  private static final int DELETE_CHUNK_SIZE = 500;
 
   private final Scheduler scheduler;
   private final IJobParamsEncoder jobParamsEncoder;
+  private final ITaskReadRepository taskReadRepository;
+  private final ITaskDataCache taskDataCache;
+  private final ITaskStatsRepository taskStatsRepository;
+  private final ICronExpressionCache cronExpressionCache;
 
   @Override
   public void scheduleTask(Task task, Endpoint endpoint) throws SchedulerValidationException {
+    Trigger trigger = prepareNewTrigger(task);
+    JobDetail job = prepareNewJob(task, endpoint);
     try {
-
-      Trigger trigger = prepareNewTrigger(task);
-      JobDetail job = prepareNewJob(task, endpoint);
+      /* Existence is checked by the job store itself, by primary key, in the same transaction */
       scheduler.scheduleJob(job, trigger);
+    } catch (ObjectAlreadyExistsException ex) {
+      throw new SchedulerValidationException(
+          "Task " + task.getId() + " has been already scheduled", ex);
     } catch (SchedulerException ex) {
       log.error("Error scheduling job for task {} and endpoint {}", task, endpoint, ex);
       throw new SchedulingException("An error occurred when scheduling a job", ex);
     }
   }
 
+  @Override
+  public List<TaskSchedulingResult> scheduleTasks(List<Pair<Task, Endpoint>> tasks) {
+    List<TaskSchedulingResult> results = new ArrayList<>(tasks.size());
+    Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers = new LinkedHashMap<>();
+    Map<JobKey, Integer> resultIndexes = new HashMap<>();
+    for (Pair<Task, Endpoint> entry : tasks) {
+      Task task = entry.getLeft();
+      JobKey jobKey = JobKey.jobKey(JOB_NAME_PREFIX + task.getId(), task.getKey());
+      try {
+        if (resultIndexes.containsKey(jobKey)) {
+          throw new SchedulerValidationException(
+              "Task " + task.getId() + " has been already scheduled");
+        }
+        jobsAndTriggers.put(
+            prepareNewJob(task, entry.getRight()), Collections.singleton(prepareNewTrigger(task)));
+        resultIndexes.put(jobKey, results.size());
+        results.add(TaskSchedulingResult.scheduled(task));
+      } catch (SchedulerValidationException ex) {
+        results.add(TaskSchedulingResult.rejected(task, ex.getMessage()));
+      }
+    }
+
+    if (!jobsAndTriggers.isEmpty()) {
+      storeJobsAndTriggers(jobsAndTriggers, resultIndexes, results);
+    }
+    return results;
+  }
+
   @Override
   public void deleteTask(String taskKey, String taskId) {
     JobKey jobKey = JobKey.jobKey(JOB_NAME_PREFIX + taskId, taskKey);
     try {
       scheduler.deleteJob(jobKey);
+      taskDataCache.invalidate(jobKey);
+      taskStatsRepository.deleteStats(Collections.singleton(jobKey));
     } catch (SchedulerException ex) {
       log.error("Error deleting job for task key {} and id {}", taskKey, taskId, ex);
       throw new SchedulingException("An error occurred while deleting a task " + jobKey, ex);
     }
   }
 
+  @Override
+  public long deleteTasks(String taskKey) {
+    return deleteJobs(taskKey, getJobKeys(taskKey));
+  }
+
+  @Override
+  public long deleteTasks(String taskKey, Collection<String> taskIds) {
+    /* Unknown ids are left out, so they are not reported as deleted. Read as a single set */
+    return deleteJobs(
+        taskKey,
+        taskReadRepository.findTasks(taskKey, taskIds).stream()
+            .map(task -> JobKey.jobKey(JOB_NAME_PREFIX + task.getId(), taskKey))
+            .collect(Collectors.toList()));
+  }
+
   @Override
   public List<Task> getTasksForKey(String key) {
-    List<Task> tasks = new ArrayList<>();
-    try {
-      for (JobKey jobKey : scheduler.getJobKeys(GroupMatcher.groupEquals(key))) {
-        tasks.add(getTaskFromJobKey(jobKey));
-      }
-    } catch (SchedulerException ex) {
-      log.error("Error retrieving tasks for {} key", key, ex);
-      throw new SchedulingException("An exception occurred while retrieving task details.", ex);
+    return taskReadRepository.findTasksByKey(key);
+  }
+
+  @Override
+  public TasksPage getTasksPageForKey(String key, String after, int limit)
+      throws SchedulerValidationException {
+    if (limit < 1) {
+      throw new SchedulerValidationException("Page limit must be a positive number");
+    }
+    /* One extra task is fetched to know if a next page exists */
+    List<Task> tasks =
+        taskReadRepository.findTasksPageByKey(
+            key, after != null ? decodeCursor(after) : null, limit + 1);
+    if (tasks.size() > limit) {
+      return new TasksPage(
+          tasks.subList(0, limit), encodeCursor(tasks.get(limit - 1).getId()));
     }
-    return tasks;
+    return new TasksPage(tasks, null);
+  }
+
+  @Override
+  public void streamTasksForKey(String key, Consumer<Task> taskConsumer) {
+    taskReadRepository.streamTasksByKey(key, taskConsumer);
   }
 
   @Override
   public Task getTask(String key, String taskId) {
-    return getTaskFromJobKey(JobKey.jobKey(JOB_NAME_PREFIX + taskId, key));
+    return taskReadRepository.findTask(key, taskId);
   }
 
   @Override
   public ScheduleJobMetadata getSchedulerJobMetadata(String key, String taskId) {
-    try {
-      JobDetail jobDetail = scheduler.getJobDetail(JobKey.jobKey(JOB_NAME_PREFIX + taskId, key));
-      return jobDetail != null
-          ? jobParamsEncoder.getDecodeSchedulerJobData(jobDetail.getJobDataMap()).getMetadata()
-          : null;
-    } catch (SchedulerException ex) {
-      throw new SchedulingException(
-          "An exception occurred while retrieving task stats details.", ex);
-    }
+    return taskStatsRepository.findStats(JobKey.jobKey(JOB_NAME_PREFIX + taskId, key));
   }
 
-  private Task getTaskFromJobKey(JobKey jobKey) {
+  @Override
+  public List<ZonedDateTime> getTaskNextFireTimes(String key, String taskId, int count)
+      throws SchedulerValidationException {
+    if (count <= 0) {
+      throw new SchedulerValidationException("Next fire times count must be a positive number");
+    }
+    Task task = taskReadRepository.findTask(key, taskId);
+    if (task == null) {
+      return null;
+    }
+
+    ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+    if (StringUtils.isBlank(task.getCronExpression())) {
+      return task.getTriggerTime().isAfter(now)
+          ? Collections.singletonList(task.getTriggerTime())
+          : Collections.emptyList();
+    }
+
+    /* Same as Quartz, a cron trigger never fires before its start time */
+    Date after =
+        task.getTriggerTime().isAfter(now)
+            ? Date.from(task.getTriggerTime().toInstant().minusSeconds(1))
+            : Date.from(now.toInstant());
     try {
-      JobDetail jobDetail = scheduler.getJobDetail(jobKey);
-      if (jobDetail != null) {
-        List<? extends Trigger> triggers = scheduler.getTriggersOfJob(jobKey);
-        if (triggers.size() == 1) {
-          Trigger trigger = triggers.get(0);
-          String cronExpression =
-              trigger instanceof CronTrigger ? ((CronTrigger) trigger).getCronExpression() : null;
-
-          return new Task(
-              jobKey.getName().replaceFirst(JOB_NAME_PREFIX, ""),
-              jobKey.getGroup(),
-              ZonedDateTime.ofInstant(trigger.getStartTime().toInstant(), ZoneOffset.UTC),
-              cronExpression,
-              jobParamsEncoder.getDecodeTaskData(jobDetail.getJobDataMap()));
-        }
-        throw new SchedulingException("Unexpected trigger count found for " + jobKey + " job");
-      }
-    } catch (SchedulerException ex) {
-      /* Internal error that can be changed to a runtime one as is not a common condition */
-      log.error("Error retrieving jobdetails/triggers for key {}", jobKey, ex);
-      throw new SchedulingException("Cannot retrieve tasks for key " + jobKey, ex);
+      return cronExpressionCache
+          .getNextFireTimes(task.getCronExpression(), getCronTimeZone(task), after, count)
+          .stream()
+          .map(fireTime -> ZonedDateTime.ofInstant(fireTime.toInstant(), ZoneOffset.UTC))
+          .collect(Collectors.toList());
+    } catch (ParseException ex) {
+      throw new SchedulingException("Cannot parse the cron expression of task " + taskId, ex);
     }
-    return null;
   }
 
   private Trigger prepareNewTrigger(Task task) throws SchedulerValidationException {
-    String triggerName = TRIGGER_NAME_PREFIX + task.getId();
-
     if (task.getTriggerTime().isBefore(ZonedDateTime.now(ZoneOffset.UTC))) {
       throw new SchedulerValidationException("Task time initial time is a past time");
     }
 
-    if (triggerExists(triggerName, task.getKey())) {
-      throw new SchedulerValidationException(
-          "Task " + task.getId() + " has been already scheduled");
-    }
-
     TriggerBuilder<Trigger> builder =
         TriggerBuilder.newTrigger()
-            .withIdentity(triggerName, task.getKey())
+            .withIdentity(TRIGGER_NAME_PREFIX + task.getId(), task.getKey())
             .startAt(Date.from(task.getTriggerTime().toInstant()));
 
     return StringUtils.isNotBlank(task.getCronExpression())
         ? prepareCronTrigger(builder, task)
-        : builder.withSchedule(SimpleScheduleBuilder.simpleSchedule()).build();
+        : builder.withSchedule(prepareSimpleSchedule(task.getMisfirePolicy())).build();
+  }
+
+  private static SimpleScheduleBuilder prepareSimpleSchedule(MisfirePolicy misfirePolicy) {
+    SimpleScheduleBuilder scheduleBuilder = SimpleScheduleBuilder.simpleSchedule();
+    /* Without a policy Quartz picks its smart one, that fires once as soon as possible */
+    if (misfirePolicy == MisfirePolicy.FIRE_ONCE) {
+      return scheduleBuilder.withMisfireHandlingInstructionFireNow();
+    } else if (misfirePolicy == MisfirePolicy.SKIP) {
+      /* A single fire has no next one, the missed trigger just completes */
+      return scheduleBuilder.withMisfireHandlingInstructionNextWithRemainingCount();
+    } else if (misfirePolicy == MisfirePolicy.FIRE_ALL) {
+      return scheduleBuilder.withMisfireHandlingInstructionIgnoreMisfires();
+    }
+    return scheduleBuilder;
   }
 
   private Trigger prepareCronTrigger(TriggerBuilder<Trigger> builder, Task task)
       throws SchedulerValidationException {
+    /* Validated against the cached expression, parsed once per expression and zone */
+    CronExpression cronExpression;
     try {
-      new CronExpression(task.getCronExpression());
+      cronExpression =
+          cronExpressionCache.getCronExpression(task.getCronExpression(), getCronTimeZone(task));
     } catch (ParseException ex) {
       throw new SchedulerValidationException(
           "The given cron expression is invalid " + task.getCronExpression(), ex);
     }
 
-    return builder.withSchedule(CronScheduleBuilder.cronSchedule(task.getCronExpression())).build();
+    /* The built trigger sets its time zone on the expression, so the shared one is never given */
+    CronScheduleBuilder scheduleBuilder =
+        CronScheduleBuilder.cronSchedule(new CronExpression(cronExpression));
+    if (task.getMisfirePolicy() == MisfirePolicy.FIRE_ONCE) {
+      scheduleBuilder.withMisfireHandlingInstructionFireAndProceed();
+    } else if (task.getMisfirePolicy() == MisfirePolicy.SKIP) {
+      scheduleBuilder.withMisfireHandlingInstructionDoNothing();
+    } else if (task.getMisfirePolicy() == MisfirePolicy.FIRE_ALL) {
+      scheduleBuilder.withMisfireHandlingInstructionIgnoreMisfires();
+    }
+    return builder.withSchedule(scheduleBuilder).build();
   }
 
-  private JobDetail prepareNewJob(Task task, Endpoint endpoint)
-      throws SchedulerException, SchedulerValidationException {
-    String jobName = JOB_NAME_PREFIX + task.getId();
+  private static TimeZone getCronTimeZone(Task task) {
+    /* Same as Quartz, cron triggers built without a zone fire in the default one */
+    return task.getTimeZone() != null ? task.getTimeZone() : TimeZone.getDefault();
+  }
 
-    if (jobExists(jobName, task.getKey())) {
-      throw new SchedulingException("Task " + task.getId() + " has been already scheduled");
+  static MisfirePolicy getMisfirePolicy(boolean cron, int misfireInstruction) {
+    /* Both the smart policy and the explicit fire now ones fire a single time */
+    if (misfireInstruction == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+      return MisfirePolicy.FIRE_ALL;
+    } else if (cron && misfireInstruction == CronTrigger.MISFIRE_INSTRUCTION_DO_NOTHING) {
+      return MisfirePolicy.SKIP;
+    } else if (!cron
+        && misfireInstruction
+            == SimpleTrigger.MISFIRE_INSTRUCTION_RESCHEDULE_NEXT_WITH_REMAINING_COUNT) {
+      return MisfirePolicy.SKIP;
     }
+    return MisfirePolicy.FIRE_ONCE;
+  }
 
+  private JobDetail prepareNewJob(Task task, Endpoint endpoint)
+      throws SchedulerValidationException {
     if (endpoint.getCallbackType() == CallbackType.HTTP) {
       try {
         URL url = new URL(endpoint.getCallbackUrl());
@@ -170,26 +273,113 @@ public class SchedulingService implements ISchedulingService {
         throw new SchedulerValidationException("Invalid endpoint URL", ex);
       }
     }
+    if (endpoint.isBatched() && endpoint.getCallbackType() != CallbackType.HTTP) {
+      throw new SchedulerValidationException("Batched delivery is only supported for HTTP");
+    }
+    validateRetryPolicy(endpoint.getRetryPolicy());
 
     return JobBuilder.newJob(CallbackJob.class)
-        .withIdentity(jobName, task.getKey())
+        .withIdentity(JOB_NAME_PREFIX + task.getId(), task.getKey())
         .setJobData(new JobDataMap(jobParamsEncoder.createEncodeJobParameters(task, endpoint)))
         .build();
   }
 
-  private boolean triggerExists(String triggerName, String key) {
+  private static void validateRetryPolicy(RetryPolicy retryPolicy)
+      throws SchedulerValidationException {
+    if (retryPolicy == null) {
+      return;
+    }
+    if ((retryPolicy.getInitialDelay() != null && retryPolicy.getInitialDelay() <= 0)
+        || (retryPolicy.getMaxDelay() != null && retryPolicy.getMaxDelay() <= 0)) {
+      throw new SchedulerValidationException("Retry delays must be positive numbers");
+    }
+    if (retryPolicy.getInitialDelay() != null
+        && retryPolicy.getMaxDelay() != null
+        && retryPolicy.getMaxDelay() < retryPolicy.getInitialDelay()) {
+      throw new SchedulerValidationException("Retry max delay cannot be lower than initial delay");
+    }
+    if (retryPolicy.getMultiplier() != null && retryPolicy.getMultiplier() < 1) {
+      throw new SchedulerValidationException("Retry multiplier cannot be lower than 1");
+    }
+  }
+
+  private Collection<JobKey> getJobKeys(String taskKey) {
+    try {
+      return scheduler.getJobKeys(GroupMatcher.groupEquals(taskKey));
+    } catch (SchedulerException ex) {
+      log.error("Error retrieving jobs for key {}", taskKey, ex);
+      throw new SchedulingException("Cannot retrieve tasks for key " + taskKey, ex);
+    }
+  }
+
+  /* Jobs found to exist, only a concurrent deletion of one of them could make the count off */
+  private long deleteJobs(String taskKey, Collection<JobKey> jobKeys) {
+    List<JobKey> pendingJobKeys = new ArrayList<>(jobKeys);
+    long deleted = 0;
+    /* Each chunk is removed in its own job store transaction */
+    for (int index = 0; index < pendingJobKeys.size(); index += DELETE_CHUNK_SIZE) {
+      List<JobKey> chunk =
+          pendingJobKeys.subList(
+              index, Math.min(index + DELETE_CHUNK_SIZE, pendingJobKeys.size()));
+      try {
+        if (!scheduler.deleteJobs(chunk)) {
+          log.debug("Some tasks of key {} were deleted concurrently", taskKey);
+        }
+        chunk.forEach(taskDataCache::invalidate);
+        taskStatsRepository.deleteStats(chunk);
+        deleted += chunk.size();
+      } catch (SchedulerException ex) {
+        log.error("Error deleting jobs for task key {}. Deleted {} jobs", taskKey, deleted, ex);
+        throw new SchedulingException("An error occurred while deleting tasks of " + taskKey, ex);
+      }
+    }
+    return deleted;
+  }
+
+  private void storeJobsAndTriggers(
+      Map<JobDetail, Set<? extends Trigger>> jobsAndTriggers,
+      Map<JobKey, Integer> resultIndexes,
+      List<TaskSchedulingResult> results) {
     try {
-      return scheduler.getTriggerKeys(GroupMatcher.groupEquals(key)).stream()
-          .anyMatch(tk -> tk.getName().equals(triggerName));
+      /* JobStoreTX persists the whole map in a single transaction */
+      scheduler.scheduleJobs(jobsAndTriggers, false);
+    } catch (ObjectAlreadyExistsException ex) {
+      /* One of the tasks already exists. Nothing was stored, go one by one */
+      log.debug("Batch scheduling collided with existing tasks. Falling back to single inserts");
+      for (Map.Entry<JobDetail, Set<? extends Trigger>> entry : jobsAndTriggers.entrySet()) {
+        int index = resultIndexes.get(entry.getKey().getKey());
+        try {
+          scheduler.scheduleJob(entry.getKey(), entry.getValue(), false);
+        } catch (ObjectAlreadyExistsException singleEx) {
+          TaskSchedulingResult result = results.get(index);
+          results.set(
+              index,
+              new TaskSchedulingResult(
+                  result.getTaskId(),
+                  result.getKey(),
+                  "Task " + result.getTaskId() + " has been already scheduled"));
+        } catch (SchedulerException singleEx) {
+          log.error("Error scheduling job {}", entry.getKey().getKey(), singleEx);
+          throw new SchedulingException("An error occurred when scheduling a job", singleEx);
+        }
+      }
     } catch (SchedulerException ex) {
-      /* Internal error that can be changed to a runtime one as is not a common condition */
-      log.error("Error retrieving trigger for key {}", key, ex);
-      throw new SchedulingException("Cannot retrieve trigger", ex);
+      log.error("Error scheduling a batch of {} jobs", jobsAndTriggers.size(), ex);
+      throw new SchedulingException("An error occurred when scheduling a batch of jobs", ex);
     }
   }
 
-  private boolean jobExists(String jobName, String key) throws SchedulerException {
-    return scheduler.getJobKeys(GroupMatcher.groupEquals(key)).stream()
-        .anyMatch(tk -> tk.getName().equals(jobName));
+  private static String encodeCursor(String taskId) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(taskId.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decodeCursor(String cursor) throws SchedulerValidationException {
+    try {
+      return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException ex) {
+      throw new SchedulerValidationException("Invalid page cursor " + cursor, ex);
+    }
   }
 }
@@ -0,0 +1,119 @@
+package com.pablintino.schedulerservice.services;
+
+import com.pablintino.schedulerservice.models.RawJsonData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.quartz.JobDataMap;
+import org.quartz.JobKey;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+ * Decoded task data of the legacy encodings, Smile or Base64 JSON. Raw JSON task data, written
+ * for new tasks while the binary encoding is on, is sent as it is stored and never goes through it
+ */
+@Component
+public class TaskDataCache implements ITaskDataCache {
+
+  private static final String CACHE_NAME = "task-data";
+
+  private final IJobParamsEncoder jobParamsEncoder;
+  private final int maxEntries;
+  private final Map<JobKey, CachedTaskData> entries;
+  private final Counter hitsCounter;
+  private final Counter missesCounter;
+  private final Counter evictionsCounter;
+
+  public TaskDataCache(
+      IJobParamsEncoder jobParamsEncoder,
+      MeterRegistry meterRegistry,
+      @Value("${com.pablintino.scheduler.task-data-cache.max-entries:10000}") int maxEntries) {
+    this.jobParamsEncoder = jobParamsEncoder;
+    this.maxEntries = maxEntries;
+    this.hitsCounter = buildGetsCounter(meterRegistry, "hit");
+    this.missesCounter = buildGetsCounter(meterRegistry, "miss");
+    this.evictionsCounter =
+        Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+    /* Access ordered map, so the least recently fired task is the one evicted */
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<JobKey, CachedTaskData> eldest) {
+            boolean evict = size() > TaskDataCache.this.maxEntries;
+            if (evict) {
+              evictionsCounter.increment();
+            }
+            return evict;
+          }
+        };
+    Gauge.builder("cache.size", this, TaskDataCache::size)
+        .tag("cache", CACHE_NAME)
+        .register(meterRegistry);
+  }
+
+  @Override
+  public Object getTaskData(JobKey jobKey, JobDataMap jobDataMap) {
+    /* Raw JSON task data is delivered without being decoded. Nothing to cache */
+    RawJsonData rawTaskData = jobParamsEncoder.getRawTaskData(jobDataMap);
+    if (rawTaskData != null) {
+      return rawTaskData;
+    }
+
+    if (maxEntries <= 0) {
+      return jobParamsEncoder.getDecodeTaskData(jobDataMap);
+    }
+
+    /* Stored payloads are compared, so a task re-created with another one is never served stale */
+    Object encodedTaskData = jobParamsEncoder.getEncodedTaskData(jobDataMap);
+    CachedTaskData cachedTaskData;
+    synchronized (entries) {
+      cachedTaskData = entries.get(jobKey);
+    }
+    if (cachedTaskData != null
+        && Objects.deepEquals(cachedTaskData.getEncodedTaskData(), encodedTaskData)) {
+      hitsCounter.increment();
+      return cachedTaskData.getTaskData();
+    }
+
+    missesCounter.increment();
+    Object taskData = jobParamsEncoder.getDecodeTaskData(jobDataMap);
+    synchronized (entries) {
+      entries.put(jobKey, new CachedTaskData(encodedTaskData, taskData));
+    }
+    return taskData;
+  }
+
+  @Override
+  public void invalidate(JobKey jobKey) {
+    synchronized (entries) {
+      entries.remove(jobKey);
+    }
+  }
+
+  private int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  private static Counter buildGetsCounter(MeterRegistry meterRegistry, String result) {
+    return Counter.builder("cache.gets")
+        .tag("cache", CACHE_NAME)
+        .tag("result", result)
+        .register(meterRegistry);
+  }
+
+  @Getter
+  @RequiredArgsConstructor
+  private static class CachedTaskData {
+    private final Object encodedTaskData;
+    private final Object taskData;
+  }
+}
@@ -0,0 +1,39 @@
+package com.pablintino.schedulerservice.services;
+
+import org.springframework.util.Assert;
+
+/* Refilled continuously from the elapsed time. Reserving never blocks */
+public class TokenBucket {
+
+  private final double tokensPerNano;
+  private final double capacity;
+  private double tokens;
+  private long lastRefillNanos;
+
+  public TokenBucket(double ratePerSecond, double burst) {
+    Assert.isTrue(ratePerSecond > 0, "ratePerSecond must be positive");
+    Assert.isTrue(burst >= 1, "burst must allow at least one token");
+    this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+    this.capacity = burst;
+    this.tokens = burst;
+    this.lastRefillNanos = System.nanoTime();
+  }
+
+  /*
+   * Takes a token, even if it is not there yet. Zero if it was available, otherwise the
+   * nanoseconds until it is. Tokens taken in advance are owed, so each refused caller gets its
+   * own later slot instead of all of them coming back for the same next token
+   */
+  public synchronized long reserve() {
+    long now = System.nanoTime();
+    tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+    lastRefillNanos = now;
+    tokens -= 1;
+    return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+  }
+
+  /* Gives back a token taken without waiting that ended up unused */
+  public synchronized void release() {
+    tokens = Math.min(capacity, tokens + 1);
+  }
+}
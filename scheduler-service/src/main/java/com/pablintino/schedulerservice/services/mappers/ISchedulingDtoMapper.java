@@ -1,11 +1,23 @@
 package com.pablintino.schedulerservice.services.mappers;
 
+import com.pablintino.schedulerservice.dtos.DeadLetterDto;
+import com.pablintino.schedulerservice.dtos.DeadLettersReplayDto;
+import com.pablintino.schedulerservice.dtos.ScheduleBatchItemResultDto;
 import com.pablintino.schedulerservice.dtos.ScheduleRequestDto;
 import com.pablintino.schedulerservice.dtos.ScheduleTaskDto;
+import com.pablintino.schedulerservice.dtos.ScheduleTaskPageDto;
+import com.pablintino.schedulerservice.dtos.TaskNextFiresDto;
 import com.pablintino.schedulerservice.dtos.TaskStatsDto;
+import com.pablintino.schedulerservice.dtos.TasksDeletionDto;
+import com.pablintino.schedulerservice.models.DeadLetter;
 import com.pablintino.schedulerservice.models.Endpoint;
 import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
 import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.models.TaskSchedulingResult;
+import com.pablintino.schedulerservice.models.TasksPage;
+
+import java.time.ZonedDateTime;
+import java.util.List;
 
 public interface ISchedulingDtoMapper {
   Task mapTaskFromDto(ScheduleRequestDto scheduleRequestDto);
@@ -15,4 +27,16 @@ public interface ISchedulingDtoMapper {
   ScheduleTaskDto mapTasktoDto(Task task);
 
   TaskStatsDto toTaskStatsDto(ScheduleJobMetadata scheduleJobMetadata);
+
+  ScheduleBatchItemResultDto toBatchItemResultDto(TaskSchedulingResult taskSchedulingResult);
+
+  ScheduleTaskPageDto toTaskPageDto(TasksPage tasksPage);
+
+  TasksDeletionDto toTasksDeletionDto(long deletedTasks);
+
+  TaskNextFiresDto toTaskNextFiresDto(List<ZonedDateTime> nextFireTimes);
+
+  DeadLetterDto toDeadLetterDto(DeadLetter deadLetter);
+
+  DeadLettersReplayDto toDeadLettersReplayDto(long queuedDeadLetters);
 }
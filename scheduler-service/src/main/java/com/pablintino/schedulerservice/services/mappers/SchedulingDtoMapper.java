@@ -1,15 +1,36 @@
 package com.pablintino.schedulerservice.services.mappers;
 
+import com.pablintino.schedulerservice.callback.CallbackMessage;
+import com.pablintino.schedulerservice.dtos.CallbackDescriptorDto;
+import com.pablintino.schedulerservice.dtos.CallbackMethodTypeDto;
+import com.pablintino.schedulerservice.dtos.DeadLetterDto;
+import com.pablintino.schedulerservice.dtos.DeadLettersReplayDto;
+import com.pablintino.schedulerservice.dtos.MisfirePolicyDto;
+import com.pablintino.schedulerservice.dtos.ScheduleBatchItemResultDto;
+import com.pablintino.schedulerservice.dtos.RetryPolicyDto;
 import com.pablintino.schedulerservice.dtos.ScheduleRequestDto;
 import com.pablintino.schedulerservice.dtos.ScheduleTaskDto;
+import com.pablintino.schedulerservice.dtos.ScheduleTaskPageDto;
+import com.pablintino.schedulerservice.dtos.TaskNextFiresDto;
 import com.pablintino.schedulerservice.dtos.TaskStatsDto;
+import com.pablintino.schedulerservice.dtos.TasksDeletionDto;
 import com.pablintino.schedulerservice.models.CallbackType;
+import com.pablintino.schedulerservice.models.DeadLetter;
 import com.pablintino.schedulerservice.models.Endpoint;
+import com.pablintino.schedulerservice.models.MisfirePolicy;
+import com.pablintino.schedulerservice.models.RetryPolicy;
 import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
 import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.models.TaskSchedulingResult;
+import com.pablintino.schedulerservice.models.TasksPage;
 import com.pablintino.services.commons.exceptions.ValidationHttpServiceException;
 import org.springframework.stereotype.Component;
 
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
 @Component
 public class SchedulingDtoMapper implements ISchedulingDtoMapper {
 
@@ -23,6 +44,9 @@ public class SchedulingDtoMapper implements ISchedulingDtoMapper {
         scheduleRequestDto.getTaskKey(),
         scheduleRequestDto.getTriggerTime(),
         scheduleRequestDto.getCronExpression(),
+        scheduleRequestDto.getMisfirePolicy() != null
+            ? MisfirePolicy.valueOf(scheduleRequestDto.getMisfirePolicy().toString())
+            : null,
         scheduleRequestDto.getTaskData());
   }
 
@@ -33,9 +57,17 @@ public class SchedulingDtoMapper implements ISchedulingDtoMapper {
           "Schedule request must contain a callback descriptor");
     }
 
+    RetryPolicyDto retryPolicyDto = scheduleRequestDto.getRetryPolicy();
     return new Endpoint(
         CallbackType.valueOf(scheduleRequestDto.getCallbackDescriptor().getType().toString()),
-        scheduleRequestDto.getCallbackDescriptor().getEndpoint());
+        scheduleRequestDto.getCallbackDescriptor().getEndpoint(),
+        retryPolicyDto != null
+            ? new RetryPolicy(
+                retryPolicyDto.getInitialDelay(),
+                retryPolicyDto.getMaxDelay(),
+                retryPolicyDto.getMultiplier())
+            : null,
+        scheduleRequestDto.getCallbackDescriptor().isBatched());
   }
 
   @Override
@@ -45,6 +77,10 @@ public class SchedulingDtoMapper implements ISchedulingDtoMapper {
     scheduleTaskDto.setTaskIdentifier(task.getId());
     scheduleTaskDto.setTriggerTime(task.getTriggerTime());
     scheduleTaskDto.setCronExpression(task.getCronExpression());
+    if (task.getMisfirePolicy() != null) {
+      scheduleTaskDto.setMisfirePolicy(
+          MisfirePolicyDto.valueOf(task.getMisfirePolicy().toString()));
+    }
     scheduleTaskDto.setTaskData(task.getTaskData());
     return scheduleTaskDto;
   }
@@ -58,4 +94,71 @@ public class SchedulingDtoMapper implements ISchedulingDtoMapper {
     taskStatsDto.setLastFailureTime(scheduleJobMetadata.getLastFailureTime());
     return taskStatsDto;
   }
+
+  @Override
+  public ScheduleBatchItemResultDto toBatchItemResultDto(
+      TaskSchedulingResult taskSchedulingResult) {
+    ScheduleBatchItemResultDto resultDto = new ScheduleBatchItemResultDto();
+    resultDto.setTaskIdentifier(taskSchedulingResult.getTaskId());
+    resultDto.setTaskKey(taskSchedulingResult.getKey());
+    resultDto.setScheduled(taskSchedulingResult.isScheduled());
+    resultDto.setError(taskSchedulingResult.getError());
+    return resultDto;
+  }
+
+  @Override
+  public ScheduleTaskPageDto toTaskPageDto(TasksPage tasksPage) {
+    ScheduleTaskPageDto scheduleTaskPageDto = new ScheduleTaskPageDto();
+    scheduleTaskPageDto.setTasks(
+        tasksPage.getTasks().stream().map(this::mapTasktoDto).collect(Collectors.toList()));
+    scheduleTaskPageDto.setNext(tasksPage.getNextCursor());
+    return scheduleTaskPageDto;
+  }
+
+  @Override
+  public TasksDeletionDto toTasksDeletionDto(long deletedTasks) {
+    TasksDeletionDto tasksDeletionDto = new TasksDeletionDto();
+    tasksDeletionDto.setDeletedTasks(deletedTasks);
+    return tasksDeletionDto;
+  }
+
+  @Override
+  public TaskNextFiresDto toTaskNextFiresDto(List<ZonedDateTime> nextFireTimes) {
+    TaskNextFiresDto taskNextFiresDto = new TaskNextFiresDto();
+    taskNextFiresDto.setNextFireTimes(nextFireTimes);
+    return taskNextFiresDto;
+  }
+
+  @Override
+  public DeadLetterDto toDeadLetterDto(DeadLetter deadLetter) {
+    SchedulerJobData jobData = deadLetter.getJobData();
+    CallbackDescriptorDto callbackDescriptorDto = new CallbackDescriptorDto();
+    callbackDescriptorDto.setType(CallbackMethodTypeDto.valueOf(jobData.getType().toString()));
+    callbackDescriptorDto.setEndpoint(jobData.getCallbackUrl());
+    callbackDescriptorDto.setBatched(jobData.isBatched());
+
+    DeadLetterDto deadLetterDto = new DeadLetterDto();
+    deadLetterDto.setId(deadLetter.getId());
+    deadLetterDto.setTaskIdentifier(jobData.getTaskId());
+    deadLetterDto.setTaskKey(jobData.getKey());
+    deadLetterDto.setCallbackDescriptor(callbackDescriptorDto);
+    deadLetterDto.setFailureTime(deadLetter.getFailureTime());
+    deadLetterDto.setLastError(deadLetter.getLastError());
+    /* The same message the remote would have received */
+    deadLetterDto.setMessage(
+        new CallbackMessage(
+            jobData.getTaskId(),
+            jobData.getKey(),
+            deadLetter.getTaskData(),
+            jobData.getMetadata() != null ? jobData.getMetadata().getTriggerTime() : null,
+            jobData.getMetadata() != null ? jobData.getMetadata().getNotificationAttempt() : 0));
+    return deadLetterDto;
+  }
+
+  @Override
+  public DeadLettersReplayDto toDeadLettersReplayDto(long queuedDeadLetters) {
+    DeadLettersReplayDto deadLettersReplayDto = new DeadLettersReplayDto();
+    deadLettersReplayDto.setQueuedDeadLetters(queuedDeadLetters);
+    return deadLettersReplayDto;
+  }
 }
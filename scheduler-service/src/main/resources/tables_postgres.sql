@@ -397,10 +397,99 @@ CREATE TABLE IF NOT EXISTS QRTZ_LOCKS
 )
     );
 
+CREATE TABLE IF NOT EXISTS QRTZ_TASK_STATS
+(
+    SCHED_NAME VARCHAR
+(
+    120
+) NOT NULL,
+    JOB_NAME VARCHAR
+(
+    200
+) NOT NULL,
+    JOB_GROUP VARCHAR
+(
+    200
+) NOT NULL,
+    TRIGGER_TIME BIGINT NULL,
+    LAST_FAILURE_TIME BIGINT NULL,
+    NOTIFICATION_ATTEMPT BIGINT NOT NULL,
+    FAILURES BIGINT NOT NULL,
+    EXECUTIONS BIGINT NOT NULL,
+    PRIMARY KEY
+(
+    SCHED_NAME,
+    JOB_NAME,
+    JOB_GROUP
+)
+    );
+
+CREATE TABLE IF NOT EXISTS QRTZ_CALLBACK_OUTBOX
+(
+    ID BIGSERIAL NOT NULL,
+    SCHED_NAME VARCHAR
+(
+    120
+) NOT NULL,
+    JOB_NAME VARCHAR
+(
+    200
+) NOT NULL,
+    JOB_GROUP VARCHAR
+(
+    200
+) NOT NULL,
+    FIRE_TIME BIGINT NOT NULL,
+    ATTEMPT BIGINT NOT NULL,
+    NEXT_ATTEMPT_TIME BIGINT NOT NULL,
+    LEASE_EXPIRY BIGINT NULL,
+    JOB_DATA BYTEA NOT NULL,
+    TASK_DATA BYTEA NOT NULL,
+    PRIMARY KEY
+(
+    ID
+)
+    );
+
+CREATE TABLE IF NOT EXISTS QRTZ_CALLBACK_DEAD_LETTERS
+(
+    ID BIGSERIAL NOT NULL,
+    SCHED_NAME VARCHAR
+(
+    120
+) NOT NULL,
+    JOB_NAME VARCHAR
+(
+    200
+) NOT NULL,
+    JOB_GROUP VARCHAR
+(
+    200
+) NOT NULL,
+    FAILURE_TIME BIGINT NOT NULL,
+    LAST_ERROR VARCHAR
+(
+    1000
+) NULL,
+    JOB_DATA BYTEA NOT NULL,
+    TASK_DATA BYTEA NOT NULL,
+    PRIMARY KEY
+(
+    ID
+)
+    );
+
 CREATE INDEX IF NOT EXISTS IDX_QRTZ_J_REQ_RECOVERY
     ON QRTZ_JOB_DETAILS (SCHED_NAME, REQUESTS_RECOVERY);
 CREATE INDEX IF NOT EXISTS IDX_QRTZ_J_GRP
     ON QRTZ_JOB_DETAILS (SCHED_NAME, JOB_GROUP);
+CREATE INDEX IF NOT EXISTS IDX_QRTZ_J_GRP_NAME
+    ON QRTZ_JOB_DETAILS (SCHED_NAME, JOB_GROUP, JOB_NAME);
+
+-- Group hash of the partitioned job store, the one ConsistentHashRing computes
+ALTER TABLE QRTZ_TRIGGERS
+    ADD COLUMN IF NOT EXISTS GROUP_HASH INTEGER
+    GENERATED ALWAYS AS (('x' || SUBSTR(MD5(TRIGGER_GROUP), 1, 8))::BIT(32)::INT) STORED;
 
 CREATE INDEX IF NOT EXISTS IDX_QRTZ_T_J
     ON QRTZ_TRIGGERS (SCHED_NAME, JOB_NAME, JOB_GROUP);
@@ -426,6 +515,8 @@ CREATE INDEX IF NOT EXISTS IDX_QRTZ_T_NFT_ST_MISFIRE
     ON QRTZ_TRIGGERS (SCHED_NAME, MISFIRE_INSTR, NEXT_FIRE_TIME, TRIGGER_STATE);
 CREATE INDEX IF NOT EXISTS IDX_QRTZ_T_NFT_ST_MISFIRE_GRP
     ON QRTZ_TRIGGERS (SCHED_NAME, MISFIRE_INSTR, NEXT_FIRE_TIME, TRIGGER_GROUP, TRIGGER_STATE);
+CREATE INDEX IF NOT EXISTS IDX_QRTZ_T_NFT_ST_GRP_HASH
+    ON QRTZ_TRIGGERS (SCHED_NAME, TRIGGER_STATE, NEXT_FIRE_TIME, GROUP_HASH);
 
 CREATE INDEX IF NOT EXISTS IDX_QRTZ_FT_TRIG_INST_NAME
     ON QRTZ_FIRED_TRIGGERS (SCHED_NAME, INSTANCE_NAME);
@@ -440,5 +531,10 @@ CREATE INDEX IF NOT EXISTS IDX_QRTZ_FT_T_G
 CREATE INDEX IF NOT EXISTS IDX_QRTZ_FT_TG
     ON QRTZ_FIRED_TRIGGERS (SCHED_NAME, TRIGGER_GROUP);
 
+CREATE INDEX IF NOT EXISTS IDX_QRTZ_CO_NEXT_ATTEMPT
+    ON QRTZ_CALLBACK_OUTBOX (SCHED_NAME, NEXT_ATTEMPT_TIME);
+CREATE INDEX IF NOT EXISTS IDX_QRTZ_CDL_GRP_ID
+    ON QRTZ_CALLBACK_DEAD_LETTERS (SCHED_NAME, JOB_GROUP, ID);
+
 
 COMMIT;
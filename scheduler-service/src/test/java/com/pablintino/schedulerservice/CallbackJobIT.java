@@ -7,13 +7,29 @@ import com.pablintino.schedulerservice.helpers.DummyCallbackService;
 import com.pablintino.schedulerservice.helpers.DummyTaskDataModels;
 import com.pablintino.schedulerservice.helpers.DummyTasksProvider;
 import com.pablintino.schedulerservice.helpers.QuartzJobListener;
+import com.pablintino.schedulerservice.models.DeadLetter;
+import com.pablintino.schedulerservice.quartz.IMisfireCatchUpLimiter;
+import com.pablintino.schedulerservice.quartz.MisfireCatchUpLimiter;
 import com.pablintino.schedulerservice.quartz.annotations.IReeschedulableAnnotationResolver;
+import com.pablintino.schedulerservice.services.CronExpressionCache;
+import com.pablintino.schedulerservice.services.ICronExpressionCache;
+import com.pablintino.schedulerservice.services.IDeadLetterRepository;
+import com.pablintino.schedulerservice.services.IJobParamsEncoder;
+import com.pablintino.schedulerservice.services.ITaskDataCache;
+import com.pablintino.schedulerservice.services.ITaskStatsRepository;
+import com.pablintino.schedulerservice.services.InMemoryDeadLetterRepository;
+import com.pablintino.schedulerservice.services.InMemoryTaskStatsRepository;
 import com.pablintino.schedulerservice.services.JobParamsEncoder;
+import com.pablintino.schedulerservice.services.TaskDataCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.quartz.CronScheduleBuilder;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -24,7 +40,11 @@ import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.TestPropertySource;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -33,6 +53,8 @@ import java.util.stream.Collectors;
     properties = {
       "com.pablintino.scheduler.failure-attempt-delay=1000",
       "com.pablintino.scheduler.failure-attempts=5",
+      "com.pablintino.scheduler.failure-attempt-multiplier=1",
+      "com.pablintino.scheduler.failure-attempt-jitter=false",
     })
 class CallbackJobIT {
 
@@ -52,6 +74,8 @@ class CallbackJobIT {
 
   @Autowired private IReeschedulableAnnotationResolver reeschedulableAnnotationResolver;
 
+  @Autowired private IDeadLetterRepository deadLetterRepository;
+
   @Configuration
   @Import(InMemoryQuartzConfiguration.class)
   static class TestConfiguration {
@@ -84,10 +108,36 @@ class CallbackJobIT {
       return new JobParamsEncoder(objectMapper);
     }
 
+    @Bean
+    public ITaskDataCache taskDataCache(IJobParamsEncoder jobParamsEncoder) {
+      return new TaskDataCache(jobParamsEncoder, new SimpleMeterRegistry(), 100);
+    }
+
+    @Bean
+    public ITaskStatsRepository taskStatsRepository(Scheduler scheduler) {
+      return new InMemoryTaskStatsRepository(scheduler);
+    }
+
+    @Bean
+    public IDeadLetterRepository deadLetterRepository(ObjectMapper objectMapper) {
+      return new InMemoryDeadLetterRepository(objectMapper);
+    }
+
     @Bean
     public IReeschedulableAnnotationResolver reeschedulableAnnotationResolver() {
       return Mockito.mock(IReeschedulableAnnotationResolver.class);
     }
+
+    @Bean
+    public IMisfireCatchUpLimiter misfireCatchUpLimiter() {
+      /* On time fires are never throttled, late ones are spread 200 ms apart */
+      return new MisfireCatchUpLimiter(new SimpleMeterRegistry(), 60000, 1000, 5);
+    }
+
+    @Bean
+    public ICronExpressionCache cronExpressionCache() {
+      return new CronExpressionCache(new SimpleMeterRegistry(), 100, 10);
+    }
   }
 
   @Test
@@ -142,6 +192,14 @@ class CallbackJobIT {
     Assertions.assertEquals(0, jobListener.getExecutions().size());
     Assertions.assertEquals(false, jobExecution.getEx().refireImmediately());
     Assertions.assertNull(scheduler.getTrigger(testModels.getTrigger().getKey()));
+
+    /* The discarded callback is kept for a later replay */
+    List<DeadLetter> deadLetters =
+        deadLetterRepository.findDeadLetters(
+            testModels.getJobDetail().getKey().getGroup(), 0, Integer.MAX_VALUE);
+    Assertions.assertEquals(1, deadLetters.size());
+    Assertions.assertEquals(testModels.getJobDetail().getKey(), deadLetters.get(0).getJobKey());
+    Assertions.assertTrue(deadLetters.get(0).getLastError().contains("test exception"));
   }
 
   @Test
@@ -213,4 +271,70 @@ class CallbackJobIT {
         failureAttemptDelay,
         2);
   }
+
+  @Test
+  @DirtiesContext
+  void cronMisfiredFireAllThrottledOK() throws SchedulerException {
+    DummyTaskDataModels testModels =
+        dummyTasksProvider.createCronValidJob("test-job1", 1000, "0/1 * * * * ? *");
+    scheduleMissedCronFires(
+        testModels,
+        5,
+        CronScheduleBuilder.cronSchedule("0/1 * * * * ? *")
+            .withMisfireHandlingInstructionIgnoreMisfires());
+
+    /* One fire goes through, the other four wait their catch up slots in one-shot triggers */
+    List<QuartzJobListener.JobExecutionEntry> jobExecutions =
+        jobListener.waitJobExecutions(9, 5000);
+    Assertions.assertEquals(9, jobExecutions.size());
+    Assertions.assertNull(jobListener.waitJobExecution(1000));
+
+    /* Every missed fire is delivered exactly once, spread over the catch up window */
+    List<Instant> triggerTimes =
+        dummyCallbackService.getExecutions().stream()
+            .map(entry -> entry.getJobData().getMetadata().getTriggerTime())
+            .sorted()
+            .collect(Collectors.toList());
+    Assertions.assertEquals(5, triggerTimes.size());
+    Assertions.assertTrue(
+        Duration.between(triggerTimes.get(0), triggerTimes.get(4)).toMillis() >= 700);
+
+    /* The schedule ran to its end, nothing is left behind */
+    Assertions.assertFalse(scheduler.checkExists(testModels.getJobDetail().getKey()));
+  }
+
+  @Test
+  @DirtiesContext
+  void cronMisfiredFireOnceThrottledOK() throws SchedulerException {
+    DummyTaskDataModels testModels =
+        dummyTasksProvider.createCronValidJob("test-job1", 1000, "0/1 * * * * ? *");
+    scheduleMissedCronFires(
+        testModels,
+        5,
+        CronScheduleBuilder.cronSchedule("0/1 * * * * ? *")
+            .withMisfireHandlingInstructionFireAndProceed());
+
+    /* The missed fires collapse into a single one, delivered right away */
+    List<QuartzJobListener.JobExecutionEntry> jobExecutions =
+        jobListener.waitJobExecutions(2, 2000);
+    Assertions.assertEquals(1, jobExecutions.size());
+    Assertions.assertNull(jobExecutions.get(0).getEx());
+    Assertions.assertEquals(1, dummyCallbackService.getExecutions().size());
+    Assertions.assertFalse(scheduler.checkExists(testModels.getJobDetail().getKey()));
+  }
+
+  private void scheduleMissedCronFires(
+      DummyTaskDataModels testModels, int missedFires, CronScheduleBuilder scheduleBuilder)
+      throws SchedulerException {
+    /* A schedule that ended while the scheduler was down, past the misfire threshold */
+    Instant startInstant = Instant.now().minusSeconds(70).truncatedTo(ChronoUnit.SECONDS);
+    Trigger trigger =
+        TriggerBuilder.newTrigger()
+            .withIdentity(testModels.getTrigger().getKey())
+            .startAt(Date.from(startInstant))
+            .endAt(Date.from(startInstant.plusMillis((missedFires - 1) * 1000L + 500)))
+            .withSchedule(scheduleBuilder)
+            .build();
+    scheduler.scheduleJob(testModels.getJobDetail(), trigger);
+  }
 }
@@ -0,0 +1,47 @@
+package com.pablintino.schedulerservice;
+
+import com.pablintino.schedulerservice.quartz.EmbeddedJobStore;
+import com.pablintino.schedulerservice.services.EmbeddedDeadLetterRepository;
+import com.pablintino.schedulerservice.services.EmbeddedTaskStatsRepository;
+import com.pablintino.schedulerservice.services.IDeadLetterRepository;
+import com.pablintino.schedulerservice.services.ITaskStatsRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.quartz.Scheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+
+/* The embedded profile boots without any database */
+@SpringBootTest
+@ActiveProfiles("embedded")
+class EmbeddedJobStoreApplicationIT {
+
+  @TempDir static Path storeDirectory;
+
+  @Autowired private ApplicationContext applicationContext;
+  @Autowired private Scheduler scheduler;
+  @Autowired private ITaskStatsRepository taskStatsRepository;
+  @Autowired private IDeadLetterRepository deadLetterRepository;
+
+  @DynamicPropertySource
+  static void storeProperties(DynamicPropertyRegistry registry) {
+    registry.add("com.pablintino.scheduler.embedded.directory", storeDirectory::toString);
+  }
+
+  @Test
+  void bootWithoutDataSourceOK() throws Exception {
+    Assertions.assertEquals(0, applicationContext.getBeanNamesForType(DataSource.class).length);
+    Assertions.assertEquals(EmbeddedJobStore.class, scheduler.getMetaData().getJobStoreClass());
+    Assertions.assertNotNull(EmbeddedJobStore.getStore(scheduler.getSchedulerName()));
+    Assertions.assertTrue(taskStatsRepository instanceof EmbeddedTaskStatsRepository);
+    Assertions.assertTrue(deadLetterRepository instanceof EmbeddedDeadLetterRepository);
+  }
+}
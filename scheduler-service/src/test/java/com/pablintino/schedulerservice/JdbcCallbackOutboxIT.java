@@ -0,0 +1,174 @@
+package com.pablintino.schedulerservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pablintino.schedulerservice.models.CallbackType;
+import com.pablintino.schedulerservice.models.OutboxEntry;
+import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import com.pablintino.schedulerservice.services.JdbcCallbackOutbox;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Callback outbox claims on the IT PostgreSQL database */
+class JdbcCallbackOutboxIT {
+
+  private static final String SCHEDULER_NAME = "callback-outbox-it";
+  private static final String TASK_KEY = "task-key";
+  private static final Duration LONG_LEASE = Duration.ofMinutes(1);
+
+  private static HikariDataSource dataSource;
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+  private JdbcCallbackOutbox callbackOutbox;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(System.getProperty("spring.datasource.url"));
+    dataSource.setUsername(System.getProperty("spring.datasource.username"));
+    dataSource.setPassword(System.getProperty("spring.datasource.password"));
+    try (Connection connection = dataSource.getConnection()) {
+      ScriptUtils.executeSqlScript(connection, new ClassPathResource("tables_postgres.sql"));
+    }
+  }
+
+  @AfterAll
+  static void tearDown() {
+    dataSource.close();
+  }
+
+  @BeforeEach
+  void createOutbox() throws Exception {
+    Scheduler scheduler = Mockito.mock(Scheduler.class);
+    Mockito.when(scheduler.getSchedulerName()).thenReturn(SCHEDULER_NAME);
+    callbackOutbox = new JdbcCallbackOutbox(scheduler, dataSource, "QRTZ_", objectMapper);
+    new JdbcTemplate(dataSource)
+        .update("DELETE FROM QRTZ_CALLBACK_OUTBOX WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+  }
+
+  @Test
+  void claimCompleteAndRetryOK() {
+    Instant fireTime = Instant.ofEpochMilli(1000);
+    appendEntries(3, fireTime);
+
+    List<OutboxEntry> entries = callbackOutbox.claim(10, LONG_LEASE);
+    Assertions.assertEquals(3, entries.size());
+    OutboxEntry entry = entries.get(0);
+    Assertions.assertEquals(TASK_KEY, entry.getJobKey().getGroup());
+    Assertions.assertEquals(fireTime, entry.getFireTime());
+    Assertions.assertEquals(0, entry.getAttempt());
+    Assertions.assertEquals(entry.getJobKey().getName(), entry.getJobData().getTaskId());
+    Assertions.assertEquals(
+        "{\"value\":1}", new String(entry.getTaskData().getJson(), StandardCharsets.UTF_8));
+
+    /* Leased entries are not claimed again */
+    Assertions.assertTrue(callbackOutbox.claim(10, LONG_LEASE).isEmpty());
+
+    /* Retried entries drop their lease and are claimed once due, with their attempt */
+    callbackOutbox.complete(entries.get(0).getId());
+    callbackOutbox.retry(entries.get(1).getId(), 1, Instant.now().minusSeconds(1));
+    callbackOutbox.retry(entries.get(2).getId(), 1, Instant.now().plusSeconds(60));
+    List<OutboxEntry> retriedEntries = callbackOutbox.claim(10, LONG_LEASE);
+    Assertions.assertEquals(1, retriedEntries.size());
+    Assertions.assertEquals(entries.get(1).getId(), retriedEntries.get(0).getId());
+    Assertions.assertEquals(1, retriedEntries.get(0).getAttempt());
+    Assertions.assertEquals(
+        1, retriedEntries.get(0).getJobData().getMetadata().getNotificationAttempt());
+  }
+
+  @Test
+  void expiredLeasesReclaimedOK() throws Exception {
+    appendEntries(2, Instant.now());
+
+    Duration lease = Duration.ofMillis(500);
+    List<OutboxEntry> entries = callbackOutbox.claim(10, lease);
+    Assertions.assertEquals(2, entries.size());
+    Assertions.assertTrue(callbackOutbox.claim(10, lease).isEmpty());
+
+    /* The claimer never completed them, another one takes them over once the lease expires */
+    Thread.sleep(lease.toMillis() + 100);
+    callbackOutbox.complete(entries.get(0).getId());
+    List<OutboxEntry> reclaimedEntries = callbackOutbox.claim(10, LONG_LEASE);
+    Assertions.assertEquals(1, reclaimedEntries.size());
+    Assertions.assertEquals(entries.get(1).getId(), reclaimedEntries.get(0).getId());
+  }
+
+  @Test
+  void concurrentClaimersOK() throws Exception {
+    int entryCount = 500;
+    appendEntries(entryCount, Instant.now());
+
+    CountDownLatch startLatch = new CountDownLatch(1);
+    Callable<List<Long>> claimer =
+        () -> {
+          startLatch.await();
+          List<Long> claimedIds = new ArrayList<>();
+          List<OutboxEntry> entries;
+          do {
+            entries = callbackOutbox.claim(10, LONG_LEASE);
+            entries.forEach(entry -> claimedIds.add(entry.getId()));
+          } while (!entries.isEmpty());
+          return claimedIds;
+        };
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<List<Long>> firstClaimer = executor.submit(claimer);
+      Future<List<Long>> secondClaimer = executor.submit(claimer);
+      startLatch.countDown();
+      List<Long> firstIds = firstClaimer.get();
+      List<Long> secondIds = secondClaimer.get();
+
+      /* Rows locked by one claimer are skipped by the other, none is claimed twice */
+      Set<Long> claimedIds = new HashSet<>(firstIds);
+      Assertions.assertEquals(firstIds.size(), claimedIds.size());
+      Assertions.assertTrue(secondIds.stream().noneMatch(claimedIds::contains));
+      claimedIds.addAll(secondIds);
+      Assertions.assertEquals(entryCount, claimedIds.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void appendEntries(int count, Instant fireTime) {
+    for (int index = 0; index < count; index++) {
+      String taskId = "task-" + index;
+      callbackOutbox.append(
+          JobKey.jobKey(taskId, TASK_KEY),
+          fireTime,
+          new SchedulerJobData(
+              taskId,
+              TASK_KEY,
+              "http://localhost:8080",
+              CallbackType.HTTP,
+              new ScheduleJobMetadata()),
+          Map.of("value", 1));
+    }
+  }
+}
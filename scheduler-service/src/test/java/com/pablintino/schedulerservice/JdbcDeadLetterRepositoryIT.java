@@ -0,0 +1,154 @@
+package com.pablintino.schedulerservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pablintino.schedulerservice.models.CallbackType;
+import com.pablintino.schedulerservice.models.DeadLetter;
+import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import com.pablintino.schedulerservice.services.JdbcDeadLetterRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/* Dead letters repository on the IT PostgreSQL database */
+class JdbcDeadLetterRepositoryIT {
+
+  private static final String SCHEDULER_NAME = "dead-letters-it";
+  private static final String TASK_KEY = "task-key";
+  private static final String OTHER_TASK_KEY = "other-task-key";
+
+  private static HikariDataSource dataSource;
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+  private JdbcDeadLetterRepository deadLetterRepository;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(System.getProperty("spring.datasource.url"));
+    dataSource.setUsername(System.getProperty("spring.datasource.username"));
+    dataSource.setPassword(System.getProperty("spring.datasource.password"));
+    try (Connection connection = dataSource.getConnection()) {
+      ScriptUtils.executeSqlScript(connection, new ClassPathResource("tables_postgres.sql"));
+    }
+  }
+
+  @AfterAll
+  static void tearDown() {
+    dataSource.close();
+  }
+
+  @BeforeEach
+  void createRepository() throws Exception {
+    Scheduler scheduler = Mockito.mock(Scheduler.class);
+    Mockito.when(scheduler.getSchedulerName()).thenReturn(SCHEDULER_NAME);
+    deadLetterRepository =
+        new JdbcDeadLetterRepository(scheduler, dataSource, "QRTZ_", objectMapper);
+    new JdbcTemplate(dataSource)
+        .update("DELETE FROM QRTZ_CALLBACK_DEAD_LETTERS WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+  }
+
+  @Test
+  void saveAndDecodeOK() {
+    SchedulerJobData jobData = buildJobData("task-1", TASK_KEY);
+    deadLetterRepository.save(
+        JobKey.jobKey("task-1", TASK_KEY), jobData, Map.of("value", 1), "first error");
+
+    List<DeadLetter> deadLetters = deadLetterRepository.findDeadLetters(TASK_KEY, 0, 10);
+    Assertions.assertEquals(1, deadLetters.size());
+    DeadLetter deadLetter = deadLetters.get(0);
+    Assertions.assertEquals(JobKey.jobKey("task-1", TASK_KEY), deadLetter.getJobKey());
+    Assertions.assertEquals("first error", deadLetter.getLastError());
+    Assertions.assertNotNull(deadLetter.getFailureTime());
+    Assertions.assertEquals("task-1", deadLetter.getJobData().getTaskId());
+    Assertions.assertEquals(TASK_KEY, deadLetter.getJobData().getKey());
+    Assertions.assertEquals(CallbackType.HTTP, deadLetter.getJobData().getType());
+    Assertions.assertEquals(jobData.getCallbackUrl(), deadLetter.getJobData().getCallbackUrl());
+    Assertions.assertEquals(
+        "{\"value\":1}",
+        new String(deadLetter.getTaskData().getJson(), StandardCharsets.UTF_8));
+
+    /* Errors are truncated to the column size */
+    Instant failureTime = Instant.ofEpochMilli(5000);
+    deadLetterRepository.updateFailure(deadLetter.getId(), failureTime, "e".repeat(2000));
+    deadLetter = deadLetterRepository.findDeadLetters(TASK_KEY, 0, 10).get(0);
+    Assertions.assertEquals(failureTime, deadLetter.getFailureTime());
+    Assertions.assertEquals(1000, deadLetter.getLastError().length());
+
+    deadLetterRepository.delete(deadLetter.getId());
+    Assertions.assertTrue(deadLetterRepository.findDeadLetters(TASK_KEY, 0, 10).isEmpty());
+  }
+
+  @Test
+  void keysetPagesOK() {
+    for (int index = 0; index < 5; index++) {
+      saveDeadLetter("task-" + index, TASK_KEY);
+      saveDeadLetter("task-" + index, OTHER_TASK_KEY);
+    }
+
+    List<DeadLetter> firstPage = deadLetterRepository.findDeadLetters(TASK_KEY, 0, 2);
+    Assertions.assertEquals(List.of("task-0", "task-1"), getTaskIds(firstPage));
+    List<DeadLetter> secondPage =
+        deadLetterRepository.findDeadLetters(TASK_KEY, firstPage.get(1).getId(), 2);
+    Assertions.assertEquals(List.of("task-2", "task-3"), getTaskIds(secondPage));
+
+    /* Letters deleted before the cursor do not shift the next page */
+    deadLetterRepository.delete(firstPage.get(0).getId());
+    List<DeadLetter> lastPage =
+        deadLetterRepository.findDeadLetters(TASK_KEY, secondPage.get(1).getId(), 2);
+    Assertions.assertEquals(List.of("task-4"), getTaskIds(lastPage));
+  }
+
+  @Test
+  void findByIdsOK() {
+    for (int index = 0; index < 3; index++) {
+      saveDeadLetter("task-" + index, TASK_KEY);
+    }
+    saveDeadLetter("task-0", OTHER_TASK_KEY);
+    List<Long> ids =
+        deadLetterRepository.findDeadLetters(TASK_KEY, 0, 10).stream()
+            .map(DeadLetter::getId)
+            .collect(Collectors.toList());
+    long otherKeyId = deadLetterRepository.findDeadLetters(OTHER_TASK_KEY, 0, 10).get(0).getId();
+
+    /* Ids of other keys and unknown ones are left out */
+    List<DeadLetter> deadLetters =
+        deadLetterRepository.findDeadLetters(
+            TASK_KEY, List.of(ids.get(2), otherKeyId, ids.get(0), Long.MAX_VALUE));
+    Assertions.assertEquals(List.of("task-0", "task-2"), getTaskIds(deadLetters));
+    Assertions.assertTrue(deadLetterRepository.findDeadLetters(TASK_KEY, List.of()).isEmpty());
+  }
+
+  private void saveDeadLetter(String taskId, String taskKey) {
+    deadLetterRepository.save(
+        JobKey.jobKey(taskId, taskKey), buildJobData(taskId, taskKey), Map.of(), "error");
+  }
+
+  private static List<String> getTaskIds(List<DeadLetter> deadLetters) {
+    return deadLetters.stream()
+        .map(deadLetter -> deadLetter.getJobKey().getName())
+        .collect(Collectors.toList());
+  }
+
+  private static SchedulerJobData buildJobData(String taskId, String taskKey) {
+    return new SchedulerJobData(
+        taskId, taskKey, "http://localhost:8080", CallbackType.HTTP, new ScheduleJobMetadata());
+  }
+}
@@ -0,0 +1,243 @@
+package com.pablintino.schedulerservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pablintino.schedulerservice.models.CallbackType;
+import com.pablintino.schedulerservice.models.Endpoint;
+import com.pablintino.schedulerservice.models.MisfirePolicy;
+import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.services.CronExpressionCache;
+import com.pablintino.schedulerservice.services.IJobParamsEncoder;
+import com.pablintino.schedulerservice.services.ISchedulingService;
+import com.pablintino.schedulerservice.services.InMemoryTaskStatsRepository;
+import com.pablintino.schedulerservice.services.JdbcTaskReadRepository;
+import com.pablintino.schedulerservice.services.JobParamsEncoder;
+import com.pablintino.schedulerservice.services.SchedulingService;
+import com.pablintino.schedulerservice.services.TaskDataCache;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.CronExpression;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+
+import java.sql.Connection;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/* Task reads straight from the Quartz tables of the IT PostgreSQL database */
+class JdbcTaskReadRepositoryIT {
+
+  private static final String SCHEDULER_NAME = "task-read-it";
+  private static final String TASK_KEY = "task-key";
+  private static final String CRON_EXPRESSION = "0 0 12 * * ?";
+  private static final Endpoint ENDPOINT =
+      new Endpoint(CallbackType.HTTP, "http://localhost:8080/callback");
+
+  private static HikariDataSource dataSource;
+
+  private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+  private Scheduler scheduler;
+  private JdbcTaskReadRepository taskReadRepository;
+  private ISchedulingService schedulingService;
+  private ISchedulingService legacySchedulingService;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(System.getProperty("spring.datasource.url"));
+    dataSource.setUsername(System.getProperty("spring.datasource.username"));
+    dataSource.setPassword(System.getProperty("spring.datasource.password"));
+    try (Connection connection = dataSource.getConnection()) {
+      ScriptUtils.executeSqlScript(connection, new ClassPathResource("tables_postgres.sql"));
+    }
+  }
+
+  @AfterAll
+  static void tearDown() {
+    dataSource.close();
+  }
+
+  @BeforeEach
+  void createScheduler() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("org.quartz.scheduler.instanceName", SCHEDULER_NAME);
+    props.setProperty("org.quartz.threadPool.threadCount", "1");
+    props.setProperty(
+        "org.quartz.jobStore.driverDelegateClass",
+        "org.quartz.impl.jdbcjobstore.PostgreSQLDelegate");
+
+    SchedulerFactoryBean factory = new SchedulerFactoryBean();
+    factory.setSchedulerName(SCHEDULER_NAME);
+    factory.setDataSource(dataSource);
+    factory.setQuartzProperties(props);
+    factory.setAutoStartup(false);
+    factory.afterPropertiesSet();
+    scheduler = factory.getObject();
+    scheduler.clear();
+
+    IJobParamsEncoder jobParamsEncoder = new JobParamsEncoder(objectMapper, true);
+    taskReadRepository =
+        new JdbcTaskReadRepository(scheduler, jobParamsEncoder, dataSource, "QRTZ_");
+    schedulingService = createSchedulingService(jobParamsEncoder);
+    /* Tasks stored before the binary encoding are still read */
+    legacySchedulingService = createSchedulingService(new JobParamsEncoder(objectMapper, false));
+  }
+
+  @AfterEach
+  void shutdownScheduler() throws SchedulerException {
+    scheduler.shutdown();
+  }
+
+  @Test
+  void findTasksOK() throws Exception {
+    ZonedDateTime triggerTime =
+        ZonedDateTime.now(ZoneOffset.UTC).plusHours(1).truncatedTo(ChronoUnit.SECONDS);
+    Map<String, Object> cronTaskData = Map.of("name", "cron", "values", List.of(1, 2, 3));
+    Map<String, Object> simpleTaskData = Map.of("name", "simple", "nested", Map.of("flag", true));
+    Map<String, Object> legacyTaskData = Map.of("name", "legacy");
+    schedulingService.scheduleTask(
+        new Task(
+            "cron-task", TASK_KEY, triggerTime, CRON_EXPRESSION, MisfirePolicy.SKIP, cronTaskData),
+        ENDPOINT);
+    schedulingService.scheduleTask(
+        new Task(
+            "simple-task", TASK_KEY, triggerTime, null, MisfirePolicy.FIRE_ALL, simpleTaskData),
+        ENDPOINT);
+    legacySchedulingService.scheduleTask(
+        new Task("legacy-task", TASK_KEY, triggerTime, null, legacyTaskData), ENDPOINT);
+    schedulingService.scheduleTask(
+        new Task("other-key-task", "other-key", triggerTime, null, simpleTaskData), ENDPOINT);
+
+    /* Unknown ids and tasks of other keys are left out */
+    List<Task> tasks =
+        taskReadRepository.findTasks(
+            TASK_KEY,
+            List.of("simple-task", "unknown-task", "legacy-task", "cron-task", "other-key-task"));
+    Assertions.assertEquals(
+        List.of("cron-task", "legacy-task", "simple-task"),
+        tasks.stream().map(Task::getId).collect(Collectors.toList()));
+
+    Task cronTask = tasks.get(0);
+    Assertions.assertEquals(TASK_KEY, cronTask.getKey());
+    Assertions.assertEquals(triggerTime, cronTask.getTriggerTime());
+    Assertions.assertEquals(CRON_EXPRESSION, cronTask.getCronExpression());
+    Assertions.assertEquals(MisfirePolicy.SKIP, cronTask.getMisfirePolicy());
+    Assertions.assertEquals(cronTaskData, cronTask.getTaskData());
+
+    Task legacyTask = tasks.get(1);
+    Assertions.assertNull(legacyTask.getCronExpression());
+    Assertions.assertEquals(MisfirePolicy.FIRE_ONCE, legacyTask.getMisfirePolicy());
+    Assertions.assertEquals(legacyTaskData, legacyTask.getTaskData());
+
+    Task simpleTask = tasks.get(2);
+    Assertions.assertEquals(triggerTime, simpleTask.getTriggerTime());
+    Assertions.assertEquals(MisfirePolicy.FIRE_ALL, simpleTask.getMisfirePolicy());
+    Assertions.assertEquals(simpleTaskData, simpleTask.getTaskData());
+  }
+
+  @Test
+  void findTasksInChunksOK() {
+    ZonedDateTime triggerTime = ZonedDateTime.now(ZoneOffset.UTC).plusHours(1);
+    List<String> taskIds =
+        IntStream.range(0, 1200)
+            .mapToObj(index -> String.format("task-%04d", index))
+            .collect(Collectors.toList());
+    List<Pair<Task, Endpoint>> tasks = new ArrayList<>();
+    for (String taskId : taskIds) {
+      tasks.add(Pair.of(new Task(taskId, TASK_KEY, triggerTime, null, Map.of()), ENDPOINT));
+    }
+    Assertions.assertTrue(
+        schedulingService.scheduleTasks(tasks).stream()
+            .allMatch(result -> result.getError() == null));
+
+    Assertions.assertEquals(
+        taskIds,
+        taskReadRepository.findTasks(TASK_KEY, taskIds).stream()
+            .map(Task::getId)
+            .collect(Collectors.toList()));
+  }
+
+  @Test
+  void nextFireTimesOK() throws Exception {
+    ZonedDateTime triggerTime =
+        ZonedDateTime.now(ZoneOffset.UTC).plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+    schedulingService.scheduleTask(
+        new Task("cron-task", TASK_KEY, triggerTime, CRON_EXPRESSION, Map.of()), ENDPOINT);
+    schedulingService.scheduleTask(
+        new Task("simple-task", TASK_KEY, triggerTime, null, Map.of()), ENDPOINT);
+
+    /* Cron tasks never fire before the start time read back from the triggers table */
+    CronExpression cronExpression = new CronExpression(CRON_EXPRESSION);
+    List<ZonedDateTime> expectedFireTimes = new ArrayList<>();
+    Date fireTime = Date.from(triggerTime.toInstant().minusSeconds(1));
+    for (int index = 0; index < 3; index++) {
+      fireTime = cronExpression.getNextValidTimeAfter(fireTime);
+      expectedFireTimes.add(ZonedDateTime.ofInstant(fireTime.toInstant(), ZoneOffset.UTC));
+    }
+    Assertions.assertEquals(
+        expectedFireTimes, schedulingService.getTaskNextFireTimes(TASK_KEY, "cron-task", 3));
+    Assertions.assertEquals(
+        List.of(triggerTime), schedulingService.getTaskNextFireTimes(TASK_KEY, "simple-task", 3));
+    Assertions.assertNull(schedulingService.getTaskNextFireTimes(TASK_KEY, "unknown-task", 3));
+  }
+
+  @Test
+  void nextFireTimesInTaskTimeZoneOK() throws Exception {
+    ZonedDateTime triggerTime =
+        ZonedDateTime.now(ZoneOffset.UTC).plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+    schedulingService.scheduleTask(
+        new Task("cron-task", TASK_KEY, triggerTime, CRON_EXPRESSION, Map.of()), ENDPOINT);
+
+    /* A trigger stored by a node of another zone keeps firing in that zone */
+    TimeZone timeZone =
+        TimeZone.getTimeZone(
+            "Pacific/Kiritimati".equals(TimeZone.getDefault().getID())
+                ? "Pacific/Pago_Pago"
+                : "Pacific/Kiritimati");
+    new JdbcTemplate(dataSource)
+        .update(
+            "UPDATE QRTZ_CRON_TRIGGERS SET TIME_ZONE_ID = ? WHERE SCHED_NAME = ?",
+            timeZone.getID(),
+            SCHEDULER_NAME);
+    Assertions.assertEquals(
+        timeZone, taskReadRepository.findTask(TASK_KEY, "cron-task").getTimeZone());
+
+    CronExpression cronExpression = new CronExpression(CRON_EXPRESSION);
+    cronExpression.setTimeZone(timeZone);
+    Date fireTime =
+        cronExpression.getNextValidTimeAfter(Date.from(triggerTime.toInstant().minusSeconds(1)));
+    Assertions.assertEquals(
+        List.of(ZonedDateTime.ofInstant(fireTime.toInstant(), ZoneOffset.UTC)),
+        schedulingService.getTaskNextFireTimes(TASK_KEY, "cron-task", 1));
+  }
+
+  private ISchedulingService createSchedulingService(IJobParamsEncoder jobParamsEncoder) {
+    return new SchedulingService(
+        scheduler,
+        jobParamsEncoder,
+        new JdbcTaskReadRepository(scheduler, jobParamsEncoder, dataSource, "QRTZ_"),
+        new TaskDataCache(jobParamsEncoder, new SimpleMeterRegistry(), 100),
+        new InMemoryTaskStatsRepository(scheduler),
+        new CronExpressionCache(new SimpleMeterRegistry(), 100, 10));
+  }
+}
@@ -0,0 +1,129 @@
+package com.pablintino.schedulerservice;
+
+import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import com.pablintino.schedulerservice.services.JdbcTaskStatsRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Task stats repository on the IT PostgreSQL database */
+class JdbcTaskStatsRepositoryIT {
+
+  private static final String SCHEDULER_NAME = "task-stats-it";
+  private static final int THREADS = 8;
+  private static final int REGISTRATIONS_PER_THREAD = 50;
+
+  private static HikariDataSource dataSource;
+
+  private JdbcTaskStatsRepository taskStatsRepository;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(System.getProperty("spring.datasource.url"));
+    dataSource.setUsername(System.getProperty("spring.datasource.username"));
+    dataSource.setPassword(System.getProperty("spring.datasource.password"));
+    dataSource.setMaximumPoolSize(THREADS);
+    try (Connection connection = dataSource.getConnection()) {
+      ScriptUtils.executeSqlScript(connection, new ClassPathResource("tables_postgres.sql"));
+    }
+  }
+
+  @AfterAll
+  static void tearDown() {
+    dataSource.close();
+  }
+
+  @BeforeEach
+  void createRepository() throws Exception {
+    Scheduler scheduler = Mockito.mock(Scheduler.class);
+    Mockito.when(scheduler.getSchedulerName()).thenReturn(SCHEDULER_NAME);
+    taskStatsRepository = new JdbcTaskStatsRepository(scheduler, dataSource, "QRTZ_");
+    new JdbcTemplate(dataSource)
+        .update("DELETE FROM QRTZ_TASK_STATS WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+  }
+
+  @Test
+  void registerExecutionOK() {
+    JobKey jobKey = JobKey.jobKey("task-id", "task-key");
+    Instant firstTriggerTime = Instant.ofEpochMilli(1000);
+    ScheduleJobMetadata metadata = taskStatsRepository.registerExecution(jobKey, firstTriggerTime);
+    Assertions.assertEquals(1, metadata.getExecutions());
+    Assertions.assertEquals(0, metadata.getFailures());
+    Assertions.assertEquals(firstTriggerTime, metadata.getTriggerTime());
+    Assertions.assertNull(metadata.getLastFailureTime());
+
+    /* The existing row is updated, failures and attempts are kept */
+    Instant failureTime = Instant.ofEpochMilli(1500);
+    taskStatsRepository.registerFailure(jobKey, failureTime, 3);
+    Instant secondTriggerTime = Instant.ofEpochMilli(2000);
+    metadata = taskStatsRepository.registerExecution(jobKey, secondTriggerTime);
+    Assertions.assertEquals(2, metadata.getExecutions());
+    Assertions.assertEquals(1, metadata.getFailures());
+    Assertions.assertEquals(3, metadata.getNotificationAttempt());
+    Assertions.assertEquals(secondTriggerTime, metadata.getTriggerTime());
+    Assertions.assertEquals(failureTime, metadata.getLastFailureTime());
+  }
+
+  @Test
+  void concurrentRegistrationsOK() throws Exception {
+    JobKey jobKey = JobKey.jobKey("task-id", "task-key");
+    CountDownLatch startLatch = new CountDownLatch(1);
+    List<Callable<List<Long>>> registrations = new ArrayList<>();
+    for (int thread = 0; thread < THREADS; thread++) {
+      registrations.add(
+          () -> {
+            startLatch.await();
+            List<Long> executions = new ArrayList<>();
+            for (int index = 0; index < REGISTRATIONS_PER_THREAD; index++) {
+              executions.add(
+                  taskStatsRepository.registerExecution(jobKey, Instant.now()).getExecutions());
+            }
+            return executions;
+          });
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      List<Future<List<Long>>> futures = new ArrayList<>();
+      for (Callable<List<Long>> registration : registrations) {
+        futures.add(executor.submit(registration));
+      }
+      /* All threads race to create the row of the first fire */
+      startLatch.countDown();
+      Set<Long> executions = new HashSet<>();
+      for (Future<List<Long>> future : futures) {
+        executions.addAll(future.get());
+      }
+
+      /* No lost updates, and each registration saw its own count */
+      int total = THREADS * REGISTRATIONS_PER_THREAD;
+      Assertions.assertEquals(total, executions.size());
+      Assertions.assertEquals(
+          total, taskStatsRepository.registerExecution(jobKey, Instant.now()).getExecutions() - 1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,235 @@
+package com.pablintino.schedulerservice;
+
+import com.pablintino.schedulerservice.config.scheduler.JobStoreSchedulerFactory;
+import com.pablintino.schedulerservice.quartz.ConsistentHashRing;
+import com.pablintino.schedulerservice.quartz.PartitionedJobStore;
+import com.pablintino.schedulerservice.quartz.PartitionedPostgreSQLDelegate;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.impl.jdbcjobstore.NoSuchDelegateException;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Partitioned job store on the IT PostgreSQL database. The scheduler is never started, the tests
+ * play its scheduler thread and the check ins of the other cluster members
+ */
+class PartitionedJobStoreIT {
+
+  private static final String SCHEDULER_NAME = "partitioned-it";
+  private static final String INSTANCE_ID = "node-a";
+  private static final String OTHER_INSTANCE_ID = "node-b";
+  private static final int VIRTUAL_NODES = 64;
+  private static final long CHECKIN_INTERVAL_MILLIS = 1000;
+  private static final int TASK_COUNT = 64;
+
+  private static HikariDataSource dataSource;
+
+  private JdbcTemplate jdbcTemplate;
+  private Scheduler scheduler;
+  private TestPartitionedJobStore jobStore;
+
+  public static class TestJob implements Job {
+
+    @Override
+    public void execute(JobExecutionContext context) {}
+  }
+
+  /* Quartz builds the store from its class name, this one keeps the instance for the tests */
+  public static class TestPartitionedJobStore extends PartitionedJobStore {
+
+    private static volatile TestPartitionedJobStore instance;
+
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler)
+        throws SchedulerConfigException {
+      super.initialize(loadHelper, signaler);
+      instance = this;
+    }
+
+    PartitionedPostgreSQLDelegate getPartitionedDelegate() throws NoSuchDelegateException {
+      return (PartitionedPostgreSQLDelegate) getDelegate();
+    }
+  }
+
+  @BeforeAll
+  static void setUp() throws SQLException {
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(System.getProperty("spring.datasource.url"));
+    dataSource.setUsername(System.getProperty("spring.datasource.username"));
+    dataSource.setPassword(System.getProperty("spring.datasource.password"));
+    try (Connection connection = dataSource.getConnection()) {
+      ScriptUtils.executeSqlScript(connection, new ClassPathResource("tables_postgres.sql"));
+    }
+  }
+
+  @AfterAll
+  static void tearDown() {
+    dataSource.close();
+  }
+
+  @BeforeEach
+  void createScheduler() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("org.quartz.scheduler.instanceName", SCHEDULER_NAME);
+    props.setProperty("org.quartz.scheduler.instanceId", INSTANCE_ID);
+    props.setProperty("org.quartz.threadPool.threadCount", "1");
+    props.setProperty("org.quartz.jobStore.class", TestPartitionedJobStore.class.getName());
+    props.setProperty("org.quartz.jobStore.virtualNodes", String.valueOf(VIRTUAL_NODES));
+    props.setProperty(
+        "org.quartz.jobStore.clusterCheckinInterval", String.valueOf(CHECKIN_INTERVAL_MILLIS));
+
+    SchedulerFactoryBean factory = new SchedulerFactoryBean();
+    factory.setSchedulerName(SCHEDULER_NAME);
+    factory.setDataSource(dataSource);
+    JobStoreSchedulerFactory.configure(factory, props);
+    factory.setQuartzProperties(props);
+    factory.setAutoStartup(false);
+    factory.afterPropertiesSet();
+    scheduler = factory.getObject();
+    jobStore = TestPartitionedJobStore.instance;
+    jdbcTemplate = new JdbcTemplate(dataSource);
+
+    scheduler.clear();
+    jdbcTemplate.update("DELETE FROM QRTZ_FIRED_TRIGGERS WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+    jdbcTemplate.update("DELETE FROM QRTZ_SCHEDULER_STATE WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+    for (String group : getTaskGroups()) {
+      scheduler.scheduleJob(
+          JobBuilder.newJob(TestJob.class).withIdentity("job", group).build(),
+          TriggerBuilder.newTrigger()
+              .withIdentity("trigger", group)
+              .startAt(new Date(System.currentTimeMillis()))
+              .build());
+    }
+  }
+
+  @AfterEach
+  void shutdownScheduler() throws SchedulerException {
+    scheduler.shutdown();
+  }
+
+  @Test
+  void wrapAroundRangesAcquiredOK() throws Exception {
+    /* Both ends of the hash space, as owned by the first position of a ring */
+    List<ConsistentHashRing.Range> ranges =
+        List.of(
+            new ConsistentHashRing.Range(Integer.MAX_VALUE / 2, Integer.MAX_VALUE),
+            new ConsistentHashRing.Range(Integer.MIN_VALUE, Integer.MIN_VALUE / 2));
+    Set<String> expectedGroups =
+        getTaskGroups().stream()
+            .filter(
+                group -> {
+                  int hash = ConsistentHashRing.hash(group);
+                  return ranges.stream()
+                      .anyMatch(range -> hash >= range.getFrom() && hash <= range.getTo());
+                })
+            .collect(Collectors.toSet());
+    Assertions.assertFalse(expectedGroups.isEmpty());
+    Assertions.assertNotEquals(TASK_COUNT, expectedGroups.size());
+
+    /* The database computes the same group hash as the ring */
+    jdbcTemplate.query(
+        "SELECT TRIGGER_GROUP, GROUP_HASH FROM QRTZ_TRIGGERS WHERE SCHED_NAME = ?",
+        rs -> {
+          Assertions.assertEquals(
+              ConsistentHashRing.hash(rs.getString("TRIGGER_GROUP")), rs.getInt("GROUP_HASH"));
+        },
+        SCHEDULER_NAME);
+    PartitionedPostgreSQLDelegate delegate = jobStore.getPartitionedDelegate();
+    delegate.setOwnedRanges(ranges);
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      List<TriggerKey> triggerKeys =
+          delegate.selectTriggerToAcquire(
+              connection, System.currentTimeMillis() + 1000, 0, TASK_COUNT * 2);
+      connection.rollback();
+      Assertions.assertEquals(
+          expectedGroups,
+          triggerKeys.stream().map(TriggerKey::getGroup).collect(Collectors.toSet()));
+    }
+  }
+
+  @Test
+  void ringRefreshedOnMembershipChangesOK() throws Exception {
+    /* Alone in the cluster, every task is owned */
+    Assertions.assertEquals(new HashSet<>(getTaskGroups()), acquireGroups());
+
+    /* Another member checks in, its partitions are left to it after the next refresh */
+    long now = System.currentTimeMillis();
+    jdbcTemplate.update(
+        "INSERT INTO QRTZ_SCHEDULER_STATE (SCHED_NAME, INSTANCE_NAME, LAST_CHECKIN_TIME,"
+            + " CHECKIN_INTERVAL) VALUES (?, ?, ?, ?)",
+        SCHEDULER_NAME,
+        OTHER_INSTANCE_ID,
+        now,
+        CHECKIN_INTERVAL_MILLIS);
+    Assertions.assertEquals(new HashSet<>(getTaskGroups()), acquireGroups());
+    Thread.sleep(CHECKIN_INTERVAL_MILLIS + 100);
+
+    ConsistentHashRing ring =
+        new ConsistentHashRing(List.of(INSTANCE_ID, OTHER_INSTANCE_ID), VIRTUAL_NODES);
+    Set<String> ownedGroups =
+        getTaskGroups().stream()
+            .filter(group -> INSTANCE_ID.equals(ring.getOwner(group)))
+            .collect(Collectors.toSet());
+    Assertions.assertFalse(ownedGroups.isEmpty());
+    Assertions.assertNotEquals(TASK_COUNT, ownedGroups.size());
+    Assertions.assertEquals(ownedGroups, acquireGroups());
+
+    /* The member misses its check ins, its partitions come back once it is considered failed */
+    jdbcTemplate.update(
+        "UPDATE QRTZ_SCHEDULER_STATE SET LAST_CHECKIN_TIME = ? WHERE SCHED_NAME = ?"
+            + " AND INSTANCE_NAME = ?",
+        now - 60000,
+        SCHEDULER_NAME,
+        OTHER_INSTANCE_ID);
+    Thread.sleep(CHECKIN_INTERVAL_MILLIS + 100);
+    Assertions.assertEquals(new HashSet<>(getTaskGroups()), acquireGroups());
+  }
+
+  /* Acquires every due trigger it owns and releases them back */
+  private Set<String> acquireGroups() throws Exception {
+    List<OperableTrigger> triggers =
+        jobStore.acquireNextTriggers(System.currentTimeMillis() + 1000, TASK_COUNT * 2, 0);
+    for (OperableTrigger trigger : triggers) {
+      jobStore.releaseAcquiredTrigger(trigger);
+    }
+    return triggers.stream()
+        .map(trigger -> trigger.getKey().getGroup())
+        .collect(Collectors.toSet());
+  }
+
+  private static List<String> getTaskGroups() {
+    return IntStream.range(0, TASK_COUNT)
+        .mapToObj(index -> "task-" + index)
+        .collect(Collectors.toList());
+  }
+}
@@ -8,13 +8,28 @@ import com.pablintino.schedulerservice.helpers.DummyCallbackService;
 import com.pablintino.schedulerservice.helpers.DummyTaskDataModels;
 import com.pablintino.schedulerservice.helpers.DummyTasksProvider;
 import com.pablintino.schedulerservice.helpers.QuartzJobListener;
+import com.pablintino.schedulerservice.models.Endpoint;
+import com.pablintino.schedulerservice.models.RetryPolicy;
 import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.quartz.IMisfireCatchUpLimiter;
+import com.pablintino.schedulerservice.quartz.MisfireCatchUpLimiter;
 import com.pablintino.schedulerservice.quartz.annotations.IReeschedulableAnnotationResolver;
 import com.pablintino.schedulerservice.quartz.annotations.ReeschedulableAnnotationResolver;
+import com.pablintino.schedulerservice.services.CronExpressionCache;
+import com.pablintino.schedulerservice.services.ICronExpressionCache;
+import com.pablintino.schedulerservice.services.IDeadLetterRepository;
 import com.pablintino.schedulerservice.services.IJobParamsEncoder;
 import com.pablintino.schedulerservice.services.ISchedulingService;
+import com.pablintino.schedulerservice.services.ITaskDataCache;
+import com.pablintino.schedulerservice.services.ITaskReadRepository;
+import com.pablintino.schedulerservice.services.ITaskStatsRepository;
+import com.pablintino.schedulerservice.services.InMemoryDeadLetterRepository;
+import com.pablintino.schedulerservice.services.InMemoryTaskStatsRepository;
 import com.pablintino.schedulerservice.services.JobParamsEncoder;
+import com.pablintino.schedulerservice.services.SchedulerTaskReadRepository;
 import com.pablintino.schedulerservice.services.SchedulingService;
+import com.pablintino.schedulerservice.services.TaskDataCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.quartz.Scheduler;
@@ -27,6 +42,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
@@ -73,15 +89,57 @@ class SchedulerServiceIT {
       return new JobParamsEncoder(objectMapper);
     }
 
+    @Bean
+    public ITaskDataCache taskDataCache(IJobParamsEncoder jobParamsEncoder) {
+      return new TaskDataCache(jobParamsEncoder, new SimpleMeterRegistry(), 100);
+    }
+
+    @Bean
+    public ITaskStatsRepository taskStatsRepository(Scheduler scheduler) {
+      return new InMemoryTaskStatsRepository(scheduler);
+    }
+
+    @Bean
+    public IDeadLetterRepository deadLetterRepository(ObjectMapper objectMapper) {
+      return new InMemoryDeadLetterRepository(objectMapper);
+    }
+
     @Bean
     public IReeschedulableAnnotationResolver reeschedulableAnnotationResolver() {
       return new ReeschedulableAnnotationResolver();
     }
 
     @Bean
-    public ISchedulingService schedulingService(
+    public IMisfireCatchUpLimiter misfireCatchUpLimiter() {
+      return new MisfireCatchUpLimiter(new SimpleMeterRegistry(), 60000, 0, 100);
+    }
+
+    @Bean
+    public ICronExpressionCache cronExpressionCache() {
+      return new CronExpressionCache(new SimpleMeterRegistry(), 100, 10);
+    }
+
+    @Bean
+    public ITaskReadRepository taskReadRepository(
         Scheduler scheduler, IJobParamsEncoder jobParamsEncoder) {
-      return new SchedulingService(scheduler, jobParamsEncoder);
+      return new SchedulerTaskReadRepository(scheduler, jobParamsEncoder);
+    }
+
+    @Bean
+    public ISchedulingService schedulingService(
+        Scheduler scheduler,
+        IJobParamsEncoder jobParamsEncoder,
+        ITaskReadRepository taskReadRepository,
+        ITaskDataCache taskDataCache,
+        ITaskStatsRepository taskStatsRepository,
+        ICronExpressionCache cronExpressionCache) {
+      return new SchedulingService(
+          scheduler,
+          jobParamsEncoder,
+          taskReadRepository,
+          taskDataCache,
+          taskStatsRepository,
+          cronExpressionCache);
     }
   }
 
@@ -99,6 +157,46 @@ class SchedulerServiceIT {
     dummyTasksProvider.validateSimpleValidJob(testModels, callbackCallEntry, jobExecution);
   }
 
+  @Test
+  @DirtiesContext
+  void scheduleDuplicatedTaskKO() throws SchedulerValidationException {
+    DummyTaskDataModels testModels = dummyTasksProvider.createSimpleValidJob("test-job1", 2000);
+    schedulingService.scheduleTask(testModels.getTask(), testModels.getEndpoint());
+
+    Assertions.assertThrows(
+        SchedulerValidationException.class,
+        () -> schedulingService.scheduleTask(testModels.getTask(), testModels.getEndpoint()));
+
+    List<QuartzJobListener.JobExecutionEntry> jobExecutions =
+        jobListener.waitJobExecutions(2, 3000);
+    Assertions.assertEquals(1, jobExecutions.size());
+    Assertions.assertEquals(1, dummyCallbackService.getExecutions().size());
+  }
+
+  @Test
+  @DirtiesContext
+  void scheduleInvalidRetryPolicyTaskKO() {
+    DummyTaskDataModels testModels = dummyTasksProvider.createSimpleValidJob("test-job1", 2000);
+    Endpoint endpoint =
+        new Endpoint(
+            testModels.getEndpoint().getCallbackType(),
+            testModels.getEndpoint().getCallbackUrl(),
+            new RetryPolicy(5000L, 1000L, null));
+
+    Assertions.assertThrows(
+        SchedulerValidationException.class,
+        () -> schedulingService.scheduleTask(testModels.getTask(), endpoint));
+    Assertions.assertThrows(
+        SchedulerValidationException.class,
+        () ->
+            schedulingService.scheduleTask(
+                testModels.getTask(),
+                new Endpoint(
+                    endpoint.getCallbackType(),
+                    endpoint.getCallbackUrl(),
+                    new RetryPolicy(1000L, null, 0.5))));
+  }
+
   @Test
   @DirtiesContext
   void getTasksOK() throws SchedulerValidationException {
@@ -192,6 +290,36 @@ class SchedulerServiceIT {
     Assertions.assertEquals(0, jobExecutions.size());
   }
 
+  @Test
+  @DirtiesContext
+  void deleteTasksOK() throws SchedulerValidationException {
+    DummyTaskDataModels testModels1 = dummyTasksProvider.createSimpleValidJob("test-job1", 2000);
+    DummyTaskDataModels testModels2 = dummyTasksProvider.createSimpleValidJob("test-job2", 2000);
+    DummyTaskDataModels testModels3 = dummyTasksProvider.createSimpleValidJob("test-job3", 2000);
+    for (DummyTaskDataModels testModels : Arrays.asList(testModels1, testModels2, testModels3)) {
+      schedulingService.scheduleTask(testModels.getTask(), testModels.getEndpoint());
+    }
+    String key = testModels1.getTask().getKey();
+
+    /* Repeated and unknown ids are not counted */
+    Assertions.assertEquals(
+        1,
+        schedulingService.deleteTasks(
+            key,
+            Arrays.asList(
+                testModels1.getTask().getId(),
+                testModels1.getTask().getId(),
+                UUID.randomUUID().toString())));
+    Assertions.assertEquals(2, schedulingService.getTasksForKey(key).size());
+
+    Assertions.assertEquals(2, schedulingService.deleteTasks(key));
+    Assertions.assertTrue(schedulingService.getTasksForKey(key).isEmpty());
+
+    List<QuartzJobListener.JobExecutionEntry> jobExecutions =
+        jobListener.waitJobExecutions(1, 3000);
+    Assertions.assertEquals(0, jobExecutions.size());
+  }
+
   @Test
   @DirtiesContext
   void getTaskOK() throws SchedulerValidationException {
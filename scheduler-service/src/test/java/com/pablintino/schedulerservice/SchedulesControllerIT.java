@@ -8,16 +8,29 @@ import com.pablintino.schedulerservice.helpers.DummyCallbackService;
 import com.pablintino.schedulerservice.helpers.DummyTaskDataModels;
 import com.pablintino.schedulerservice.helpers.DummyTasksProvider;
 import com.pablintino.schedulerservice.helpers.QuartzJobListener;
+import com.pablintino.schedulerservice.quartz.IMisfireCatchUpLimiter;
+import com.pablintino.schedulerservice.quartz.MisfireCatchUpLimiter;
 import com.pablintino.schedulerservice.quartz.annotations.IReeschedulableAnnotationResolver;
 import com.pablintino.schedulerservice.quartz.annotations.ReeschedulableAnnotationResolver;
 import com.pablintino.schedulerservice.rest.SchedulesController;
+import com.pablintino.schedulerservice.services.CronExpressionCache;
+import com.pablintino.schedulerservice.services.ICronExpressionCache;
+import com.pablintino.schedulerservice.services.IDeadLetterRepository;
 import com.pablintino.schedulerservice.services.IJobParamsEncoder;
 import com.pablintino.schedulerservice.services.ISchedulingService;
+import com.pablintino.schedulerservice.services.ITaskDataCache;
+import com.pablintino.schedulerservice.services.ITaskReadRepository;
+import com.pablintino.schedulerservice.services.ITaskStatsRepository;
+import com.pablintino.schedulerservice.services.InMemoryDeadLetterRepository;
+import com.pablintino.schedulerservice.services.InMemoryTaskStatsRepository;
 import com.pablintino.schedulerservice.services.JobParamsEncoder;
+import com.pablintino.schedulerservice.services.SchedulerTaskReadRepository;
 import com.pablintino.schedulerservice.services.SchedulingService;
+import com.pablintino.schedulerservice.services.TaskDataCache;
 import com.pablintino.schedulerservice.services.mappers.ISchedulingDtoMapper;
 import com.pablintino.schedulerservice.services.mappers.SchedulingDtoMapper;
 import com.pablintino.services.commons.exceptions.config.ExceptionControllerAdvice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -35,12 +48,16 @@ import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.view.json.MappingJackson2JsonView;
 
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -100,6 +117,21 @@ class SchedulesControllerIT {
       return new JobParamsEncoder(objectMapper);
     }
 
+    @Bean
+    public ITaskDataCache taskDataCache(IJobParamsEncoder jobParamsEncoder) {
+      return new TaskDataCache(jobParamsEncoder, new SimpleMeterRegistry(), 100);
+    }
+
+    @Bean
+    public ITaskStatsRepository taskStatsRepository(Scheduler scheduler) {
+      return new InMemoryTaskStatsRepository(scheduler);
+    }
+
+    @Bean
+    public IDeadLetterRepository deadLetterRepository(ObjectMapper objectMapper) {
+      return new InMemoryDeadLetterRepository(objectMapper);
+    }
+
     @Bean
     public ObjectMapper objectMapper() {
       return Jackson2ObjectMapperBuilder.json().modules(new JavaTimeModule()).build();
@@ -110,15 +142,34 @@ class SchedulesControllerIT {
       return new ReeschedulableAnnotationResolver();
     }
 
+    @Bean
+    public IMisfireCatchUpLimiter misfireCatchUpLimiter() {
+      return new MisfireCatchUpLimiter(new SimpleMeterRegistry(), 60000, 0, 100);
+    }
+
+    @Bean
+    public ICronExpressionCache cronExpressionCache() {
+      return new CronExpressionCache(new SimpleMeterRegistry(), 100, 10);
+    }
+
     @Bean
     public ExceptionControllerAdvice exceptionControllerAdvice() {
       return new ExceptionControllerAdvice(true);
     }
 
+    @Bean
+    public Validator validator() {
+      return Validation.buildDefaultValidatorFactory().getValidator();
+    }
+
     @Bean
     public SchedulesController schedulesController(
-        ISchedulingService schedulingService, ISchedulingDtoMapper schedulingDtoMapper) {
-      return new SchedulesController(schedulingService, schedulingDtoMapper);
+        ISchedulingService schedulingService,
+        ISchedulingDtoMapper schedulingDtoMapper,
+        Validator validator,
+        ObjectMapper objectMapper) {
+      return new SchedulesController(
+          schedulingService, schedulingDtoMapper, validator, objectMapper);
     }
 
     @Bean
@@ -127,9 +178,26 @@ class SchedulesControllerIT {
     }
 
     @Bean
-    public ISchedulingService schedulingService(
+    public ITaskReadRepository taskReadRepository(
         Scheduler scheduler, IJobParamsEncoder jobParamsEncoder) {
-      return new SchedulingService(scheduler, jobParamsEncoder);
+      return new SchedulerTaskReadRepository(scheduler, jobParamsEncoder);
+    }
+
+    @Bean
+    public ISchedulingService schedulingService(
+        Scheduler scheduler,
+        IJobParamsEncoder jobParamsEncoder,
+        ITaskReadRepository taskReadRepository,
+        ITaskDataCache taskDataCache,
+        ITaskStatsRepository taskStatsRepository,
+        ICronExpressionCache cronExpressionCache) {
+      return new SchedulingService(
+          scheduler,
+          jobParamsEncoder,
+          taskReadRepository,
+          taskDataCache,
+          taskStatsRepository,
+          cronExpressionCache);
     }
   }
 
@@ -187,6 +255,146 @@ class SchedulesControllerIT {
         jobExecutions);
   }
 
+  @Test
+  @DirtiesContext
+  void postTaskBatchOK() throws Exception {
+    DummyTaskDataModels testModels1 = dummyTasksProvider.createSimpleValidJob("test-job1", 2000);
+    DummyTaskDataModels testModels2 = dummyTasksProvider.createSimpleValidJob("test-job2", 2000);
+    DummyTaskDataModels invalidCronModels =
+        dummyTasksProvider.createSimpleValidJob("test-job3", 2000);
+    invalidCronModels.getScheduleRequestDto().setCronExpression("invalid cron");
+    DummyTaskDataModels invalidDtoModels =
+        dummyTasksProvider.createSimpleValidJob("test-job4", 2000);
+    invalidDtoModels.getScheduleRequestDto().setCallbackDescriptor(null);
+
+    mockMvc
+        .perform(
+            MockMvcRequestBuilders.post("/api/v1/schedules/batch")
+                .content(
+                    objectMapper.writeValueAsString(
+                        Arrays.asList(
+                            testModels1.getScheduleRequestDto(),
+                            invalidCronModels.getScheduleRequestDto(),
+                            testModels2.getScheduleRequestDto(),
+                            invalidDtoModels.getScheduleRequestDto(),
+                            testModels1.getScheduleRequestDto())))
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$", Matchers.hasSize(5)))
+        .andExpect(
+            MockMvcResultMatchers.jsonPath(
+                "$[0].taskIdentifier", Matchers.is(testModels1.getTask().getId())))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[0].scheduled", Matchers.is(true)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[1].scheduled", Matchers.is(false)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[1].error", Matchers.notNullValue()))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[2].scheduled", Matchers.is(true)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[3].scheduled", Matchers.is(false)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$[4].scheduled", Matchers.is(false)));
+
+    List<QuartzJobListener.JobExecutionEntry> jobExecutions =
+        jobListener.waitJobExecutions(3, 4000);
+    Assertions.assertEquals(2, jobExecutions.size());
+    Assertions.assertEquals(2, dummyCallbackService.getExecutions().size());
+  }
+
+  @Test
+  @DirtiesContext
+  void getTasksPagedAndStreamedOK() throws Exception {
+    List<DummyTaskDataModels> testModels =
+        Arrays.asList(
+            dummyTasksProvider.createSimpleValidJob("test-job1", 10000),
+            dummyTasksProvider.createSimpleValidJob("test-job2", 10000),
+            dummyTasksProvider.createSimpleValidJob("test-job3", 10000));
+    for (DummyTaskDataModels models : testModels) {
+      mockMvc
+          .perform(
+              MockMvcRequestBuilders.post("/api/v1/schedules")
+                  .content(objectMapper.writeValueAsString(models.getScheduleRequestDto()))
+                  .contentType(MediaType.APPLICATION_JSON))
+          .andExpect(MockMvcResultMatchers.status().isOk());
+    }
+    String key = testModels.get(0).getTask().getKey();
+
+    MvcResult firstPage =
+        mockMvc
+            .perform(
+                MockMvcRequestBuilders.get("/api/v1/schedules/{key}", key).param("limit", "2"))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.tasks", Matchers.hasSize(2)))
+            .andExpect(
+                MockMvcResultMatchers.jsonPath(
+                    "$.tasks[0].taskIdentifier", Matchers.is("test-job1")))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.next", Matchers.notNullValue()))
+            .andReturn();
+    String next =
+        objectMapper
+            .readTree(firstPage.getResponse().getContentAsString())
+            .get("next")
+            .asText();
+
+    mockMvc
+        .perform(
+            MockMvcRequestBuilders.get("/api/v1/schedules/{key}", key)
+                .param("limit", "2")
+                .param("after", next))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.tasks", Matchers.hasSize(1)))
+        .andExpect(
+            MockMvcResultMatchers.jsonPath("$.tasks[0].taskIdentifier", Matchers.is("test-job3")))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.next").doesNotExist());
+
+    mockMvc
+        .perform(MockMvcRequestBuilders.get("/api/v1/schedules/{key}", key))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$", Matchers.hasSize(3)));
+
+    MvcResult streamResult =
+        mockMvc
+            .perform(
+                MockMvcRequestBuilders.get("/api/v1/schedules/{key}", key)
+                    .accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(MockMvcResultMatchers.request().asyncStarted())
+            .andReturn();
+    String streamed =
+        mockMvc
+            .perform(MockMvcRequestBuilders.asyncDispatch(streamResult))
+            .andExpect(MockMvcResultMatchers.status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+    List<String> lines = Arrays.asList(streamed.trim().split("\n"));
+    Assertions.assertEquals(3, lines.size());
+    for (int index = 0; index < lines.size(); index++) {
+      Assertions.assertEquals(
+          testModels.get(index).getTask().getId(),
+          objectMapper.readTree(lines.get(index)).get("taskIdentifier").asText());
+    }
+  }
+
+  @Test
+  @DirtiesContext
+  void getCronTaskNextFiresOK() throws Exception {
+    DummyTaskDataModels testModels =
+        dummyTasksProvider.createCronValidJob("test-job1", 1000, "0 0 * * * ?");
+
+    mockMvc
+        .perform(
+            MockMvcRequestBuilders.post("/api/v1/schedules")
+                .content(objectMapper.writeValueAsString(testModels.getScheduleRequestDto()))
+                .contentType(MediaType.APPLICATION_JSON))
+        .andExpect(MockMvcResultMatchers.status().isOk());
+
+    mockMvc
+        .perform(
+            MockMvcRequestBuilders.get(
+                    "/api/v1/schedules/{key}/{id}/next-fires",
+                    testModels.getTask().getKey(),
+                    testModels.getTask().getId())
+                .param("count", "3"))
+        .andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.nextFireTimes", Matchers.hasSize(3)));
+  }
+
   @Test
   @DirtiesContext
   void deleteValidTaskOK() throws Exception {
@@ -0,0 +1,365 @@
+package com.pablintino.schedulerservice;
+
+import com.pablintino.schedulerservice.config.scheduler.JobStoreSchedulerFactory;
+import com.pablintino.schedulerservice.quartz.TimingWheelJobStore;
+import com.pablintino.schedulerservice.quartz.TimingWheelPostgreSQLDelegate;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobPersistenceException;
+import org.quartz.ScheduleBuilder;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
+import org.quartz.SchedulerException;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/*
+ * Timing wheel job store on the IT PostgreSQL database. The scheduler is never started, the tests
+ * play its scheduler thread and call the store directly
+ */
+class TimingWheelJobStoreIT {
+
+  private static final String SCHEDULER_NAME = "timing-wheel-it";
+  private static final long LOOK_AHEAD_MILLIS = 4000;
+  private static final long MISFIRE_THRESHOLD_MILLIS = 1000;
+
+  private static HikariDataSource dataSource;
+
+  private JdbcTemplate jdbcTemplate;
+  private Scheduler scheduler;
+  private TestTimingWheelJobStore jobStore;
+
+  public static class TestJob implements Job {
+
+    private static volatile CountDownLatch executions = new CountDownLatch(0);
+
+    @Override
+    public void execute(JobExecutionContext context) {
+      executions.countDown();
+    }
+  }
+
+  /* Quartz builds the store from its class name, this one keeps the instance for the tests */
+  public static class TestTimingWheelJobStore extends TimingWheelJobStore {
+
+    private static volatile TestTimingWheelJobStore instance;
+
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler signaler)
+        throws SchedulerConfigException {
+      super.initialize(loadHelper, signaler);
+      instance = this;
+    }
+
+    /* A misfire handler run, as the started scheduler does periodically */
+    int recoverMisfires() throws JobPersistenceException {
+      return doRecoverMisfires().getProcessedMisfiredTriggerCount();
+    }
+  }
+
+  @BeforeAll
+  static void setUp() throws SQLException {
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(System.getProperty("spring.datasource.url"));
+    dataSource.setUsername(System.getProperty("spring.datasource.username"));
+    dataSource.setPassword(System.getProperty("spring.datasource.password"));
+    try (Connection connection = dataSource.getConnection()) {
+      ScriptUtils.executeSqlScript(connection, new ClassPathResource("tables_postgres.sql"));
+    }
+  }
+
+  @AfterAll
+  static void tearDown() {
+    dataSource.close();
+  }
+
+  @BeforeEach
+  void createScheduler() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("org.quartz.scheduler.instanceName", SCHEDULER_NAME);
+    props.setProperty("org.quartz.scheduler.instanceId", SCHEDULER_NAME + "-0");
+    props.setProperty("org.quartz.threadPool.threadCount", "1");
+    props.setProperty("org.quartz.jobStore.class", TestTimingWheelJobStore.class.getName());
+    props.setProperty("org.quartz.jobStore.lookAheadMillis", String.valueOf(LOOK_AHEAD_MILLIS));
+    props.setProperty(
+        "org.quartz.jobStore.misfireThreshold", String.valueOf(MISFIRE_THRESHOLD_MILLIS));
+    /* Only the loads the tests trigger */
+    props.setProperty("org.quartz.jobStore.reloadIntervalMillis", "600000");
+
+    SchedulerFactoryBean factory = new SchedulerFactoryBean();
+    factory.setSchedulerName(SCHEDULER_NAME);
+    factory.setDataSource(dataSource);
+    JobStoreSchedulerFactory.configure(factory, props);
+    factory.setQuartzProperties(props);
+    factory.setAutoStartup(false);
+    factory.afterPropertiesSet();
+    scheduler = factory.getObject();
+    jobStore = TestTimingWheelJobStore.instance;
+    jdbcTemplate = new JdbcTemplate(dataSource);
+
+    scheduler.clear();
+    jdbcTemplate.update("DELETE FROM QRTZ_FIRED_TRIGGERS WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+    jdbcTemplate.update("DELETE FROM QRTZ_SCHEDULER_STATE WHERE SCHED_NAME = ?", SCHEDULER_NAME);
+  }
+
+  @AfterEach
+  void shutdownScheduler() throws SchedulerException {
+    scheduler.shutdown();
+  }
+
+  @Test
+  void windowEndsAtTheLookAheadOK() throws Exception {
+    long now = System.currentTimeMillis();
+    scheduleTrigger("trigger-1", now + 1000);
+    scheduleTrigger("trigger-2", now + LOOK_AHEAD_MILLIS + 500);
+    scheduleTrigger("trigger-3", now + 60000);
+
+    /* Nothing is due yet, the window is loaded all the same */
+    Assertions.assertTrue(
+        jobStore.acquireNextTriggers(System.currentTimeMillis(), 10, 0).isEmpty());
+
+    /* A batch spans a time window past its first trigger, never past the look-ahead window */
+    Assertions.assertEquals("ACQUIRED", getTriggerState("trigger-1"));
+    Assertions.assertEquals("WAITING", getTriggerState("trigger-2"));
+    Assertions.assertEquals("WAITING", getTriggerState("trigger-3"));
+    Assertions.assertEquals(1, getFiredTriggerCount());
+  }
+
+  @Test
+  void storedTriggersRefreshedOneByOneOK() throws Exception {
+    long now = System.currentTimeMillis();
+    scheduleTrigger("trigger-1", now + 1000);
+    scheduleTrigger("trigger-2", now + 2000);
+    Assertions.assertTrue(
+        jobStore.acquireNextTriggers(System.currentTimeMillis(), 10, 0).isEmpty());
+    Assertions.assertEquals("ACQUIRED", getTriggerState("trigger-1"));
+    Assertions.assertEquals("ACQUIRED", getTriggerState("trigger-2"));
+
+    /* Moved and new triggers within the loaded window, and one past it */
+    scheduler.rescheduleJob(
+        TriggerKey.triggerKey("trigger-1"),
+        TriggerBuilder.newTrigger()
+            .withIdentity("trigger-1")
+            .forJob("job-trigger-1")
+            .startAt(new Date(now + 3000))
+            .build());
+    scheduleTrigger("trigger-3", now + 1500);
+    scheduleTrigger("trigger-4", now + 60000);
+
+    /* No reload is due. The changed triggers replace their own wheel entries only */
+    List<OperableTrigger> triggers =
+        jobStore.acquireNextTriggers(System.currentTimeMillis(), 10, 3500);
+    Assertions.assertEquals(
+        List.of("trigger-3", "trigger-2", "trigger-1"),
+        triggers.stream().map(trigger -> trigger.getKey().getName()).collect(Collectors.toList()));
+    Assertions.assertEquals(now + 3000, triggers.get(2).getNextFireTime().getTime());
+    Assertions.assertEquals("WAITING", getTriggerState("trigger-4"));
+
+    /* The fire instance of the replaced copy is gone, one per acquired trigger is left */
+    Assertions.assertEquals(3, getFiredTriggerCount());
+    for (OperableTrigger trigger : triggers) {
+      jobStore.releaseAcquiredTrigger(trigger);
+    }
+    Assertions.assertEquals(0, getFiredTriggerCount());
+    Assertions.assertEquals("WAITING", getTriggerState("trigger-1"));
+  }
+
+  @Test
+  void misfiredTriggersOK() throws Exception {
+    long missedStart = System.currentTimeMillis() - 120000;
+    scheduleTrigger(
+        "cron-fire-once",
+        missedStart,
+        CronScheduleBuilder.cronSchedule("0/30 * * * * ?")
+            .withMisfireHandlingInstructionFireAndProceed());
+    scheduleTrigger(
+        "cron-skip",
+        missedStart,
+        CronScheduleBuilder.cronSchedule("0/30 * * * * ?")
+            .withMisfireHandlingInstructionDoNothing());
+    scheduleTrigger(
+        "cron-fire-all",
+        missedStart,
+        CronScheduleBuilder.cronSchedule("0/30 * * * * ?")
+            .withMisfireHandlingInstructionIgnoreMisfires());
+    scheduleTrigger(
+        "simple-fire-once",
+        missedStart,
+        SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow());
+    scheduleTrigger(
+        "simple-skip",
+        missedStart,
+        SimpleScheduleBuilder.simpleSchedule()
+            .withMisfireHandlingInstructionNextWithRemainingCount());
+
+    /* Triggers that ignore misfires are handed over however late, the rest wait for the handler */
+    List<OperableTrigger> triggers =
+        jobStore.acquireNextTriggers(System.currentTimeMillis(), 10, 0);
+    Assertions.assertEquals(List.of("cron-fire-all"), getTriggerNames(triggers));
+    Assertions.assertTrue(triggers.get(0).getNextFireTime().getTime() < missedStart + 30000);
+    List<TriggerFiredResult> firedResults = jobStore.triggersFired(triggers);
+    Assertions.assertNotNull(firedResults.get(0).getTriggerFiredBundle());
+    Assertions.assertEquals("WAITING", getTriggerState("cron-fire-once"));
+    Assertions.assertEquals("WAITING", getTriggerState("simple-fire-once"));
+
+    long recoveryTime = System.currentTimeMillis();
+    Assertions.assertEquals(4, jobStore.recoverMisfires());
+    Assertions.assertEquals("COMPLETE", getTriggerState("simple-skip"));
+    Assertions.assertTrue(getNextFireTime("cron-skip") > recoveryTime);
+
+    /* Fired once now, and the next missed fire of the trigger that fires them all */
+    triggers = jobStore.acquireNextTriggers(System.currentTimeMillis(), 10, 0);
+    Assertions.assertEquals(
+        Set.of("cron-fire-once", "simple-fire-once", "cron-fire-all"),
+        Set.copyOf(getTriggerNames(triggers)));
+    Assertions.assertEquals("WAITING", getTriggerState("cron-skip"));
+    for (OperableTrigger trigger : triggers) {
+      jobStore.releaseAcquiredTrigger(trigger);
+    }
+  }
+
+  @Test
+  void lateWheelTriggersOK() throws Exception {
+    long fireTime = System.currentTimeMillis() + 500;
+    scheduleTrigger(
+        "fire-once",
+        fireTime,
+        SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionFireNow());
+    scheduleTrigger(
+        "fire-all",
+        fireTime,
+        SimpleScheduleBuilder.simpleSchedule().withMisfireHandlingInstructionIgnoreMisfires());
+    Assertions.assertTrue(
+        jobStore.acquireNextTriggers(System.currentTimeMillis(), 10, 0).isEmpty());
+    Assertions.assertEquals("ACQUIRED", getTriggerState("fire-once"));
+    Assertions.assertEquals("ACQUIRED", getTriggerState("fire-all"));
+
+    /* The scheduler thread comes back past the misfire threshold */
+    Thread.sleep(fireTime + MISFIRE_THRESHOLD_MILLIS + 500 - System.currentTimeMillis());
+    Assertions.assertEquals(
+        List.of("fire-all"),
+        getTriggerNames(jobStore.acquireNextTriggers(System.currentTimeMillis(), 10, 0)));
+    Assertions.assertEquals("WAITING", getTriggerState("fire-once"));
+
+    Assertions.assertEquals(1, jobStore.recoverMisfires());
+    Assertions.assertEquals(
+        List.of("fire-once"),
+        getTriggerNames(jobStore.acquireNextTriggers(System.currentTimeMillis(), 10, 0)));
+  }
+
+  @Test
+  void acquiredByDeadInstanceRecoveredOK() throws Exception {
+    TestJob.executions = new CountDownLatch(1);
+    scheduleTrigger("trigger-1", System.currentTimeMillis() + 500);
+
+    /* Left as the acquisition of an instance that died before firing it leaves it */
+    CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+    loadHelper.initialize();
+    TimingWheelPostgreSQLDelegate deadDelegate = new TimingWheelPostgreSQLDelegate();
+    deadDelegate.initialize(
+        LoggerFactory.getLogger(TimingWheelJobStoreIT.class),
+        "QRTZ_",
+        SCHEDULER_NAME,
+        SCHEDULER_NAME + "-dead",
+        loadHelper,
+        false,
+        null);
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      TriggerKey triggerKey = TriggerKey.triggerKey("trigger-1");
+      OperableTrigger trigger = deadDelegate.selectTrigger(connection, triggerKey);
+      deadDelegate.updateTriggerStateFromOtherState(connection, triggerKey, "ACQUIRED", "WAITING");
+      trigger.setFireInstanceId(SCHEDULER_NAME + "-dead-1");
+      deadDelegate.insertFiredTrigger(connection, trigger, "ACQUIRED", null);
+      connection.commit();
+    }
+    Assertions.assertEquals("ACQUIRED", getTriggerState("trigger-1"));
+
+    /* The first check in recovers the orphaned acquisition, then the wheel loads and fires it */
+    scheduler.start();
+    Assertions.assertTrue(TestJob.executions.await(10, TimeUnit.SECONDS));
+    Assertions.assertEquals(
+        0,
+        jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM QRTZ_FIRED_TRIGGERS WHERE SCHED_NAME = ? AND INSTANCE_NAME = ?",
+            Integer.class,
+            SCHEDULER_NAME,
+            SCHEDULER_NAME + "-dead"));
+  }
+
+  private void scheduleTrigger(String name, long fireTime) throws SchedulerException {
+    scheduler.scheduleJob(
+        JobBuilder.newJob(TestJob.class).withIdentity("job-" + name).build(),
+        TriggerBuilder.newTrigger().withIdentity(name).startAt(new Date(fireTime)).build());
+  }
+
+  private void scheduleTrigger(String name, long startTime, ScheduleBuilder<?> schedule)
+      throws SchedulerException {
+    scheduler.scheduleJob(
+        JobBuilder.newJob(TestJob.class).withIdentity("job-" + name).build(),
+        TriggerBuilder.newTrigger()
+            .withIdentity(name)
+            .startAt(new Date(startTime))
+            .withSchedule(schedule)
+            .build());
+  }
+
+  private static List<String> getTriggerNames(List<OperableTrigger> triggers) {
+    return triggers.stream()
+        .map(trigger -> trigger.getKey().getName())
+        .collect(Collectors.toList());
+  }
+
+  private long getNextFireTime(String name) {
+    return jdbcTemplate.queryForObject(
+        "SELECT NEXT_FIRE_TIME FROM QRTZ_TRIGGERS WHERE SCHED_NAME = ? AND TRIGGER_NAME = ?",
+        Long.class,
+        SCHEDULER_NAME,
+        name);
+  }
+
+  private String getTriggerState(String name) {
+    return jdbcTemplate.queryForObject(
+        "SELECT TRIGGER_STATE FROM QRTZ_TRIGGERS WHERE SCHED_NAME = ? AND TRIGGER_NAME = ?",
+        String.class,
+        SCHEDULER_NAME,
+        name);
+  }
+
+  private int getFiredTriggerCount() {
+    return jdbcTemplate.queryForObject(
+        "SELECT COUNT(*) FROM QRTZ_FIRED_TRIGGERS WHERE SCHED_NAME = ?",
+        Integer.class,
+        SCHEDULER_NAME);
+  }
+}
@@ -0,0 +1,151 @@
+package com.pablintino.schedulerservice;
+
+import com.pablintino.schedulerservice.config.scheduler.JobStoreSchedulerFactory;
+import com.pablintino.schedulerservice.quartz.SkipLockedJobStore;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.jdbcjobstore.PostgreSQLDelegate;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.scheduling.quartz.LocalDataSourceJobStore;
+import org.springframework.scheduling.quartz.SchedulerFactoryBean;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Trigger acquisition throughput of the stock delegate, behind the TRIGGER_ACCESS row lock, and of
+ * the skip locked job store. Several clustered nodes drain the same set of due triggers. Needs the
+ * IT PostgreSQL database, run with -Dscheduler.benchmark=true
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "scheduler.benchmark", matches = "true")
+class TriggerAcquisitionBenchmarkIT {
+
+  private static final int NODES = 3;
+  private static final int NODE_THREADS = 10;
+  private static final int BATCH_SIZE = 50;
+  private static final int TRIGGERS = 5000;
+
+  private static final Map<String, AtomicInteger> FIRES = new ConcurrentHashMap<>();
+  private static CountDownLatch pendingFires;
+
+  private static HikariDataSource dataSource;
+
+  public static class BenchmarkJob implements Job {
+
+    @Override
+    public void execute(JobExecutionContext context) {
+      FIRES
+          .computeIfAbsent(context.getJobDetail().getKey().getName(), key -> new AtomicInteger())
+          .incrementAndGet();
+      pendingFires.countDown();
+    }
+  }
+
+  @BeforeAll
+  static void setUp() throws SQLException {
+    dataSource = new HikariDataSource();
+    dataSource.setJdbcUrl(System.getProperty("spring.datasource.url"));
+    dataSource.setUsername(System.getProperty("spring.datasource.username"));
+    dataSource.setPassword(System.getProperty("spring.datasource.password"));
+    dataSource.setMaximumPoolSize(NODES * (NODE_THREADS + 4));
+    try (Connection connection = dataSource.getConnection()) {
+      ScriptUtils.executeSqlScript(connection, new ClassPathResource("tables_postgres.sql"));
+    }
+  }
+
+  @AfterAll
+  static void tearDown() {
+    dataSource.close();
+  }
+
+  @Test
+  void skipLockedAcquisitionThroughput() throws Exception {
+    double stockThroughput =
+        runBenchmark("benchmark-stock", LocalDataSourceJobStore.class.getName());
+    double skipLockedThroughput =
+        runBenchmark("benchmark-skip-locked", SkipLockedJobStore.class.getName());
+    log.info(
+        "Trigger fires per second. Stock delegate: {}, skip locked: {} ({}x)",
+        Math.round(stockThroughput),
+        Math.round(skipLockedThroughput),
+        String.format("%.2f", skipLockedThroughput / stockThroughput));
+  }
+
+  private double runBenchmark(String schedulerName, String jobStoreClass) throws Exception {
+    FIRES.clear();
+    pendingFires = new CountDownLatch(TRIGGERS);
+    List<Scheduler> nodes = new ArrayList<>();
+    try {
+      for (int index = 0; index < NODES; index++) {
+        nodes.add(createNode(schedulerName, schedulerName + "-" + index, jobStoreClass));
+      }
+      Scheduler scheduler = nodes.get(0);
+      scheduler.clear();
+      for (int index = 0; index < TRIGGERS; index++) {
+        scheduler.scheduleJob(
+            JobBuilder.newJob(BenchmarkJob.class).withIdentity("job-" + index).build(),
+            TriggerBuilder.newTrigger().withIdentity("trigger-" + index).startNow().build());
+      }
+
+      long startNanos = System.nanoTime();
+      for (Scheduler node : nodes) {
+        node.start();
+      }
+      Assertions.assertTrue(pendingFires.await(5, TimeUnit.MINUTES));
+      long elapsedNanos = System.nanoTime() - startNanos;
+
+      /* Disjoint acquisition, each trigger fired by a single node */
+      Assertions.assertEquals(TRIGGERS, FIRES.size());
+      Assertions.assertTrue(FIRES.values().stream().allMatch(fires -> fires.get() == 1));
+      return TRIGGERS / (elapsedNanos / 1_000_000_000d);
+    } finally {
+      for (Scheduler node : nodes) {
+        node.shutdown(true);
+      }
+    }
+  }
+
+  private static Scheduler createNode(String schedulerName, String instanceId, String jobStoreClass)
+      throws Exception {
+    Properties props = new Properties();
+    props.setProperty("org.quartz.scheduler.instanceName", schedulerName);
+    props.setProperty("org.quartz.scheduler.instanceId", instanceId);
+    props.setProperty(
+        "org.quartz.scheduler.batchTriggerAcquisitionMaxCount", String.valueOf(BATCH_SIZE));
+    props.setProperty("org.quartz.threadPool.threadCount", String.valueOf(NODE_THREADS));
+    props.setProperty("org.quartz.jobStore.class", jobStoreClass);
+    props.setProperty(
+        "org.quartz.jobStore.driverDelegateClass", PostgreSQLDelegate.class.getName());
+    props.setProperty("org.quartz.jobStore.isClustered", "true");
+    props.setProperty("org.quartz.jobStore.misfireThreshold", "600000");
+
+    SchedulerFactoryBean factory = new SchedulerFactoryBean();
+    factory.setSchedulerName(instanceId);
+    factory.setDataSource(dataSource);
+    JobStoreSchedulerFactory.configure(factory, props);
+    factory.setQuartzProperties(props);
+    factory.setAutoStartup(false);
+    factory.afterPropertiesSet();
+    return factory.getObject();
+  }
+}
@@ -0,0 +1,68 @@
+package com.pablintino.schedulerservice.ut.quartz;
+
+import com.pablintino.schedulerservice.quartz.ConsistentHashRing;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ConsistentHashRingTest {
+
+  private static final int KEYS = 10000;
+
+  @Test
+  void rangesMatchOwnersOK() {
+    ConsistentHashRing ring =
+        new ConsistentHashRing(Arrays.asList("node-a", "node-b", "node-c"), 64);
+    for (int index = 0; index < KEYS; index++) {
+      String key = "key-" + index;
+      int hash = ConsistentHashRing.hash(key);
+      for (String member : ring.getMembers()) {
+        boolean inRanges =
+            ring.getRanges(member).stream()
+                .anyMatch(range -> hash >= range.getFrom() && hash <= range.getTo());
+        Assertions.assertEquals(member.equals(ring.getOwner(key)), inRanges);
+      }
+    }
+  }
+
+  @Test
+  void singleMemberOwnsEverythingOK() {
+    ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a"), 1);
+    Assertions.assertEquals(
+        List.of(new ConsistentHashRing.Range(Integer.MIN_VALUE, Integer.MAX_VALUE)),
+        ring.getRanges("node-a"));
+    Assertions.assertEquals("node-a", ring.getOwner("key"));
+  }
+
+  @Test
+  void balancedOwnershipOK() {
+    List<String> members = Arrays.asList("node-a", "node-b", "node-c", "node-d");
+    ConsistentHashRing ring = new ConsistentHashRing(members, 64);
+    Map<String, Integer> owned = new HashMap<>();
+    for (int index = 0; index < KEYS; index++) {
+      owned.merge(ring.getOwner("key-" + index), 1, Integer::sum);
+    }
+    for (String member : members) {
+      int share = owned.getOrDefault(member, 0);
+      Assertions.assertTrue(share > KEYS / members.size() / 2, member + " owns " + share);
+      Assertions.assertTrue(share < KEYS / members.size() * 2, member + " owns " + share);
+    }
+  }
+
+  @Test
+  void joinAndLeaveOnlyMoveOwnKeysOK() {
+    ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-a", "node-b"), 64);
+    ConsistentHashRing joined =
+        new ConsistentHashRing(Arrays.asList("node-a", "node-b", "node-c"), 64);
+    for (int index = 0; index < KEYS; index++) {
+      String key = "key-" + index;
+      String owner = joined.getOwner(key);
+      /* Keys only move to the new node on join, and back to the previous owner on leave */
+      Assertions.assertTrue(owner.equals("node-c") || owner.equals(ring.getOwner(key)));
+    }
+  }
+}
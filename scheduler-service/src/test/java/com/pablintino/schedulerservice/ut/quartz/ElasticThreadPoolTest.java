@@ -0,0 +1,87 @@
+package com.pablintino.schedulerservice.ut.quartz;
+
+import com.pablintino.schedulerservice.quartz.ElasticThreadPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.SchedulerConfigException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class ElasticThreadPoolTest {
+
+  @Test
+  void growAndShrinkOK() throws SchedulerConfigException, InterruptedException {
+    ElasticThreadPool threadPool = new ElasticThreadPool();
+    threadPool.setInstanceName("test-pool");
+    threadPool.setMinThreadCount(1);
+    threadPool.setMaxThreadCount(3);
+    threadPool.setKeepAliveMillis(100);
+    threadPool.initialize();
+    try {
+      Assertions.assertEquals(1, threadPool.getThreadCount());
+      Assertions.assertEquals(3, threadPool.blockForAvailableThreads());
+
+      CountDownLatch releaseLatch = new CountDownLatch(1);
+      CountDownLatch startedLatch = new CountDownLatch(3);
+      for (int index = 0; index < 3; index++) {
+        Assertions.assertTrue(
+            threadPool.runInThread(
+                () -> {
+                  startedLatch.countDown();
+                  try {
+                    releaseLatch.await();
+                  } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                  }
+                }));
+      }
+
+      /* The pool grows up to the upper bound while all workers are busy */
+      Assertions.assertTrue(startedLatch.await(1, TimeUnit.SECONDS));
+      Assertions.assertEquals(3, threadPool.getBusyCount());
+      Assertions.assertEquals(3, threadPool.getThreadCount());
+
+      releaseLatch.countDown();
+
+      /* Idle workers above the lower bound are released after the keep alive time */
+      long deadline = System.currentTimeMillis() + 2000;
+      while (threadPool.getThreadCount() > 1 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(50);
+      }
+      Assertions.assertEquals(1, threadPool.getThreadCount());
+      Assertions.assertEquals(3, threadPool.blockForAvailableThreads());
+    } finally {
+      threadPool.shutdown(true);
+    }
+    Assertions.assertFalse(threadPool.runInThread(() -> {}));
+  }
+
+  @Test
+  void saturatedPoolAcceptsNextRunOK() throws SchedulerConfigException, InterruptedException {
+    ElasticThreadPool threadPool = new ElasticThreadPool();
+    threadPool.setInstanceName("test-saturated-pool");
+    threadPool.setMinThreadCount(1);
+    threadPool.setMaxThreadCount(2);
+    threadPool.initialize();
+    int runs = 2000;
+    AtomicInteger completedRuns = new AtomicInteger();
+    CountDownLatch completedLatch = new CountDownLatch(runs);
+    try {
+      /* Each run is submitted as soon as a slot is released, while its worker is still busy */
+      for (int index = 0; index < runs; index++) {
+        Assertions.assertTrue(
+            threadPool.runInThread(
+                () -> {
+                  completedRuns.incrementAndGet();
+                  completedLatch.countDown();
+                }));
+      }
+      Assertions.assertTrue(completedLatch.await(10, TimeUnit.SECONDS));
+      Assertions.assertEquals(runs, completedRuns.get());
+    } finally {
+      threadPool.shutdown(true);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package com.pablintino.schedulerservice.ut.quartz;
+
+import com.pablintino.schedulerservice.quartz.EmbeddedJobStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+class EmbeddedJobStoreTest {
+
+  public static class TestJob implements Job {
+
+    @Override
+    public void execute(JobExecutionContext context) {}
+  }
+
+  @TempDir Path storeDirectory;
+
+  @Test
+  void recoverAfterCrashOK() throws Exception {
+    EmbeddedJobStore jobStore = createStore(64 * 1024);
+    jobStore.storeJobAndTrigger(createJob("job-1"), createTrigger("trigger-1", "job-1"));
+    jobStore.storeJobAndTrigger(createJob("job-2"), createTrigger("trigger-2", "job-2"));
+    jobStore.storeJobAndTrigger(createJob("job-3"), createTrigger("trigger-3", "job-3"));
+    jobStore.pauseTrigger(TriggerKey.triggerKey("trigger-2", "group"));
+    jobStore.removeTrigger(TriggerKey.triggerKey("trigger-3", "group"));
+    jobStore.pauseJobs(GroupMatcher.jobGroupEquals("paused-group"));
+
+    /* Firing moves the trigger to its next fire time */
+    List<OperableTrigger> acquired =
+        jobStore.acquireNextTriggers(System.currentTimeMillis() + 60000, 1, 0);
+    Assertions.assertEquals(1, acquired.size());
+    jobStore.triggersFired(acquired);
+    /* Completions without persisted job data only log the trigger, the job stays as stored */
+    jobStore.triggeredJobComplete(
+        acquired.get(0),
+        jobStore.retrieveJob(JobKey.jobKey("job-1", "group")),
+        Trigger.CompletedExecutionInstruction.NOOP);
+    Date nextFireTime =
+        jobStore.retrieveTrigger(TriggerKey.triggerKey("trigger-1", "group")).getNextFireTime();
+
+    /* No shutdown, the second store recovers from the snapshot and the log as left */
+    EmbeddedJobStore recoveredStore = createStore(64 * 1024);
+    Assertions.assertEquals(2, recoveredStore.getNumberOfJobs());
+    Assertions.assertEquals(2, recoveredStore.getNumberOfTriggers());
+    Assertions.assertNull(recoveredStore.retrieveJob(JobKey.jobKey("job-3", "group")));
+    Assertions.assertEquals(
+        Trigger.TriggerState.PAUSED,
+        recoveredStore.getTriggerState(TriggerKey.triggerKey("trigger-2", "group")));
+    Assertions.assertEquals(
+        Trigger.TriggerState.NORMAL,
+        recoveredStore.getTriggerState(TriggerKey.triggerKey("trigger-1", "group")));
+    Assertions.assertEquals(
+        nextFireTime,
+        recoveredStore
+            .retrieveTrigger(TriggerKey.triggerKey("trigger-1", "group"))
+            .getNextFireTime());
+    Assertions.assertEquals(
+        "value",
+        recoveredStore.retrieveJob(JobKey.jobKey("job-1", "group")).getJobDataMap().get("key"));
+
+    /* Paused job groups also apply to jobs stored after the recovery */
+    recoveredStore.storeJobAndTrigger(
+        createJob("job-4", "paused-group"), createTrigger("trigger-4", "job-4", "paused-group"));
+    Assertions.assertEquals(
+        Trigger.TriggerState.PAUSED,
+        recoveredStore.getTriggerState(TriggerKey.triggerKey("trigger-4", "paused-group")));
+  }
+
+  @Test
+  void compactWhenTheLogFillsUpOK() throws Exception {
+    EmbeddedJobStore jobStore = createStore(8 * 1024);
+    for (int index = 0; index < 100; index++) {
+      jobStore.storeJobAndTrigger(
+          createJob("job-" + index), createTrigger("trigger-" + index, "job-" + index));
+    }
+    for (int index = 0; index < 50; index++) {
+      jobStore.removeJob(JobKey.jobKey("job-" + index, "group"));
+    }
+
+    EmbeddedJobStore recoveredStore = createStore(8 * 1024);
+    Assertions.assertEquals(50, recoveredStore.getNumberOfJobs());
+    Assertions.assertEquals(50, recoveredStore.getNumberOfTriggers());
+    Assertions.assertTrue(recoveredStore.checkExists(JobKey.jobKey("job-99", "group")));
+  }
+
+  @Test
+  void entriesRecoveredOK() throws Exception {
+    EmbeddedJobStore jobStore = createStore(8 * 1024);
+    for (long index = 0; index < 100; index++) {
+      jobStore.updateEntry("entries", index, current -> "value");
+    }
+    jobStore.updateEntry("entries", 1L, current -> current + "-updated");
+    jobStore.updateEntry("entries", 2L, current -> null);
+    jobStore.removeEntries("entries", List.of(3L, 4L, 1000L));
+    jobStore.updateEntry("other-entries", 1L, current -> "other");
+
+    /* Part of the entries come from the snapshots written as the log filled up */
+    EmbeddedJobStore recoveredStore = createStore(8 * 1024);
+    Map<Serializable, Serializable> entries = recoveredStore.getEntries("entries");
+    Assertions.assertEquals(97, entries.size());
+    Assertions.assertEquals("value-updated", entries.get(1L));
+    Assertions.assertFalse(entries.containsKey(2L));
+    Assertions.assertFalse(entries.containsKey(3L));
+    Assertions.assertEquals("value", recoveredStore.getEntry("entries", 99L));
+    Assertions.assertEquals("other", recoveredStore.getEntry("other-entries", 1L));
+    Assertions.assertNull(recoveredStore.getEntry("missing-entries", 1L));
+  }
+
+  private EmbeddedJobStore createStore(int logCapacity) throws Exception {
+    EmbeddedJobStore jobStore = new EmbeddedJobStore();
+    jobStore.setDirectory(storeDirectory.toString());
+    jobStore.setLogCapacity(logCapacity);
+    CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+    loadHelper.initialize();
+    jobStore.initialize(loadHelper, Mockito.mock(SchedulerSignaler.class));
+    return jobStore;
+  }
+
+  private static JobDetail createJob(String name) {
+    return createJob(name, "group");
+  }
+
+  private static JobDetail createJob(String name, String group) {
+    return JobBuilder.newJob(TestJob.class)
+        .withIdentity(name, group)
+        .usingJobData("key", "value")
+        .build();
+  }
+
+  private static OperableTrigger createTrigger(String name, String jobName) {
+    return createTrigger(name, jobName, "group");
+  }
+
+  private static OperableTrigger createTrigger(String name, String jobName, String group) {
+    OperableTrigger trigger =
+        (OperableTrigger)
+            TriggerBuilder.newTrigger()
+                .withIdentity(name, group)
+                .forJob(jobName, group)
+                .withSchedule(SimpleScheduleBuilder.repeatMinutelyForever())
+                .build();
+    trigger.computeFirstFireTime(null);
+    return trigger;
+  }
+}
@@ -0,0 +1,61 @@
+package com.pablintino.schedulerservice.ut.quartz;
+
+import com.pablintino.schedulerservice.quartz.HierarchicalTimingWheel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class HierarchicalTimingWheelTest {
+
+  private static final long START = 1_000_000L;
+
+  @Test
+  void entriesExpireOnTheirTickOK() {
+    HierarchicalTimingWheel<Long> wheel = new HierarchicalTimingWheel<>(10, 8, 3, START);
+    Random random = new Random(42);
+    long horizon = wheel.getHorizon();
+    List<Long> deadlines = new ArrayList<>();
+    for (int index = 0; index < 500; index++) {
+      long deadline = START + random.nextInt((int) (horizon - START));
+      deadlines.add(deadline);
+      wheel.add(deadline, deadline);
+    }
+
+    /* Advancing in small steps crosses level boundaries, entries must cascade down intact */
+    List<Long> expired = new ArrayList<>();
+    for (long time = START; time <= horizon + 10; time += 7) {
+      for (Long deadline : wheel.advance(time)) {
+        Assertions.assertTrue(deadline <= time - time % 10 + 9, "Expired too early");
+        Assertions.assertTrue(deadline > time - 7 - 10, "Expired too late");
+        expired.add(deadline);
+      }
+    }
+    Assertions.assertEquals(deadlines.size(), expired.size());
+    Assertions.assertEquals(0, wheel.size());
+  }
+
+  @Test
+  void pastDeadlinesExpireAtOnceOK() {
+    HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 2, START);
+    wheel.add("late", START - 5000);
+    wheel.add("current", START + 3);
+    wheel.add("future", START + 300);
+    Assertions.assertEquals(List.of("late", "current"), wheel.advance(START));
+    Assertions.assertEquals(1, wheel.size());
+  }
+
+  @Test
+  void idleWheelSkipsAheadOK() {
+    HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(10, 8, 2, START);
+    Assertions.assertTrue(wheel.advance(START + 1_000_000_000L).isEmpty());
+    long horizon = wheel.getHorizon();
+    Assertions.assertTrue(horizon > START + 1_000_000_000L);
+    wheel.add("entry", horizon);
+    Assertions.assertThrows(IllegalArgumentException.class, () -> wheel.add("entry", horizon + 1));
+    Assertions.assertEquals(List.of("entry"), wheel.clear());
+    Assertions.assertEquals(0, wheel.size());
+  }
+}
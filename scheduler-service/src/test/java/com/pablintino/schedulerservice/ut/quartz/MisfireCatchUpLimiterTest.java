@@ -0,0 +1,107 @@
+package com.pablintino.schedulerservice.ut.quartz;
+
+import com.pablintino.schedulerservice.quartz.MisfireCatchUpLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.JobExecutionContext;
+import org.quartz.SimpleScheduleBuilder;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+
+import java.time.Duration;
+import java.util.Date;
+
+class MisfireCatchUpLimiterTest {
+
+  private static final long MISFIRE_THRESHOLD = 1000;
+
+  @Test
+  void catchUpFiresSpreadOK() {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    MisfireCatchUpLimiter catchUpLimiter =
+        new MisfireCatchUpLimiter(meterRegistry, MISFIRE_THRESHOLD, 10000, 10);
+    Date now = new Date();
+    Trigger missedTrigger = createSimpleTrigger(new Date(now.getTime() - 600000));
+
+    /* The first catch up fire goes at once, the following ones a slot later each */
+    Assertions.assertTrue(
+        catchUpLimiter.tryAcquire(createContext(missedTrigger, now, now, null)).isZero());
+    for (int index = 1; index <= 3; index++) {
+      Duration delay = catchUpLimiter.tryAcquire(createContext(missedTrigger, now, now, null));
+      Assertions.assertTrue(delay.compareTo(Duration.ofMillis(index * 1000L - 100)) > 0);
+      Assertions.assertTrue(delay.compareTo(Duration.ofMillis(index * 1000L)) <= 0);
+    }
+
+    /* On time fires neither wait nor take a slot */
+    Trigger onTimeTrigger = createSimpleTrigger(now);
+    for (int index = 0; index < 100; index++) {
+      Assertions.assertTrue(
+          catchUpLimiter.tryAcquire(createContext(onTimeTrigger, now, now, null)).isZero());
+    }
+    Assertions.assertEquals(3.0, meterRegistry.get("misfire.catch-up.deferred").counter().count());
+
+    MisfireCatchUpLimiter disabledLimiter =
+        new MisfireCatchUpLimiter(new SimpleMeterRegistry(), MISFIRE_THRESHOLD, 0, 10);
+    for (int index = 0; index < 10; index++) {
+      Assertions.assertTrue(
+          disabledLimiter.tryAcquire(createContext(missedTrigger, now, now, null)).isZero());
+    }
+  }
+
+  @Test
+  void cronCatchUpDetectionOK() {
+    MisfireCatchUpLimiter catchUpLimiter =
+        new MisfireCatchUpLimiter(new SimpleMeterRegistry(), MISFIRE_THRESHOLD, 3600000, 1);
+    Trigger cronTrigger =
+        TriggerBuilder.newTrigger()
+            .withIdentity("cron-trigger", "test")
+            .startAt(new Date(System.currentTimeMillis() - 86400000))
+            .withSchedule(CronScheduleBuilder.cronSchedule("0 0/5 * * * ?"))
+            .build();
+    Date previousFireTime = cronTrigger.getFireTimeAfter(new Date(System.currentTimeMillis()));
+    Date fireTime = cronTrigger.getFireTimeAfter(previousFireTime);
+
+    /* Fired on its next occurrence, even if fire now instructions move the scheduled time */
+    Assertions.assertTrue(
+        catchUpLimiter
+            .tryAcquire(createContext(cronTrigger, fireTime, fireTime, previousFireTime))
+            .isZero());
+    Assertions.assertTrue(
+        catchUpLimiter
+            .tryAcquire(createContext(cronTrigger, fireTime, fireTime, previousFireTime))
+            .isZero());
+
+    /* Occurrences were missed since the previous fire, the only slot is already taken */
+    Date lateFireTime = new Date(fireTime.getTime() + 900000);
+    Assertions.assertTrue(
+        catchUpLimiter
+            .tryAcquire(createContext(cronTrigger, lateFireTime, lateFireTime, previousFireTime))
+            .isZero());
+    Assertions.assertFalse(
+        catchUpLimiter
+            .tryAcquire(createContext(cronTrigger, lateFireTime, lateFireTime, previousFireTime))
+            .isZero());
+  }
+
+  private static Trigger createSimpleTrigger(Date startTime) {
+    return TriggerBuilder.newTrigger()
+        .withIdentity("simple-trigger", "test")
+        .startAt(startTime)
+        .withSchedule(SimpleScheduleBuilder.simpleSchedule())
+        .build();
+  }
+
+  private static JobExecutionContext createContext(
+      Trigger trigger, Date fireTime, Date scheduledFireTime, Date previousFireTime) {
+    JobExecutionContext context = Mockito.mock(JobExecutionContext.class);
+    Mockito.when(context.getTrigger()).thenReturn(trigger);
+    Mockito.when(context.getFireTime()).thenReturn(fireTime);
+    Mockito.when(context.getScheduledFireTime()).thenReturn(scheduledFireTime);
+    Mockito.when(context.getPreviousFireTime()).thenReturn(previousFireTime);
+    return context;
+  }
+}
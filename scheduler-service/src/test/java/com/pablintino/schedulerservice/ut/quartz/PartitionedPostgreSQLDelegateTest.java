@@ -0,0 +1,76 @@
+package com.pablintino.schedulerservice.ut.quartz;
+
+import com.pablintino.schedulerservice.quartz.ConsistentHashRing;
+import com.pablintino.schedulerservice.quartz.PartitionedPostgreSQLDelegate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+class PartitionedPostgreSQLDelegateTest {
+
+  private static final String GROUP_HASH = "GROUP_HASH";
+
+  private static class TestPartitionedPostgreSQLDelegate extends PartitionedPostgreSQLDelegate {
+
+    String getCondition() {
+      return getAcquisitionCondition();
+    }
+  }
+
+  @Test
+  void noConditionWithoutRangesOK() {
+    TestPartitionedPostgreSQLDelegate delegate = new TestPartitionedPostgreSQLDelegate();
+    Assertions.assertEquals("", delegate.getCondition());
+
+    delegate.setOwnedRanges(Collections.emptyList());
+    delegate.setOwnedRanges(null);
+    Assertions.assertEquals("", delegate.getCondition());
+  }
+
+  @Test
+  void nothingAcquiredWithEmptyRangesOK() {
+    TestPartitionedPostgreSQLDelegate delegate = new TestPartitionedPostgreSQLDelegate();
+    delegate.setOwnedRanges(Collections.emptyList());
+    Assertions.assertEquals(" AND 1 = 0", delegate.getCondition());
+  }
+
+  @Test
+  void wrapAroundRangesOK() {
+    TestPartitionedPostgreSQLDelegate delegate = new TestPartitionedPostgreSQLDelegate();
+    delegate.setOwnedRanges(
+        List.of(
+            new ConsistentHashRing.Range(-5, 10),
+            new ConsistentHashRing.Range(2000000001, Integer.MAX_VALUE),
+            new ConsistentHashRing.Range(Integer.MIN_VALUE, -2000000000)));
+
+    Assertions.assertEquals(
+        " AND ("
+            + GROUP_HASH
+            + " BETWEEN -5 AND 10 OR "
+            + GROUP_HASH
+            + " BETWEEN 2000000001 AND 2147483647 OR "
+            + GROUP_HASH
+            + " BETWEEN -2147483648 AND -2000000000)",
+        delegate.getCondition());
+  }
+
+  @Test
+  void ringRangesOK() {
+    ConsistentHashRing ring = new ConsistentHashRing(List.of("node-a", "node-b"), 16);
+    TestPartitionedPostgreSQLDelegate delegate = new TestPartitionedPostgreSQLDelegate();
+    List<ConsistentHashRing.Range> ranges = ring.getRanges("node-a");
+    delegate.setOwnedRanges(ranges);
+
+    /* One clause per owned range, the bounds as given by the ring */
+    String condition = delegate.getCondition();
+    Assertions.assertTrue(condition.startsWith(" AND (") && condition.endsWith(")"));
+    Assertions.assertEquals(ranges.size(), condition.split(" OR ").length);
+    for (ConsistentHashRing.Range range : ranges) {
+      Assertions.assertTrue(
+          condition.contains(
+              GROUP_HASH + " BETWEEN " + range.getFrom() + " AND " + range.getTo()));
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.pablintino.schedulerservice.services.CallbackCircuitBreakers;
+import com.pablintino.schedulerservice.services.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CallbackCircuitBreakersTest {
+
+  @Test
+  void idleCircuitBreakersEvictedOK() throws InterruptedException {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CallbackCircuitBreakers circuitBreakers =
+        new CallbackCircuitBreakers(meterRegistry, 1, 30000, 100);
+
+    CircuitBreaker openCircuitBreaker = circuitBreakers.getCircuitBreaker("http://open:80");
+    Assertions.assertTrue(openCircuitBreaker.tryAcquire());
+    openCircuitBreaker.onFailure();
+    CircuitBreaker idleCircuitBreaker = circuitBreakers.getCircuitBreaker("http://idle:80");
+    Assertions.assertTrue(idleCircuitBreaker.tryAcquire());
+    idleCircuitBreaker.onSuccess();
+    Assertions.assertSame(idleCircuitBreaker, circuitBreakers.getCircuitBreaker("http://idle:80"));
+
+    /* Closed breakers idle for longer than the timeout are dropped with their gauge */
+    Thread.sleep(150);
+    circuitBreakers.getCircuitBreaker("http://new:80");
+    Assertions.assertEquals(2, circuitBreakers.getCircuitBreakerCount());
+    Assertions.assertNull(
+        meterRegistry
+            .find("callback.circuit-breaker.state")
+            .tag("endpoint", "http://idle:80")
+            .gauge());
+
+    /* An open breaker is kept, dropping it would let the callbacks through */
+    Assertions.assertSame(openCircuitBreaker, circuitBreakers.getCircuitBreaker("http://open:80"));
+    Assertions.assertEquals(
+        1.0,
+        meterRegistry
+            .get("callback.circuit-breaker.state")
+            .tag("endpoint", "http://open:80")
+            .gauge()
+            .value());
+
+    /* A dropped endpoint starts over, with a new gauge */
+    CircuitBreaker newCircuitBreaker = circuitBreakers.getCircuitBreaker("http://idle:80");
+    Assertions.assertNotSame(idleCircuitBreaker, newCircuitBreaker);
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, newCircuitBreaker.getState());
+    Assertions.assertNotNull(
+        meterRegistry
+            .find("callback.circuit-breaker.state")
+            .tag("endpoint", "http://idle:80")
+            .gauge());
+  }
+}
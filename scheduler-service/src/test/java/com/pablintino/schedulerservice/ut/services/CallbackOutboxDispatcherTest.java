@@ -0,0 +1,143 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.pablintino.schedulerservice.exceptions.CallbackDeferredException;
+import com.pablintino.schedulerservice.exceptions.RemoteUnreachableException;
+import com.pablintino.schedulerservice.models.CallbackType;
+import com.pablintino.schedulerservice.models.OutboxEntry;
+import com.pablintino.schedulerservice.models.RawJsonData;
+import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import com.pablintino.schedulerservice.quartz.annotations.ReeschedulableAnnotationResolver;
+import com.pablintino.schedulerservice.services.CallbackOutboxDispatcher;
+import com.pablintino.schedulerservice.services.ICallbackOutbox;
+import com.pablintino.schedulerservice.services.ICallbackService;
+import com.pablintino.schedulerservice.services.IDeadLetterRepository;
+import com.pablintino.schedulerservice.services.ITaskStatsRepository;
+import com.pablintino.schedulerservice.services.RetryBackoff;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.quartz.JobKey;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+class CallbackOutboxDispatcherTest {
+
+  @Test
+  void dispatchBatchOK() {
+    ICallbackOutbox callbackOutbox = Mockito.mock(ICallbackOutbox.class);
+    ICallbackService callbackService = Mockito.mock(ICallbackService.class);
+    ITaskStatsRepository taskStatsRepository = Mockito.mock(ITaskStatsRepository.class);
+    IDeadLetterRepository deadLetterRepository = Mockito.mock(IDeadLetterRepository.class);
+    CallbackOutboxDispatcher dispatcher =
+        new CallbackOutboxDispatcher(
+            callbackOutbox,
+            callbackService,
+            taskStatsRepository,
+            deadLetterRepository,
+            new ReeschedulableAnnotationResolver(),
+            new RetryBackoff(5000, 300000, 2, false),
+            2,
+            1000,
+            1,
+            10,
+            500,
+            60000);
+
+    OutboxEntry delivered = buildEntry(1, 1);
+    OutboxEntry unreachable = buildEntry(2, 0);
+    OutboxEntry exhausted = buildEntry(3, 2);
+    OutboxEntry deferred = buildEntry(4, 1);
+    OutboxEntry rejected = buildEntry(5, 0);
+    Mockito.when(
+            callbackOutbox.claim(ArgumentMatchers.eq(10), ArgumentMatchers.any(Duration.class)))
+        .thenReturn(Arrays.asList(delivered, unreachable, exhausted, deferred, rejected));
+    mockDelivery(callbackService, delivered, CompletableFuture.completedFuture(null));
+    mockDelivery(
+        callbackService,
+        unreachable,
+        CompletableFuture.failedFuture(new RemoteUnreachableException("unreachable")));
+    mockDelivery(
+        callbackService,
+        exhausted,
+        CompletableFuture.failedFuture(new RemoteUnreachableException("unreachable")));
+    mockDelivery(
+        callbackService,
+        deferred,
+        CompletableFuture.failedFuture(
+            new CallbackDeferredException("open", Duration.ofMillis(30000))));
+    Mockito.when(
+            callbackService.executeCallbackAsync(
+                rejected.getJobData(), rejected.getTaskData()))
+        .thenThrow(new IllegalStateException("rejected"));
+
+    Instant dispatchInstant = Instant.now();
+    Assertions.assertEquals(5, dispatcher.dispatchBatch());
+
+    /* Delivered, exhausted and non recoverable entries leave the outbox */
+    Mockito.verify(deadLetterRepository)
+        .save(
+            ArgumentMatchers.eq(exhausted.getJobKey()),
+            ArgumentMatchers.eq(exhausted.getJobData()),
+            ArgumentMatchers.eq(exhausted.getTaskData()),
+            ArgumentMatchers.contains("unreachable"));
+    Mockito.verify(deadLetterRepository)
+        .save(
+            ArgumentMatchers.eq(rejected.getJobKey()),
+            ArgumentMatchers.eq(rejected.getJobData()),
+            ArgumentMatchers.eq(rejected.getTaskData()),
+            ArgumentMatchers.contains("rejected"));
+    Mockito.verify(callbackOutbox).complete(1);
+    Mockito.verify(callbackOutbox).complete(3);
+    Mockito.verify(callbackOutbox).complete(5);
+    Mockito.verify(taskStatsRepository).resetNotificationAttempt(delivered.getJobKey());
+
+    Mockito.verify(callbackOutbox)
+        .retry(
+            ArgumentMatchers.eq(2L),
+            ArgumentMatchers.eq(1L),
+            ArgumentMatchers.argThat(
+                time -> !time.isBefore(dispatchInstant.plusMillis(5000))));
+    Mockito.verify(taskStatsRepository)
+        .registerFailure(
+            ArgumentMatchers.eq(unreachable.getJobKey()),
+            ArgumentMatchers.any(Instant.class),
+            ArgumentMatchers.eq(1L));
+
+    /* Deferrals keep their attempt and honor the remote retry after */
+    Mockito.verify(callbackOutbox)
+        .retry(
+            ArgumentMatchers.eq(4L),
+            ArgumentMatchers.eq(1L),
+            ArgumentMatchers.argThat(
+                time -> !time.isBefore(dispatchInstant.plusMillis(30000))));
+    Mockito.verify(callbackOutbox).claim(10, Duration.ofMillis(60000));
+    Mockito.verifyNoMoreInteractions(callbackOutbox, taskStatsRepository, deadLetterRepository);
+  }
+
+  private static void mockDelivery(
+      ICallbackService callbackService, OutboxEntry entry, CompletableFuture<Void> result) {
+    Mockito.when(callbackService.executeCallbackAsync(entry.getJobData(), entry.getTaskData()))
+        .thenReturn(result);
+  }
+
+  private static OutboxEntry buildEntry(long id, long attempt) {
+    ScheduleJobMetadata metadata = new ScheduleJobMetadata();
+    metadata.setNotificationAttempt(attempt);
+    SchedulerJobData jobData =
+        new SchedulerJobData(
+            "task-" + id, "key", "http://localhost:8080", CallbackType.HTTP, metadata);
+    return new OutboxEntry(
+        id,
+        JobKey.jobKey("task-" + id, "key"),
+        Instant.now(),
+        attempt,
+        jobData,
+        new RawJsonData("{}".getBytes(StandardCharsets.UTF_8)));
+  }
+}
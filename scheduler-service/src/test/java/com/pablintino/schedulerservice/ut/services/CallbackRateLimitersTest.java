@@ -0,0 +1,96 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.pablintino.schedulerservice.services.CallbackRateLimiters;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+class CallbackRateLimitersTest {
+
+  @Test
+  void perKeyRateLimitsOK() {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CallbackRateLimiters rateLimiters =
+        new CallbackRateLimiters(meterRegistry, 0, 0, "burst-key=1:3, slow-key=2");
+
+    /* The burst is served at once, then one token per second */
+    for (int index = 0; index < 3; index++) {
+      Assertions.assertTrue(rateLimiters.tryAcquire("burst-key", "task-" + index).isZero());
+    }
+    Duration retryAfter = rateLimiters.tryAcquire("burst-key", "task-3");
+    Assertions.assertTrue(retryAfter.compareTo(Duration.ofMillis(900)) > 0);
+    Assertions.assertTrue(retryAfter.compareTo(Duration.ofSeconds(1)) <= 0);
+
+    Assertions.assertTrue(rateLimiters.tryAcquire("slow-key", "task-0").isZero());
+    Assertions.assertTrue(rateLimiters.tryAcquire("slow-key", "task-1").isZero());
+    Assertions.assertFalse(rateLimiters.tryAcquire("slow-key", "task-2").isZero());
+
+    /* Keys without a rate are never throttled nor tracked */
+    for (int index = 0; index < 100; index++) {
+      Assertions.assertTrue(rateLimiters.tryAcquire("other-key", "task-" + index).isZero());
+    }
+
+    Assertions.assertEquals(1.0, getThrottledCount(meterRegistry, "burst-key"));
+    Assertions.assertEquals(1.0, getThrottledCount(meterRegistry, "slow-key"));
+    Assertions.assertNull(
+        meterRegistry.find("callback.rate-limit.throttled").tag("key", "other-key").counter());
+  }
+
+  @Test
+  void throttledTasksReserveTheirSlotsOK() throws InterruptedException {
+    CallbackRateLimiters rateLimiters =
+        new CallbackRateLimiters(new SimpleMeterRegistry(), 0, 0, "burst-key=10:1");
+    Assertions.assertTrue(rateLimiters.tryAcquire("burst-key", "task-0").isZero());
+
+    /* Each throttled task of a burst is given its own slot, one token apart */
+    Duration previousRetryAfter = Duration.ZERO;
+    for (int index = 1; index <= 5; index++) {
+      Duration retryAfter = rateLimiters.tryAcquire("burst-key", "task-" + index);
+      Assertions.assertTrue(
+          retryAfter.compareTo(previousRetryAfter.plus(Duration.ofMillis(90))) > 0);
+      Assertions.assertTrue(retryAfter.compareTo(Duration.ofMillis(index * 100L)) <= 0);
+      previousRetryAfter = retryAfter;
+    }
+
+    /* Coming back early keeps the slot, without reserving another one */
+    Duration earlyRetryAfter = rateLimiters.tryAcquire("burst-key", "task-1");
+    Assertions.assertTrue(earlyRetryAfter.compareTo(Duration.ofMillis(100)) <= 0);
+    Assertions.assertFalse(earlyRetryAfter.isZero());
+
+    /* Once due, the slot is claimed without taking a new token. Others still wait theirs */
+    Thread.sleep(earlyRetryAfter.toMillis() + 1);
+    Assertions.assertTrue(rateLimiters.tryAcquire("burst-key", "task-1").isZero());
+    Assertions.assertFalse(rateLimiters.tryAcquire("burst-key", "task-5").isZero());
+    Duration newRetryAfter = rateLimiters.tryAcquire("burst-key", "task-6");
+    Assertions.assertTrue(newRetryAfter.compareTo(Duration.ofMillis(400)) > 0);
+  }
+
+  @Test
+  void releasedSlotsReusedOK() {
+    CallbackRateLimiters rateLimiters =
+        new CallbackRateLimiters(new SimpleMeterRegistry(), 0, 0, "slow-key=1:1");
+
+    /* The callback of the first task was never sent, its token goes to the next one */
+    Assertions.assertTrue(rateLimiters.tryAcquire("slow-key", "task-0").isZero());
+    rateLimiters.release("slow-key");
+    Assertions.assertTrue(rateLimiters.tryAcquire("slow-key", "task-1").isZero());
+    Assertions.assertFalse(rateLimiters.tryAcquire("slow-key", "task-2").isZero());
+
+    /* Released tokens never go over the burst. Keys without a rate are ignored */
+    CallbackRateLimiters idleRateLimiters =
+        new CallbackRateLimiters(new SimpleMeterRegistry(), 0, 0, "slow-key=1:1");
+    for (int index = 0; index < 3; index++) {
+      idleRateLimiters.release("slow-key");
+      idleRateLimiters.release("other-key");
+    }
+    Assertions.assertTrue(idleRateLimiters.tryAcquire("slow-key", "task-0").isZero());
+    Assertions.assertFalse(idleRateLimiters.tryAcquire("slow-key", "task-1").isZero());
+  }
+
+  private static double getThrottledCount(MeterRegistry meterRegistry, String key) {
+    return meterRegistry.get("callback.rate-limit.throttled").tag("key", key).counter().count();
+  }
+}
@@ -1,12 +1,24 @@
 package com.pablintino.schedulerservice.ut.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pablintino.schedulerservice.callback.CallbackBatchItemResult;
 import com.pablintino.schedulerservice.callback.CallbackMessage;
+import com.pablintino.schedulerservice.exceptions.CallbackDeferredException;
+import com.pablintino.schedulerservice.exceptions.RemoteUnreachableException;
 import com.pablintino.schedulerservice.models.CallbackType;
+import com.pablintino.schedulerservice.models.RawJsonData;
 import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
 import com.pablintino.schedulerservice.models.SchedulerJobData;
 import com.pablintino.schedulerservice.quartz.annotations.Reeschedulable;
+import com.pablintino.schedulerservice.services.CallbackBatcher;
+import com.pablintino.schedulerservice.services.CallbackCircuitBreakers;
+import com.pablintino.schedulerservice.services.CallbackRateLimiters;
 import com.pablintino.schedulerservice.services.CallbackService;
+import com.pablintino.schedulerservice.services.CircuitBreaker;
+import com.pablintino.schedulerservice.services.HttpDestinationPools;
+import com.pablintino.schedulerservice.services.ICallbackRateLimiters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,20 +28,32 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.quartz.JobDataMap;
 import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.core.annotation.AnnotationUtils;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
 
 @ExtendWith(MockitoExtension.class)
 public class CallbackServiceTest {
@@ -43,25 +67,50 @@ public class CallbackServiceTest {
   @Mock ObjectMapper objectMapper;
   private MockedStatic<HttpClient> builderMock;
 
+  /* Components of the service built by createCallbackService. Tests replace the ones they need */
+  private HttpDestinationPools httpDestinationPools;
+  private CallbackCircuitBreakers circuitBreakers;
+  private CallbackBatcher callbackBatcher;
+  private ICallbackRateLimiters rateLimiters;
+  private long callbackTimeout;
+  private int httpMaxInFlight;
+  private boolean amqpPublisherConfirms;
+  private long amqpConfirmTimeout;
+
   @BeforeEach
   public void beforeTest() {
     builderMock = Mockito.mockStatic(HttpClient.class);
     HttpClient.Builder clientBuilderMock = Mockito.mock(HttpClient.Builder.class);
     builderMock.when(HttpClient::newBuilder).thenReturn(clientBuilderMock);
-    Mockito.when(clientBuilderMock.connectTimeout(ArgumentMatchers.any()))
+    /* Clients are created per callback host, only when an HTTP callback is sent */
+    Mockito.lenient()
+        .when(clientBuilderMock.connectTimeout(ArgumentMatchers.any()))
+        .thenReturn(clientBuilderMock);
+    Mockito.lenient()
+        .when(clientBuilderMock.version(ArgumentMatchers.any()))
         .thenReturn(clientBuilderMock);
-    Mockito.when(clientBuilderMock.build()).thenReturn(httpClient);
+    Mockito.lenient().when(clientBuilderMock.build()).thenReturn(httpClient);
+
+    callbackTimeout = 1000L;
+    httpDestinationPools =
+        new HttpDestinationPools(new SimpleMeterRegistry(), callbackTimeout, 32, 64, false);
+    circuitBreakers = new CallbackCircuitBreakers(new SimpleMeterRegistry(), 5, 30000);
+    callbackBatcher = new CallbackBatcher(50, 500);
+    rateLimiters = new CallbackRateLimiters(new SimpleMeterRegistry(), 0, 0, "");
+    httpMaxInFlight = 16;
+    amqpPublisherConfirms = false;
+    amqpConfirmTimeout = 1000L;
   }
 
   @AfterEach
   public void afterTest() {
+    callbackBatcher.destroy();
     builderMock.close();
   }
 
   @Test
   void simpleAMQPCallbackSendOK() {
-    CallbackService callbackService =
-        new CallbackService(rabbitTemplate, objectMapper, DUMMY_EXCHANGE_NAME, 1000L);
+    CallbackService callbackService = createCallbackService(objectMapper);
 
     /** Prepare the dummy data to be sent */
     JobDataMap map = new JobDataMap();
@@ -92,9 +141,7 @@ public class CallbackServiceTest {
 
   @Test
   void simpleHTTPCallbackSendOK() throws IOException, InterruptedException {
-    long callbackTimeout = 1000L;
-    CallbackService callbackService =
-        new CallbackService(rabbitTemplate, objectMapper, DUMMY_EXCHANGE_NAME, callbackTimeout);
+    CallbackService callbackService = createCallbackService(objectMapper);
 
     /** Prepare the dummy data to be sent */
     JobDataMap map = new JobDataMap();
@@ -183,9 +230,7 @@ public class CallbackServiceTest {
 
   @Test
   void httpCallbackSendFailureCasesKO() throws IOException, InterruptedException {
-    long callbackTimeout = 1000L;
-    CallbackService callbackService =
-        new CallbackService(rabbitTemplate, objectMapper, DUMMY_EXCHANGE_NAME, callbackTimeout);
+    CallbackService callbackService = createCallbackService(objectMapper);
 
     /** Prepare the dummy data to be sent */
     JobDataMap map = new JobDataMap();
@@ -270,8 +315,7 @@ public class CallbackServiceTest {
 
   @Test
   void amqpCallbackSendFailureCasesKO() {
-    CallbackService callbackService =
-        new CallbackService(rabbitTemplate, objectMapper, DUMMY_EXCHANGE_NAME, 1000);
+    CallbackService callbackService = createCallbackService(objectMapper);
 
     /** Prepare the dummy data to be sent */
     JobDataMap map = new JobDataMap();
@@ -335,4 +379,502 @@ public class CallbackServiceTest {
 
     Mockito.verifyNoInteractions(httpClient);
   }
+
+  @Test
+  void asyncHTTPCallbackSendOK() throws IOException, InterruptedException {
+    callbackTimeout = 50L;
+    httpDestinationPools =
+        new HttpDestinationPools(new SimpleMeterRegistry(), callbackTimeout, 32, 64, false);
+    httpMaxInFlight = 1;
+    CallbackService callbackService = createCallbackService(objectMapper);
+
+    ScheduleJobMetadata scheduleEventMetadata = new ScheduleJobMetadata();
+    scheduleEventMetadata.setTriggerTime(Instant.now());
+    SchedulerJobData schedulerJobData =
+        new SchedulerJobData(
+            DUMMY_ID_NAME,
+            DUMMY_KEY_NAME,
+            "http://test.host.com:8080/test",
+            CallbackType.HTTP,
+            scheduleEventMetadata);
+    Mockito.when(objectMapper.writeValueAsString(ArgumentMatchers.any())).thenReturn("{}");
+
+    HttpResponse<Object> mockResponse = Mockito.mock(HttpResponse.class);
+    Mockito.when(mockResponse.statusCode()).thenReturn(200, 503);
+    CompletableFuture<HttpResponse<Object>> pendingResponse = new CompletableFuture<>();
+    Mockito.when(httpClient.sendAsync(ArgumentMatchers.any(), ArgumentMatchers.any()))
+        .thenReturn(pendingResponse);
+
+    CompletableFuture<Void> firstCallback =
+        callbackService.executeCallbackAsync(schedulerJobData, Collections.emptyMap());
+    Assertions.assertFalse(firstCallback.isDone());
+
+    /* The only in-flight permit is taken by the pending request. Deferred without waiting */
+    CompletableFuture<Void> rejectedCallback =
+        callbackService.executeCallbackAsync(schedulerJobData, Collections.emptyMap());
+    Assertions.assertTrue(rejectedCallback.isDone());
+    CompletionException exception =
+        Assertions.assertThrows(CompletionException.class, rejectedCallback::join);
+    Assertions.assertTrue(exception.getCause() instanceof CallbackDeferredException);
+
+    pendingResponse.complete(mockResponse);
+    firstCallback.join();
+
+    /* The permit is released on completion. 5XX responses are recoverable failures */
+    exception =
+        Assertions.assertThrows(
+            CompletionException.class,
+            () ->
+                callbackService
+                    .executeCallbackAsync(schedulerJobData, Collections.emptyMap())
+                    .join());
+    Assertions.assertNotNull(
+        AnnotationUtils.findAnnotation(exception.getCause().getClass(), Reeschedulable.class));
+    Mockito.verify(httpClient, Mockito.never())
+        .send(ArgumentMatchers.any(), ArgumentMatchers.any());
+    Mockito.verifyNoInteractions(rabbitTemplate);
+  }
+
+  @Test
+  void hostBulkheadHTTPCallbacksDeferred() throws IOException, InterruptedException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    callbackTimeout = 50L;
+    httpDestinationPools = new HttpDestinationPools(meterRegistry, callbackTimeout, 1, 1, false);
+    CallbackService callbackService = createCallbackService(objectMapper);
+
+    ScheduleJobMetadata scheduleEventMetadata = new ScheduleJobMetadata();
+    scheduleEventMetadata.setTriggerTime(Instant.now());
+    SchedulerJobData schedulerJobData =
+        new SchedulerJobData(
+            DUMMY_ID_NAME,
+            DUMMY_KEY_NAME,
+            "http://test.host.com:8080/test",
+            CallbackType.HTTP,
+            scheduleEventMetadata);
+    Mockito.when(objectMapper.writeValueAsString(ArgumentMatchers.any())).thenReturn("{}");
+
+    HttpResponse<Object> mockResponse = Mockito.mock(HttpResponse.class);
+    Mockito.when(mockResponse.statusCode()).thenReturn(200);
+    CompletableFuture<HttpResponse<Object>> firstResponse = new CompletableFuture<>();
+    CompletableFuture<HttpResponse<Object>> secondResponse = new CompletableFuture<>();
+    Mockito.when(httpClient.sendAsync(ArgumentMatchers.any(), ArgumentMatchers.any()))
+        .thenReturn(firstResponse, secondResponse);
+
+    /* One request per host. The second one is queued and the third one deferred */
+    CompletableFuture<Void> firstCallback =
+        callbackService.executeCallbackAsync(schedulerJobData, Collections.emptyMap());
+    CompletableFuture<Void> queuedCallback =
+        callbackService.executeCallbackAsync(schedulerJobData, Collections.emptyMap());
+    CompletionException exception =
+        Assertions.assertThrows(
+            CompletionException.class,
+            () ->
+                callbackService
+                    .executeCallbackAsync(schedulerJobData, Collections.emptyMap())
+                    .join());
+    Assertions.assertTrue(exception.getCause() instanceof CallbackDeferredException);
+    Assertions.assertThrows(
+        CallbackDeferredException.class,
+        () -> callbackService.executeCallback(schedulerJobData, Collections.emptyMap()));
+    Mockito.verify(httpClient, Mockito.times(1))
+        .sendAsync(ArgumentMatchers.any(), ArgumentMatchers.any());
+    Assertions.assertEquals(
+        2.0,
+        meterRegistry
+            .get("http.callbacks.deferred")
+            .tag("host", "test.host.com:8080")
+            .counter()
+            .count());
+
+    /* The completion of the first request hands its slot over to the queued one */
+    firstResponse.complete(mockResponse);
+    firstCallback.join();
+    Assertions.assertFalse(queuedCallback.isDone());
+    Mockito.verify(httpClient, Mockito.times(2))
+        .sendAsync(ArgumentMatchers.any(), ArgumentMatchers.any());
+    secondResponse.complete(mockResponse);
+    queuedCallback.join();
+    Mockito.verify(httpClient, Mockito.never())
+        .send(ArgumentMatchers.any(), ArgumentMatchers.any());
+  }
+
+  @Test
+  void openCircuitBreakerHTTPCallbacksDeferred() throws IOException, InterruptedException {
+    callbackTimeout = 50L;
+    httpDestinationPools =
+        new HttpDestinationPools(new SimpleMeterRegistry(), callbackTimeout, 32, 64, false);
+    circuitBreakers = new CallbackCircuitBreakers(new SimpleMeterRegistry(), 2, 200);
+    CallbackService callbackService = createCallbackService(objectMapper);
+
+    ScheduleJobMetadata scheduleEventMetadata = new ScheduleJobMetadata();
+    scheduleEventMetadata.setTriggerTime(Instant.now());
+    SchedulerJobData schedulerJobData =
+        new SchedulerJobData(
+            DUMMY_ID_NAME,
+            DUMMY_KEY_NAME,
+            "http://test.host.com:8080/test",
+            CallbackType.HTTP,
+            scheduleEventMetadata);
+    Mockito.when(objectMapper.writeValueAsString(ArgumentMatchers.any())).thenReturn("{}");
+    HttpResponse<Object> mockResponse = Mockito.mock(HttpResponse.class);
+    Mockito.when(mockResponse.statusCode()).thenReturn(200);
+    Mockito.when(httpClient.send(ArgumentMatchers.any(), ArgumentMatchers.any()))
+        .thenThrow(new ConnectException("Connection refused"))
+        .thenThrow(new ConnectException("Connection refused"))
+        .thenThrow(new ConnectException("Connection refused"))
+        .thenReturn(mockResponse);
+
+    /* Two consecutive unreachable failures open the breaker */
+    for (int attempt = 0; attempt < 2; attempt++) {
+      Assertions.assertThrows(
+          RemoteUnreachableException.class,
+          () -> callbackService.executeCallback(schedulerJobData, Collections.emptyMap()));
+    }
+    CallbackDeferredException deferredException =
+        Assertions.assertThrows(
+            CallbackDeferredException.class,
+            () -> callbackService.executeCallback(schedulerJobData, Collections.emptyMap()));
+    Assertions.assertTrue(deferredException.getRetryAfter().toMillis() > 0);
+    CompletionException exception =
+        Assertions.assertThrows(
+            CompletionException.class,
+            () ->
+                callbackService
+                    .executeCallbackAsync(schedulerJobData, Collections.emptyMap())
+                    .join());
+    Assertions.assertTrue(exception.getCause() instanceof CallbackDeferredException);
+    Mockito.verify(httpClient, Mockito.times(2))
+        .send(ArgumentMatchers.any(), ArgumentMatchers.any());
+
+    /* A failed half open probe opens the breaker again. A succeeded one closes it */
+    Thread.sleep(250);
+    Assertions.assertThrows(
+        RemoteUnreachableException.class,
+        () -> callbackService.executeCallback(schedulerJobData, Collections.emptyMap()));
+    Assertions.assertThrows(
+        CallbackDeferredException.class,
+        () -> callbackService.executeCallback(schedulerJobData, Collections.emptyMap()));
+    Thread.sleep(250);
+    callbackService.executeCallback(schedulerJobData, Collections.emptyMap());
+    Assertions.assertEquals(
+        CircuitBreaker.State.CLOSED,
+        circuitBreakers.getCircuitBreaker("http://test.host.com:8080").getState());
+    Mockito.verify(httpClient, Mockito.times(4))
+        .send(ArgumentMatchers.any(), ArgumentMatchers.any());
+  }
+
+  @Test
+  void localSaturationIgnoredByCircuitBreaker() throws IOException, InterruptedException {
+    callbackTimeout = 50L;
+    httpDestinationPools =
+        new HttpDestinationPools(new SimpleMeterRegistry(), callbackTimeout, 1, 1, false);
+    circuitBreakers = new CallbackCircuitBreakers(new SimpleMeterRegistry(), 1, 30000);
+    httpMaxInFlight = 1;
+    CallbackService callbackService = createCallbackService(objectMapper);
+
+    ScheduleJobMetadata scheduleEventMetadata = new ScheduleJobMetadata();
+    scheduleEventMetadata.setTriggerTime(Instant.now());
+    SchedulerJobData schedulerJobData =
+        new SchedulerJobData(
+            DUMMY_ID_NAME,
+            DUMMY_KEY_NAME,
+            "http://test.host.com:8080/test",
+            CallbackType.HTTP,
+            scheduleEventMetadata);
+    Mockito.when(objectMapper.writeValueAsString(ArgumentMatchers.any())).thenReturn("{}");
+    HttpResponse<Object> mockResponse = Mockito.mock(HttpResponse.class);
+    Mockito.when(mockResponse.statusCode()).thenReturn(404);
+    CompletableFuture<HttpResponse<Object>> pendingResponse = new CompletableFuture<>();
+    Mockito.when(httpClient.sendAsync(ArgumentMatchers.any(), ArgumentMatchers.any()))
+        .thenReturn(pendingResponse);
+
+    /* Saturated in-flight permits and host queues are deferrals, not remote failures */
+    CompletableFuture<Void> pendingCallback =
+        callbackService.executeCallbackAsync(schedulerJobData, Collections.emptyMap());
+    for (int attempt = 0; attempt < 3; attempt++) {
+      CompletionException exception =
+          Assertions.assertThrows(
+              CompletionException.class,
+              () ->
+                  callbackService
+                      .executeCallbackAsync(schedulerJobData, Collections.emptyMap())
+                      .join());
+      Assertions.assertTrue(exception.getCause() instanceof CallbackDeferredException);
+      Assertions.assertThrows(
+          CallbackDeferredException.class,
+          () -> callbackService.executeCallback(schedulerJobData, Collections.emptyMap()));
+    }
+    CircuitBreaker circuitBreaker = circuitBreakers.getCircuitBreaker("http://test.host.com:8080");
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    Assertions.assertEquals(0, circuitBreaker.getConsecutiveFailures());
+
+    /* A rejected callback reached the remote, so the breaker stays closed as well */
+    pendingResponse.complete(mockResponse);
+    Assertions.assertThrows(CompletionException.class, pendingCallback::join);
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  void deferredCallbacksReleaseRateSlotsOK() throws IOException {
+    rateLimiters = Mockito.mock(ICallbackRateLimiters.class);
+    Mockito.when(rateLimiters.tryAcquire(DUMMY_KEY_NAME, DUMMY_ID_NAME)).thenReturn(Duration.ZERO);
+    callbackTimeout = 50L;
+    httpDestinationPools =
+        new HttpDestinationPools(new SimpleMeterRegistry(), callbackTimeout, 1, 1, false);
+    circuitBreakers = new CallbackCircuitBreakers(new SimpleMeterRegistry(), 1, 30000);
+    httpMaxInFlight = 1;
+    CallbackService callbackService = createCallbackService(objectMapper);
+
+    ScheduleJobMetadata scheduleEventMetadata = new ScheduleJobMetadata();
+    scheduleEventMetadata.setTriggerTime(Instant.now());
+    SchedulerJobData schedulerJobData =
+        new SchedulerJobData(
+            DUMMY_ID_NAME,
+            DUMMY_KEY_NAME,
+            "http://test.host.com:8080/test",
+            CallbackType.HTTP,
+            scheduleEventMetadata);
+    Mockito.when(objectMapper.writeValueAsString(ArgumentMatchers.any())).thenReturn("{}");
+    HttpResponse<Object> mockResponse = Mockito.mock(HttpResponse.class);
+    Mockito.when(mockResponse.statusCode()).thenReturn(503);
+    CompletableFuture<HttpResponse<Object>> pendingResponse = new CompletableFuture<>();
+    Mockito.when(httpClient.sendAsync(ArgumentMatchers.any(), ArgumentMatchers.any()))
+        .thenReturn(pendingResponse);
+
+    /* Callbacks deferred by the host and in-flight limits were never sent */
+    CompletableFuture<Void> pendingCallback =
+        callbackService.executeCallbackAsync(schedulerJobData, Collections.emptyMap());
+    Assertions.assertThrows(
+        CallbackDeferredException.class,
+        () -> callbackService.executeCallback(schedulerJobData, Collections.emptyMap()));
+    CompletionException exception =
+        Assertions.assertThrows(
+            CompletionException.class,
+            () ->
+                callbackService
+                    .executeCallbackAsync(schedulerJobData, Collections.emptyMap())
+                    .join());
+    Assertions.assertTrue(exception.getCause() instanceof CallbackDeferredException);
+    Mockito.verify(rateLimiters, Mockito.times(2)).release(DUMMY_KEY_NAME);
+
+    /* A sent callback keeps its slot. An open breaker defers before the rate is checked */
+    pendingResponse.complete(mockResponse);
+    Assertions.assertThrows(CompletionException.class, pendingCallback::join);
+    Assertions.assertThrows(
+        CallbackDeferredException.class,
+        () -> callbackService.executeCallback(schedulerJobData, Collections.emptyMap()));
+    Mockito.verify(rateLimiters, Mockito.times(3)).tryAcquire(DUMMY_KEY_NAME, DUMMY_ID_NAME);
+    Mockito.verify(rateLimiters, Mockito.times(2)).release(DUMMY_KEY_NAME);
+  }
+
+  @Test
+  void rawJsonHTTPCallbackSendOK() throws IOException, InterruptedException {
+    ObjectMapper jsonMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    CallbackService callbackService = createCallbackService(jsonMapper);
+
+    ScheduleJobMetadata scheduleEventMetadata = new ScheduleJobMetadata();
+    scheduleEventMetadata.setTriggerTime(Instant.now());
+    scheduleEventMetadata.setNotificationAttempt(2);
+    SchedulerJobData schedulerJobData =
+        new SchedulerJobData(
+            DUMMY_ID_NAME,
+            DUMMY_KEY_NAME,
+            "http://test.host.com:8080/test",
+            CallbackType.HTTP,
+            scheduleEventMetadata);
+    Map<String, Object> taskData = Collections.singletonMap("test-key", Arrays.asList(1, 2));
+
+    HttpResponse<Object> mockResponse = Mockito.mock(HttpResponse.class);
+    Mockito.when(mockResponse.statusCode()).thenReturn(200);
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    Mockito.when(httpClient.send(requestCaptor.capture(), ArgumentMatchers.any()))
+        .thenReturn(mockResponse);
+
+    callbackService.executeCallback(
+        schedulerJobData, new RawJsonData(jsonMapper.writeValueAsBytes(taskData)));
+
+    /* The envelope written around the raw bytes is a regular callback message */
+    CallbackMessage sentMessage =
+        jsonMapper.readValue(readBody(requestCaptor.getValue()), CallbackMessage.class);
+    Assertions.assertEquals(
+        new CallbackMessage(
+            DUMMY_ID_NAME,
+            DUMMY_KEY_NAME,
+            taskData,
+            scheduleEventMetadata.getTriggerTime(),
+            scheduleEventMetadata.getNotificationAttempt()),
+        sentMessage);
+    Mockito.verifyNoInteractions(rabbitTemplate);
+  }
+
+  @Test
+  void batchedHTTPCallbacksSendOK() throws IOException, InterruptedException {
+    ObjectMapper jsonMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    /* Batches are sent by the batcher thread. The static client mock is only seen by this one */
+    httpDestinationPools.getDestination(URI.create("http://test.host.com:8080/test"));
+    callbackBatcher.destroy();
+    callbackBatcher = new CallbackBatcher(100, 500);
+    CallbackService callbackService = createCallbackService(jsonMapper);
+
+    HttpResponse<Object> mockResponse = Mockito.mock(HttpResponse.class);
+    Mockito.when(mockResponse.statusCode()).thenReturn(200);
+    Mockito.when(mockResponse.body())
+        .thenReturn(
+            jsonMapper.writeValueAsBytes(
+                Arrays.asList(
+                    new CallbackBatchItemResult("test-id-0", DUMMY_KEY_NAME, 200),
+                    new CallbackBatchItemResult("test-id-1", DUMMY_KEY_NAME, 503))));
+    ArgumentCaptor<HttpRequest> requestCaptor = ArgumentCaptor.forClass(HttpRequest.class);
+    Mockito.when(httpClient.sendAsync(requestCaptor.capture(), ArgumentMatchers.any()))
+        .thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+    /* Three callbacks to the same endpoint, within the window, go in a single request */
+    List<CompletableFuture<Void>> callbacks = new ArrayList<>();
+    for (int index = 0; index < 3; index++) {
+      ScheduleJobMetadata scheduleEventMetadata = new ScheduleJobMetadata();
+      scheduleEventMetadata.setTriggerTime(Instant.now());
+      callbacks.add(
+          callbackService.executeCallbackAsync(
+              new SchedulerJobData(
+                  "test-id-" + index,
+                  DUMMY_KEY_NAME,
+                  "http://test.host.com:8080/test",
+                  CallbackType.HTTP,
+                  scheduleEventMetadata,
+                  null,
+                  true),
+              index == 0
+                  ? new RawJsonData(jsonMapper.writeValueAsBytes(Collections.emptyMap()))
+                  : Collections.singletonMap("test-index", index)));
+    }
+    Assertions.assertFalse(callbacks.get(0).isDone());
+
+    /* Per item results. Missing items are retried as well */
+    callbacks.get(0).join();
+    for (CompletableFuture<Void> callback : callbacks.subList(1, 3)) {
+      CompletionException exception =
+          Assertions.assertThrows(CompletionException.class, callback::join);
+      Assertions.assertNotNull(
+          AnnotationUtils.findAnnotation(exception.getCause().getClass(), Reeschedulable.class));
+    }
+    Mockito.verify(httpClient, Mockito.times(1))
+        .sendAsync(ArgumentMatchers.any(), ArgumentMatchers.any());
+    CallbackMessage[] sentMessages =
+        jsonMapper.readValue(readBody(requestCaptor.getValue()), CallbackMessage[].class);
+    Assertions.assertEquals(3, sentMessages.length);
+    Assertions.assertEquals("test-id-2", sentMessages[2].getId());
+    Assertions.assertEquals(Collections.singletonMap("test-index", 2), sentMessages[2].getData());
+  }
+
+  @Test
+  void confirmedAMQPCallbackSendOK() {
+    ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
+    Mockito.when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+    Mockito.when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+    httpMaxInFlight = 1;
+    amqpPublisherConfirms = true;
+    amqpConfirmTimeout = 50L;
+    CallbackService callbackService = createCallbackService(objectMapper);
+
+    ScheduleJobMetadata scheduleEventMetadata = new ScheduleJobMetadata();
+    scheduleEventMetadata.setTriggerTime(Instant.now());
+    SchedulerJobData schedulerJobData =
+        new SchedulerJobData(
+            DUMMY_ID_NAME, DUMMY_KEY_NAME, null, CallbackType.AMQP, scheduleEventMetadata);
+
+    /* The broker acks the first message, nacks the second and never confirms the third */
+    Mockito.doAnswer(
+            invocation -> {
+              invocation
+                  .getArgument(3, CorrelationData.class)
+                  .getFuture()
+                  .set(new CorrelationData.Confirm(true, null));
+              return null;
+            })
+        .doAnswer(
+            invocation -> {
+              invocation
+                  .getArgument(3, CorrelationData.class)
+                  .getFuture()
+                  .set(new CorrelationData.Confirm(false, "test nack"));
+              return null;
+            })
+        .doNothing()
+        .when(rabbitTemplate)
+        .convertAndSend(
+            Mockito.eq(DUMMY_EXCHANGE_NAME),
+            Mockito.eq(DUMMY_KEY_NAME),
+            Mockito.any(CallbackMessage.class),
+            Mockito.any(CorrelationData.class));
+
+    callbackService.executeCallback(schedulerJobData, Collections.emptyMap());
+
+    /* Nacks and confirm timeouts are both recoverable failures */
+    RuntimeException exception =
+        Assertions.assertThrows(
+            RuntimeException.class,
+            () -> callbackService.executeCallback(schedulerJobData, Collections.emptyMap()));
+    Assertions.assertNotNull(
+        AnnotationUtils.findAnnotation(exception.getClass(), Reeschedulable.class));
+    CompletionException asyncException =
+        Assertions.assertThrows(
+            CompletionException.class,
+            () ->
+                callbackService
+                    .executeCallbackAsync(schedulerJobData, Collections.emptyMap())
+                    .join());
+    Assertions.assertNotNull(
+        AnnotationUtils.findAnnotation(asyncException.getCause().getClass(), Reeschedulable.class));
+
+    Mockito.verifyNoInteractions(httpClient);
+  }
+
+  private CallbackService createCallbackService(ObjectMapper mapper) {
+    return new CallbackService(
+        rabbitTemplate,
+        mapper,
+        httpDestinationPools,
+        circuitBreakers,
+        callbackBatcher,
+        rateLimiters,
+        DUMMY_EXCHANGE_NAME,
+        callbackTimeout,
+        httpMaxInFlight,
+        amqpPublisherConfirms,
+        amqpConfirmTimeout);
+  }
+
+  private static byte[] readBody(HttpRequest httpRequest) {
+    CompletableFuture<byte[]> body = new CompletableFuture<>();
+    httpRequest
+        .bodyPublisher()
+        .orElseThrow()
+        .subscribe(
+            new Flow.Subscriber<>() {
+              private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+              @Override
+              public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+              }
+
+              @Override
+              public void onNext(ByteBuffer item) {
+                byte[] chunk = new byte[item.remaining()];
+                item.get(chunk);
+                outputStream.writeBytes(chunk);
+              }
+
+              @Override
+              public void onError(Throwable throwable) {
+                body.completeExceptionally(throwable);
+              }
+
+              @Override
+              public void onComplete() {
+                body.complete(outputStream.toByteArray());
+              }
+            });
+    return body.join();
+  }
 }
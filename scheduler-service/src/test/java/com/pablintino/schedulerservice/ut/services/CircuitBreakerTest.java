@@ -0,0 +1,73 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.pablintino.schedulerservice.services.CircuitBreaker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  @Test
+  void consecutiveFailuresOpenOK() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker("test-endpoint", 3, 30000);
+
+    /* A success in between resets the count */
+    for (int attempt = 0; attempt < 2; attempt++) {
+      Assertions.assertTrue(circuitBreaker.tryAcquire());
+      circuitBreaker.onFailure();
+    }
+    Assertions.assertTrue(circuitBreaker.tryAcquire());
+    circuitBreaker.onSuccess();
+    Assertions.assertEquals(0, circuitBreaker.getConsecutiveFailures());
+
+    /* Ignored calls are neither failures nor successes */
+    for (int attempt = 0; attempt < 2; attempt++) {
+      Assertions.assertTrue(circuitBreaker.tryAcquire());
+      circuitBreaker.onFailure();
+    }
+    Assertions.assertTrue(circuitBreaker.tryAcquire());
+    circuitBreaker.onIgnored();
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    Assertions.assertNull(circuitBreaker.getOpenedAt());
+
+    Assertions.assertTrue(circuitBreaker.tryAcquire());
+    circuitBreaker.onFailure();
+    Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    Assertions.assertNotNull(circuitBreaker.getOpenedAt());
+    Assertions.assertFalse(circuitBreaker.tryAcquire());
+    Assertions.assertTrue(circuitBreaker.getRetryAfter().toMillis() > 29000);
+  }
+
+  @Test
+  void halfOpenProbeOK() throws InterruptedException {
+    CircuitBreaker circuitBreaker = new CircuitBreaker("test-endpoint", 1, 100);
+    Assertions.assertTrue(circuitBreaker.tryAcquire());
+    circuitBreaker.onFailure();
+    Assertions.assertFalse(circuitBreaker.tryAcquire());
+
+    /* Once the open duration is over a single probe is let through */
+    Thread.sleep(150);
+    Assertions.assertTrue(circuitBreaker.tryAcquire());
+    Assertions.assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+    Assertions.assertFalse(circuitBreaker.tryAcquire());
+
+    /* A probe that was never sent lets the next call probe instead */
+    circuitBreaker.onIgnored();
+    Assertions.assertTrue(circuitBreaker.tryAcquire());
+
+    /* A failed probe opens the breaker again, for a whole open duration */
+    circuitBreaker.onFailure();
+    Assertions.assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    Assertions.assertFalse(circuitBreaker.tryAcquire());
+    Assertions.assertTrue(circuitBreaker.getRetryAfter().toMillis() > 50);
+
+    /* A succeeded probe closes it */
+    Thread.sleep(150);
+    Assertions.assertTrue(circuitBreaker.tryAcquire());
+    circuitBreaker.onSuccess();
+    Assertions.assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    Assertions.assertEquals(0, circuitBreaker.getConsecutiveFailures());
+    Assertions.assertTrue(circuitBreaker.getRetryAfter().isZero());
+    Assertions.assertTrue(circuitBreaker.tryAcquire());
+    Assertions.assertTrue(circuitBreaker.tryAcquire());
+  }
+}
@@ -0,0 +1,95 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.pablintino.schedulerservice.services.CronExpressionCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.CronExpression;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+class CronExpressionCacheTest {
+
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+  @Test
+  void compiledExpressionsSharedOK() throws ParseException {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CronExpressionCache cronExpressionCache = new CronExpressionCache(meterRegistry, 2, 10);
+
+    CronExpression hourly = cronExpressionCache.getCronExpression("0 0 * * * ?", UTC);
+    Assertions.assertSame(hourly, cronExpressionCache.getCronExpression("0 0 * * * ?", UTC));
+    Assertions.assertEquals(UTC, hourly.getTimeZone());
+
+    /* The time zone is part of the key, the same expression fires at other instants */
+    TimeZone madrid = TimeZone.getTimeZone("Europe/Madrid");
+    CronExpression madridHourly = cronExpressionCache.getCronExpression("0 0 * * * ?", madrid);
+    Assertions.assertNotSame(hourly, madridHourly);
+    Assertions.assertEquals(madrid, madridHourly.getTimeZone());
+
+    Assertions.assertThrows(
+        ParseException.class, () -> cronExpressionCache.getCronExpression("not a cron", UTC));
+
+    /* Least recently used expressions are evicted first */
+    cronExpressionCache.getCronExpression("0 0 * * * ?", UTC);
+    cronExpressionCache.getCronExpression("0 30 * * * ?", UTC);
+    Assertions.assertSame(hourly, cronExpressionCache.getCronExpression("0 0 * * * ?", UTC));
+    Assertions.assertNotSame(
+        madridHourly, cronExpressionCache.getCronExpression("0 0 * * * ?", madrid));
+
+    Assertions.assertEquals(3.0, getCounter(meterRegistry, "cache.gets", "hit"));
+    Assertions.assertEquals(5.0, getCounter(meterRegistry, "cache.gets", "miss"));
+    Assertions.assertEquals(
+        2.0,
+        meterRegistry.get("cache.evictions").tag("cache", "cron-expression").counter().count());
+  }
+
+  @Test
+  void nextFireTimesOK() throws ParseException {
+    CronExpressionCache cronExpressionCache =
+        new CronExpressionCache(new SimpleMeterRegistry(), 10, 5);
+    Date after = Date.from(Instant.parse("2030-01-01T00:30:00Z"));
+
+    List<Date> fireTimes = cronExpressionCache.getNextFireTimes("0 0 * * * ?", UTC, after, 3);
+    Assertions.assertEquals(
+        List.of(
+            Date.from(Instant.parse("2030-01-01T01:00:00Z")),
+            Date.from(Instant.parse("2030-01-01T02:00:00Z")),
+            Date.from(Instant.parse("2030-01-01T03:00:00Z"))),
+        fireTimes);
+
+    /* Served from the precomputed times, the ones already past are skipped */
+    Date later = Date.from(Instant.parse("2030-01-01T02:00:00Z"));
+    Assertions.assertEquals(
+        List.of(
+            Date.from(Instant.parse("2030-01-01T03:00:00Z")),
+            Date.from(Instant.parse("2030-01-01T04:00:00Z"))),
+        cronExpressionCache.getNextFireTimes("0 0 * * * ?", UTC, later, 2));
+
+    /* More than the precomputed ones are computed on demand */
+    List<Date> manyFireTimes =
+        cronExpressionCache.getNextFireTimes("0 0 * * * ?", UTC, after, 20);
+    Assertions.assertEquals(20, manyFireTimes.size());
+    Assertions.assertEquals(
+        Date.from(Instant.parse("2030-01-01T20:00:00Z")), manyFireTimes.get(19));
+
+    /* Expressions that stop firing return the fire times they have left */
+    Assertions.assertEquals(
+        List.of(Date.from(Instant.parse("2031-01-01T12:00:00Z"))),
+        cronExpressionCache.getNextFireTimes("0 0 12 1 1 ? 2031", UTC, after, 5));
+  }
+
+  private static double getCounter(MeterRegistry meterRegistry, String name, String result) {
+    return meterRegistry
+        .get(name)
+        .tag("cache", "cron-expression")
+        .tag("result", result)
+        .counter()
+        .count();
+  }
+}
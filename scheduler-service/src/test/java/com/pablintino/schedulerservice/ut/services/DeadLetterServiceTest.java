@@ -0,0 +1,126 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.pablintino.schedulerservice.models.CallbackType;
+import com.pablintino.schedulerservice.models.DeadLetter;
+import com.pablintino.schedulerservice.models.RawJsonData;
+import com.pablintino.schedulerservice.models.ScheduleJobMetadata;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import com.pablintino.schedulerservice.services.DeadLetterService;
+import com.pablintino.schedulerservice.services.ICallbackService;
+import com.pablintino.schedulerservice.services.IDeadLetterRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import org.quartz.JobKey;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+class DeadLetterServiceTest {
+
+  @Test
+  void rateLimitedReplayOK() {
+    IDeadLetterRepository deadLetterRepository = Mockito.mock(IDeadLetterRepository.class);
+    ICallbackService callbackService = Mockito.mock(ICallbackService.class);
+    DeadLetterService deadLetterService =
+        new DeadLetterService(deadLetterRepository, callbackService, 10);
+
+    DeadLetter delivered = buildDeadLetter(1);
+    DeadLetter failed = buildDeadLetter(2);
+    DeadLetter skipped = buildDeadLetter(3);
+    List<DeadLetter> deadLetters = Arrays.asList(delivered, failed, skipped);
+    Mockito.when(
+            deadLetterRepository.findDeadLetters(
+                ArgumentMatchers.eq("key"), ArgumentMatchers.<Long>anyCollection()))
+        .thenAnswer(
+            invocation -> {
+              Collection<Long> ids = invocation.getArgument(1);
+              return deadLetters.stream()
+                  .filter(deadLetter -> ids.contains(deadLetter.getId()))
+                  .collect(Collectors.toList());
+            });
+    List<Long> replayNanos = new CopyOnWriteArrayList<>();
+    Mockito.when(
+            callbackService.executeCallbackAsync(
+                ArgumentMatchers.any(SchedulerJobData.class), ArgumentMatchers.any()))
+        .thenAnswer(
+            invocation -> {
+              replayNanos.add(System.nanoTime());
+              return invocation.getArgument(0) == failed.getJobData()
+                  ? CompletableFuture.failedFuture(new IllegalStateException("still down"))
+                  : CompletableFuture.completedFuture(null);
+            });
+
+    long replayStartNanos = System.nanoTime();
+    Assertions.assertEquals(2, deadLetterService.replayDeadLetters("key", Arrays.asList(1L, 2L)));
+    /* Letters already waiting for their replay are not queued again */
+    Assertions.assertEquals(
+        0, deadLetterService.replayDeadLetters("key", Collections.singleton(2L)));
+
+    Mockito.verify(deadLetterRepository, Mockito.timeout(2000)).delete(1);
+    Mockito.verify(deadLetterRepository, Mockito.timeout(2000))
+        .updateFailure(
+            ArgumentMatchers.eq(2L),
+            ArgumentMatchers.any(Instant.class),
+            ArgumentMatchers.contains("still down"));
+    Mockito.verify(callbackService, Mockito.times(2))
+        .executeCallbackAsync(
+            ArgumentMatchers.any(SchedulerJobData.class), ArgumentMatchers.any());
+    /* The second replay waits for its slot, 100 ms after the first one */
+    Assertions.assertTrue(replayNanos.get(1) - replayStartNanos >= 100_000_000L);
+    deadLetterService.destroy();
+  }
+
+  @Test
+  void replayAllInPagesOK() {
+    IDeadLetterRepository deadLetterRepository = Mockito.mock(IDeadLetterRepository.class);
+    ICallbackService callbackService = Mockito.mock(ICallbackService.class);
+    DeadLetterService deadLetterService =
+        new DeadLetterService(deadLetterRepository, callbackService, 10);
+
+    List<DeadLetter> firstPage =
+        LongStream.rangeClosed(1, 100)
+            .mapToObj(DeadLetterServiceTest::buildDeadLetter)
+            .collect(Collectors.toList());
+    Mockito.when(deadLetterRepository.findDeadLetters("key", 0, 100)).thenReturn(firstPage);
+    Mockito.when(deadLetterRepository.findDeadLetters("key", 100, 100))
+        .thenReturn(Collections.singletonList(buildDeadLetter(101)));
+    Mockito.when(
+            callbackService.executeCallbackAsync(
+                ArgumentMatchers.any(SchedulerJobData.class), ArgumentMatchers.any()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    /* The page after a short one is not requested */
+    Assertions.assertEquals(101, deadLetterService.replayDeadLetters("key"));
+    Mockito.verify(deadLetterRepository, Mockito.times(2))
+        .findDeadLetters(
+            ArgumentMatchers.eq("key"), ArgumentMatchers.anyLong(), ArgumentMatchers.eq(100));
+    deadLetterService.destroy();
+  }
+
+  private static DeadLetter buildDeadLetter(long id) {
+    SchedulerJobData jobData =
+        new SchedulerJobData(
+            "task-" + id,
+            "key",
+            "http://localhost:8080",
+            CallbackType.HTTP,
+            new ScheduleJobMetadata());
+    return new DeadLetter(
+        id,
+        JobKey.jobKey("task-" + id, "key"),
+        Instant.now(),
+        "error",
+        jobData,
+        new RawJsonData("{}".getBytes(StandardCharsets.UTF_8)));
+  }
+}
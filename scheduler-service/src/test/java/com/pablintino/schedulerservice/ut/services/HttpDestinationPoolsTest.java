@@ -0,0 +1,63 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.pablintino.schedulerservice.services.HttpDestination;
+import com.pablintino.schedulerservice.services.HttpDestinationPools;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+
+class HttpDestinationPoolsTest {
+
+  @Test
+  void hostSlotsNeverWaitOK() {
+    HttpDestinationPools httpDestinationPools =
+        new HttpDestinationPools(new SimpleMeterRegistry(), 1000L, 2, 4, false);
+    HttpDestination destination =
+        httpDestinationPools.getDestination(URI.create("http://test.host.com:8080/test"));
+
+    /* Past the host limit the slot is refused at once, never waited for */
+    Assertions.assertTrue(destination.tryAcquire());
+    Assertions.assertTrue(destination.tryAcquire());
+    Assertions.assertFalse(destination.tryAcquire());
+    destination.release();
+    Assertions.assertTrue(destination.tryAcquire());
+  }
+
+  @Test
+  void idleDestinationsEvictedOK() throws InterruptedException {
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    HttpDestinationPools httpDestinationPools =
+        new HttpDestinationPools(meterRegistry, 1000L, 2, 4, false, 100, 2);
+
+    HttpDestination busyDestination =
+        httpDestinationPools.getDestination(URI.create("http://busy.host.com/test"));
+    Assertions.assertTrue(busyDestination.tryAcquire());
+    HttpDestination idleDestination =
+        httpDestinationPools.getDestination(URI.create("http://idle.host.com/test"));
+    Assertions.assertSame(
+        idleDestination,
+        httpDestinationPools.getDestination(URI.create("http://idle.host.com/other")));
+
+    /* Over the hosts cap, the least recently used idle destination is dropped */
+    httpDestinationPools.getDestination(URI.create("http://new.host.com/test"));
+    Assertions.assertEquals(2, httpDestinationPools.getDestinationCount());
+    Assertions.assertSame(
+        busyDestination,
+        httpDestinationPools.getDestination(URI.create("http://busy.host.com/test")));
+    Assertions.assertNull(
+        meterRegistry.find("http.callbacks.active").tag("host", "idle.host.com:80").gauge());
+
+    /* Destinations idle for longer than the timeout are dropped when a new host shows up */
+    busyDestination.release();
+    Thread.sleep(150);
+    httpDestinationPools.getDestination(URI.create("http://other.host.com/test"));
+    Assertions.assertEquals(1, httpDestinationPools.getDestinationCount());
+    Assertions.assertNull(
+        meterRegistry.find("http.callbacks.active").tag("host", "busy.host.com:80").gauge());
+    Assertions.assertNotNull(
+        meterRegistry.find("http.callbacks.active").tag("host", "other.host.com:80").gauge());
+  }
+}
@@ -0,0 +1,119 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.pablintino.schedulerservice.exceptions.SchedulerValidationException;
+import com.pablintino.schedulerservice.models.CallbackType;
+import com.pablintino.schedulerservice.models.Endpoint;
+import com.pablintino.schedulerservice.models.RawJsonData;
+import com.pablintino.schedulerservice.models.SchedulerJobData;
+import com.pablintino.schedulerservice.models.Task;
+import com.pablintino.schedulerservice.services.JobParamsEncoder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.quartz.JobDataMap;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+class JobParamsEncoderTest {
+
+  private final ObjectMapper objectMapper =
+      new ObjectMapper().registerModule(new JavaTimeModule());
+
+  @Test
+  void binaryRoundTripOK() throws SchedulerValidationException {
+    JobParamsEncoder jobParamsEncoder = new JobParamsEncoder(objectMapper, true);
+    Map<String, Object> taskData = buildTaskData();
+
+    JobDataMap jobDataMap =
+        new JobDataMap(
+            jobParamsEncoder.createEncodeJobParameters(
+                buildTask(taskData), new Endpoint(CallbackType.AMQP, null)));
+
+    /* Binary values are stored as raw bytes, not as strings */
+    Assertions.assertTrue(
+        jobDataMap.getWrappedMap().values().stream().allMatch(byte[].class::isInstance));
+    Assertions.assertEquals(taskData, jobParamsEncoder.getDecodeTaskData(jobDataMap));
+
+    SchedulerJobData schedulerJobData = jobParamsEncoder.getDecodeSchedulerJobData(jobDataMap);
+    Assertions.assertEquals("test-id", schedulerJobData.getTaskId());
+    Assertions.assertEquals("test-key", schedulerJobData.getKey());
+    Assertions.assertEquals(CallbackType.AMQP, schedulerJobData.getType());
+
+    Instant triggerTime = Instant.now();
+    schedulerJobData.getMetadata().setTriggerTime(triggerTime);
+    schedulerJobData.getMetadata().setExecutions(3);
+    jobParamsEncoder.updateEncodeSchedulerJobData(jobDataMap, schedulerJobData);
+    SchedulerJobData updatedJobData = jobParamsEncoder.getDecodeSchedulerJobData(jobDataMap);
+    Assertions.assertEquals(triggerTime, updatedJobData.getMetadata().getTriggerTime());
+    Assertions.assertEquals(3, updatedJobData.getMetadata().getExecutions());
+  }
+
+  @Test
+  void rawTaskDataOK() throws SchedulerValidationException, IOException {
+    JobParamsEncoder jobParamsEncoder = new JobParamsEncoder(objectMapper, true);
+    Map<String, Object> taskData = buildTaskData();
+
+    JobDataMap jobDataMap =
+        new JobDataMap(
+            jobParamsEncoder.createEncodeJobParameters(
+                buildTask(taskData), new Endpoint(CallbackType.AMQP, null)));
+
+    /* Task data is kept as the plain JSON the mapper writes */
+    RawJsonData rawTaskData = jobParamsEncoder.getRawTaskData(jobDataMap);
+    Assertions.assertNotNull(rawTaskData);
+    Assertions.assertEquals(taskData, objectMapper.readValue(rawTaskData.getJson(), Map.class));
+    Assertions.assertEquals(
+        objectMapper.writeValueAsString(taskData),
+        objectMapper.writeValueAsString(rawTaskData));
+
+    /* Legacy task data has no raw form */
+    Assertions.assertNull(
+        jobParamsEncoder.getRawTaskData(
+            new JobDataMap(
+                new JobParamsEncoder(objectMapper, false)
+                    .createEncodeJobParameters(
+                        buildTask(taskData), new Endpoint(CallbackType.AMQP, null)))));
+  }
+
+  @Test
+  void legacyFormatDecodeOK() throws SchedulerValidationException {
+    Map<String, Object> taskData = buildTaskData();
+    JobDataMap jobDataMap =
+        new JobDataMap(
+            new JobParamsEncoder(objectMapper, false)
+                .createEncodeJobParameters(
+                    buildTask(taskData), new Endpoint(CallbackType.AMQP, null)));
+    Assertions.assertTrue(
+        jobDataMap.getWrappedMap().values().stream().allMatch(String.class::isInstance));
+
+    /* Rows written before the binary codec must still be readable */
+    JobParamsEncoder jobParamsEncoder = new JobParamsEncoder(objectMapper, true);
+    Assertions.assertEquals(taskData, jobParamsEncoder.getDecodeTaskData(jobDataMap));
+    Assertions.assertEquals(
+        "test-id", jobParamsEncoder.getDecodeSchedulerJobData(jobDataMap).getTaskId());
+  }
+
+  private static Task buildTask(Object taskData) {
+    return new Task(
+        "test-id",
+        "test-key",
+        ZonedDateTime.now(ZoneOffset.UTC).plusHours(1),
+        null,
+        taskData);
+  }
+
+  private static Map<String, Object> buildTaskData() {
+    Map<String, Object> taskData = new HashMap<>();
+    taskData.put("test-string", "value");
+    taskData.put("test-int", 33);
+    taskData.put("test-list", Arrays.asList("test-1", "test-2"));
+    return taskData;
+  }
+}
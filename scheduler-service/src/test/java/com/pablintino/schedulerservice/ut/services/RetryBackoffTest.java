@@ -0,0 +1,67 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.pablintino.schedulerservice.models.RetryPolicy;
+import com.pablintino.schedulerservice.services.RetryBackoff;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+class RetryBackoffTest {
+
+  @Test
+  void exponentialDelayCappedOK() {
+    RetryBackoff retryBackoff = new RetryBackoff(5000, 300000, 2, false, null);
+
+    Assertions.assertEquals(5000, retryBackoff.getDelay(null, 1));
+    Assertions.assertEquals(10000, retryBackoff.getDelay(null, 2));
+    Assertions.assertEquals(160000, retryBackoff.getDelay(null, 6));
+    Assertions.assertEquals(300000, retryBackoff.getDelay(null, 7));
+
+    /* The task policy overrides the defaults it sets */
+    RetryPolicy retryPolicy = new RetryPolicy(1000L, 4000L, 3.0);
+    Assertions.assertEquals(3000, retryBackoff.getDelay(retryPolicy, 2));
+    Assertions.assertEquals(4000, retryBackoff.getDelay(retryPolicy, 3));
+  }
+
+  @Test
+  void highAttemptsStayAtTheCapOK() {
+    RetryBackoff retryBackoff = new RetryBackoff(5000, 300000, 2, false, null);
+
+    /* The power overflows to infinity, never to a negative or wrapped delay */
+    Assertions.assertEquals(300000, retryBackoff.getDelay(null, 1100));
+    Assertions.assertEquals(300000, retryBackoff.getDelay(null, Long.MAX_VALUE));
+    Assertions.assertEquals(
+        Long.MAX_VALUE,
+        new RetryBackoff(5000, Long.MAX_VALUE, 2, false, null).getDelay(null, 1100));
+    Assertions.assertTrue(
+        new RetryBackoff(5000, Long.MAX_VALUE, 2, true, new Random(7)).getDelay(null, 1100) >= 0);
+  }
+
+  @Test
+  void fullJitterOK() {
+    RetryBackoff retryBackoff = new RetryBackoff(5000, 300000, 2, true, new Random(42));
+    Random expectedRandom = new Random(42);
+
+    /* Uniform between zero and the capped delay, both included */
+    Assertions.assertEquals(
+        (long) (expectedRandom.nextDouble() * 10001), retryBackoff.getDelay(null, 2));
+    Assertions.assertEquals(
+        (long) (expectedRandom.nextDouble() * 300001), retryBackoff.getDelay(null, 50));
+
+    long lowest = Long.MAX_VALUE;
+    long highest = 0;
+    for (int index = 0; index < 1000; index++) {
+      long delay = retryBackoff.getDelay(null, 50);
+      Assertions.assertTrue(delay >= 0 && delay <= 300000);
+      lowest = Math.min(lowest, delay);
+      highest = Math.max(highest, delay);
+    }
+    Assertions.assertTrue(lowest < 30000);
+    Assertions.assertTrue(highest > 270000);
+
+    /* Nothing to spread without a delay */
+    Assertions.assertEquals(
+        0, new RetryBackoff(0, 300000, 2, true, new Random(42)).getDelay(null, 3));
+  }
+}
@@ -0,0 +1,68 @@
+package com.pablintino.schedulerservice.ut.services;
+
+import com.pablintino.schedulerservice.models.RawJsonData;
+import com.pablintino.schedulerservice.services.IJobParamsEncoder;
+import com.pablintino.schedulerservice.services.TaskDataCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.quartz.JobDataMap;
+import org.quartz.JobKey;
+
+import java.util.Collections;
+
+class TaskDataCacheTest {
+
+  @Test
+  void cachedDecodeOK() {
+    IJobParamsEncoder jobParamsEncoder = Mockito.mock(IJobParamsEncoder.class);
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    TaskDataCache taskDataCache = new TaskDataCache(jobParamsEncoder, meterRegistry, 1);
+    JobDataMap jobDataMap = new JobDataMap();
+    JobKey jobKey = JobKey.jobKey("job", "key");
+    Object taskData = Collections.singletonMap("test", 1);
+    Mockito.when(jobParamsEncoder.getEncodedTaskData(jobDataMap)).thenReturn(new byte[] {1, 2});
+    Mockito.when(jobParamsEncoder.getDecodeTaskData(jobDataMap)).thenReturn(taskData);
+
+    Assertions.assertSame(taskData, taskDataCache.getTaskData(jobKey, jobDataMap));
+    Assertions.assertSame(taskData, taskDataCache.getTaskData(jobKey, jobDataMap));
+    Mockito.verify(jobParamsEncoder, Mockito.times(1)).getDecodeTaskData(jobDataMap);
+
+    /* Each load of the job gives new arrays. Same contents, same task data */
+    Mockito.when(jobParamsEncoder.getEncodedTaskData(jobDataMap)).thenReturn(new byte[] {1, 2});
+    Assertions.assertSame(taskData, taskDataCache.getTaskData(jobKey, jobDataMap));
+
+    /* A different payload for the same job must not be served from the cache */
+    Mockito.when(jobParamsEncoder.getEncodedTaskData(jobDataMap)).thenReturn(new byte[] {1, 3});
+    taskDataCache.getTaskData(jobKey, jobDataMap);
+    taskDataCache.invalidate(jobKey);
+    taskDataCache.getTaskData(jobKey, jobDataMap);
+    taskDataCache.getTaskData(JobKey.jobKey("job2", "key"), jobDataMap);
+
+    Mockito.verify(jobParamsEncoder, Mockito.times(4)).getDecodeTaskData(jobDataMap);
+    Assertions.assertEquals(
+        2.0, meterRegistry.get("cache.gets").tag("result", "hit").counter().count());
+    Assertions.assertEquals(
+        4.0, meterRegistry.get("cache.gets").tag("result", "miss").counter().count());
+    Assertions.assertEquals(1.0, meterRegistry.get("cache.evictions").counter().count());
+    Assertions.assertEquals(1.0, meterRegistry.get("cache.size").gauge().value());
+  }
+
+  @Test
+  void rawJsonNeverCachedOK() {
+    IJobParamsEncoder jobParamsEncoder = Mockito.mock(IJobParamsEncoder.class);
+    MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    TaskDataCache taskDataCache = new TaskDataCache(jobParamsEncoder, meterRegistry, 10);
+    JobDataMap jobDataMap = new JobDataMap();
+    RawJsonData rawTaskData = new RawJsonData(new byte[] {'{', '}'});
+    Mockito.when(jobParamsEncoder.getRawTaskData(jobDataMap)).thenReturn(rawTaskData);
+
+    /* Sent as stored, there is nothing to decode */
+    Assertions.assertSame(
+        rawTaskData, taskDataCache.getTaskData(JobKey.jobKey("job", "key"), jobDataMap));
+    Mockito.verify(jobParamsEncoder, Mockito.never()).getDecodeTaskData(jobDataMap);
+    Assertions.assertEquals(0.0, meterRegistry.get("cache.size").gauge().value());
+  }
+}